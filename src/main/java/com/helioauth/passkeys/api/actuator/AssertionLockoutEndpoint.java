@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.actuator;
+
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the state of the failed-assertion tracker at {@code /actuator/assertionlockout}.
+ */
+@Component
+@Endpoint(id = "assertionlockout")
+@RequiredArgsConstructor
+public class AssertionLockoutEndpoint {
+
+    private final AssertionFailureTracker assertionFailureTracker;
+
+    @ReadOperation
+    public AssertionFailureTracker.Snapshot state() {
+        return assertionFailureTracker.snapshot();
+    }
+}
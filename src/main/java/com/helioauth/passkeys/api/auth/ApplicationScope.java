@@ -0,0 +1,119 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.auth;
+
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The client application whose users the current call can see.
+ * <p>
+ * User names are unique within an application, and users, credentials and every lookup of them
+ * carry its id. Start calls see the users of the application they authenticated as. Finish calls
+ * may come unauthenticated, so they are scoped with {@link #call} to the application resolved
+ * once from their request id by {@link #ofRequest}. Authenticated finish calls must be made by
+ * the application their ceremony was started for, see {@link #startedForAnother}.
+ * <p>
+ * Users registered before users were scoped are moved into an application at startup by
+ * {@link com.helioauth.passkeys.api.datasource.LegacyUsersBackfill}. Those it leaves without one are
+ * not found by any call.
+ */
+public final class ApplicationScope {
+
+    private static final ThreadLocal<UUID> BOUND = new ThreadLocal<>();
+
+    private ApplicationScope() {
+    }
+
+    /**
+     * @return the application bound with {@link #call}, else the one the caller authenticated as,
+     * or {@code null} for users of no application
+     */
+    public static UUID current() {
+        UUID bound = BOUND.get();
+        if (bound != null) {
+            return bound;
+        }
+        ClientApplication clientApp = ClientApplicationContext.current();
+        return clientApp != null ? clientApp.getId() : null;
+    }
+
+    /**
+     * @return the application the caller authenticated as, else the one the ceremony of
+     * {@code requestId} was started for, or {@code null} if neither names one
+     */
+    public static UUID ofRequest(String requestId) {
+        ClientApplication clientApp = ClientApplicationContext.current();
+        if (clientApp != null && clientApp.getId() != null) {
+            return clientApp.getId();
+        }
+        return startedFor(requestId);
+    }
+
+    /**
+     * @return whether the caller authenticated as one application and the ceremony of
+     * {@code requestId} was started for another, which must not be finished in its name
+     */
+    public static boolean startedForAnother(String requestId) {
+        ClientApplication clientApp = ClientApplicationContext.current();
+        UUID startedFor = startedFor(requestId);
+        return clientApp != null && clientApp.getId() != null && startedFor != null && !startedFor.equals(clientApp.getId());
+    }
+
+    public static <T> T call(UUID applicationId, Supplier<T> work) {
+        UUID previous = BOUND.get();
+        if (applicationId != null) {
+            BOUND.set(applicationId);
+        } else {
+            BOUND.remove();
+        }
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                BOUND.set(previous);
+            } else {
+                BOUND.remove();
+            }
+        }
+    }
+
+    private static UUID startedFor(String requestId) {
+        String applicationId = requestId != null ? CeremonyRequestCache.applicationIdOf(requestId) : null;
+        if (applicationId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(applicationId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs {@code lookup} for the current application. Calls of no application find nothing.
+     */
+    public static <T> Optional<T> find(Function<UUID, Optional<T>> lookup) {
+        UUID applicationId = current();
+        return applicationId != null ? lookup.apply(applicationId) : Optional.empty();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.auth;
+
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.grpc.ApiKeyAuthenticationInterceptor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * The client application the current gRPC call or REST request authenticated as.
+ */
+public final class ClientApplicationContext {
+
+    private ClientApplicationContext() {
+    }
+
+    /**
+     * @return the client application, or {@code null} if the caller did not authenticate as one
+     */
+    public static ClientApplication current() {
+        ClientApplication clientApp = ApiKeyAuthenticationInterceptor.CLIENT_APPLICATION.get();
+        if (clientApp == null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof ClientApplication principal) {
+                clientApp = principal;
+            }
+        }
+        return clientApp;
+    }
+
+    /**
+     * @return the id of the client application, or {@code null} if the caller did not authenticate as one
+     */
+    public static String currentId() {
+        ClientApplication clientApp = current();
+        return clientApp != null && clientApp.getId() != null ? clientApp.getId().toString() : null;
+    }
+}
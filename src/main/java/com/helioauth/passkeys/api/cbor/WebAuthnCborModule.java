@@ -0,0 +1,143 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.cbor;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.helioauth.passkeys.api.controller.dto.SignInStartResponseV2;
+import com.helioauth.passkeys.api.controller.dto.SignUpStartResponseV2;
+import com.helioauth.passkeys.api.generated.models.PasskeyCredential;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.exception.Base64UrlException;
+
+import java.io.IOException;
+
+/**
+ * Jackson module for the {@code application/cbor} representation of the API.
+ * <p>
+ * Binary WebAuthn values are written as CBOR byte strings instead of base64 text:
+ * every {@link ByteArray} (e.g. inside the v2 credential payloads) and the base64 encoded
+ * credential id and user handle of {@link PasskeyCredential}. Raw JSON options of the v2
+ * start responses are embedded as CBOR maps, since CBOR has no notion of raw JSON.
+ * Deserializers also accept the textual base64 forms, so clients may migrate field by field.
+ */
+public class WebAuthnCborModule extends SimpleModule {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public WebAuthnCborModule() {
+        super("WebAuthnCborModule");
+
+        addSerializer(ByteArray.class, new ByteArraySerializer());
+        addDeserializer(ByteArray.class, new ByteArrayDeserializer());
+
+        setMixInAnnotation(PasskeyCredential.class, PasskeyCredentialMixin.class);
+        setMixInAnnotation(SignUpStartResponseV2.class, SignUpStartResponseV2Mixin.class);
+        setMixInAnnotation(SignInStartResponseV2.class, SignInStartResponseV2Mixin.class);
+    }
+
+    static class ByteArraySerializer extends JsonSerializer<ByteArray> {
+        @Override
+        public void serialize(ByteArray value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeBinary(value.getBytes());
+        }
+    }
+
+    static class ByteArrayDeserializer extends JsonDeserializer<ByteArray> {
+        @Override
+        public ByteArray deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                try {
+                    return ByteArray.fromBase64Url(p.getText());
+                } catch (Base64UrlException e) {
+                    return (ByteArray) ctxt.handleWeirdStringValue(ByteArray.class, p.getText(), "Invalid base64url value");
+                }
+            }
+
+            return new ByteArray(p.getBinaryValue());
+        }
+    }
+
+    /**
+     * Writes a standard base64 string as a CBOR byte string.
+     */
+    static class Base64AsBinarySerializer extends JsonSerializer<String> {
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeBinary(ByteArray.fromBase64(value).getBytes());
+        }
+    }
+
+    /**
+     * Reads a CBOR byte string (or base64 text) into a standard base64 string.
+     */
+    static class BinaryAsBase64Deserializer extends JsonDeserializer<String> {
+        @Override
+        public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return p.getText();
+            }
+
+            return new ByteArray(p.getBinaryValue()).getBase64();
+        }
+    }
+
+    /**
+     * Streams a serialized JSON document into the generator as structured CBOR.
+     */
+    static class EmbeddedJsonSerializer extends JsonSerializer<String> {
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            try (JsonParser parser = JSON_FACTORY.createParser(value)) {
+                parser.nextToken();
+                gen.copyCurrentStructure(parser);
+            }
+        }
+    }
+
+    abstract static class PasskeyCredentialMixin {
+        @JsonSerialize(using = Base64AsBinarySerializer.class)
+        @JsonDeserialize(using = BinaryAsBase64Deserializer.class)
+        abstract String getCredentialId();
+
+        @JsonSerialize(using = Base64AsBinarySerializer.class)
+        @JsonDeserialize(using = BinaryAsBase64Deserializer.class)
+        abstract String getUserHandle();
+    }
+
+    abstract static class SignUpStartResponseV2Mixin {
+        @JsonRawValue(false)
+        @JsonSerialize(using = EmbeddedJsonSerializer.class)
+        abstract String options();
+    }
+
+    abstract static class SignInStartResponseV2Mixin {
+        @JsonRawValue(false)
+        @JsonSerialize(using = EmbeddedJsonSerializer.class)
+        abstract String options();
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.cluster;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Sends the finish call of a ceremony to the node that started it.
+ * <p>
+ * Every response names the node that served it in {@value #NODE_HEADER}; clients echo the value
+ * of the start response on finish so a load balancer can route on it. When forwarding is enabled,
+ * a finish call that still arrives elsewhere is relayed to the node its request id names, and
+ * that node's response is returned as is. The relayed call carries the shared secret and the
+ * client address, so the owner applies assertion lockouts to the client rather than its peer.
+ * Relayed calls are never relayed again.
+ */
+@Slf4j
+public class CeremonyForwardingFilter extends OncePerRequestFilter {
+
+    public static final String NODE_HEADER = "X-Ceremony-Node";
+    public static final String FORWARDED_HEADER = "X-Ceremony-Forwarded";
+    public static final String FORWARDED_FOR_HEADER = "X-Ceremony-Forwarded-For";
+
+    private static final Set<String> FINISH_PATHS = Set.of(
+        "/v1/signup/finish",
+        "/v2/signup/finish",
+        "/v1/signin/finish",
+        "/v2/signin/finish"
+    );
+
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+        "connection", "content-length", "expect", "host", "keep-alive", "proxy-connection", "te", "trailer",
+        "transfer-encoding", "upgrade", FORWARDED_HEADER.toLowerCase(Locale.ROOT), FORWARDED_FOR_HEADER.toLowerCase(Locale.ROOT)
+    );
+
+    private static final String REQUEST_ID = "requestId";
+
+    private final CeremonyRequestIds requestIds;
+    private final ClusterProperties.Forwarding properties;
+    private final String node;
+    private final byte[] secret;
+    private final HttpClient httpClient;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final JsonFactory cborFactory = new CBORFactory();
+
+    public CeremonyForwardingFilter(CeremonyRequestIds requestIds, ClusterProperties.Forwarding properties) {
+        this.requestIds = requestIds;
+        this.properties = properties;
+        this.node = String.valueOf(requestIds.nodeId());
+        this.secret = properties.getSecret() != null ? properties.getSecret().getBytes(StandardCharsets.UTF_8) : null;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(properties.getConnectTimeout())
+            .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        response.setHeader(NODE_HEADER, node);
+        if (!properties.isEnabled() || !isFinish(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String forwardedBy = request.getHeader(FORWARDED_HEADER);
+        if (forwardedBy != null) {
+            filterChain.doFilter(isPeer(forwardedBy) ? new RelayedRequest(request) : request, response);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        CeremonyRequestIds.Origin origin = CeremonyRequestIds.originOf(readRequestId(request.getContentType(), body));
+        URI owner = origin != null && origin.nodeId() != requestIds.nodeId() ? properties.getNodes().get(origin.nodeId()) : null;
+        if (owner == null) {
+            if (origin != null && origin.nodeId() == requestIds.nodeId() && !requestIds.isCurrent(origin)) {
+                log.debug("Finishing a ceremony started before this node restarted");
+            }
+            filterChain.doFilter(new BufferedRequest(request, body), response);
+            return;
+        }
+
+        forward(request, body, origin.nodeId(), owner, response);
+    }
+
+    private boolean isFinish(HttpServletRequest request) {
+        return "POST".equals(request.getMethod())
+            && FINISH_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private boolean isPeer(String forwardedBy) {
+        return secret != null && MessageDigest.isEqual(secret, forwardedBy.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the top-level {@code requestId} of a JSON or CBOR body, or {@code null} if there is
+     * none; the controller reports malformed bodies
+     */
+    private String readRequestId(String contentType, byte[] body) {
+        JsonFactory factory = contentType != null && contentType.regionMatches(true, 0, MediaType.APPLICATION_CBOR_VALUE, 0,
+            MediaType.APPLICATION_CBOR_VALUE.length()) ? cborFactory : jsonFactory;
+
+        try (JsonParser parser = factory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (REQUEST_ID.equals(field)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private void forward(HttpServletRequest request, byte[] body, int ownerId, URI owner, HttpServletResponse response)
+        throws IOException {
+        String query = request.getQueryString();
+        HttpRequest.Builder relayed = HttpRequest.newBuilder(owner.resolve(request.getRequestURI() + (query != null ? "?" + query : "")))
+            .timeout(properties.getTimeout())
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                Collections.list(request.getHeaders(name)).forEach(value -> relayed.header(name, value));
+            }
+        }
+        relayed.header(FORWARDED_HEADER, properties.getSecret());
+        relayed.header(FORWARDED_FOR_HEADER, request.getRemoteAddr());
+
+        HttpResponse<byte[]> answer;
+        try {
+            answer = httpClient.send(relayed.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while forwarding to node " + ownerId);
+        } catch (IOException e) {
+            log.warn("Could not forward {} to node {} at {}: {}", request.getRequestURI(), ownerId, owner, e.toString());
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The node holding this ceremony is unavailable");
+            return;
+        }
+
+        response.setStatus(answer.statusCode());
+        answer.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                response.setHeader(name, values.get(0));
+                values.subList(1, values.size()).forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.getOutputStream().write(answer.body());
+    }
+
+    /**
+     * A request whose body was read to find its request id.
+     */
+    private static final class BufferedRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The body is already in memory, so all of it is available at once
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                encoding != null ? encoding : StandardCharsets.UTF_8.name()));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+
+    /**
+     * A request relayed by a peer, seen as coming from the client the peer received it from.
+     */
+    private static final class RelayedRequest extends HttpServletRequestWrapper {
+
+        private RelayedRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            String client = getHeader(FORWARDED_FOR_HEADER);
+            return client != null ? client : super.getRemoteAddr();
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return getRemoteAddr();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.cluster;
+
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import com.helioauth.passkeys.api.domain.CacheInvalidation;
+import com.helioauth.passkeys.api.domain.CacheInvalidationRepository;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
+import com.helioauth.passkeys.api.service.event.UserChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the other nodes about changes to client applications and users, so they drop what they
+ * cache of them.
+ * <p>
+ * {@link ClientApplicationChangedEvent}s and {@link UserChangedEvent}s are collected for
+ * {@code cluster.invalidation.batch-window}, duplicates merged, and written to the
+ * {@link CacheInvalidation} log in one transaction. On PostgreSQL the transaction also sends a
+ * {@code NOTIFY}, and every node keeps a connection of its own listening for it; other databases
+ * only read the log every {@code cluster.invalidation.poll-interval}. Each node reads the changes
+ * of the others from the log and publishes them again as local events, which is where its caches
+ * listen. After a reconnect it reads what it missed, or, if it was away for longer than the log is
+ * kept, publishes a change of everything.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "cluster.invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class InvalidationBus implements SmartLifecycle {
+
+    static final String CHANNEL = "passkeys_invalidation";
+
+    /**
+     * Changes of other nodes may commit out of id order. Reading again this far behind the newest
+     * id seen picks up the late ones.
+     */
+    private static final int LOOKBACK = 256;
+
+    private static final ThreadLocal<Boolean> RELAYING = ThreadLocal.withInitial(() -> false);
+
+    private final CacheInvalidationRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataSourceProperties dataSourceProperties;
+    private final ClusterProperties.Invalidation properties;
+    private final boolean postgres;
+    private final long origin = new SecureRandom().nextLong();
+
+    private final Set<Change> pending = ConcurrentHashMap.newKeySet();
+    private final Counter sent;
+    private final Counter received;
+
+    // Only touched by the listener thread
+    private final NavigableSet<Long> applied = new TreeSet<>();
+    private long newestApplied;
+    private Instant lastRead;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+    private Thread listener;
+
+    public InvalidationBus(CacheInvalidationRepository repository,
+                           PlatformTransactionManager transactionManager,
+                           JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           DataSourceProperties dataSourceProperties,
+                           ClusterProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.dataSourceProperties = dataSourceProperties;
+        this.properties = properties.getInvalidation();
+        this.postgres = dataSourceProperties.determineUrl() != null
+            && dataSourceProperties.determineUrl().startsWith("jdbc:postgresql:");
+        this.sent = Counter.builder("passkeys.cache.invalidations").tag("direction", "sent").register(meterRegistry);
+        this.received = Counter.builder("passkeys.cache.invalidations").tag("direction", "received").register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClientApplicationChanged(ClientApplicationChangedEvent event) {
+        enqueue(CacheInvalidation.Type.CLIENT_APPLICATION, event.applicationId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        enqueue(CacheInvalidation.Type.USER, event.userId());
+    }
+
+    private void enqueue(CacheInvalidation.Type type, UUID subject) {
+        // Changes relayed from other nodes are already in the log
+        if (!RELAYING.get()) {
+            pending.add(new Change(type, subject));
+        }
+    }
+
+    @Override
+    public void start() {
+        newestApplied = repository.findMaxId();
+        lastRead = Instant.now();
+        read(false);
+
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "invalidation-writer"));
+        long window = properties.getBatchWindow().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::prune, 1, 1, TimeUnit.MINUTES);
+
+        listener = new Thread(this::listen, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(properties.getBatchWindow().toMillis() * 10, TimeUnit.MILLISECONDS);
+            flush();
+            listener.interrupt();
+            listener.join(properties.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Writes the collected changes to the log and notifies the other nodes.
+     */
+    void flush() {
+        List<CacheInvalidation> batch = new ArrayList<>();
+        Instant now = Instant.now();
+        for (Iterator<Change> changes = pending.iterator(); changes.hasNext(); ) {
+            Change change = changes.next();
+            changes.remove();
+            batch.add(CacheInvalidation.builder()
+                .origin(origin)
+                .type(change.type())
+                .subject(change.subject())
+                .createdAt(now)
+                .build());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.saveAll(batch);
+                if (postgres) {
+                    // Delivered on commit
+                    jdbcTemplate.execute("NOTIFY " + CHANNEL + ", '" + origin + "'");
+                }
+            });
+            sent.increment(batch.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not send {} cache invalidations, retrying: {}", batch.size(), e.getMessage());
+            batch.forEach(invalidation -> pending.add(new Change(invalidation.getType(), invalidation.getSubject())));
+        }
+    }
+
+    private void prune() {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                repository.deleteAllCreatedBefore(Instant.now().minus(properties.getRetention())));
+        } catch (DataAccessException e) {
+            log.warn("Could not prune cache invalidations: {}", e.getMessage());
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = postgres ? listenConnection() : null) {
+                catchUp();
+                while (running) {
+                    if (connection != null) {
+                        PGNotification[] notifications = connection.unwrap(PGConnection.class)
+                            .getNotifications((int) properties.getPollInterval().toMillis());
+                        if (notifications != null && notifications.length > 0 && fromSelf(notifications)) {
+                            continue;
+                        }
+                    } else {
+                        Thread.sleep(properties.getPollInterval().toMillis());
+                    }
+                    read(true);
+                }
+            } catch (SQLException | DataAccessException e) {
+                log.warn("Lost the cache invalidation log, reconnecting: {}", e.getMessage());
+                if (!pause(properties.getReconnectDelay())) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private Connection listenConnection() throws SQLException {
+        // Not from the pool: the connection is held for as long as the node runs
+        Connection connection = DriverManager.getConnection(
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword()
+        );
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private boolean fromSelf(PGNotification[] notifications) {
+        String self = String.valueOf(origin);
+        for (PGNotification notification : notifications) {
+            if (!self.equals(notification.getParameter())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void catchUp() {
+        if (Duration.between(lastRead, Instant.now()).compareTo(properties.getRetention()) < 0) {
+            read(true);
+            return;
+        }
+
+        log.warn("Disconnected from the cache invalidation log for longer than it is kept, invalidating everything");
+        newestApplied = repository.findMaxId();
+        applied.clear();
+        lastRead = Instant.now();
+        relay(Set.of(new Change(CacheInvalidation.Type.CLIENT_APPLICATION, null), new Change(CacheInvalidation.Type.USER, null)));
+    }
+
+    /**
+     * Applies the changes of other nodes not applied yet.
+     *
+     * @param relay {@code false} to only mark them applied
+     */
+    private void read(boolean relay) {
+        Set<Change> changes = new LinkedHashSet<>();
+        for (CacheInvalidation invalidation : repository.findAllByIdGreaterThanOrderById(Math.max(0, newestApplied - LOOKBACK))) {
+            if (applied.add(invalidation.getId()) && invalidation.getOrigin() != origin) {
+                changes.add(new Change(invalidation.getType(), invalidation.getSubject()));
+            }
+            newestApplied = Math.max(newestApplied, invalidation.getId());
+        }
+        applied.headSet(newestApplied - LOOKBACK, true).clear();
+        lastRead = Instant.now();
+
+        if (relay) {
+            relay(changes);
+        }
+    }
+
+    private void relay(Set<Change> changes) {
+        RELAYING.set(true);
+        try {
+            for (Change change : changes) {
+                try {
+                    eventPublisher.publishEvent(switch (change.type()) {
+                        case CLIENT_APPLICATION -> new ClientApplicationChangedEvent(change.subject());
+                        case USER -> new UserChangedEvent(change.subject());
+                    });
+                    received.increment();
+                } catch (RuntimeException e) {
+                    log.error("Failed to apply cache invalidation {}", change, e);
+                }
+            }
+        } finally {
+            RELAYING.remove();
+        }
+    }
+
+    private boolean pause(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private record Change(CacheInvalidation.Type type, UUID subject) {
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.cluster.CeremonyForwardingFilter;
+import com.helioauth.passkeys.api.config.properties.CorsProperties;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Allows cross-origin requests to the versioned API endpoints only from origins that belong to a registered client application
+ * (derived from its relying party hostname) or that are configured in {@code cors.allowed-origins}.
+ * <p>
+ * Allowed origins are kept in an immutable set that is rebuilt whenever an application changes,
+ * so checking an origin is a single hash lookup. Preflight responses carry a long
+ * {@code Access-Control-Max-Age} so browsers don't repeat them for every ceremony call.
+ */
+@Slf4j
+@Component
+public class ClientApplicationCorsConfigurationSource implements CorsConfigurationSource {
+
+    private static final String LOCALHOST = "localhost";
+    private static final List<String> CORS_PATH_PREFIXES = List.of("/v1/", "/v2/");
+
+    private final ClientApplicationRepository clientApplicationRepository;
+    private final CorsProperties corsProperties;
+    private final WebAuthnRelyingPartyProperties relyingPartyProperties;
+    private final CorsConfiguration corsConfiguration;
+
+    private volatile AllowedOrigins allowedOrigins = new AllowedOrigins(Set.of(), Set.of());
+
+    public ClientApplicationCorsConfigurationSource(ClientApplicationRepository clientApplicationRepository,
+                                                    CorsProperties corsProperties,
+                                                    WebAuthnRelyingPartyProperties relyingPartyProperties) {
+        this.clientApplicationRepository = clientApplicationRepository;
+        this.corsProperties = corsProperties;
+        this.relyingPartyProperties = relyingPartyProperties;
+        this.corsConfiguration = buildCorsConfiguration();
+    }
+
+    @Override
+    public CorsConfiguration getCorsConfiguration(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        for (String prefix : CORS_PATH_PREFIXES) {
+            if (uri.startsWith(prefix)) {
+                return corsConfiguration;
+            }
+        }
+        return null;
+    }
+
+    public boolean isAllowed(String origin) {
+        if (origin == null) {
+            return false;
+        }
+
+        String normalized = origin.toLowerCase(Locale.ROOT);
+        AllowedOrigins current = allowedOrigins;
+        if (current.origins().contains(normalized)) {
+            return true;
+        }
+
+        if (!relyingPartyProperties.isAllowOriginPort()) {
+            return false;
+        }
+
+        try {
+            URI uri = URI.create(normalized);
+            return uri.getHost() != null
+                && isSecureScheme(uri.getScheme(), uri.getHost())
+                && current.hostnames().contains(uri.getHost());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClientApplicationChanged(ClientApplicationChangedEvent event) {
+        refresh();
+    }
+
+    public void refresh() {
+        Set<String> origins = new HashSet<>();
+        Set<String> hostnames = new HashSet<>();
+
+        for (String origin : corsProperties.getAllowedOrigins()) {
+            origins.add(stripTrailingSlash(origin.toLowerCase(Locale.ROOT)));
+        }
+
+        addHostname(relyingPartyProperties.getHostname(), origins, hostnames);
+        for (ClientApplication application : clientApplicationRepository.findAll()) {
+            addHostname(application.getRelyingPartyHostname(), origins, hostnames);
+        }
+
+        allowedOrigins = new AllowedOrigins(Set.copyOf(origins), Set.copyOf(hostnames));
+        log.debug("Refreshed CORS origins: {} origins, {} hostnames", origins.size(), hostnames.size());
+    }
+
+    private CorsConfiguration buildCorsConfiguration() {
+        CorsConfiguration configuration = new CorsConfiguration() {
+            @Override
+            public String checkOrigin(String origin) {
+                return isAllowed(origin) ? origin : null;
+            }
+        };
+        configuration.setAllowedMethods(List.of(
+            HttpMethod.GET.name(),
+            HttpMethod.POST.name(),
+            HttpMethod.DELETE.name()
+        ));
+        configuration.addAllowedHeader(CorsConfiguration.ALL);
+        configuration.addExposedHeader(CeremonyForwardingFilter.NODE_HEADER);
+        configuration.setMaxAge(corsProperties.getMaxAge());
+
+        return configuration;
+    }
+
+    private static void addHostname(String hostname, Set<String> origins, Set<String> hostnames) {
+        if (hostname == null || hostname.isBlank()) {
+            return;
+        }
+
+        String host = hostname.trim().toLowerCase(Locale.ROOT);
+        hostnames.add(host);
+        origins.add("https://" + host);
+        if (LOCALHOST.equals(host)) {
+            origins.add("http://" + host);
+        }
+    }
+
+    private static boolean isSecureScheme(String scheme, String host) {
+        return "https".equals(scheme) || ("http".equals(scheme) && LOCALHOST.equals(host));
+    }
+
+    private static String stripTrailingSlash(String origin) {
+        return origin.endsWith("/") ? origin.substring(0, origin.length() - 1) : origin;
+    }
+
+    private record AllowedOrigins(Set<String> origins, Set<String> hostnames) {}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.cluster.CeremonyForwardingFilter;
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+
+/**
+ * Routes ceremony finish calls to the replica that started the ceremony.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    public FilterRegistrationBean<CeremonyForwardingFilter> ceremonyForwardingFilter(CeremonyRequestIds requestIds,
+                                                                                     ClusterProperties properties) {
+        ClusterProperties.Forwarding forwarding = properties.getForwarding();
+        if (forwarding.isEnabled() && !StringUtils.hasText(forwarding.getSecret())) {
+            throw new IllegalStateException("cluster.forwarding.secret must be set when forwarding is enabled");
+        }
+
+        FilterRegistrationBean<CeremonyForwardingFilter> registration =
+            new FilterRegistrationBean<>(new CeremonyForwardingFilter(requestIds, forwarding));
+        // After the observation filter, so a relayed call is traced, but ahead of Spring Security,
+        // so it is authenticated only by the node that handles it
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Read replicas, sharding and tenant pools each replace the auto-configured {@link DataSource}
+ * with a routing data source of their own, and none of them routes through another yet. Enabling
+ * more than one fails startup before any bean is created.
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+
+    static final List<String> EXCLUSIVE = List.of("read-replicas.enabled", "sharding.enabled", "tenant-pools.enabled");
+
+    @Bean
+    public static BeanFactoryPostProcessor exclusiveDataSourceRouting(Environment environment) {
+        return beanFactory -> {
+            List<String> enabled = EXCLUSIVE.stream()
+                .filter(property -> environment.getProperty(property, Boolean.class, false))
+                .toList();
+            if (enabled.size() > 1) {
+                throw new IllegalStateException(String.join(" and ", enabled) + " cannot be combined yet, "
+                    + "enable at most one of " + String.join(", ", EXCLUSIVE));
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lets several {@link org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer}s
+ * register integrators, which Hibernate takes from a single property.
+ */
+final class HibernateIntegrators {
+
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+    private HibernateIntegrators() {
+    }
+
+    static void add(Map<String, Object> hibernateProperties, Integrator integrator) {
+        List<Integrator> integrators = new ArrayList<>();
+        if (hibernateProperties.get(INTEGRATOR_PROVIDER) instanceof IntegratorProvider existing) {
+            integrators.addAll(existing.getIntegrators());
+        }
+        integrators.add(integrator);
+        hibernateProperties.put(INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.copyOf(integrators));
+    }
+}
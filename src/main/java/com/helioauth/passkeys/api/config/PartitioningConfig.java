@@ -0,0 +1,154 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.config.properties.PartitioningProperties;
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.helioauth.passkeys.api.datasource.PartitionedTables;
+import com.helioauth.passkeys.api.datasource.ShardRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.boot.model.relational.Sequence;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Table;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaFilter;
+import org.hibernate.tool.schema.spi.SchemaFilterProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps Hibernate's schema management away from {@code users} and {@code user_credentials} and
+ * maintains them as {@link PartitionedTables} instead, with the columns Hibernate maps, on every
+ * shard.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "partitioning", name = "enabled", havingValue = "true")
+public class PartitioningConfig {
+
+    private static final Set<String> PARTITIONED = Set.of(PartitionedTables.USERS, PartitionedTables.CREDENTIALS);
+
+    @Bean
+    public HibernatePropertiesCustomizer partitionedTables(PartitioningProperties properties,
+                                                           ShardingProperties shardingProperties,
+                                                           DataSourceProperties dataSourceProperties) {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith("jdbc:postgresql:")) {
+            throw new IllegalStateException("partitioning.enabled requires PostgreSQL");
+        }
+        int shardCount = shardingProperties.isEnabled() ? shardingProperties.getShards().size() + 1 : 1;
+
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+                ConnectionProvider connections = sessionFactory.getServiceRegistry().requireService(ConnectionProvider.class);
+                List<PartitionedTables.Column> users = columns(metadata, PartitionedTables.USERS);
+                List<PartitionedTables.Column> credentials = columns(metadata, PartitionedTables.CREDENTIALS);
+                for (int shard = 0; shard < shardCount; shard++) {
+                    ShardRoutingDataSource.onShard(shard, () -> {
+                        try {
+                            Connection connection = connections.getConnection();
+                            try {
+                                PartitionedTables.apply(connection, users, credentials, properties.getCredentialPartitions());
+                            } finally {
+                                connections.closeConnection(connection);
+                            }
+                        } catch (SQLException e) {
+                            throw new IllegalStateException("Could not set up the partitioned tables", e);
+                        }
+                        return null;
+                    });
+                }
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            }
+        };
+
+        return hibernateProperties -> {
+            hibernateProperties.put("hibernate.hbm2ddl.schema_filter_provider", new UnpartitionedTables());
+            HibernateIntegrators.add(hibernateProperties, integrator);
+        };
+    }
+
+    private static List<PartitionedTables.Column> columns(Metadata metadata, String tableName) {
+        Table table = metadata.getDatabase().getDefaultNamespace().getTables().stream()
+            .filter(candidate -> candidate.getName().equals(tableName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No entity is mapped to " + tableName));
+        return table.getColumns().stream()
+            .map(column -> new PartitionedTables.Column(column.getName(), column.getSqlType(metadata), column.isNullable()))
+            .toList();
+    }
+
+    private static final class UnpartitionedTables implements SchemaFilterProvider, SchemaFilter {
+
+        @Override
+        public boolean includeNamespace(Namespace namespace) {
+            return true;
+        }
+
+        @Override
+        public boolean includeTable(Table table) {
+            return !PARTITIONED.contains(table.getName());
+        }
+
+        @Override
+        public boolean includeSequence(Sequence sequence) {
+            return true;
+        }
+
+        @Override
+        public SchemaFilter getCreateFilter() {
+            return this;
+        }
+
+        @Override
+        public SchemaFilter getDropFilter() {
+            return this;
+        }
+
+        @Override
+        public SchemaFilter getTruncatorFilter() {
+            return this;
+        }
+
+        @Override
+        public SchemaFilter getMigrateFilter() {
+            return this;
+        }
+
+        @Override
+        public SchemaFilter getValidateFilter() {
+            return this;
+        }
+    }
+}
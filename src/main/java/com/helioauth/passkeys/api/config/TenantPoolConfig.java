@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.config.properties.TenantPoolProperties;
+import com.helioauth.passkeys.api.datasource.TenantPoolRoutingDataSource;
+import com.helioauth.passkeys.api.datasource.TenantPools;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Replaces the auto-configured {@link DataSource} with one that gives each tier of client
+ * applications under {@code tenant-pools.pools} a pool of its own, on the database under
+ * {@code spring.datasource}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tenant-pools", name = "enabled", havingValue = "true")
+public class TenantPoolConfig {
+
+    @Bean
+    public TenantPools tenantPools(TenantPoolProperties properties, DataSourceProperties dataSourceProperties,
+                                   Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource shared = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(shared));
+        if (properties.getStatementTimeout() != null) {
+            shared.setConnectionInitSql(statementTimeoutSql(shared.getJdbcUrl(), properties.getStatementTimeout()));
+        }
+
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        Map<UUID, String> applications = new LinkedHashMap<>();
+        properties.getPools().forEach((name, pool) -> {
+            if (name.equals(TenantPools.SHARED)) {
+                throw new IllegalStateException("tenant-pools.pools cannot use the name " + TenantPools.SHARED);
+            }
+
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(shared.getJdbcUrl());
+            dataSource.setUsername(shared.getUsername());
+            dataSource.setPassword(shared.getPassword());
+            dataSource.setMaximumPoolSize(pool.getMaximumPoolSize());
+            dataSource.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+            if (pool.getStatementTimeout() != null) {
+                dataSource.setConnectionInitSql(statementTimeoutSql(shared.getJdbcUrl(), pool.getStatementTimeout()));
+            }
+            meterRegistry.ifAvailable(dataSource::setMetricRegistry);
+            pools.put(name, dataSource);
+
+            for (UUID applicationId : pool.getApplications()) {
+                String previous = applications.put(applicationId, name);
+                if (previous != null) {
+                    throw new IllegalStateException("Client application " + applicationId + " is in both tenant-pools.pools."
+                        + previous + " and tenant-pools.pools." + name);
+                }
+            }
+        });
+        return new TenantPools(shared, pools, applications);
+    }
+
+    @Bean
+    public TenantPoolRoutingDataSource tenantPoolRoutingDataSource(TenantPools tenantPools) {
+        return new TenantPoolRoutingDataSource(tenantPools.shared(), tenantPools);
+    }
+
+    /**
+     * Sets the timeout for the session, once per connection, rather than on every statement.
+     */
+    static String statementTimeoutSql(String jdbcUrl, Duration timeout) {
+        if (jdbcUrl.startsWith("jdbc:postgresql:")) {
+            return "SET statement_timeout = " + timeout.toMillis();
+        }
+        if (jdbcUrl.startsWith("jdbc:h2:")) {
+            return "SET QUERY_TIMEOUT " + timeout.toMillis();
+        }
+        throw new IllegalStateException("Statement timeouts under tenant-pools are not supported for " + jdbcUrl);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.config.properties.TailSamplingProperties;
+import com.helioauth.passkeys.api.tracing.RepositoryObservationInterceptor;
+import com.helioauth.passkeys.api.tracing.TailSamplingSpanProcessor;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.autoconfigure.tracing.SpanProcessors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Tracing on top of Spring Boot's OpenTelemetry setup, which already traces HTTP requests and
+ * continues the caller's {@code traceparent}.
+ * <p>
+ * Adds spans for repository calls and routes finished traces through tail sampling before
+ * Boot's batching OTLP exporter.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                        (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(new RepositoryObservationInterceptor(
+                            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP),
+                            repositoryInformation.getRepositoryInterface()
+                        ))
+                    ));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Samples every trace upfront. Boot's default sampler follows the caller's {@code traceparent},
+     * so a caller that did not sample its trace would otherwise hide failures from the tail sampler.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing.tail-sampling", name = "enabled", matchIfMissing = true)
+    public Sampler tailSamplingSampler() {
+        return Sampler.alwaysOn();
+    }
+
+    /**
+     * Replaces Boot's list of span processors, so exported spans pass the tail sampler first.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing.tail-sampling", name = "enabled", matchIfMissing = true)
+    public SpanProcessors tailSamplingSpanProcessors(ObjectProvider<SpanProcessor> spanProcessors, TailSamplingProperties properties) {
+        return SpanProcessors.of(spanProcessors.orderedStream()
+            .map(processor -> processor instanceof BatchSpanProcessor
+                ? new TailSamplingSpanProcessor(processor, properties)
+                : processor)
+            .toList());
+    }
+}
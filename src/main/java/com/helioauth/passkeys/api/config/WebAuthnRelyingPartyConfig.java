@@ -16,10 +16,11 @@
 
 package com.helioauth.passkeys.api.config;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+import com.helioauth.passkeys.api.webauthn.CeremonyStore;
 import com.helioauth.passkeys.api.webauthn.DatabaseCredentialRepository;
+import com.helioauth.passkeys.api.webauthn.OffHeapCeremonyStore;
 import com.yubico.webauthn.RelyingParty;
 import com.yubico.webauthn.data.RelyingPartyIdentity;
 import org.springframework.context.annotation.Bean;
@@ -49,10 +50,10 @@ public class WebAuthnRelyingPartyConfig {
     }
 
     @Bean
-    public Cache<String, String> webAuthnRequestCache(WebAuthnRelyingPartyProperties.Cache cacheConfig) {
-        return Caffeine.newBuilder()
-            .expireAfterWrite(cacheConfig.getExpiration())
-            .maximumSize(cacheConfig.getMaxSize())
-            .build();
+    public CeremonyStore webAuthnRequestCache(WebAuthnRelyingPartyProperties.Cache cacheConfig) {
+        return switch (cacheConfig.getStore()) {
+            case HEAP -> new CeremonyRequestCache(cacheConfig);
+            case OFF_HEAP -> new OffHeapCeremonyStore(cacheConfig);
+        };
     }
 }
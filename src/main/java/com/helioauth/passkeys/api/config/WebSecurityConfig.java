@@ -22,11 +22,11 @@ import com.helioauth.passkeys.api.auth.ApplicationIdAuthenticationProvider;
 import com.helioauth.passkeys.api.config.properties.AdminConfigProperties;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -35,6 +35,7 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.preauth.RequestHeaderAuthenticationFilter;
 import org.springframework.security.web.header.HeaderWriterFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
@@ -50,6 +51,7 @@ public class WebSecurityConfig {
     private final AdminApiAuthenticationProvider adminApiAuthenticationProvider;
     private final ApplicationIdAuthenticationProvider applicationIdAuthenticationProvider;
     private final ApplicationApiKeyAuthenticationProvider applicationApiKeyAuthenticationProvider;
+    private final ClientApplicationCorsConfigurationSource corsConfigurationSource;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http,
@@ -58,16 +60,19 @@ public class WebSecurityConfig {
                                           RequestHeaderAuthenticationFilter applicationApiKeyAuthFilter) throws Exception {
 
         http
-            .cors(Customizer.withDefaults())
+            .cors(config -> config.configurationSource(corsConfigurationSource))
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(config -> config.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .addFilterAfter(adminAuthFilter, HeaderWriterFilter.class)
             .addFilterAfter(applicationIdAuthFilter, HeaderWriterFilter.class)
             .addFilterAfter(applicationApiKeyAuthFilter, HeaderWriterFilter.class)
             .authorizeHttpRequests(registry -> registry
-                .requestMatchers("/admin/**").hasRole("ADMIN")
-                .requestMatchers("/v1/signup/start").hasRole("FRONTEND_APPLICATION")
-                .requestMatchers("/v1/signup/finish").hasRole("APPLICATION")
+                .requestMatchers("/admin/**", "/actuator/assertionlockout", "/actuator/flightrecording").hasRole("ADMIN")
+                .requestMatchers("/v1/signup/start", "/v2/signup/start", "/v1/signin/start", "/v2/signin/start",
+                        "/v1/credentials/add/start")
+                    .hasRole("FRONTEND_APPLICATION")
+                .requestMatchers("/v1/signup/finish", "/v2/signup/finish", "/v1/credentials/add/finish", "/v1/users/**")
+                    .hasRole("APPLICATION")
                 .anyRequest().permitAll()
             )
             .exceptionHandling(config -> config
@@ -82,7 +87,11 @@ public class WebSecurityConfig {
         RequestHeaderAuthenticationFilter filter = new RequestHeaderAuthenticationFilter();
         filter.setPrincipalRequestHeader(adminConfigProperties.getAuth().getHeaderName());
         filter.setExceptionIfHeaderMissing(false);
-        filter.setRequiresAuthenticationRequestMatcher(new AntPathRequestMatcher("/admin/**"));
+        filter.setRequiresAuthenticationRequestMatcher(new OrRequestMatcher(
+            new AntPathRequestMatcher("/admin/**"),
+            new AntPathRequestMatcher("/actuator/assertionlockout"),
+            new AntPathRequestMatcher("/actuator/flightrecording")
+        ));
         filter.setAuthenticationManager(adminAuthenticationManager());
 
         return filter;
@@ -93,7 +102,14 @@ public class WebSecurityConfig {
         RequestHeaderAuthenticationFilter filter = new RequestHeaderAuthenticationFilter();
         filter.setPrincipalRequestHeader(authHeader);
         filter.setExceptionIfHeaderMissing(false);
-        filter.setRequiresAuthenticationRequestMatcher(new AntPathRequestMatcher("/v1/signup/start"));
+        // Start calls only see the users of the application they name
+        filter.setRequiresAuthenticationRequestMatcher(new OrRequestMatcher(
+            new AntPathRequestMatcher("/v1/signup/start"),
+            new AntPathRequestMatcher("/v2/signup/start"),
+            new AntPathRequestMatcher("/v1/signin/start"),
+            new AntPathRequestMatcher("/v2/signin/start"),
+            new AntPathRequestMatcher("/v1/credentials/add/start")
+        ));
         filter.setAuthenticationManager(appIdAuthenticationManager());
 
         return filter;
@@ -104,12 +120,47 @@ public class WebSecurityConfig {
         RequestHeaderAuthenticationFilter filter = new RequestHeaderAuthenticationFilter();
         filter.setPrincipalRequestHeader(authHeader);
         filter.setExceptionIfHeaderMissing(false);
-        filter.setRequiresAuthenticationRequestMatcher(new AntPathRequestMatcher("/v1/signup/finish"));
+        // Back-end calls act on the users of the application the key belongs to
+        filter.setRequiresAuthenticationRequestMatcher(new OrRequestMatcher(
+            new AntPathRequestMatcher("/v1/signup/finish"),
+            new AntPathRequestMatcher("/v2/signup/finish"),
+            new AntPathRequestMatcher("/v1/credentials/add/finish"),
+            new AntPathRequestMatcher("/v1/users/**")
+        ));
         filter.setAuthenticationManager(appApiKeyAuthenticationManager());
 
         return filter;
     }
 
+    /**
+     * The authentication filters belong to the security filter chain only; without these the
+     * servlet container would run them a second time, looking the application up twice.
+     */
+    @Bean
+    public FilterRegistrationBean<RequestHeaderAuthenticationFilter> adminAuthFilterRegistration(
+            RequestHeaderAuthenticationFilter adminAuthFilter) {
+        return disabledRegistration(adminAuthFilter);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestHeaderAuthenticationFilter> applicationIdAuthFilterRegistration(
+            RequestHeaderAuthenticationFilter applicationIdAuthFilter) {
+        return disabledRegistration(applicationIdAuthFilter);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestHeaderAuthenticationFilter> applicationApiKeyAuthFilterRegistration(
+            RequestHeaderAuthenticationFilter applicationApiKeyAuthFilter) {
+        return disabledRegistration(applicationApiKeyAuthFilter);
+    }
+
+    private static FilterRegistrationBean<RequestHeaderAuthenticationFilter> disabledRegistration(
+            RequestHeaderAuthenticationFilter filter) {
+        FilterRegistrationBean<RequestHeaderAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     protected AuthenticationManager adminAuthenticationManager() {
         return new ProviderManager(List.of(adminApiAuthenticationProvider));
     }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the failed-assertion tracker.
+ */
+@Data
+@ConfigurationProperties(prefix = "assertion-lockout")
+public class AssertionLockoutProperties {
+    private boolean enabled = true;
+
+    /**
+     * Number of tracking slots, grouped in buckets of four. Rounded up to a power of two, this
+     * bounds the tracker's memory.
+     */
+    private int slots = 8192;
+
+    /**
+     * Failures within {@link #window} that trigger a lockout.
+     */
+    private int threshold = 5;
+
+    private Duration window = Duration.ofMinutes(5);
+
+    private Duration lockout = Duration.ofMinutes(15);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identity of this node among the replicas that share a deployment, and how finish calls that
+ * reach the wrong replica are handed to the one holding the ceremony.
+ */
+@Data
+@ConfigurationProperties(prefix = "cluster")
+public class ClusterProperties {
+
+    /**
+     * Embedded in every request id this node issues and returned in the routing hint header.
+     * Unique per replica, 0 to 65535.
+     */
+    private int nodeId = 0;
+
+    private Forwarding forwarding = new Forwarding();
+
+    private Invalidation invalidation = new Invalidation();
+
+    @Data
+    public static class Forwarding {
+        private boolean enabled = false;
+
+        /**
+         * Base URL of each other replica by node id, e.g. {@code http://10.0.0.12:8080}.
+         */
+        private Map<Integer, URI> nodes = new HashMap<>();
+
+        /**
+         * Shared by all replicas. Proves a request was forwarded by a peer, which is then trusted
+         * for the original client address.
+         */
+        private String secret;
+
+        private Duration connectTimeout = Duration.ofSeconds(1);
+
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Invalidation {
+        private boolean enabled = true;
+
+        /**
+         * How long changes are collected before they are sent together.
+         */
+        private Duration batchWindow = Duration.ofMillis(100);
+
+        /**
+         * How often the log is read without a notification. The only way changes arrive on
+         * databases other than PostgreSQL.
+         */
+        private Duration pollInterval = Duration.ofSeconds(5);
+
+        /**
+         * How long changes stay in the log. A node disconnected for longer drops all it caches.
+         */
+        private Duration retention = Duration.ofHours(1);
+
+        private Duration reconnectDelay = Duration.ofSeconds(1);
+    }
+}
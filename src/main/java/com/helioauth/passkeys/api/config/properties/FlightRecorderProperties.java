@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the rolling JDK Flight Recorder recording.
+ */
+@Data
+@ConfigurationProperties(prefix = "flight-recorder")
+public class FlightRecorderProperties {
+    private boolean enabled = true;
+
+    /**
+     * JFR settings the recording starts from, {@code default} (low overhead) or {@code profile}.
+     * The passkeys events are always enabled on top.
+     */
+    private String settings = "default";
+
+    /**
+     * How much history the recording keeps and a dump contains.
+     */
+    private Duration maxAge = Duration.ofMinutes(30);
+
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+}
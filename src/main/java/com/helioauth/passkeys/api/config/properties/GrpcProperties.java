@@ -0,0 +1,65 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+
+/**
+ * Settings for the server-to-server gRPC endpoint.
+ */
+@Data
+@ConfigurationProperties(prefix = "grpc")
+public class GrpcProperties {
+    private boolean enabled = false;
+
+    private int port = 9090;
+
+    private Tls tls = new Tls();
+
+    /**
+     * Calls a single connection may have in flight. Backends are expected to multiplex
+     * over a few long-lived connections rather than open one per request.
+     */
+    private int maxConcurrentCallsPerConnection = 256;
+
+    private Duration keepAliveTime = Duration.ofMinutes(2);
+
+    private Duration keepAliveTimeout = Duration.ofSeconds(20);
+
+    private Duration maxConnectionIdle = Duration.ofMinutes(30);
+
+    private Duration shutdownGracePeriod = Duration.ofSeconds(10);
+
+    /**
+     * API keys and assertions travel over this port, so the server does not start without both.
+     */
+    @Data
+    public static class Tls {
+        /**
+         * PEM certificate chain the server presents.
+         */
+        private Resource certificateChain;
+
+        /**
+         * PEM PKCS#8 private key of the certificate.
+         */
+        private Resource privateKey;
+    }
+}
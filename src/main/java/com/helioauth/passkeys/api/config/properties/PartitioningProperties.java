@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * PostgreSQL declarative partitioning of {@code users} by client application and of
+ * {@code user_credentials} by user handle.
+ */
+@Data
+@ConfigurationProperties(prefix = "partitioning")
+public class PartitioningProperties {
+    private boolean enabled = false;
+
+    /**
+     * Hash partitions of {@code user_credentials}. Only applied when the table is created or
+     * converted.
+     */
+    private int credentialPartitions = 16;
+
+    /**
+     * How often every client application is checked for a {@code users} partition of its own.
+     * Applications added on this node get theirs right away.
+     */
+    private Duration checkInterval = Duration.ofMinutes(5);
+
+    /**
+     * Credentials deleted per statement when a client application is deleted.
+     */
+    private int deleteBatchSize = 5000;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for SQL statement accounting per request and gRPC call.
+ */
+@Data
+@ConfigurationProperties(prefix = "query-budget")
+public class QueryBudgetProperties {
+    private boolean enabled = true;
+
+    /**
+     * Statements slower than this are logged with the service method that issued them.
+     */
+    private Duration slowStatementThreshold = Duration.ofMillis(200);
+
+    /**
+     * Maximum statements per operation, keyed like {@code POST /v1/signin/finish} or
+     * {@code grpc Passkeys/FinishSignIn}. Operations over budget are logged and counted.
+     */
+    private Map<String, Integer> statements = new LinkedHashMap<>();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Databases that {@code users} and {@code user_credentials} are spread over. Shard 0 is the
+ * database under {@code spring.datasource}, which also keeps every other table.
+ */
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+    private boolean enabled = false;
+
+    /**
+     * Shards 1 and up.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Shard of each range of user buckets, keyed like {@code 512-1023} or {@code 7}. Buckets not
+     * listed stay on shard 0.
+     */
+    private Map<String, Integer> buckets = new LinkedHashMap<>();
+
+    /**
+     * Key of the hash that puts users in buckets. Required with {@code enabled}, the same on every
+     * node and for the resharding tool, and never changed, as it places every user.
+     */
+    private String bucketSecret;
+
+    @Data
+    public static class Shard {
+        /**
+         * Used in pool names; {@code shard-<index>} if not set.
+         */
+        private String name;
+
+        private String url;
+
+        /**
+         * The credentials of {@code spring.datasource} if not set.
+         */
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 5;
+    }
+}
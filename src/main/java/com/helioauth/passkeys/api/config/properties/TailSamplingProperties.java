@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for deciding which finished traces are exported.
+ */
+@Data
+@ConfigurationProperties(prefix = "tracing.tail-sampling")
+public class TailSamplingProperties {
+    private boolean enabled = true;
+
+    /**
+     * Traces whose local root span takes at least this long are always exported.
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+
+    /**
+     * Share of the remaining traces (fast and without errors) that is exported.
+     */
+    private double probability = 0.05;
+
+    /**
+     * Traces buffered while waiting for their root span. Beyond this, the oldest are decided early.
+     */
+    private int maxPendingTraces = 10_000;
+
+    /**
+     * How long a trace waits for its root span before it is decided on the spans seen so far.
+     */
+    private Duration pendingTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Dedicated connection pools for tiers of client applications, so that one application's burst
+ * cannot take every connection. Applications not in a tier share the pool under
+ * {@code spring.datasource}.
+ */
+@Data
+@ConfigurationProperties(prefix = "tenant-pools")
+public class TenantPoolProperties {
+    private boolean enabled = false;
+
+    /**
+     * Statement timeout of the shared pool; none if not set.
+     */
+    private Duration statementTimeout;
+
+    /**
+     * Pools keyed by tier name, which is also the pool name and metric tag.
+     */
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    @Data
+    public static class Pool {
+        /**
+         * Ids of the client applications in the tier.
+         */
+        private List<UUID> applications = new ArrayList<>();
+
+        private int maximumPoolSize = 5;
+
+        /**
+         * Statement timeout of the pool's connections; none if not set.
+         */
+        private Duration statementTimeout;
+
+        /**
+         * How long a transaction waits for a connection when the pool is exhausted before it
+         * fails.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+    }
+}
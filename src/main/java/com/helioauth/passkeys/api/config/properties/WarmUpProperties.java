@@ -0,0 +1,52 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the warm-up that runs before the instance reports itself ready.
+ */
+@Data
+@ConfigurationProperties(prefix = "warm-up")
+public class WarmUpProperties {
+    private boolean enabled = true;
+
+    /**
+     * Synthetic registrations, and as many assertions, run through the ceremony code.
+     */
+    private int iterations = 500;
+
+    /**
+     * Rounds of every credential query per pooled connection. PgJDBC switches to server-side
+     * prepared statements after five executions on a connection.
+     */
+    private int statementRounds = 5;
+
+    /**
+     * Upper bound for the whole warm-up; whatever is left is skipped once it is exceeded.
+     */
+    private Duration maxDuration = Duration.ofSeconds(30);
+
+    /**
+     * Relying party the synthetic ceremonies run against. Its credentials never leave memory.
+     */
+    private String rpId = "warmup.invalid";
+}
@@ -20,6 +20,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
 import java.time.Duration;
 
 /**
@@ -32,12 +35,103 @@ public class WebAuthnRelyingPartyProperties {
     private String hostname;
     private String displayName;
     private boolean allowOriginPort;
+
+    /**
+     * WebAuthn timeouts sent to the client. Pending ceremonies are kept this long, plus
+     * {@code cache.expiry-grace}.
+     */
+    private Duration registrationTimeout = Duration.ofMinutes(5);
+    private Duration assertionTimeout = Duration.ofMinutes(5);
+
     private Cache cache;
 
     @Data
     @ConfigurationProperties(prefix = "relying-party.cache")
     public static class Cache {
+        /**
+         * Where pending ceremonies are kept.
+         */
+        private Store store = Store.HEAP;
+
+        private OffHeap offHeap = new OffHeap();
+
+        private Snapshot snapshot = new Snapshot();
+
+        /**
+         * Lifetime of pending ceremonies that have no WebAuthn timeout.
+         */
         private Duration expiration = Duration.ofMinutes(5);
-        private Integer maxSize = 1000;
+
+        /**
+         * Approximate memory each client application's pending ceremonies may take, and those
+         * started without an application together.
+         */
+        private DataSize partitionWeight = DataSize.ofMegabytes(1);
+
+        /**
+         * Approximate memory of the pool shared by partitions that are full.
+         */
+        private DataSize overflowWeight = DataSize.ofMegabytes(8);
+
+        /**
+         * Fraction of the overflow pool a single partition may take.
+         */
+        private double overflowShare = 0.25;
+
+        /**
+         * Reject new ceremonies when a partition and its overflow share are full, rather than
+         * evicting the partition's pending ones.
+         */
+        private boolean rejectWhenFull = true;
+
+        /**
+         * Extra time on top of a ceremony's timeout, to cover the round trip of the finish call.
+         */
+        private Duration expiryGrace = Duration.ofSeconds(30);
+    }
+
+    public enum Store {
+        /**
+         * Ceremony JSON in a Caffeine cache.
+         */
+        HEAP,
+
+        /**
+         * The fields finish needs, in a compact binary form in preallocated direct memory.
+         */
+        OFF_HEAP
+    }
+
+    @Data
+    public static class OffHeap {
+        /**
+         * Direct memory reserved up front for pending ceremonies and their index. Counts against
+         * {@code -XX:MaxDirectMemorySize}.
+         */
+        private DataSize capacity = DataSize.ofMegabytes(64);
+
+        /**
+         * Ceremonies take whole blocks of this size.
+         */
+        private DataSize blockSize = DataSize.ofBytes(128);
+
+        /**
+         * Independently locked segments of the store. Rounded up to a power of two.
+         */
+        private int stripes = 64;
+    }
+
+    @Data
+    public static class Snapshot {
+        /**
+         * Write pending ceremonies to {@code path} on shutdown and restore them on startup, so
+         * ceremonies in flight survive a restart.
+         */
+        private boolean enabled = false;
+
+        /**
+         * On a volume that outlives the process, and of this replica only.
+         */
+        private Path path = Path.of("ceremonies.snapshot");
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,10 @@
 package com.helioauth.passkeys.api.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.controller.dto.SignInFinishRequestV2;
+import com.helioauth.passkeys.api.controller.dto.SignInStartResponseV2;
+import com.helioauth.passkeys.api.controller.dto.SignUpFinishRequestV2;
+import com.helioauth.passkeys.api.controller.dto.SignUpStartResponseV2;
 import com.helioauth.passkeys.api.domain.ClientApplication;
 import com.helioauth.passkeys.api.generated.api.SignInApi;
 import com.helioauth.passkeys.api.generated.api.SignUpApi;
@@ -28,6 +32,7 @@ import com.helioauth.passkeys.api.generated.models.SignUpFinishRequest;
 import com.helioauth.passkeys.api.generated.models.SignUpFinishResponse;
 import com.helioauth.passkeys.api.generated.models.SignUpStartRequest;
 import com.helioauth.passkeys.api.generated.models.SignUpStartResponse;
+import com.helioauth.passkeys.api.mapper.RegistrationResponseMapper;
 import com.helioauth.passkeys.api.service.UserSignInService;
 import com.helioauth.passkeys.api.service.UserSignupService;
 import com.helioauth.passkeys.api.service.dto.UserSignupStartRequest;
@@ -38,9 +43,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
@@ -51,13 +57,21 @@ import jakarta.validation.Valid;
 @Slf4j
 @RestController
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*")
 public class CredentialsController implements SignUpApi, SignInApi {
 
     private final UserSignInService userSignInService;
     private final UserSignupService userSignupService;
+    private final RegistrationResponseMapper registrationResponseMapper;
 
     public ResponseEntity<SignUpStartResponse> postSignupStart(@RequestBody @Valid SignUpStartRequest request) {
+        return ResponseEntity.ok(startSignup(request));
+    }
+
+    public ResponseEntity<SignUpStartResponseV2> postSignupStartV2(@RequestBody @Valid SignUpStartRequest request) {
+        return ResponseEntity.ok(registrationResponseMapper.toSignUpStartResponseV2(startSignup(request)));
+    }
+
+    private SignUpStartResponse startSignup(SignUpStartRequest request) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !(authentication.getPrincipal() instanceof ClientApplication clientApp)) {
             log.error("Signup start request received without valid ClientApplication authentication.");
@@ -72,13 +86,11 @@ public class CredentialsController implements SignUpApi, SignInApi {
              throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Client application configuration error: Missing RP hostname");
         }
 
-        return ResponseEntity.ok(
-            userSignupService.startRegistration(UserSignupStartRequest.builder()
-                .name(request.getName())
-                .rpId(rpId)
-                .rpName(rpName)
-                .build()
-            )
+        return userSignupService.startRegistration(UserSignupStartRequest.builder()
+            .name(request.getName())
+            .rpId(rpId)
+            .rpName(rpName)
+            .build()
         );
     }
 
@@ -88,11 +100,23 @@ public class CredentialsController implements SignUpApi, SignInApi {
         );
     }
 
+    public ResponseEntity<SignUpFinishResponse> postSignupFinishV2(@RequestBody SignUpFinishRequestV2 request) {
+        return ResponseEntity.ok(
+            userSignupService.finishRegistration(request.requestId(), request.publicKeyCredential())
+        );
+    }
+
     public ResponseEntity<SignInStartResponse> postSignInCredential(@RequestBody SignInStartRequest request) {
+        return ResponseEntity.ok(startSignIn(request));
+    }
+
+    public ResponseEntity<SignInStartResponseV2> postSignInCredentialV2(@RequestBody SignInStartRequest request) {
+        return ResponseEntity.ok(registrationResponseMapper.toSignInStartResponseV2(startSignIn(request)));
+    }
+
+    private SignInStartResponse startSignIn(SignInStartRequest request) {
         try {
-            return ResponseEntity.ok(
-                userSignInService.startAssertion(request.getName())
-            );
+            return userSignInService.startAssertion(request.getName());
         } catch (JsonProcessingException e) {
             log.error("Sign in Credential failed", e);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sign in Credential failed");
@@ -101,7 +125,11 @@ public class CredentialsController implements SignUpApi, SignInApi {
 
     public ResponseEntity<SignInFinishResponse> finishSignInCredential(@RequestBody SignInFinishRequest request) {
         try {
-            String username = userSignInService.finishAssertion(request.getRequestId(), request.getPublicKeyCredentialWithAssertion());
+            String username = userSignInService.finishAssertion(
+                request.getRequestId(),
+                request.getPublicKeyCredentialWithAssertion(),
+                currentSourceAddress()
+            );
 
             return ResponseEntity.ok(
                 new SignInFinishResponse(request.getRequestId(), username)
@@ -111,4 +139,27 @@ public class CredentialsController implements SignUpApi, SignInApi {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sign in failed");
         }
     }
+
+    public ResponseEntity<SignInFinishResponse> finishSignInCredentialV2(@RequestBody SignInFinishRequestV2 request) {
+        try {
+            String username = userSignInService.finishAssertion(
+                request.requestId(),
+                request.publicKeyCredentialWithAssertion(),
+                currentSourceAddress()
+            );
+
+            return ResponseEntity.ok(
+                new SignInFinishResponse(request.requestId(), username)
+            );
+        } catch (SignInFailedException e) {
+            log.error("Sign in failed", e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sign in failed");
+        }
+    }
+
+    private static String currentSourceAddress() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+            .getRequest()
+            .getRemoteAddr();
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * Sign-up start response where {@code options} is written as a JSON object rather than a JSON string.
+ *
+ * @param requestId unique identifier for the sign-up request
+ * @param options   already serialized {@code navigator.credentials.create()} options, written as-is
+ */
+public record SignUpStartResponseV2(
+    String requestId,
+    @JsonRawValue String options
+) {}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.LegacyUsersProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Moves users registered before users were scoped to client applications into one, on every
+ * shard, before the instance takes traffic. Lookups only see the users of the calling application,
+ * so users of no application cannot sign in until they are moved.
+ * <p>
+ * Users go to {@code legacy-users.application-id}, except those whose name the application
+ * already has. Credentials then take the application of their user. Both steps only touch rows
+ * without an application, so running them again on every start is harmless.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class LegacyUsersBackfill implements ApplicationRunner {
+
+    private final LegacyUsersProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfill(properties.getApplicationId());
+    }
+
+    void backfill(UUID applicationId) {
+        // Applications are kept on shard 0 only
+        if (applicationId != null && jdbcTemplate.queryForList("select id from applications where id = ?", UUID.class,
+            applicationId).isEmpty()) {
+            log.warn("legacy-users.application-id {} is not a client application, leaving users of no application as they are",
+                applicationId);
+            applicationId = null;
+        }
+
+        UUID target = applicationId;
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            int current = shard;
+            shards.onShard(shard, () -> {
+                backfillShard(current, target);
+                return null;
+            });
+        }
+    }
+
+    private void backfillShard(int shard, UUID applicationId) {
+        if (applicationId != null) {
+            int users = jdbcTemplate.update("update " + PartitionedTables.USERS + " set application_id = ? "
+                + "where application_id is null and name not in "
+                + "(select name from " + PartitionedTables.USERS + " where application_id = ?)",
+                applicationId, applicationId);
+            if (users > 0) {
+                log.info("Moved {} users of no application into client application {} on shard {}", users, applicationId, shard);
+            }
+        }
+
+        int credentials = jdbcTemplate.update("update " + PartitionedTables.CREDENTIALS + " set application_id = "
+            + "(select u.application_id from " + PartitionedTables.USERS + " u where u.id = " + PartitionedTables.CREDENTIALS + ".user_id) "
+            + "where application_id is null and user_id in "
+            + "(select id from " + PartitionedTables.USERS + " where application_id is not null)");
+        if (credentials > 0) {
+            log.info("Gave {} credentials the client application of their user on shard {}", credentials, shard);
+        }
+
+        Integer left = jdbcTemplate.queryForObject("select count(*) from " + PartitionedTables.USERS
+            + " where application_id is null", Integer.class);
+        if (left != null && left > 0) {
+            log.warn("{} users on shard {} belong to no client application and cannot sign in; "
+                + "set legacy-users.application-id to move them", left, shard);
+        }
+    }
+}
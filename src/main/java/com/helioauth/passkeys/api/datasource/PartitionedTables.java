@@ -0,0 +1,200 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Schema of the partitioned {@code users} and {@code user_credentials} tables on PostgreSQL,
+ * which Hibernate cannot create itself.
+ * <p>
+ * {@code users} is partitioned by list of {@code application_id}, with one partition per client
+ * application and {@code users_default} for users of no application. {@code user_credentials}
+ * is partitioned by hash of {@code user_handle}, which every sign-in lookup filters on. Existing
+ * plain tables are converted: {@code users} becomes the default partition, and
+ * {@code user_credentials} is copied into the new table once.
+ * <p>
+ * Neither table has foreign keys. PostgreSQL only lets a foreign key reference a partitioned
+ * table through a unique key that includes the partition column, and deleting users already
+ * deletes their credentials through JPA.
+ */
+public final class PartitionedTables {
+
+    public static final String USERS = "users";
+    public static final String CREDENTIALS = "user_credentials";
+    public static final String DEFAULT_USERS_PARTITION = "users_default";
+
+    /**
+     * Key of the advisory lock held while the partitioned tables change, so that nodes starting
+     * together do not convert them twice.
+     */
+    static final long LOCK = 0x70617274L;
+
+    public record Column(String name, String sqlType, boolean nullable) {
+
+        String definition() {
+            return name + " " + sqlType + (nullable ? "" : " not null");
+        }
+    }
+
+    enum State {
+        ABSENT,
+        PLAIN,
+        PARTITIONED
+    }
+
+    private PartitionedTables() {
+    }
+
+    /**
+     * Creates, converts or adds missing columns to both tables, in one transaction.
+     *
+     * @param users the columns {@link com.helioauth.passkeys.api.domain.User} maps to
+     * @param credentials the columns {@link com.helioauth.passkeys.api.domain.UserCredential} maps to
+     */
+    public static void apply(Connection connection, List<Column> users, List<Column> credentials,
+                             int credentialPartitions) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("select pg_advisory_xact_lock(" + LOCK + ")");
+            List<String> ddl = new ArrayList<>();
+            ddl.addAll(credentials(state(connection, CREDENTIALS), credentials, existingColumns(connection, CREDENTIALS),
+                credentialPartitions));
+            ddl.addAll(users(state(connection, USERS), users, existingColumns(connection, USERS)));
+            for (String sql : ddl) {
+                statement.execute(sql);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    public static String usersPartition(UUID applicationId) {
+        return "users_" + applicationId.toString().replace("-", "");
+    }
+
+    static List<String> users(State state, List<Column> columns, Set<String> existing) {
+        List<String> ddl = new ArrayList<>();
+        switch (state) {
+            case ABSENT -> {
+                ddl.add(createTable(USERS, columns, null, "list (application_id)"));
+                ddl.add("create table " + DEFAULT_USERS_PARTITION + " partition of " + USERS + " default");
+                ddl.add("alter table " + DEFAULT_USERS_PARTITION + " add primary key (id)");
+            }
+            case PLAIN -> {
+                // A partition needs every column of its table
+                ddl.addAll(addMissingColumns(USERS, columns, existing));
+                ddl.add("alter table " + USERS + " rename to " + DEFAULT_USERS_PARTITION);
+                ddl.add(createTable(USERS, columns, null, "list (application_id)"));
+                ddl.add("alter table " + USERS + " attach partition " + DEFAULT_USERS_PARTITION + " default");
+            }
+            case PARTITIONED -> ddl.addAll(addMissingColumns(USERS, columns, existing));
+        }
+        ddl.add("create index if not exists users_id_idx on " + USERS + " (id)");
+        ddl.add("create index if not exists users_application_id_name_idx on " + USERS + " (application_id, name)");
+        return ddl;
+    }
+
+    static List<String> credentials(State state, List<Column> columns, Set<String> existing, int partitions) {
+        List<String> ddl = new ArrayList<>();
+        switch (state) {
+            case ABSENT -> ddl.addAll(createCredentials(columns, partitions));
+            case PLAIN -> {
+                String unpartitioned = CREDENTIALS + "_unpartitioned";
+                String names = columns.stream().map(Column::name).filter(existing::contains).collect(Collectors.joining(", "));
+                ddl.add("alter table " + CREDENTIALS + " rename to " + unpartitioned);
+                ddl.addAll(createCredentials(columns, partitions));
+                ddl.add("insert into " + CREDENTIALS + " (" + names + ") select " + names + " from " + unpartitioned);
+                ddl.add("drop table " + unpartitioned);
+            }
+            case PARTITIONED -> ddl.addAll(addMissingColumns(CREDENTIALS, columns, existing));
+        }
+        ddl.add("drop index if exists user_credentials_user_handle_idx");
+        ddl.add("create index if not exists user_credentials_application_id_user_handle_idx on " + CREDENTIALS
+            + " (application_id, user_handle, credential_id)");
+        ddl.add("create index if not exists user_credentials_user_id_idx on " + CREDENTIALS + " (user_id)");
+        return ddl;
+    }
+
+    private static List<String> createCredentials(List<Column> columns, int partitions) {
+        List<String> ddl = new ArrayList<>();
+        ddl.add(createTable(CREDENTIALS, columns, "primary key (id, user_handle)", "hash (user_handle)"));
+        for (int remainder = 0; remainder < partitions; remainder++) {
+            ddl.add("create table " + CREDENTIALS + "_p" + remainder + " partition of " + CREDENTIALS
+                + " for values with (modulus " + partitions + ", remainder " + remainder + ")");
+        }
+        return ddl;
+    }
+
+    private static String createTable(String table, List<Column> columns, String key, String partitionBy) {
+        List<String> definitions = new ArrayList<>(columns.stream().map(Column::definition).toList());
+        if (key != null) {
+            definitions.add(key);
+        }
+        return "create table " + table + " (" + String.join(", ", definitions) + ") partition by " + partitionBy;
+    }
+
+    private static List<String> addMissingColumns(String table, List<Column> columns, Set<String> existing) {
+        // Hibernate leaves these tables alone, so columns added to the entities are added here
+        return columns.stream()
+            .filter(column -> !existing.contains(column.name()))
+            .map(column -> "alter table " + table + " add column " + column.name() + " " + column.sqlType())
+            .toList();
+    }
+
+    private static State state(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+            "select relkind from pg_class where oid = to_regclass(?)")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return State.ABSENT;
+                }
+                return resultSet.getString(1).equals("p") ? State.PARTITIONED : State.PLAIN;
+            }
+        }
+    }
+
+    static Set<String> existingColumns(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select column_name from information_schema.columns "
+            + "where table_schema = current_schema() and table_name = ? order by ordinal_position")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                Set<String> columns = new LinkedHashSet<>();
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString(1));
+                }
+                return columns;
+            }
+        }
+    }
+}
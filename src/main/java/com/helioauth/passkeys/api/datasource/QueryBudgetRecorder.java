@@ -0,0 +1,64 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.QueryBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the statements of a finished operation as metrics and checks them against the
+ * configured budget.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueryBudgetRecorder {
+
+    private final QueryBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public void record(String operation, QueryStatistics statistics) {
+        DistributionSummary.builder("passkeys.db.statements")
+            .description("SQL statements per operation")
+            .tag("operation", operation)
+            .register(meterRegistry)
+            .record(statistics.getStatements());
+        Timer.builder("passkeys.db.time")
+            .description("Time spent executing SQL statements per operation")
+            .tag("operation", operation)
+            .register(meterRegistry)
+            .record(statistics.getElapsed().toNanos(), TimeUnit.NANOSECONDS);
+
+        Integer budget = properties.getStatements().get(operation);
+        if (budget != null && statistics.getStatements() > budget) {
+            Counter.builder("passkeys.db.budget.exceeded")
+                .description("Operations that executed more statements than their budget")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+            log.warn("{} exceeded its budget of {} statements: {}", operation, budget, statistics);
+        }
+    }
+}
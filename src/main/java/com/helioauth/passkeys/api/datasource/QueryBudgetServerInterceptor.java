@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Counts the statements of each unary gRPC call, recorded as {@code grpc <service>/<method>}.
+ * Unary handlers run the service method when the client half-closes, so that is the scope.
+ */
+@RequiredArgsConstructor
+public class QueryBudgetServerInterceptor implements ServerInterceptor {
+
+    private final QueryBudgetRecorder recorder;
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers, ServerCallHandler<Q, R> next) {
+        String operation = "grpc " + call.getMethodDescriptor().getFullMethodName().substring(
+            call.getMethodDescriptor().getFullMethodName().lastIndexOf('.') + 1);
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+            @Override
+            public void onHalfClose() {
+                try (QueryStatistics.Scope scope = QueryStatistics.open()) {
+                    try {
+                        super.onHalfClose();
+                    } finally {
+                        recorder.record(operation, scope.statistics());
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import java.time.Duration;
+
+/**
+ * Statements executed on the current thread within a scope, such as one HTTP request or gRPC call.
+ * <p>
+ * Scopes nest: statements count towards every open scope on the thread, so a service-level scope
+ * inside a request scope sees only its own statements while the request still sees all of them.
+ */
+public final class QueryStatistics {
+
+    private static final ThreadLocal<QueryStatistics> CURRENT = new ThreadLocal<>();
+
+    private final QueryStatistics parent;
+    private int statements;
+    private int selects;
+    private int writes;
+    private long elapsedNanos;
+
+    private QueryStatistics(QueryStatistics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Opens a scope on the current thread. Close it on the same thread, typically with try-with-resources.
+     */
+    public static Scope open() {
+        QueryStatistics statistics = new QueryStatistics(CURRENT.get());
+        CURRENT.set(statistics);
+        return new Scope(statistics);
+    }
+
+    static void record(boolean select, long elapsedNanos) {
+        for (QueryStatistics statistics = CURRENT.get(); statistics != null; statistics = statistics.parent) {
+            statistics.statements++;
+            if (select) {
+                statistics.selects++;
+            } else {
+                statistics.writes++;
+            }
+            statistics.elapsedNanos += elapsedNanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getSelects() {
+        return selects;
+    }
+
+    public int getWrites() {
+        return writes;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements (" + selects + " selects, " + writes + " writes) in "
+            + getElapsed().toNanos() / 1_000_000.0 + " ms";
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final QueryStatistics statistics;
+
+        private Scope(QueryStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        public QueryStatistics statistics() {
+            return statistics;
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == statistics) {
+                if (statistics.parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(statistics.parent);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.QueryBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds every executed statement into the open {@link QueryStatistics} scopes and logs slow ones.
+ */
+@Slf4j
+public class QueryStatisticsListener implements QueryExecutionListener {
+
+    private static final String START = QueryStatisticsListener.class.getName() + ".start";
+    private static final String APPLICATION_PACKAGE = "com.helioauth.passkeys.api.";
+    private static final String DATASOURCE_PACKAGE = APPLICATION_PACKAGE + "datasource.";
+
+    private final QueryBudgetProperties properties;
+    private final Counter slowStatements;
+
+    public QueryStatisticsListener(QueryBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.slowStatements = Counter.builder("passkeys.db.slow.statements")
+            .description("Statements slower than query-budget.slow-statement-threshold")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START, Long.class);
+        long elapsedNanos = start == null ? execInfo.getElapsedTime() * 1_000_000 : System.nanoTime() - start;
+        QueryStatistics.record(isSelect(queryInfoList), elapsedNanos);
+
+        if (elapsedNanos >= properties.getSlowStatementThreshold().toNanos()) {
+            slowStatements.increment();
+            log.warn("Slow statement took {} ms in {}: {}",
+                elapsedNanos / 1_000_000,
+                origin(),
+                queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; ")));
+        }
+    }
+
+    private static boolean isSelect(List<QueryInfo> queryInfoList) {
+        return queryInfoList.size() == 1
+            && queryInfoList.getFirst().getQuery().stripLeading().regionMatches(true, 0, "select", 0, 6);
+    }
+
+    /**
+     * The innermost application frame outside this package, i.e. the service or repository method
+     * that triggered the statement. Only computed for slow statements.
+     */
+    private static String origin() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                && !frame.getClassName().startsWith(DATASOURCE_PACKAGE)
+                && !frame.getClassName().contains("$$"))
+            .findFirst()
+            .map(frame -> frame.getClassName().substring(APPLICATION_PACKAGE.length()) + "." + frame.getMethodName())
+            .orElse("unknown caller"));
+    }
+}
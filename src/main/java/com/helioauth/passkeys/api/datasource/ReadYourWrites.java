@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.helioauth.passkeys.api.config.properties.ReadReplicaProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps lookups of a user on the primary for {@code read-replicas.read-your-writes-window} after
+ * this node wrote the user's credentials, so a sign-in right after sign-up does not miss them on a
+ * replica that has not caught up. Does nothing without read replicas.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(ReadReplicaProperties properties) {
+        this.recentWrites = properties.isEnabled()
+            ? Caffeine.newBuilder()
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .maximumSize(100_000)
+                .build()
+            : null;
+    }
+
+    public void recordWrite(String username) {
+        if (recentWrites != null) {
+            recentWrites.put(username, true);
+        }
+    }
+
+    public <T> T read(String username, Supplier<T> lookup) {
+        if (recentWrites != null && recentWrites.getIfPresent(username) != null) {
+            return ReplicaRoutingDataSource.onPrimary(lookup);
+        }
+        return lookup.get();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.ReadReplicaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the replica for each read-only transaction, round robin over the replicas that answer
+ * and are within {@code read-replicas.max-lag} of the primary.
+ * <p>
+ * The lag of every replica is checked every {@code read-replicas.check-interval}. A replica that
+ * fails the check or a connection attempt gets no reads until a later check succeeds. Until the
+ * first check, and whenever no replica qualifies, reads go to the primary.
+ */
+@Slf4j
+public class ReplicaRouter implements SmartLifecycle, MeterBinder, Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final ReadReplicaProperties properties;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile List<Replica> available = List.of();
+    private volatile Counter primaryReads;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public ReplicaRouter(Map<String, DataSource> replicas, ReadReplicaProperties properties) {
+        this.properties = properties;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+    }
+
+    /**
+     * @return where the current read-only transaction should read, or {@code null} for the primary
+     */
+    Replica route() {
+        List<Replica> candidates = available;
+        if (candidates.isEmpty()) {
+            routedToPrimary();
+            return null;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    void routedToPrimary() {
+        Counter reads = primaryReads;
+        if (reads != null) {
+            reads.increment();
+        }
+    }
+
+    void failed(Replica replica, SQLException e) {
+        if (replica.available) {
+            log.warn("Read replica {} is unreachable, reading from the primary: {}", replica.name, e.toString());
+        }
+        replica.available = false;
+        replica.lagSeconds = Double.NaN;
+        updateAvailable();
+    }
+
+    /**
+     * Measures the lag of every replica and updates which of them get reads.
+     */
+    void check() {
+        double maxLag = properties.getMaxLag().toMillis() / 1000.0;
+        for (Replica replica : replicas) {
+            double lag;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout((int) Math.max(1, properties.getCheckInterval().toSeconds()));
+                try (ResultSet result = statement.executeQuery(properties.getLagQuery())) {
+                    lag = result.next() ? result.getDouble(1) : 0;
+                }
+            } catch (SQLException e) {
+                failed(replica, e);
+                continue;
+            }
+
+            boolean keepsUp = lag <= maxLag;
+            if (keepsUp != replica.available) {
+                if (keepsUp) {
+                    log.info("Read replica {} is {}s behind, sending reads to it", replica.name, lag);
+                } else {
+                    log.warn("Read replica {} is {}s behind, reading from the primary", replica.name, lag);
+                }
+            }
+            replica.lagSeconds = lag;
+            replica.available = keepsUp;
+        }
+        updateAvailable();
+    }
+
+    private void updateAvailable() {
+        available = replicas.stream().filter(replica -> replica.available).toList();
+    }
+
+    @Override
+    public void start() {
+        check();
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Could not close read replica {}: {}", replica.name, e.toString());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        primaryReads = Counter.builder("passkeys.db.reads").tag("target", PRIMARY)
+            .description("Read-only transactions by where they read")
+            .register(registry);
+        for (Replica replica : replicas) {
+            replica.reads = Counter.builder("passkeys.db.reads").tag("target", replica.name)
+                .description("Read-only transactions by where they read")
+                .register(registry);
+            Gauge.builder("passkeys.db.replica.lag", replica, r -> r.lagSeconds)
+                .tag("replica", replica.name)
+                .baseUnit("seconds")
+                .description("Replication lag at the last check, NaN if the replica did not answer")
+                .register(registry);
+        }
+    }
+
+    static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean available;
+        volatile double lagSeconds = Double.NaN;
+        volatile Counter reads;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void routed() {
+            Counter counter = reads;
+            if (counter != null) {
+                counter.increment();
+            }
+        }
+    }
+}
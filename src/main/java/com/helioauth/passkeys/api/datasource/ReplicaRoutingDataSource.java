@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Sends the statements of read-only transactions to a replica chosen by {@link ReplicaRouter},
+ * and everything else to the primary.
+ * <p>
+ * Connections are only taken from a pool when the first statement runs, by which time the
+ * transaction manager has marked the transaction read-only. A read-only transaction nested in a
+ * read-write one joins it and reads from the primary.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private static final ThreadLocal<Boolean> ON_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaRouter router) {
+        super(new Routing(primary, router));
+        this.primary = primary;
+    }
+
+    /**
+     * Runs {@code reads} against the primary even in read-only transactions, for reads that must
+     * see writes the replicas may not have yet.
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        if (ON_PRIMARY.get()) {
+            return reads.get();
+        }
+        ON_PRIMARY.set(true);
+        try {
+            return reads.get();
+        } finally {
+            ON_PRIMARY.remove();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || primary.isWrapperFor(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (primary instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Routing extends AbstractDataSource {
+
+        private final DataSource primary;
+        private final ReplicaRouter router;
+
+        private Routing(DataSource primary, ReplicaRouter router) {
+            this.primary = primary;
+            this.router = router;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return primary.getConnection();
+            }
+            if (ON_PRIMARY.get()) {
+                router.routedToPrimary();
+                return primary.getConnection();
+            }
+
+            ReplicaRouter.Replica replica = router.route();
+            if (replica != null) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replica.routed();
+                    return connection;
+                } catch (SQLException e) {
+                    router.failed(replica, e);
+                    router.routedToPrimary();
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return primary.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.yubico.webauthn.data.ByteArray;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Where users live when {@code users} and {@code user_credentials} are spread over several
+ * databases.
+ * <p>
+ * Every user falls into one of {@link #BUCKETS} buckets by an HMAC of the user name, keyed by
+ * {@code sharding.bucket-secret}, and {@code sharding.buckets} assigns buckets to shards. Moving a
+ * bucket moves all its users, so neither the hash nor the secret ever changes. Without the secret
+ * a bucket says nothing about the name it came from. User handles issued by {@link #newUserHandle}
+ * carry the bucket of the user they were issued to, so usernameless sign-ins find the shard
+ * without a lookup:
+ * <pre>
+ * A5 5A 01 | bucket (2 bytes) | 27 random bytes
+ * </pre>
+ * Handles issued before that hold no bucket and are found through the handle directory.
+ */
+public final class ShardKeys {
+
+    public static final int BUCKETS = 1024;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int HANDLE_LENGTH = 32;
+    private static final byte[] HANDLE_PREFIX = {(byte) 0xA5, 0x5A, 0x01};
+    private static final SecureRandom random = new SecureRandom();
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+
+    public ShardKeys(String bucketSecret) {
+        this.key = new SecretKeySpec(bucketSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.prototype = newMac();
+    }
+
+    public int bucketOf(String username) {
+        byte[] digest = mac().doFinal(username.getBytes(StandardCharsets.UTF_8));
+        return (int) (Integer.toUnsignedLong(ByteBuffer.wrap(digest).getInt()) % BUCKETS);
+    }
+
+    public ByteArray newUserHandle(String username) {
+        byte[] handle = new byte[HANDLE_LENGTH];
+        random.nextBytes(handle);
+        System.arraycopy(HANDLE_PREFIX, 0, handle, 0, HANDLE_PREFIX.length);
+        int bucket = bucketOf(username);
+        handle[HANDLE_PREFIX.length] = (byte) (bucket >>> 8);
+        handle[HANDLE_PREFIX.length + 1] = (byte) bucket;
+        return new ByteArray(handle);
+    }
+
+    /**
+     * @return a handle of {@link #HANDLE_LENGTH} random bytes, for users that are not sharded
+     */
+    public static ByteArray randomUserHandle() {
+        byte[] handle = new byte[HANDLE_LENGTH];
+        random.nextBytes(handle);
+        return new ByteArray(handle);
+    }
+
+    /**
+     * @return the bucket carried by the handle, or {@code -1} if it holds none
+     */
+    public static int bucketOf(ByteArray userHandle) {
+        byte[] handle = userHandle.getBytes();
+        if (handle.length != HANDLE_LENGTH) {
+            return -1;
+        }
+        for (int i = 0; i < HANDLE_PREFIX.length; i++) {
+            if (handle[i] != HANDLE_PREFIX[i]) {
+                return -1;
+            }
+        }
+        int bucket = (handle[HANDLE_PREFIX.length] & 0xFF) << 8 | handle[HANDLE_PREFIX.length + 1] & 0xFF;
+        return bucket < BUCKETS ? bucket : -1;
+    }
+
+    /**
+     * A Mac is not thread-safe, so every hash works on a copy of the initialised one.
+     */
+    private Mac mac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
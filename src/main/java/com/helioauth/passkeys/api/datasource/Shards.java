@@ -0,0 +1,184 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.yubico.webauthn.data.ByteArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs work on the shard that holds a user, for the services and repositories that read and
+ * write {@code users} and {@code user_credentials}. Without {@code sharding.enabled} everything
+ * runs where it is.
+ * <p>
+ * Users are found by name through {@link ShardKeys#bucketOf(String)} and by user handle through
+ * the bucket the handle carries. Only sharded users get such handles; everyone else gets plain
+ * random ones. Handles issued before handles carried buckets are looked up in
+ * {@code user_handle_directory} on shard 0, which the resharding tool fills as it moves their
+ * users; a handle not found there belongs to shard 0. Lookups by user id visit every shard, which
+ * only the admin operations do.
+ */
+@Slf4j
+@Component
+public class Shards {
+
+    private static final String DIRECTORY_QUERY = "SELECT bucket FROM user_handle_directory WHERE user_handle = ?";
+
+    private final ObjectProvider<DataSource> dataSource;
+    private final ShardKeys keys;
+    private final int[] shardOfBucket;
+    private final int shardCount;
+
+    private volatile JdbcTemplate directory;
+
+    public Shards(ShardingProperties properties, ObjectProvider<DataSource> dataSource) {
+        this.dataSource = dataSource;
+        if (properties.isEnabled()) {
+            if (!StringUtils.hasText(properties.getBucketSecret())) {
+                throw new IllegalStateException("sharding.bucket-secret is required when sharding.enabled is set");
+            }
+            this.keys = new ShardKeys(properties.getBucketSecret());
+            this.shardCount = properties.getShards().size() + 1;
+            this.shardOfBucket = assignBuckets(properties.getBuckets(), shardCount);
+        } else {
+            this.keys = null;
+            this.shardCount = 1;
+            this.shardOfBucket = null;
+        }
+    }
+
+    public boolean enabled() {
+        return shardOfBucket != null;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String username) {
+        return enabled() ? shardOfBucket[keys.bucketOf(username)] : 0;
+    }
+
+    /**
+     * @return a handle for a new user, carrying the bucket of {@code username} when sharded
+     */
+    public ByteArray newUserHandle(String username) {
+        return enabled() ? keys.newUserHandle(username) : ShardKeys.randomUserHandle();
+    }
+
+    public int shardOfUserHandle(String base64UserHandle) {
+        if (!enabled()) {
+            return 0;
+        }
+
+        int bucket = ShardKeys.bucketOf(ByteArray.fromBase64(base64UserHandle));
+        if (bucket < 0) {
+            List<Integer> listed = directory().queryForList(DIRECTORY_QUERY, Integer.class, base64UserHandle);
+            if (listed.isEmpty()) {
+                return 0;
+            }
+            bucket = listed.getFirst();
+        }
+        return shardOfBucket[bucket];
+    }
+
+    public <T> T forUser(String username, Supplier<T> work) {
+        return enabled() ? ShardRoutingDataSource.onShard(shardOf(username), work) : work.get();
+    }
+
+    public <T> T forUserHandle(String base64UserHandle, Supplier<T> work) {
+        return enabled() ? ShardRoutingDataSource.onShard(shardOfUserHandle(base64UserHandle), work) : work.get();
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return enabled() ? ShardRoutingDataSource.onShard(shard, work) : work.get();
+    }
+
+    /**
+     * Runs {@code query} on every shard, each in its own transaction, and concatenates the
+     * results.
+     */
+    public <T> List<T> gather(Supplier<List<T>> query) {
+        if (!enabled()) {
+            return query.get();
+        }
+
+        List<T> results = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.addAll(ShardRoutingDataSource.onShard(shard, query));
+        }
+        return results;
+    }
+
+    /**
+     * @return the first shard on which {@code predicate} holds
+     */
+    public OptionalInt find(BooleanSupplier predicate) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (onShard(shard, predicate::getAsBoolean)) {
+                return OptionalInt.of(shard);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    private JdbcTemplate directory() {
+        JdbcTemplate template = directory;
+        if (template == null) {
+            try {
+                template = new JdbcTemplate(dataSource.getObject().unwrap(ShardRoutingDataSource.class).shard(0));
+            } catch (SQLException e) {
+                throw new IllegalStateException("sharding.enabled is set but the data source does not route to shards", e);
+            }
+            directory = template;
+        }
+        return template;
+    }
+
+    static int[] assignBuckets(Map<String, Integer> ranges, int shardCount) {
+        int[] shardOfBucket = new int[ShardKeys.BUCKETS];
+        Arrays.fill(shardOfBucket, 0);
+        ranges.forEach((range, shard) -> {
+            if (shard < 0 || shard >= shardCount) {
+                throw new IllegalStateException("sharding.buckets." + range + " names shard " + shard
+                    + ", but only shards 0 to " + (shardCount - 1) + " are configured");
+            }
+            int dash = range.indexOf('-');
+            int first = Integer.parseInt(range.substring(0, dash > 0 ? dash : range.length()).trim());
+            int last = dash > 0 ? Integer.parseInt(range.substring(dash + 1).trim()) : first;
+            if (first < 0 || last >= ShardKeys.BUCKETS || first > last) {
+                throw new IllegalStateException("sharding.buckets." + range + " is not a range within 0-" + (ShardKeys.BUCKETS - 1));
+            }
+            Arrays.fill(shardOfBucket, first, last + 1, shard);
+        });
+        return shardOfBucket;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.PartitioningProperties;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every client application a {@code users} partition of its own, on every shard, and
+ * removes it with the application. Does nothing without {@code partitioning.enabled}.
+ * <p>
+ * A partition is created when an application is added on this node, and every
+ * {@code partitioning.check-interval} for applications that have none yet, such as those added
+ * before partitioning. Their users are moved out of {@code users_default} as the partition is
+ * created.
+ */
+@Slf4j
+@Component
+public class TenantPartitions implements SmartLifecycle {
+
+    private static final String LIST_PARTITIONS = "select c.relname from pg_inherits i "
+        + "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent "
+        + "where p.oid = to_regclass('" + PartitionedTables.USERS + "')";
+
+    private final PartitioningProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Shards shards;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public TenantPartitions(PartitioningProperties properties, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager, Shards shards) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+    }
+
+    public boolean enabled() {
+        return properties.isEnabled();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClientApplicationChanged(ClientApplicationChangedEvent event) {
+        if (enabled() && !jdbcTemplate.queryForList("select id from applications where id = ?", UUID.class,
+            event.applicationId()).isEmpty()) {
+            forEveryShard(() -> {
+                if (!partitions().contains(PartitionedTables.usersPartition(event.applicationId()))) {
+                    createPartition(event.applicationId());
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates the missing partitions of all applications.
+     */
+    void reconcile() {
+        // Applications are kept on shard 0 only
+        List<UUID> applications = jdbcTemplate.queryForList("select id from applications", UUID.class);
+        forEveryShard(() -> {
+            Set<String> partitions = partitions();
+            for (UUID application : applications) {
+                if (!partitions.contains(PartitionedTables.usersPartition(application))) {
+                    createPartition(application);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the users of an application, with their credentials. Credentials are spread over
+     * the hash partitions, so they are deleted in batches of {@code partitioning.delete-batch-size}
+     * first; the users then go with their partition, which is detached and dropped. Each
+     * statement commits on its own, outside the transaction of the caller.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void dropTenant(UUID applicationId) {
+        if (!enabled()) {
+            return;
+        }
+
+        String partition = PartitionedTables.usersPartition(applicationId);
+        forEveryShard(() -> {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update("delete from " + PartitionedTables.CREDENTIALS + " where id in "
+                    + "(select id from " + PartitionedTables.CREDENTIALS + " where application_id = ? limit ?)",
+                    applicationId, properties.getDeleteBatchSize());
+            } while (deleted > 0);
+
+            if (partitions().contains(partition)) {
+                jdbcTemplate.execute("alter table " + PartitionedTables.USERS + " detach partition " + partition);
+                jdbcTemplate.execute("drop table " + partition);
+            } else {
+                jdbcTemplate.update("delete from " + PartitionedTables.USERS + " where application_id = ?", applicationId);
+            }
+        });
+        log.info("Dropped the users of client application {}", applicationId);
+    }
+
+    private void createPartition(UUID applicationId) {
+        String partition = PartitionedTables.usersPartition(applicationId);
+        transactionTemplate.executeWithoutResult(_ -> {
+            jdbcTemplate.execute("select pg_advisory_xact_lock(" + PartitionedTables.LOCK + ")");
+            if (partitions().contains(partition)) {
+                return;
+            }
+            // Keeps new users of the application out of the default partition until it is attached
+            jdbcTemplate.execute("lock table " + PartitionedTables.DEFAULT_USERS_PARTITION + " in exclusive mode");
+            String columns = String.join(", ", jdbcTemplate.queryForList("select column_name from information_schema.columns "
+                + "where table_schema = current_schema() and table_name = ? order by ordinal_position",
+                String.class, PartitionedTables.USERS));
+            jdbcTemplate.execute("create table " + partition + " (like " + PartitionedTables.USERS + " including defaults)");
+            jdbcTemplate.execute("alter table " + partition + " add primary key (id)");
+            int moved = jdbcTemplate.update("with moved as (delete from " + PartitionedTables.DEFAULT_USERS_PARTITION
+                + " where application_id = ? returning " + columns + ") insert into " + partition + " (" + columns
+                + ") select " + columns + " from moved", applicationId);
+            jdbcTemplate.execute("alter table " + PartitionedTables.USERS + " attach partition " + partition
+                + " for values in ('" + applicationId + "')");
+            log.info("Created users partition {}, moving {} users into it", partition, moved);
+        });
+    }
+
+    private Set<String> partitions() {
+        return new HashSet<>(jdbcTemplate.queryForList(LIST_PARTITIONS, String.class));
+    }
+
+    private void forEveryShard(Runnable work) {
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            shards.onShard(shard, () -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled()) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tenant-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Could not create the missing users partitions", e);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
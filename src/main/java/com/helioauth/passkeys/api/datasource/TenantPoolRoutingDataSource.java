@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Takes connections from the pool {@link TenantPools} picks for the current client application.
+ * <p>
+ * Connections are only taken from a pool when the first statement runs, by which time finish
+ * calls have scoped themselves to the application of their request id. A transaction stays on
+ * the pool it started on.
+ */
+public class TenantPoolRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final DataSource shared;
+
+    public TenantPoolRoutingDataSource(DataSource shared, TenantPools pools) {
+        super(new Routing(shared, pools));
+        this.shared = shared;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return (T) this;
+        }
+        return shared.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || shared.isWrapperFor(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (shared instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Routing extends AbstractDataSource {
+
+        private final DataSource shared;
+        private final TenantPools pools;
+
+        private Routing(DataSource shared, TenantPools pools) {
+            this.shared = shared;
+            this.pools = pools;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return pools.route().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return shared.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Picks the connection pool of the client application in {@link ApplicationScope}: the pool of
+ * its tier, or the shared pool for applications in no tier and calls of no application.
+ * <p>
+ * Start and sign-up finish calls are scoped to the application that
+ * {@link com.helioauth.passkeys.api.auth.ApplicationIdAuthenticationProvider} or
+ * {@link com.helioauth.passkeys.api.auth.ApplicationApiKeyAuthenticationProvider} authenticated,
+ * the other finish calls to the application their request id names. Lookups made while
+ * authenticating run before either is known, on the shared pool.
+ */
+@Slf4j
+public class TenantPools implements MeterBinder, Closeable {
+
+    public static final String SHARED = "shared";
+
+    private final Pool shared;
+    private final List<Pool> pools = new ArrayList<>();
+    private final Map<UUID, Pool> poolOfApplication = new HashMap<>();
+
+    /**
+     * @param pools        dedicated pools by name
+     * @param applications the name of the pool of each client application in a tier
+     */
+    public TenantPools(DataSource shared, Map<String, DataSource> pools, Map<UUID, String> applications) {
+        this.shared = new Pool(SHARED, shared);
+        pools.forEach((name, dataSource) -> this.pools.add(new Pool(name, dataSource)));
+        applications.forEach((applicationId, name) -> poolOfApplication.put(applicationId, this.pools.stream()
+            .filter(pool -> pool.name.equals(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No pool named " + name))));
+    }
+
+    public DataSource shared() {
+        return shared.dataSource;
+    }
+
+    Pool route() {
+        UUID applicationId = ApplicationScope.current();
+        Pool pool = applicationId != null ? poolOfApplication.get(applicationId) : null;
+        return pool != null ? pool : shared;
+    }
+
+    @Override
+    public void close() {
+        for (Pool pool : pools) {
+            if (pool.dataSource instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Could not close connection pool {}: {}", pool.name, e.toString());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        shared.bindTo(registry);
+        pools.forEach(pool -> pool.bindTo(registry));
+    }
+
+    static final class Pool {
+        final String name;
+        final DataSource dataSource;
+        volatile Counter transactions;
+
+        private Pool(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        Connection getConnection() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            Counter counter = transactions;
+            if (counter != null) {
+                counter.increment();
+            }
+            return connection;
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            transactions = Counter.builder("passkeys.db.pool.transactions").tag("pool", name)
+                .description("Connections handed out by pool")
+                .register(registry);
+            if (!(dataSource instanceof HikariDataSource hikari)) {
+                return;
+            }
+            Gauge.builder("passkeys.db.pool.saturation", hikari, Pool::saturation)
+                .tag("pool", name)
+                .description("Connections in use as a share of the maximum pool size")
+                .register(registry);
+            Gauge.builder("passkeys.db.pool.waiting", hikari, Pool::waiting)
+                .tag("pool", name)
+                .description("Threads waiting for a connection")
+                .register(registry);
+        }
+
+        private static double saturation(HikariDataSource dataSource) {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool != null ? (double) pool.getActiveConnections() / dataSource.getMaximumPoolSize() : 0;
+        }
+
+        private static double waiting(HikariDataSource dataSource) {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool != null ? pool.getThreadsAwaitingConnection() : 0;
+        }
+    }
+}
@@ -26,10 +26,13 @@ import org.springframework.data.annotation.LastModifiedDate;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -44,7 +47,7 @@ import java.util.UUID;
  * @author Viktor Stanchev
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "users_application_id_name_idx", columnList = "application_id, name"))
 @Builder
 @Getter
 @Setter
@@ -76,6 +79,6 @@ public class User {
     private List<UserCredential> userCredentials;
 
     @ManyToOne(targetEntity = ClientApplication.class, fetch = jakarta.persistence.FetchType.LAZY)
-    @JoinColumn(name = "application_id")
+    @JoinColumn(name = "application_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private ClientApplication clientApplication;
 }
@@ -25,11 +25,14 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -41,7 +44,10 @@ import java.time.Instant;
  * @author Viktor Stanchev
  */
 @Entity
-@Table(name = "user_credentials")
+@Table(name = "user_credentials", indexes = @Index(
+    name = "user_credentials_application_id_user_handle_idx",
+    columnList = "application_id, user_handle, credential_id"
+))
 @EntityListeners(AuditingEntityListener.class)
 @Builder
 @Getter
@@ -94,4 +100,12 @@ public class UserCredential {
     @ManyToOne(targetEntity = User.class, fetch = jakarta.persistence.FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
+
+    /**
+     * The application of {@link #user}, kept here too so that lookups by user handle are scoped
+     * without a join.
+     */
+    @ManyToOne(targetEntity = ClientApplication.class, fetch = jakarta.persistence.FetchType.LAZY)
+    @JoinColumn(name = "application_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private ClientApplication clientApplication;
 }
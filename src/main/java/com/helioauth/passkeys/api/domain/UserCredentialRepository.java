@@ -16,6 +16,7 @@
 
 package com.helioauth.passkeys.api.domain;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -29,15 +30,21 @@ import java.util.UUID;
  * @author Viktor Stanchev
  */
 public interface UserCredentialRepository extends JpaRepository<UserCredential, Long> {
-    Optional<UserCredential> findFirstByUserName(String username);
+    Optional<UserCredential> findFirstByClientApplicationIdAndUserName(UUID applicationId, String username);
 
-    List<UserCredential> findAllByUserId(UUID userUuid);
+    List<UserCredential> findAllByUserIdAndUserClientApplicationId(UUID userUuid, UUID applicationId);
 
-    List<UserCredential> findAllByUserHandle(String base64EncodedUserHandle);
+    List<UserCredential> findAllByClientApplicationIdAndUserHandle(UUID applicationId, String base64EncodedUserHandle);
 
-    Optional<UserCredential> findFirstByUserHandleAndCredentialId(String base64UserHandle, String base64CredentialId);
+    Optional<UserCredential> findFirstByClientApplicationIdAndUserHandleAndCredentialId(
+        UUID applicationId, String base64UserHandle, String base64CredentialId);
+
+    @EntityGraph(attributePaths = "user")
+    Optional<UserCredential> findFirstWithUserByClientApplicationIdAndUserHandle(UUID applicationId, String base64UserHandle);
 
     @Modifying(flushAutomatically = true)
-    @Query("update UserCredential uc set uc.signatureCount = ?1, uc.lastUsedAt = ?2, uc.backupState = ?3 where uc.userHandle = ?4 and uc.credentialId = ?5")
-    void updateUsageByUserHandleAndCredentialId(Long signatureCount, Instant lastUsedAt, Boolean backupState, String userHandle, String credentialId);
+    @Query("update UserCredential uc set uc.signatureCount = ?1, uc.lastUsedAt = ?2, uc.backupState = ?3 "
+        + "where uc.userHandle = ?4 and uc.credentialId = ?5 and uc.clientApplication.id = ?6")
+    void updateUsageByUserHandleAndCredentialId(Long signatureCount, Instant lastUsedAt, Boolean backupState,
+                                                String userHandle, String credentialId, UUID applicationId);
 }
@@ -26,7 +26,7 @@ import java.util.UUID;
  */
 public interface UserRepository extends JpaRepository<User, UUID> {
 
-    Optional<User> findByName(String name);
+    Optional<User> findByClientApplicationIdAndName(UUID applicationId, String name);
 
-    Optional<User> findFirstByUserCredentialsUserHandle(String base64EncodedUserHandle);
+    boolean existsByIdAndClientApplicationId(UUID id, UUID applicationId);
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helioauth.passkeys.api.grpc;
+
+import com.helioauth.passkeys.api.auth.ApplicationApiKeyAuthenticationProvider;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerTransportFilter;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Authenticates gRPC calls with the client application API key.
+ * <p>
+ * The key is verified against the database on the first call of a connection and the
+ * resulting application is remembered on the connection, so later calls carrying the same
+ * key skip the lookup. Any change to a client application invalidates every remembered
+ * authentication, and the next call on each connection verifies its key again.
+ */
+@Slf4j
+@Component
+public class ApiKeyAuthenticationInterceptor implements ServerInterceptor {
+
+    public static final Context.Key<ClientApplication> CLIENT_APPLICATION = Context.key("clientApplication");
+
+    private static final Attributes.Key<ConnectionAuthentication> CONNECTION_AUTHENTICATION =
+        Attributes.Key.create("connectionAuthentication");
+
+    private final ApplicationApiKeyAuthenticationProvider authenticationProvider;
+    private final Metadata.Key<String> apiKeyHeader;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ApiKeyAuthenticationInterceptor(ApplicationApiKeyAuthenticationProvider authenticationProvider,
+                                           @Value("${app.auth.api-key-header}") String apiKeyHeader) {
+        this.authenticationProvider = authenticationProvider;
+        this.apiKeyHeader = Metadata.Key.of(apiKeyHeader.toLowerCase(Locale.ROOT), Metadata.ASCII_STRING_MARSHALLER);
+    }
+
+    /**
+     * Transport filter that attaches the per-connection authentication state. Must be
+     * registered on the server next to this interceptor.
+     */
+    public ServerTransportFilter transportFilter() {
+        return new ServerTransportFilter() {
+            @Override
+            public Attributes transportReady(Attributes transportAttrs) {
+                return transportAttrs.toBuilder()
+                    .set(CONNECTION_AUTHENTICATION, new ConnectionAuthentication())
+                    .build();
+            }
+        };
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String apiKey = headers.get(apiKeyHeader);
+        if (apiKey == null || apiKey.isBlank()) {
+            call.close(Status.UNAUTHENTICATED.withDescription("Application API key is missing"), new Metadata());
+            return new ServerCall.Listener<>() {};
+        }
+
+        ConnectionAuthentication connection = call.getAttributes().get(CONNECTION_AUTHENTICATION);
+        long currentGeneration = generation.get();
+        ClientApplication clientApp = connection != null ? connection.get(apiKey, currentGeneration) : null;
+
+        if (clientApp == null) {
+            try {
+                clientApp = authenticate(apiKey);
+            } catch (AuthenticationException e) {
+                log.debug("Rejected gRPC call to {}: {}", call.getMethodDescriptor().getFullMethodName(), e.getMessage());
+                call.close(Status.UNAUTHENTICATED.withDescription("Invalid api key"), new Metadata());
+                return new ServerCall.Listener<>() {};
+            }
+
+            if (connection != null) {
+                connection.set(apiKey, clientApp, currentGeneration);
+            }
+        }
+
+        Context context = Context.current().withValue(CLIENT_APPLICATION, clientApp);
+        return Contexts.interceptCall(context, call, headers, next);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClientApplicationChanged(ClientApplicationChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    private ClientApplication authenticate(String apiKey) {
+        Authentication authentication = authenticationProvider.authenticate(
+            new PreAuthenticatedAuthenticationToken(apiKey, "N/A")
+        );
+        return (ClientApplication) authentication.getPrincipal();
+    }
+
+    private static final class ConnectionAuthentication {
+        private String apiKey;
+        private ClientApplication clientApp;
+        private long generation = -1;
+
+        synchronized ClientApplication get(String apiKey, long currentGeneration) {
+            return generation == currentGeneration && apiKey.equals(this.apiKey) ? clientApp : null;
+        }
+
+        synchronized void set(String apiKey, ClientApplication clientApp, long generation) {
+            this.apiKey = apiKey;
+            this.clientApp = clientApp;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.grpc;
+
+import com.helioauth.passkeys.api.config.properties.GrpcProperties;
+import com.helioauth.passkeys.api.datasource.QueryBudgetServerInterceptor;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcServerInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gRPC server on its own port alongside the servlet container. It only serves TLS.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "grpc", name = "enabled", havingValue = "true")
+public class GrpcServer implements SmartLifecycle {
+
+    private final GrpcProperties properties;
+    private final PasskeysGrpcService passkeysGrpcService;
+    private final ApiKeyAuthenticationInterceptor apiKeyAuthenticationInterceptor;
+    private final ObjectProvider<QueryBudgetServerInterceptor> queryBudgetServerInterceptor;
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    private volatile Server server;
+
+    @Override
+    public void start() {
+        GrpcProperties.Tls tls = properties.getTls();
+        if (tls.getCertificateChain() == null || tls.getPrivateKey() == null) {
+            throw new IllegalStateException("grpc.tls.certificate-chain and grpc.tls.private-key must be set "
+                + "when grpc.enabled is true");
+        }
+
+        ServerServiceDefinition service = passkeysGrpcService.bindService();
+        QueryBudgetServerInterceptor queryBudget = queryBudgetServerInterceptor.getIfAvailable();
+        if (queryBudget != null) {
+            service = ServerInterceptors.intercept(service, queryBudget);
+        }
+        service = ServerInterceptors.intercept(service, apiKeyAuthenticationInterceptor);
+        // Outermost, so calls are traced (continuing the caller's traceparent) even when authentication rejects them.
+        service = ServerInterceptors.intercept(service, new ObservationGrpcServerInterceptor(
+            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP)
+        ));
+
+        NettyServerBuilder builder = NettyServerBuilder.forPort(properties.getPort());
+        try (InputStream certificateChain = tls.getCertificateChain().getInputStream();
+             InputStream privateKey = tls.getPrivateKey().getInputStream()) {
+            builder.useTransportSecurity(certificateChain, privateKey);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the gRPC server certificate or key", e);
+        }
+
+        Server newServer = builder
+            .addService(service)
+            .addTransportFilter(apiKeyAuthenticationInterceptor.transportFilter())
+            .maxConcurrentCallsPerConnection(properties.getMaxConcurrentCallsPerConnection())
+            .keepAliveTime(properties.getKeepAliveTime().toMillis(), TimeUnit.MILLISECONDS)
+            .keepAliveTimeout(properties.getKeepAliveTimeout().toMillis(), TimeUnit.MILLISECONDS)
+            .maxConnectionIdle(properties.getMaxConnectionIdle().toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+
+        try {
+            newServer.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start gRPC server on port " + properties.getPort(), e);
+        }
+
+        server = newServer;
+        log.info("gRPC server started on port {}", newServer.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server runningServer = server;
+        if (runningServer == null) {
+            return;
+        }
+
+        runningServer.shutdown();
+        try {
+            if (!runningServer.awaitTermination(properties.getShutdownGracePeriod().toMillis(), TimeUnit.MILLISECONDS)) {
+                runningServer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            runningServer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        Server runningServer = server;
+        return runningServer != null ? runningServer.getPort() : -1;
+    }
+}
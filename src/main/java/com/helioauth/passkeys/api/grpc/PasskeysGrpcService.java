@@ -0,0 +1,203 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.grpc;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import com.helioauth.passkeys.api.generated.grpc.DeleteUserRequest;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignInRequest;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignInResponse;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignUpRequest;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignUpResponse;
+import com.helioauth.passkeys.api.generated.grpc.ListCredentialsRequest;
+import com.helioauth.passkeys.api.generated.grpc.ListCredentialsResponse;
+import com.helioauth.passkeys.api.generated.grpc.Passkey;
+import com.helioauth.passkeys.api.generated.grpc.PasskeysGrpc;
+import com.helioauth.passkeys.api.generated.models.PasskeyCredential;
+import com.helioauth.passkeys.api.generated.models.SignUpFinishResponse;
+import com.helioauth.passkeys.api.service.UserAccountManager;
+import com.helioauth.passkeys.api.service.UserCredentialManager;
+import com.helioauth.passkeys.api.service.UserSignInService;
+import com.helioauth.passkeys.api.service.UserSignupService;
+import com.yubico.webauthn.data.ByteArray;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * gRPC counterpart of the ceremony-finish and user management REST endpoints, backed by the same services.
+ * Calls act for the application of their API key, so users of other applications are {@code NOT_FOUND}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PasskeysGrpcService extends PasskeysGrpc.PasskeysImplBase {
+
+    private final UserSignupService userSignupService;
+    private final UserSignInService userSignInService;
+    private final UserCredentialManager userCredentialManager;
+    private final UserAccountManager userAccountManager;
+
+    @Override
+    public void finishSignUp(FinishSignUpRequest request, StreamObserver<FinishSignUpResponse> responseObserver) {
+        respond(responseObserver, () -> {
+            SignUpFinishResponse response = userSignupService.finishRegistration(
+                request.getRequestId(),
+                request.getPublicKeyCredential()
+            );
+
+            return FinishSignUpResponse.newBuilder()
+                .setRequestId(response.getRequestId())
+                .setUserId(response.getUserId().toString())
+                .build();
+        });
+    }
+
+    @Override
+    public void finishSignIn(FinishSignInRequest request, StreamObserver<FinishSignInResponse> responseObserver) {
+        respond(responseObserver, () -> {
+            String username = userSignInService.finishAssertion(
+                request.getRequestId(),
+                request.getPublicKeyCredential(),
+                request.getClientAddress().isEmpty() ? null : request.getClientAddress()
+            );
+
+            return FinishSignInResponse.newBuilder()
+                .setRequestId(request.getRequestId())
+                .setUsername(username)
+                .build();
+        });
+    }
+
+    @Override
+    public void listCredentials(ListCredentialsRequest request, StreamObserver<ListCredentialsResponse> responseObserver) {
+        respond(responseObserver, () -> {
+            ListCredentialsResponse.Builder response = ListCredentialsResponse.newBuilder();
+            userCredentialManager.getUserCredentials(parseUserId(request.getUserId()))
+                .getPasskeys()
+                .forEach(credential -> response.addPasskeys(toPasskey(credential)));
+
+            return response.build();
+        });
+    }
+
+    @Override
+    public void deleteUser(DeleteUserRequest request, StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            userAccountManager.deleteUser(parseUserId(request.getUserId()));
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    private static <T> void respond(StreamObserver<T> responseObserver, Supplier<T> action) {
+        T response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            Status status = toStatus(e);
+            if (status.getCode() == Status.Code.INTERNAL) {
+                log.error("gRPC call failed", e);
+            }
+            responseObserver.onError(status.asRuntimeException());
+            return;
+        }
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private static UUID parseUserId(String userId) {
+        try {
+            return UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid user id");
+        }
+    }
+
+    private static Passkey toPasskey(PasskeyCredential credential) {
+        Passkey.Builder passkey = Passkey.newBuilder()
+            .setSignatureCount(credential.getSignatureCount() != null ? credential.getSignatureCount() : 0);
+
+        if (credential.getCredentialId() != null) {
+            passkey.setCredentialId(ByteString.copyFrom(ByteArray.fromBase64(credential.getCredentialId()).getBytes()));
+        }
+        if (credential.getUserHandle() != null) {
+            passkey.setUserHandle(ByteString.copyFrom(ByteArray.fromBase64(credential.getUserHandle()).getBytes()));
+        }
+        if (credential.getDisplayName() != null) {
+            passkey.setDisplayName(credential.getDisplayName());
+        }
+        if (credential.getCreatedAt() != null) {
+            passkey.setCreatedAt(toTimestamp(credential.getCreatedAt()));
+        }
+        if (credential.getLastUsedAt() != null) {
+            passkey.setLastUsedAt(toTimestamp(credential.getLastUsedAt()));
+        }
+
+        return passkey.build();
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.newBuilder()
+            .setSeconds(instant.getEpochSecond())
+            .setNanos(instant.getNano())
+            .build();
+    }
+
+    /**
+     * Maps service exceptions to gRPC statuses using the HTTP status the REST API would have returned.
+     */
+    private static Status toStatus(RuntimeException e) {
+        int httpStatus;
+        String description;
+        if (e instanceof ResponseStatusException responseStatusException) {
+            httpStatus = responseStatusException.getStatusCode().value();
+            description = responseStatusException.getReason();
+        } else {
+            ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+            if (responseStatus == null) {
+                return Status.INTERNAL.withDescription("Internal error");
+            }
+            httpStatus = responseStatus.code().value();
+            description = responseStatus.reason().isEmpty() ? e.getMessage() : responseStatus.reason();
+        }
+
+        Status status = switch (httpStatus) {
+            case 400 -> Status.INVALID_ARGUMENT;
+            case 401 -> Status.UNAUTHENTICATED;
+            case 403 -> Status.PERMISSION_DENIED;
+            case 404 -> Status.NOT_FOUND;
+            case 409 -> Status.ALREADY_EXISTS;
+            case 429 -> Status.RESOURCE_EXHAUSTED;
+            case 503 -> Status.UNAVAILABLE;
+            default -> Status.INTERNAL;
+        };
+
+        return status.withDescription(description);
+    }
+}
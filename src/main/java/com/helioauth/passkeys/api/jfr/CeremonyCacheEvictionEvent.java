@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.jfr;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A pending ceremony request dropped from the request cache before it was finished.
+ */
+@Name("com.helioauth.passkeys.CeremonyCacheEviction")
+@Label("Ceremony Cache Eviction")
+@Category({"Passkeys", "Ceremony"})
+@Description("Pending ceremony request evicted from the request cache because it expired or the cache was full")
+@StackTrace(false)
+public class CeremonyCacheEvictionEvent extends Event {
+
+    @Label("Cause")
+    private String cause;
+
+    public static void record(RemovalCause cause) {
+        CeremonyCacheEvictionEvent event = new CeremonyCacheEvictionEvent();
+        if (event.shouldCommit()) {
+            event.cause = cause.name();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.jfr;
+
+import com.helioauth.passkeys.api.auth.ClientApplicationContext;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One step of a registration or assertion ceremony.
+ * <p>
+ * The event's own duration covers the whole step; {@link #requestLookup} and {@link #verification}
+ * break a finish step down into loading the stored ceremony request and verifying the response.
+ */
+@Name("com.helioauth.passkeys.Ceremony")
+@Label("Passkey Ceremony")
+@Category({"Passkeys", "Ceremony"})
+@Description("Start or finish of a WebAuthn registration or assertion ceremony")
+@StackTrace(false)
+public class CeremonyEvent extends Event {
+
+    public static final String REGISTRATION = "registration";
+    public static final String ASSERTION = "assertion";
+
+    public static final String START = "start";
+    public static final String FINISH = "finish";
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+    public static final String EXPIRED = "expired";
+    public static final String LOCKED_OUT = "locked-out";
+
+    @Label("Ceremony")
+    private String ceremony;
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Relying Party ID")
+    private String rpId;
+
+    @Label("Application ID")
+    private String applicationId;
+
+    @Label("Outcome")
+    private String outcome = FAILURE;
+
+    @Label("Request Lookup")
+    @Description("Loading and parsing the stored ceremony request")
+    @Timespan(Timespan.NANOSECONDS)
+    private long requestLookup;
+
+    @Label("Verification")
+    @Description("Verifying the authenticator response")
+    @Timespan(Timespan.NANOSECONDS)
+    private long verification;
+
+    /**
+     * Begins timing a ceremony step on behalf of the client application of the current REST request or gRPC call.
+     */
+    public static CeremonyEvent begin(String ceremony, String phase) {
+        CeremonyEvent event = new CeremonyEvent();
+        if (event.isEnabled()) {
+            event.ceremony = ceremony;
+            event.phase = phase;
+            event.applicationId = ClientApplicationContext.currentId();
+            event.begin();
+        }
+        return event;
+    }
+
+    public String getRpId() {
+        return rpId;
+    }
+
+    public void setRpId(String rpId) {
+        this.rpId = rpId;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    public void setRequestLookup(long nanos) {
+        this.requestLookup = nanos;
+    }
+
+    public void setVerification(long nanos) {
+        this.verification = nanos;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A query the WebAuthn library made against the credential repository.
+ */
+@Name("com.helioauth.passkeys.CredentialLookup")
+@Label("Credential Lookup")
+@Category({"Passkeys", "Credential Repository"})
+@Description("Credential repository query made during a ceremony")
+public class CredentialLookupEvent extends Event {
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Results")
+    @Description("Number of credentials, user handles or usernames found")
+    private int results;
+
+    public static CredentialLookupEvent begin(String operation) {
+        CredentialLookupEvent event = new CredentialLookupEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Ends the lookup and records it if the event is enabled and over its threshold.
+     */
+    public void complete(int results) {
+        end();
+        if (shouldCommit()) {
+            this.results = results;
+            commit();
+        }
+    }
+}
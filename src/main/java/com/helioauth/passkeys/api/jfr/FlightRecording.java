@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.jfr;
+
+import com.helioauth.passkeys.api.config.properties.FlightRecorderProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Keeps a rolling JDK Flight Recorder recording of the last {@code flight-recorder.max-age}
+ * that can be dumped on demand, so latency incidents can be looked at after the fact.
+ * <p>
+ * The recording leaves out the initial environment variables and system properties, which
+ * can hold credentials.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FlightRecording implements SmartLifecycle {
+
+    private static final String NAME = "passkeys-rolling";
+
+    private final FlightRecorderProperties properties;
+    private volatile Recording recording;
+
+    @Override
+    public synchronized void start() {
+        if (!properties.isEnabled() || recording != null) {
+            return;
+        }
+
+        try {
+            Recording started = new Recording(Configuration.getConfiguration(properties.getSettings()));
+            started.setName(NAME);
+            started.setToDisk(true);
+            started.setMaxAge(properties.getMaxAge());
+            started.setMaxSize(properties.getMaxSize().toBytes());
+            started.disable("jdk.InitialEnvironmentVariable");
+            started.disable("jdk.InitialSystemProperty");
+            started.enable(CeremonyEvent.class);
+            started.enable(CredentialLookupEvent.class);
+            started.enable(CeremonyCacheEvictionEvent.class);
+            started.start();
+            recording = started;
+            log.info("Started rolling flight recording with '{}' settings, keeping {}", properties.getSettings(), properties.getMaxAge());
+        } catch (IOException | ParseException | IllegalStateException e) {
+            log.warn("Could not start the rolling flight recording", e);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Writes the recorded history to {@code destination}.
+     *
+     * @return whether a recording was running and got dumped
+     */
+    public boolean dump(Path destination) throws IOException {
+        Recording current = recording;
+        if (current == null) {
+            return false;
+        }
+        current.dump(destination);
+        return true;
+    }
+}
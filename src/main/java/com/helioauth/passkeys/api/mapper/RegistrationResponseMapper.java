@@ -16,6 +16,8 @@
 
 package com.helioauth.passkeys.api.mapper;
 
+import com.helioauth.passkeys.api.controller.dto.SignInStartResponseV2;
+import com.helioauth.passkeys.api.controller.dto.SignUpStartResponseV2;
 import com.helioauth.passkeys.api.generated.models.SignInStartResponse;
 import com.helioauth.passkeys.api.generated.models.SignUpStartResponse;
 import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
@@ -26,4 +28,8 @@ public interface RegistrationResponseMapper {
     SignUpStartResponse toSignUpStartResponse(AssertionStartResult result);
 
     SignInStartResponse toSignInStartResponse(AssertionStartResult result, Boolean accountExists);
+
+    SignUpStartResponseV2 toSignUpStartResponseV2(SignUpStartResponse response);
+
+    SignInStartResponseV2 toSignInStartResponseV2(SignInStartResponse response);
 }
\ No newline at end of file
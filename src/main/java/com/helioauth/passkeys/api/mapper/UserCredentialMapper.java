@@ -35,6 +35,7 @@ public interface UserCredentialMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "lastUsedAt", ignore = true)
     @Mapping(target = "user", ignore = true)
+    @Mapping(target = "clientApplication", ignore = true)
     @Mapping(target = "id", ignore = true)
     UserCredential fromCredentialRegistrationResult(CredentialRegistrationResult registrationResultDto);
 
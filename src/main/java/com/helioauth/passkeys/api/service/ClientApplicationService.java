@@ -16,14 +16,17 @@
 
 package com.helioauth.passkeys.api.service;
 
+import com.helioauth.passkeys.api.datasource.TenantPartitions;
 import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
 import com.helioauth.passkeys.api.generated.models.AddApplicationRequest;
 import com.helioauth.passkeys.api.generated.models.Application;
 import com.helioauth.passkeys.api.generated.models.ApplicationApiKey;
 import com.helioauth.passkeys.api.generated.models.EditApplicationRequest;
 import com.helioauth.passkeys.api.mapper.ClientApplicationMapper;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -43,8 +46,13 @@ public class ClientApplicationService {
 
     private final ClientApplicationMapper clientApplicationMapper;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TenantPartitions tenantPartitions;
+
     private final SecureRandom random = new SecureRandom();
 
+    @Transactional(readOnly = true)
     public Optional<Application> get(UUID id) {
 
         return repository.findById(id).map(clientApplicationMapper::toResponse);
@@ -54,6 +62,7 @@ public class ClientApplicationService {
         return repository.findById(id).map(clientApplicationMapper::toApiKeyResponse);
     }
 
+    @Transactional(readOnly = true)
     public List<Application> listAll() {
 
         return clientApplicationMapper.toResponse(
@@ -65,9 +74,10 @@ public class ClientApplicationService {
         val clientApplication = clientApplicationMapper.toClientApplication(request);
         clientApplication.setApiKey(generateApiKey());
 
-        return clientApplicationMapper.toResponse(
-            repository.save(clientApplication)
-        );
+        val saved = repository.save(clientApplication);
+        eventPublisher.publishEvent(new ClientApplicationChangedEvent(saved.getId()));
+
+        return clientApplicationMapper.toResponse(saved);
     }
 
     @Transactional
@@ -75,14 +85,18 @@ public class ClientApplicationService {
         return repository.findById(id)
             .map(existing -> {
                 clientApplicationMapper.updateClientApplication(existing, request);
-                return clientApplicationMapper.toResponse(repository.save(existing));
+                val saved = repository.save(existing);
+                eventPublisher.publishEvent(new ClientApplicationChangedEvent(id));
+                return clientApplicationMapper.toResponse(saved);
             });
     }
 
     @Transactional
     public boolean delete(UUID id) {
         if (repository.existsById(id)) {
+            tenantPartitions.dropTenant(id);
             repository.deleteById(id);
+            eventPublisher.publishEvent(new ClientApplicationChangedEvent(id));
             return true;
         }
         return false;
@@ -94,6 +108,7 @@ public class ClientApplicationService {
             .map(application -> {
                 application.setApiKey(null);
                 repository.save(application);
+                eventPublisher.publishEvent(new ClientApplicationChangedEvent(id));
                 return true;
             })
             .orElse(false);
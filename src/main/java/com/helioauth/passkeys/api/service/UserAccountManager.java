@@ -16,10 +16,14 @@
 
 package com.helioauth.passkeys.api.service;
 
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.datasource.Shards;
 import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.service.event.UserChangedEvent;
 import com.helioauth.passkeys.api.service.exception.UserNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
@@ -32,12 +36,24 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class UserAccountManager {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Shards shards;
 
+    /**
+     * Deletes a user of the calling application; users of other applications are not found.
+     */
     public void deleteUser(UUID userUuid) {
-        if (userUuid == null || !userRepository.existsById(userUuid)) {
+        UUID applicationId = ApplicationScope.current();
+        if (userUuid == null || applicationId == null) {
             throw new UserNotFoundException();
         }
+        int shard = shards.find(() -> userRepository.existsByIdAndClientApplicationId(userUuid, applicationId))
+            .orElseThrow(UserNotFoundException::new);
 
-        userRepository.deleteById(userUuid);
+        shards.onShard(shard, () -> {
+            userRepository.deleteById(userUuid);
+            return null;
+        });
+        eventPublisher.publishEvent(new UserChangedEvent(userUuid));
     }
 }
@@ -17,6 +17,9 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.datasource.ReadYourWrites;
+import com.helioauth.passkeys.api.datasource.Shards;
 import com.helioauth.passkeys.api.domain.User;
 import com.helioauth.passkeys.api.domain.UserCredential;
 import com.helioauth.passkeys.api.domain.UserCredentialRepository;
@@ -29,10 +32,13 @@ import com.helioauth.passkeys.api.mapper.RegistrationResponseMapper;
 import com.helioauth.passkeys.api.mapper.UserCredentialMapper;
 import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
 import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.api.service.event.UserChangedEvent;
 import com.helioauth.passkeys.api.service.exception.CreateCredentialFailedException;
 import com.helioauth.passkeys.api.service.exception.SignUpFailedException;
+import com.helioauth.passkeys.api.service.exception.UserNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -51,12 +57,15 @@ public class UserCredentialManager {
     private final UserCredentialRepository userCredentialRepository;
     private final UserCredentialMapper userCredentialMapper;
     private final RegistrationResponseMapper registrationResponseMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReadYourWrites readYourWrites;
+    private final Shards shards;
 
     public SignUpStartResponse createCredential(String name) {
         try {
             return registrationResponseMapper.toSignUpStartResponse(
                 webAuthnAuthenticator.startRegistration(
-                    RegistrationStartRequest.withName(name).build()
+                    RegistrationStartRequest.withName(name).userId(shards.newUserHandle(name)).build()
                 )
             );
         } catch (JsonProcessingException e) {
@@ -66,17 +75,33 @@ public class UserCredentialManager {
     }
 
     public SignUpFinishResponse finishCreateCredential(SignUpFinishRequest request) {
+        if (ApplicationScope.startedForAnother(request.getRequestId())) {
+            log.warn("Credential of request {} finished by another client application", request.getRequestId());
+            throw new SignUpFailedException();
+        }
+        return ApplicationScope.call(ApplicationScope.ofRequest(request.getRequestId()), () -> addCredential(request));
+    }
+
+    private SignUpFinishResponse addCredential(SignUpFinishRequest request) {
         try {
             CredentialRegistrationResult result = webAuthnAuthenticator.finishRegistration(
                     request.getRequestId(),
                     request.getPublicKeyCredential()
             );
 
-            User user = userRepository.findByName(result.name()).orElseThrow(CreateCredentialFailedException::new);
+            User user = shards.forUser(result.name(), () -> {
+                User existing = ApplicationScope.find(
+                        applicationId -> userRepository.findByClientApplicationIdAndName(applicationId, result.name()))
+                    .orElseThrow(CreateCredentialFailedException::new);
 
-            UserCredential userCredential = userCredentialMapper.fromCredentialRegistrationResult(result);
-            userCredential.setUser(user);
-            userCredentialRepository.save(userCredential);
+                UserCredential userCredential = userCredentialMapper.fromCredentialRegistrationResult(result);
+                userCredential.setUser(existing);
+                userCredential.setClientApplication(existing.getClientApplication());
+                userCredentialRepository.save(userCredential);
+                return existing;
+            });
+            readYourWrites.recordWrite(user.getName());
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
 
             return new SignUpFinishResponse(request.getRequestId(), user.getId());
         } catch (IOException e) {
@@ -85,8 +110,22 @@ public class UserCredentialManager {
         }
     }
 
+    /**
+     * Lists the credentials of a user of the calling application; users of other applications
+     * are not found.
+     */
     public ListPasskeysResponse getUserCredentials(UUID userUuid) {
-        List<UserCredential> userCredentials = userCredentialRepository.findAllByUserId(userUuid);
+        UUID applicationId = ApplicationScope.current();
+        if (userUuid == null || applicationId == null) {
+            throw new UserNotFoundException();
+        }
+        List<UserCredential> userCredentials = shards.gather(
+            () -> userCredentialRepository.findAllByUserIdAndUserClientApplicationId(userUuid, applicationId));
+        // Tells a user without credentials apart from one that is not there
+        if (userCredentials.isEmpty()
+                && shards.find(() -> userRepository.existsByIdAndClientApplicationId(userUuid, applicationId)).isEmpty()) {
+            throw new UserNotFoundException();
+        }
         return new ListPasskeysResponse(userCredentialMapper.toDto(userCredentials));
     }
 
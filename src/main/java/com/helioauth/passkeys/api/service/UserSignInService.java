@@ -17,6 +17,8 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.datasource.Shards;
 import com.helioauth.passkeys.api.domain.UserCredentialRepository;
 import com.helioauth.passkeys.api.domain.UserRepository;
 import com.helioauth.passkeys.api.generated.models.SignInStartResponse;
@@ -24,13 +26,17 @@ import com.helioauth.passkeys.api.mapper.RegistrationResponseMapper;
 import com.helioauth.passkeys.api.service.dto.CredentialAssertionResult;
 import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
 import com.helioauth.passkeys.api.service.exception.SignInFailedException;
+import com.yubico.webauthn.data.AuthenticatorAssertionResponse;
+import com.yubico.webauthn.data.ClientAssertionExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.util.UUID;
 
 /**
  * @author Viktor Stanchev
@@ -47,11 +53,14 @@ public class UserSignInService {
 
     private final RegistrationResponseMapper registrationResponseMapper;
 
+    private final Shards shards;
+
     public SignInStartResponse startAssertion(String name) throws JsonProcessingException {
-        if (!StringUtils.isBlank(name) && userRepository.findByName(name).isEmpty()) {
+        if (StringUtils.hasText(name) && shards.forUser(name, () -> ApplicationScope.find(
+                applicationId -> userRepository.findByClientApplicationIdAndName(applicationId, name))).isEmpty()) {
             return registrationResponseMapper.toSignInStartResponse(
                 webAuthnAuthenticator.startRegistration(
-                    RegistrationStartRequest.withName(name).build()
+                    RegistrationStartRequest.withName(name).userId(shards.newUserHandle(name)).build()
                 ),
                 false
             );
@@ -64,18 +73,50 @@ public class UserSignInService {
     }
 
     @Transactional
-    public String finishAssertion(String requestId, String publicKeyCredentialJson) {
+    public String finishAssertion(String requestId, String publicKeyCredentialJson, String sourceAddress) {
+        return finishAssertion(requestId, () -> webAuthnAuthenticator.finishAssertion(requestId, publicKeyCredentialJson, sourceAddress));
+    }
+
+    @Transactional
+    public String finishAssertion(
+        String requestId,
+        PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> publicKeyCredential,
+        String sourceAddress
+    ) {
+        return finishAssertion(requestId, () -> webAuthnAuthenticator.finishAssertion(requestId, publicKeyCredential, sourceAddress));
+    }
+
+    /**
+     * Sign-in finish calls are unauthenticated, so they see the users of the application the
+     * ceremony was started for. An application that does authenticate cannot finish the
+     * ceremonies of another.
+     */
+    private String finishAssertion(String requestId, AssertionStep assertionStep) {
+        if (ApplicationScope.startedForAnother(requestId)) {
+            log.warn("Sign-in of request {} finished by another client application", requestId);
+            throw new SignInFailedException();
+        }
+
+        UUID applicationId = ApplicationScope.ofRequest(requestId);
+        return ApplicationScope.call(applicationId, () -> finishAssertion(applicationId, assertionStep));
+    }
+
+    private String finishAssertion(UUID applicationId, AssertionStep assertionStep) {
         try {
             // TODO return user id also
-            CredentialAssertionResult result = webAuthnAuthenticator.finishAssertion(requestId, publicKeyCredentialJson);
-
-            userCredentialRepository.updateUsageByUserHandleAndCredentialId(
-                    result.signatureCount(),
-                    result.lastUsedAt(),
-                    result.isBackedUp(),
-                    result.userHandle(),
-                    result.credentialId()
-            );
+            CredentialAssertionResult result = assertionStep.finish();
+
+            shards.forUserHandle(result.userHandle(), () -> {
+                userCredentialRepository.updateUsageByUserHandleAndCredentialId(
+                        result.signatureCount(),
+                        result.lastUsedAt(),
+                        result.isBackedUp(),
+                        result.userHandle(),
+                        result.credentialId(),
+                        applicationId
+                );
+                return null;
+            });
 
             return result.username();
         } catch (IOException e) {
@@ -83,4 +124,9 @@ public class UserSignInService {
             throw new SignInFailedException();
         }
     }
+
+    @FunctionalInterface
+    private interface AssertionStep {
+        CredentialAssertionResult finish() throws IOException;
+    }
 }
@@ -17,6 +17,10 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.datasource.ReadYourWrites;
+import com.helioauth.passkeys.api.datasource.Shards;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
 import com.helioauth.passkeys.api.domain.User;
 import com.helioauth.passkeys.api.domain.UserCredential;
 import com.helioauth.passkeys.api.domain.UserCredentialRepository;
@@ -30,13 +34,18 @@ import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
 import com.helioauth.passkeys.api.service.dto.UserSignupStartRequest;
 import com.helioauth.passkeys.api.service.exception.SignUpFailedException;
 import com.helioauth.passkeys.api.service.exception.UsernameAlreadyRegisteredException;
+import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
 import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.ClientRegistrationExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * @author Viktor Stanchev
@@ -48,22 +57,25 @@ public class UserSignupService {
 
     private final UserRepository userRepository;
     private final UserCredentialRepository userCredentialRepository;
+    private final ClientApplicationRepository clientApplicationRepository;
     private final WebAuthnAuthenticator webAuthnAuthenticator;
     private final UserCredentialMapper userCredentialMapper;
     private final RegistrationResponseMapper registrationResponseMapper;
+    private final ReadYourWrites readYourWrites;
+    private final Shards shards;
 
     public SignUpStartResponse startRegistration(UserSignupStartRequest request) {
         String name = request.getName();
         String rpId = request.getRpId();
         String rpName = request.getRpName();
 
-        if (userRepository.findByName(name).isPresent()) {
+        if (shards.forUser(name, () -> findUser(name)).isPresent()) {
             log.warn("Attempted to start registration for already existing username: {}", name);
             throw new UsernameAlreadyRegisteredException();
         }
 
         try {
-            ByteArray userId = WebAuthnAuthenticator.generateRandom();
+            ByteArray userId = shards.newUserHandle(name);
             return registrationResponseMapper.toSignUpStartResponse(
                 webAuthnAuthenticator.startRegistration(
                     RegistrationStartRequest.builder()
@@ -82,22 +94,64 @@ public class UserSignupService {
 
     @Transactional
     public SignUpFinishResponse finishRegistration(String requestId, String publicKeyCredentialJson) {
+        return finishRegistration(requestId, () -> webAuthnAuthenticator.finishRegistration(requestId, publicKeyCredentialJson));
+    }
+
+    @Transactional
+    public SignUpFinishResponse finishRegistration(
+        String requestId,
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> publicKeyCredential
+    ) {
+        return finishRegistration(requestId, () -> webAuthnAuthenticator.finishRegistration(requestId, publicKeyCredential));
+    }
+
+    /**
+     * Runs on the shard of the new user, which the transaction settles on at its first statement,
+     * and registers the user with the client application of the ceremony.
+     */
+    private SignUpFinishResponse finishRegistration(String requestId, RegistrationStep registrationStep) {
+        if (ApplicationScope.startedForAnother(requestId)) {
+            log.warn("Sign-up of request {} finished by another client application", requestId);
+            throw new SignUpFailedException();
+        }
+
+        String username;
         try {
-            String username = webAuthnAuthenticator.getUsernameByRequestId(requestId);
-            if (userRepository.findByName(username).isPresent()) {
+            username = webAuthnAuthenticator.getUsernameByRequestId(requestId);
+        } catch (IOException e) {
+            log.error("Register Credential failed", e);
+            throw new SignUpFailedException();
+        }
+        UUID applicationId = ApplicationScope.ofRequest(requestId);
+        if (applicationId == null) {
+            // No later call would see a user of no application
+            log.error("Sign-up of request {} names no client application", requestId);
+            throw new SignUpFailedException();
+        }
+        return ApplicationScope.call(applicationId,
+            () -> shards.forUser(username, () -> finishRegistration(requestId, username, applicationId, registrationStep)));
+    }
+
+    private SignUpFinishResponse finishRegistration(String requestId, String username, UUID applicationId,
+                                                    RegistrationStep registrationStep) {
+        try {
+            if (findUser(username).isPresent()) {
                 throw new UsernameAlreadyRegisteredException();
             }
 
-            CredentialRegistrationResult result = webAuthnAuthenticator.finishRegistration(requestId, publicKeyCredentialJson);
+            CredentialRegistrationResult result = registrationStep.finish();
 
             User user = userRepository.save(User.builder()
                     .name(result.name())
                     .displayName(result.displayName())
+                    .clientApplication(clientApplicationRepository.getReferenceById(applicationId))
                     .build());
 
             UserCredential userCredential = userCredentialMapper.fromCredentialRegistrationResult(result);
             userCredential.setUser(user);
+            userCredential.setClientApplication(user.getClientApplication());
             userCredentialRepository.save(userCredential);
+            readYourWrites.recordWrite(user.getName());
 
             return new SignUpFinishResponse(requestId, user.getId());
         } catch (IOException e) {
@@ -105,4 +159,13 @@ public class UserSignupService {
             throw new SignUpFailedException();
         }
     }
+
+    private Optional<User> findUser(String name) {
+        return ApplicationScope.find(applicationId -> userRepository.findByClientApplicationIdAndName(applicationId, name));
+    }
+
+    @FunctionalInterface
+    private interface RegistrationStep {
+        CredentialRegistrationResult finish() throws IOException;
+    }
 }
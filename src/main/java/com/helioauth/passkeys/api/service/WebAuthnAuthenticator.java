@@ -17,18 +17,26 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.github.benmanes.caffeine.cache.Cache;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.helioauth.passkeys.api.auth.ClientApplicationContext;
 import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.jfr.CeremonyEvent;
 import com.helioauth.passkeys.api.mapper.CredentialRegistrationResultMapper;
 import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
 import com.helioauth.passkeys.api.service.dto.CredentialAssertionResult;
 import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
 import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.api.service.exception.AssertionLockedOutException;
 import com.helioauth.passkeys.api.service.exception.CredentialAssertionFailedException;
 import com.helioauth.passkeys.api.service.exception.CredentialRegistrationFailedException;
-import com.helioauth.passkeys.api.webauthn.DatabaseCredentialRepository;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker.KeyType;
+import com.helioauth.passkeys.api.webauthn.CeremonyJson;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import com.helioauth.passkeys.api.webauthn.CeremonyStore;
 import com.yubico.webauthn.AssertionRequest;
 import com.yubico.webauthn.AssertionResult;
+import com.yubico.webauthn.CredentialRepository;
 import com.yubico.webauthn.FinishAssertionOptions;
 import com.yubico.webauthn.FinishRegistrationOptions;
 import com.yubico.webauthn.RegisteredCredential;
@@ -48,6 +56,8 @@ import com.yubico.webauthn.data.RelyingPartyIdentity;
 import com.yubico.webauthn.data.ResidentKeyRequirement;
 import com.yubico.webauthn.data.UserIdentity;
 import com.yubico.webauthn.exception.AssertionFailedException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -64,13 +74,23 @@ import java.time.Instant;
 @RequiredArgsConstructor
 public class WebAuthnAuthenticator {
 
-    private final DatabaseCredentialRepository databaseCredentialRepository;
+    private final CredentialRepository credentialRepository;
     private final WebAuthnRelyingPartyProperties relyingPartyProperties;
 
     private final CredentialRegistrationResultMapper credentialRegistrationResultMapper;
-    private final Cache<String, String> webAuthnRequestCache;
+    private final CeremonyStore webAuthnRequestCache;
+    private final CeremonyRequestIds requestIds;
+    private final AssertionFailureTracker assertionFailureTracker;
+    private final ObservationRegistry observationRegistry;
     private static final SecureRandom random = new SecureRandom();
 
+    private static final TypeReference<PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs>> REGISTRATION_RESPONSE =
+        new TypeReference<>() {};
+    private static final TypeReference<PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs>> ASSERTION_RESPONSE =
+        new TypeReference<>() {};
+
+    private volatile RelyingParty defaultRelyingParty;
+
     public AssertionStartResult startRegistration(RegistrationStartRequest request) throws JsonProcessingException {
         String name = request.getName();
         ByteArray userId = request.getUserId() != null ? request.getUserId() : generateRandom();
@@ -79,8 +99,15 @@ public class WebAuthnAuthenticator {
 
         log.debug("Starting registration for user '{}' with id '{}' for RP '{}' with name '{}'", name, userId.getBase64Url(), rpHostname, rpName);
 
-        RelyingParty relyingParty = buildRelyingParty(rpHostname, rpName);
+        return ceremonyStep(CeremonyEvent.REGISTRATION, CeremonyEvent.START, event -> {
+            event.setRpId(rpHostname);
+            AssertionStartResult result = startRegistration(name, userId, buildRelyingParty(rpHostname, rpName));
+            event.setOutcome(CeremonyEvent.SUCCESS);
+            return result;
+        });
+    }
 
+    private AssertionStartResult startRegistration(String name, ByteArray userId, RelyingParty relyingParty) throws JsonProcessingException {
         ResidentKeyRequirement residentKeyRequirement = ResidentKeyRequirement.PREFERRED;
 
         PublicKeyCredentialCreationOptions creationOptions = relyingParty.startRegistration(StartRegistrationOptions.builder()
@@ -96,49 +123,79 @@ public class WebAuthnAuthenticator {
                     .residentKey(residentKeyRequirement)
                     .build()
             )
+            .timeout(relyingPartyProperties.getRegistrationTimeout().toMillis())
             .build()
         );
 
-        String requestId = generateRandom().getHex();
-        webAuthnRequestCache.put(requestId, creationOptions.toJson());
+        String requestId = requestIds.next(ClientApplicationContext.currentId());
+        webAuthnRequestCache.putRegistration(requestId, creationOptions);
 
         return new AssertionStartResult(requestId, creationOptions.toCredentialsCreateJson());
     }
 
     public String getUsernameByRequestId(String requestId) throws IOException {
-        String requestJson = webAuthnRequestCache.getIfPresent(requestId);
-        if (requestJson == null) {
+        PublicKeyCredentialCreationOptions request = webAuthnRequestCache.getRegistration(requestId);
+        if (request == null) {
             throw new CredentialRegistrationFailedException("Request not found.");
         }
 
-        PublicKeyCredentialCreationOptions request = PublicKeyCredentialCreationOptions.fromJson(requestJson);
         return request.getUser().getName();
     }
 
     public CredentialRegistrationResult finishRegistration(String requestId, String publicKeyCredentialJson) throws IOException {
-        String requestJson = webAuthnRequestCache.getIfPresent(requestId);
-        if (requestJson == null) {
+        return ceremonyStep(CeremonyEvent.REGISTRATION, CeremonyEvent.FINISH, event -> {
+            PublicKeyCredentialCreationOptions request = takeCreationOptions(requestId, event);
+
+            return finishRegistration(requestId, request, CeremonyJson.MAPPER.readValue(publicKeyCredentialJson, REGISTRATION_RESPONSE), event);
+        });
+    }
+
+    public CredentialRegistrationResult finishRegistration(
+        String requestId,
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> publicKeyCredential
+    ) throws IOException {
+        return ceremonyStep(CeremonyEvent.REGISTRATION, CeremonyEvent.FINISH, event ->
+            finishRegistration(requestId, takeCreationOptions(requestId, event), publicKeyCredential, event)
+        );
+    }
+
+    private PublicKeyCredentialCreationOptions takeCreationOptions(String requestId, CeremonyEvent event) {
+        long lookupStart = System.nanoTime();
+        PublicKeyCredentialCreationOptions request = webAuthnRequestCache.getRegistration(requestId);
+        if (request == null) {
+            event.setOutcome(CeremonyEvent.EXPIRED);
             throw new CredentialRegistrationFailedException("Request not found.");
         }
         webAuthnRequestCache.invalidate(requestId);
 
-        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> pkc =
-            PublicKeyCredential.parseRegistrationResponseJson(publicKeyCredentialJson);
-
-        PublicKeyCredentialCreationOptions request = PublicKeyCredentialCreationOptions.fromJson(requestJson);
+        event.setRequestLookup(System.nanoTime() - lookupStart);
+        return request;
+    }
 
+    private CredentialRegistrationResult finishRegistration(
+        String requestId,
+        PublicKeyCredentialCreationOptions request,
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> pkc,
+        CeremonyEvent event
+    ) {
         String rpId = request.getRp().getId();
         log.debug("Finishing registration for request ID '{}' using RP ID '{}'", requestId, rpId);
+        event.setRpId(rpId);
 
         RelyingParty relyingParty = buildRelyingParty(rpId);
 
+        long verificationStart = System.nanoTime();
         try {
             RegistrationResult result = relyingParty.finishRegistration(FinishRegistrationOptions.builder()
                     .request(request)
                     .response(pkc)
                     .build());
+            event.setVerification(System.nanoTime() - verificationStart);
 
-            return credentialRegistrationResultMapper.fromRegistrationResult(result, request.getUser(), pkc.getResponse());
+            CredentialRegistrationResult registration =
+                credentialRegistrationResultMapper.fromRegistrationResult(result, request.getUser(), pkc.getResponse());
+            event.setOutcome(CeremonyEvent.SUCCESS);
+            return registration;
 
         } catch (Exception e) {
             throw new CredentialRegistrationFailedException("Failed to finish registration", e);
@@ -149,41 +206,93 @@ public class WebAuthnAuthenticator {
         RelyingParty relyingParty = buildDefaultRelyingParty();
         log.debug("Starting assertion for user '{}' using default RP ID '{}'", name, relyingParty.getIdentity().getId());
 
-        AssertionRequest request = relyingParty.startAssertion(StartAssertionOptions.builder()
-                .username(name)
-                .build());
+        return ceremonyStep(CeremonyEvent.ASSERTION, CeremonyEvent.START, event -> {
+            event.setRpId(relyingParty.getIdentity().getId());
+            AssertionRequest request = relyingParty.startAssertion(StartAssertionOptions.builder()
+                    .username(name)
+                    .timeout(relyingPartyProperties.getAssertionTimeout().toMillis())
+                    .build());
 
-        String requestId = generateRandom().getHex();
-        webAuthnRequestCache.put(requestId, request.toJson());
+            String requestId = requestIds.next(ClientApplicationContext.currentId());
+            webAuthnRequestCache.putAssertion(requestId, request);
+
+            AssertionStartResult result = new AssertionStartResult(requestId, request.toCredentialsGetJson());
+            event.setOutcome(CeremonyEvent.SUCCESS);
+            return result;
+        });
+    }
 
-        return new AssertionStartResult(requestId, request.toCredentialsGetJson());
+    public CredentialAssertionResult finishAssertion(String requestId, String publicKeyCredentialJson, String sourceAddress) throws IOException {
+        return finishAssertion(requestId, CeremonyJson.MAPPER.readValue(publicKeyCredentialJson, ASSERTION_RESPONSE), sourceAddress);
     }
 
-    public CredentialAssertionResult finishAssertion(String requestId, String publicKeyCredentialJson) throws IOException {
-        String requestJson = webAuthnRequestCache.getIfPresent(requestId);
-        if (requestJson == null) {
+    public CredentialAssertionResult finishAssertion(
+        String requestId,
+        PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> pkc,
+        String sourceAddress
+    ) throws IOException {
+        return ceremonyStep(CeremonyEvent.ASSERTION, CeremonyEvent.FINISH, event ->
+            finishAssertion(requestId, pkc, sourceAddress, event)
+        );
+    }
+
+    private CredentialAssertionResult finishAssertion(
+        String requestId,
+        PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> pkc,
+        String sourceAddress,
+        CeremonyEvent event
+    ) throws IOException {
+        if (assertionFailureTracker.isLockedOut(KeyType.SOURCE_ADDRESS, sourceAddress)) {
+            event.setOutcome(CeremonyEvent.LOCKED_OUT);
+            log.warn("Rejecting assertion for request ID '{}' from locked out address {}", requestId, sourceAddress);
+            throw new AssertionLockedOutException();
+        }
+        if (pkc == null) {
+            throw new CredentialAssertionFailedException();
+        }
+
+        // Failures only count against a ceremony we issued. Credential ids and user handles are
+        // handed out by signin start, so their failures are counted per source address: forged
+        // assertions lock out the sender, never the owner signing in from elsewhere.
+        long lookupStart = System.nanoTime();
+        AssertionRequest request = webAuthnRequestCache.getAssertion(requestId);
+        if (request == null) {
             log.error("Request id {} not found in cache", requestId);
+            event.setOutcome(CeremonyEvent.EXPIRED);
             throw new CredentialAssertionFailedException();
         }
         webAuthnRequestCache.invalidate(requestId);
+        event.setRequestLookup(System.nanoTime() - lookupStart);
+
+        String credentialId = pkc.getId().getBase64();
+        String userHandle = pkc.getResponse().getUserHandle().map(ByteArray::getBase64).orElse(null);
+
+        if (assertionFailureTracker.isLockedOut(KeyType.CREDENTIAL_ID, credentialId, sourceAddress)
+                || assertionFailureTracker.isLockedOut(KeyType.USER_HANDLE, userHandle, sourceAddress)) {
+            log.warn("Rejecting assertion for request ID '{}' with locked out credential {}", requestId, credentialId);
+            event.setOutcome(CeremonyEvent.LOCKED_OUT);
+            throw new AssertionLockedOutException();
+        }
 
         RelyingParty relyingParty = buildDefaultRelyingParty();
         log.debug("Finishing assertion for request ID '{}' using default RP ID '{}'", requestId, relyingParty.getIdentity().getId());
+        event.setRpId(relyingParty.getIdentity().getId());
 
         try {
-            PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> pkc =
-                    PublicKeyCredential.parseAssertionResponseJson(publicKeyCredentialJson);
-
-            AssertionRequest request = AssertionRequest.fromJson(requestJson);
+            long verificationStart = System.nanoTime();
             AssertionResult result = relyingParty.finishAssertion(FinishAssertionOptions.builder()
                     .request(request)
                     .response(pkc)
                     .build());
+            event.setVerification(System.nanoTime() - verificationStart);
 
             if (result.isSuccess()) {
-                log.info(result.toString());
+                event.setOutcome(CeremonyEvent.SUCCESS);
+                log.debug("Assertion succeeded for user '{}' with credential {}", result.getUsername(), credentialId);
 
                 RegisteredCredential credential = result.getCredential();
+                assertionFailureTracker.recordSuccess(KeyType.CREDENTIAL_ID, credentialId, sourceAddress);
+                assertionFailureTracker.recordSuccess(KeyType.USER_HANDLE, credential.getUserHandle().getBase64(), sourceAddress);
 
                 return new CredentialAssertionResult(
                         result.getSignatureCount(),
@@ -196,12 +305,51 @@ public class WebAuthnAuthenticator {
             }
         } catch (AssertionFailedException e) {
             log.info("Assertion failed", e);
+            recordAssertionFailure(credentialId, userHandle, sourceAddress);
             throw new CredentialAssertionFailedException();
         }
 
+        recordAssertionFailure(credentialId, userHandle, sourceAddress);
         throw new CredentialAssertionFailedException();
     }
 
+    /**
+     * Runs one ceremony step as a {@code passkeys.ceremony} observation (a span and a timer tagged
+     * with the outcome) and records it as a {@link CeremonyEvent} for Flight Recorder.
+     */
+    private <T, E extends Exception> T ceremonyStep(String ceremony, String phase, CeremonyStep<T, E> step) throws E {
+        CeremonyEvent event = CeremonyEvent.begin(ceremony, phase);
+        Observation observation = Observation.createNotStarted("passkeys.ceremony", observationRegistry)
+            .contextualName(ceremony + " " + phase)
+            .lowCardinalityKeyValue("ceremony", ceremony)
+            .lowCardinalityKeyValue("phase", phase)
+            .start();
+        try (Observation.Scope _ = observation.openScope()) {
+            return step.run(event);
+        } catch (Exception e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.lowCardinalityKeyValue("outcome", event.getOutcome());
+            if (event.getRpId() != null) {
+                observation.highCardinalityKeyValue("rp.id", event.getRpId());
+            }
+            observation.stop();
+            event.commit();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CeremonyStep<T, E extends Exception> {
+        T run(CeremonyEvent event) throws E;
+    }
+
+    private void recordAssertionFailure(String credentialId, String userHandle, String sourceAddress) {
+        assertionFailureTracker.recordFailure(KeyType.CREDENTIAL_ID, credentialId, sourceAddress);
+        assertionFailureTracker.recordFailure(KeyType.USER_HANDLE, userHandle, sourceAddress);
+        assertionFailureTracker.recordFailure(KeyType.SOURCE_ADDRESS, sourceAddress);
+    }
+
     private RelyingParty buildRelyingParty(String rpHostname) {
         return buildRelyingParty(rpHostname, null);
     }
@@ -214,13 +362,18 @@ public class WebAuthnAuthenticator {
 
         return RelyingParty.builder()
                 .identity(rpIdentity)
-                .credentialRepository(databaseCredentialRepository)
+                .credentialRepository(credentialRepository)
                 .allowOriginPort(relyingPartyProperties.isAllowOriginPort())
                 .build();
     }
 
     private RelyingParty buildDefaultRelyingParty() {
-        return buildRelyingParty(relyingPartyProperties.getHostname());
+        RelyingParty relyingParty = defaultRelyingParty;
+        if (relyingParty == null) {
+            relyingParty = buildRelyingParty(relyingPartyProperties.getHostname());
+            defaultRelyingParty = relyingParty;
+        }
+        return relyingParty;
     }
 
     public static ByteArray generateRandom() {
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.helioauth.passkeys.api.config.properties.TailSamplingProperties;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Holds back the spans of a trace until its local root span ends, then passes the whole trace
+ * on to {@code delegate} if it was slow, if any span failed, or with a configured probability.
+ * <p>
+ * Traces therefore have to be sampled upfront for this to see them, whatever the caller's
+ * {@code traceparent} says; see {@code TracingConfig}. Pending traces are bounded in number and
+ * age; a trace pushed out before its root span ends is decided on the spans seen so far. The
+ * decision is remembered for as long, so spans that end after it, e.g. from an async task that
+ * outlived the request, follow it.
+ */
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    private final SpanProcessor delegate;
+    private final TailSamplingProperties properties;
+    private final Cache<String, PendingTrace> pendingTraces;
+    private final Cache<String, Boolean> decidedTraces;
+
+    public TailSamplingSpanProcessor(SpanProcessor delegate, TailSamplingProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.pendingTraces = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxPendingTraces())
+            .expireAfterWrite(properties.getPendingTimeout())
+            .<String, PendingTrace>evictionListener((_, trace, _) -> {
+                if (trace != null) {
+                    trace.decide(false);
+                }
+            })
+            .build();
+        this.decidedTraces = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxPendingTraces())
+            .expireAfterWrite(properties.getPendingTimeout())
+            .build();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        delegate.onStart(parentContext, span);
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return delegate.isStartRequired();
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (!span.getSpanContext().isSampled()) {
+            return;
+        }
+
+        String traceId = span.getSpanContext().getTraceId();
+        Boolean kept = decidedTraces.getIfPresent(traceId);
+        if (kept != null) {
+            if (kept) {
+                delegate.onEnd(span);
+            }
+            return;
+        }
+
+        PendingTrace trace = pendingTraces.get(traceId, PendingTrace::new);
+        trace.add(span);
+
+        if (isLocalRoot(span)) {
+            pendingTraces.invalidate(traceId);
+            trace.decide(span.getLatencyNanos() >= properties.getSlowThreshold().toNanos());
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        pendingTraces.cleanUp();
+        return delegate.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        pendingTraces.invalidateAll();
+        decidedTraces.invalidateAll();
+        return delegate.shutdown();
+    }
+
+    private static boolean isLocalRoot(ReadableSpan span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    private final class PendingTrace {
+        private final String traceId;
+        private final List<ReadableSpan> spans = new ArrayList<>();
+        private boolean failed;
+        private boolean decided;
+        private boolean kept;
+
+        PendingTrace(String traceId) {
+            this.traceId = traceId;
+        }
+
+        synchronized void add(ReadableSpan span) {
+            if (decided) {
+                // Ended while the trace was being decided
+                if (kept) {
+                    delegate.onEnd(span);
+                }
+                return;
+            }
+            spans.add(span);
+            failed |= span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+        }
+
+        synchronized void decide(boolean slow) {
+            if (decided) {
+                return;
+            }
+            decided = true;
+            kept = slow || failed || ThreadLocalRandom.current().nextDouble() < properties.getProbability();
+            decidedTraces.put(traceId, kept);
+            if (kept) {
+                spans.forEach(delegate::onEnd);
+            }
+            spans.clear();
+        }
+    }
+}
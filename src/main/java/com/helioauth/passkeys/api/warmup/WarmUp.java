@@ -0,0 +1,276 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helioauth.passkeys.api.config.properties.AssertionLockoutProperties;
+import com.helioauth.passkeys.api.config.properties.WarmUpProperties;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.mapper.CredentialRegistrationResultMapper;
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
+import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
+import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import com.helioauth.passkeys.api.webauthn.CeremonyStore;
+import com.helioauth.passkeys.api.webauthn.DatabaseCredentialRepository;
+import com.yubico.webauthn.data.ByteArray;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Warms the instance up before it reports itself ready: opens the whole connection pool, runs
+ * every credential query often enough to be prepared server-side on each connection, and drives
+ * synthetic registrations and assertions through {@link WebAuthnAuthenticator} so the ceremony
+ * and verification code is compiled before real traffic arrives.
+ * <p>
+ * Spring Boot only switches readiness to {@code ACCEPTING_TRAFFIC} once all application runners
+ * have returned, so the readiness probe stays red for as long as this runs. The ceremonies use
+ * their own relying party and an in-memory credential repository; they share the request cache
+ * with real ceremonies but remove their entries again when they finish.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarmUp implements ApplicationRunner {
+
+    private final WarmUpProperties properties;
+    private final AssertionLockoutProperties assertionLockoutProperties;
+    private final CredentialRegistrationResultMapper credentialRegistrationResultMapper;
+    private final CeremonyStore webAuthnRequestCache;
+    private final CeremonyRequestIds requestIds;
+    private final DataSource dataSource;
+    private final UserCredentialRepository userCredentialRepository;
+    private final DatabaseCredentialRepository databaseCredentialRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private volatile WarmUpReport report;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + properties.getMaxDuration().toNanos();
+        log.info("Warming up for at most {} before accepting traffic", properties.getMaxDuration());
+
+        int poolSize = poolSize();
+        WarmUpReport.Phase pool = phase("pool", deadline, () -> openPool(poolSize));
+        WarmUpReport.Phase statements = phase("statements", deadline, () -> primeStatements(poolSize, deadline));
+        WarmUpReport.Phase[] ceremonies = runCeremonies(deadline);
+
+        report = new WarmUpReport(pool, statements, ceremonies[0], ceremonies[1], Duration.ofNanos(System.nanoTime() - start));
+        log.info("Warm-up finished in {} ms: {}", report.elapsed().toMillis(), report);
+    }
+
+    /**
+     * Timings of the last warm-up, or {@code null} if none has run.
+     */
+    public WarmUpReport getReport() {
+        return report;
+    }
+
+    private int openPool(int poolSize) throws SQLException {
+        List<Connection> connections = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                connections.add(dataSource.getConnection());
+            }
+            return connections.size();
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the query rounds on as many workers as the pool has connections, so they spread
+     * across the pool rather than all landing on the connection that happens to be first.
+     */
+    private int primeStatements(int poolSize, long deadline) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Future<Integer>> workers = new ArrayList<>(poolSize);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < poolSize; i++) {
+                workers.add(executor.submit(() -> {
+                    int executed = 0;
+                    for (int round = 0; round < properties.getStatementRounds() && System.nanoTime() < deadline; round++) {
+                        executed += runCredentialQueries(transactionTemplate);
+                    }
+                    return executed;
+                }));
+            }
+        }
+
+        int executed = 0;
+        for (Future<Integer> worker : workers) {
+            executed += worker.get();
+        }
+        return executed;
+    }
+
+    /**
+     * Runs each credential query once with values that match no rows.
+     *
+     * @return the number of queries run
+     */
+    private int runCredentialQueries(TransactionTemplate transactionTemplate) {
+        String username = "warmup-" + UUID.randomUUID();
+        ByteArray userHandle = WebAuthnAuthenticator.generateRandom();
+        ByteArray credentialId = WebAuthnAuthenticator.generateRandom();
+
+        UUID applicationId = UUID.randomUUID();
+
+        userCredentialRepository.findFirstByClientApplicationIdAndUserName(applicationId, username);
+        userCredentialRepository.findAllByUserIdAndUserClientApplicationId(UUID.randomUUID(), applicationId);
+        userCredentialRepository.findAllByClientApplicationIdAndUserHandle(applicationId, userHandle.getBase64());
+        userCredentialRepository.findFirstByClientApplicationIdAndUserHandleAndCredentialId(
+            applicationId, userHandle.getBase64(), credentialId.getBase64());
+        transactionTemplate.executeWithoutResult(_ -> userCredentialRepository.updateUsageByUserHandleAndCredentialId(
+            0L, Instant.now(), false, userHandle.getBase64(), credentialId.getBase64(), applicationId));
+
+        databaseCredentialRepository.getCredentialIdsForUsername(username);
+        databaseCredentialRepository.getUserHandleForUsername(username);
+        databaseCredentialRepository.getUsernameForUserHandle(userHandle);
+        databaseCredentialRepository.lookup(credentialId, userHandle);
+        databaseCredentialRepository.lookupAll(credentialId);
+        return 10;
+    }
+
+    private WarmUpReport.Phase[] runCeremonies(long deadline) {
+        int iterations = Math.max(0, properties.getIterations());
+        long[] registrationTimes = new long[iterations];
+        long[] assertionTimes = new long[iterations];
+        int registrations = 0;
+        int assertions = 0;
+
+        try {
+            WebAuthnRelyingPartyProperties relyingParty = new WebAuthnRelyingPartyProperties();
+            relyingParty.setHostname(properties.getRpId());
+            relyingParty.setDisplayName("Warm-up");
+
+            WarmUpCredentialRepository credentials = new WarmUpCredentialRepository();
+            WebAuthnAuthenticator authenticator = new WebAuthnAuthenticator(
+                credentials,
+                relyingParty,
+                credentialRegistrationResultMapper,
+                webAuthnRequestCache,
+                requestIds,
+                new AssertionFailureTracker(assertionLockoutProperties),
+                ObservationRegistry.NOOP
+            );
+            WarmUpAuthenticator softwareAuthenticator = new WarmUpAuthenticator(objectMapper, properties.getRpId());
+
+            List<CredentialRegistrationResult> registered = new ArrayList<>(iterations);
+            while (registrations < iterations && System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                AssertionStartResult started = authenticator.startRegistration(
+                    RegistrationStartRequest.withName("warmup-" + registrations).rpHostname(properties.getRpId()).build());
+                CredentialRegistrationResult registration = authenticator.finishRegistration(
+                    started.requestId(), softwareAuthenticator.create(started.options()));
+                credentials.add(registration);
+                registered.add(registration);
+                registrationTimes[registrations++] = System.nanoTime() - start;
+            }
+
+            while (assertions < registrations && System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                CredentialRegistrationResult registration = registered.get(assertions);
+                AssertionStartResult started = authenticator.startAssertion(registration.name());
+                String userHandle = ByteArray.fromBase64(registration.userHandle()).getBase64Url();
+                authenticator.finishAssertion(
+                    started.requestId(), softwareAuthenticator.get(started.options(), userHandle), null);
+                assertionTimes[assertions++] = System.nanoTime() - start;
+            }
+        } catch (Exception e) {
+            log.warn("Warm-up ceremonies stopped after {} registrations and {} assertions", registrations, assertions, e);
+        }
+
+        return new WarmUpReport.Phase[] {
+            record(WarmUpReport.Phase.of("registrations", registrationTimes, registrations)),
+            record(WarmUpReport.Phase.of("assertions", assertionTimes, assertions))
+        };
+    }
+
+    private WarmUpReport.Phase phase(String name, long deadline, PhaseAction action) {
+        if (System.nanoTime() >= deadline) {
+            return record(new WarmUpReport.Phase(name, 0, Duration.ZERO, null, null));
+        }
+
+        long start = System.nanoTime();
+        int operations = 0;
+        try {
+            operations = action.run();
+        } catch (Exception e) {
+            log.warn("Warm-up phase '{}' failed", name, e);
+        }
+        return record(new WarmUpReport.Phase(name, operations, Duration.ofNanos(System.nanoTime() - start), null, null));
+    }
+
+    private WarmUpReport.Phase record(WarmUpReport.Phase phase) {
+        Timer.builder("passkeys.warmup")
+            .description("Time spent in each warm-up phase before the instance accepted traffic")
+            .tag("phase", phase.name())
+            .register(meterRegistry)
+            .record(phase.elapsed());
+        return phase;
+    }
+
+    private int poolSize() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.debug("Could not determine the connection pool size", e);
+        }
+        return 1;
+    }
+
+    @FunctionalInterface
+    private interface PhaseAction {
+        int run() throws Exception;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Minimal ES256 software authenticator for the warm-up ceremonies: {@code none} attestation,
+ * a single key pair shared by every credential and a signature counter that stays at zero.
+ * It only needs to satisfy the verification code, not to look like a real authenticator.
+ */
+class WarmUpAuthenticator {
+
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final byte FLAGS_UP_UV = 0x05;
+    private static final byte FLAG_AT = 0x40;
+
+    private final ObjectMapper objectMapper;
+    private final String origin;
+    private final byte[] rpIdHash;
+    private final KeyPair keyPair;
+    private final byte[] coseKey;
+    private final SecureRandom random = new SecureRandom();
+
+    WarmUpAuthenticator(ObjectMapper objectMapper, String rpId) throws GeneralSecurityException, IOException {
+        this.objectMapper = objectMapper;
+        this.origin = "https://" + rpId;
+        this.rpIdHash = sha256(rpId.getBytes(StandardCharsets.UTF_8));
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        this.keyPair = generator.generateKeyPair();
+        this.coseKey = encodeCoseKey((ECPublicKey) keyPair.getPublic());
+    }
+
+    /**
+     * Answers {@code navigator.credentials.create()} options with a new credential.
+     */
+    String create(String creationOptionsJson) throws GeneralSecurityException, IOException {
+        JsonNode options = objectMapper.readTree(creationOptionsJson).path("publicKey");
+        byte[] credentialId = new byte[16];
+        random.nextBytes(credentialId);
+
+        byte[] authenticatorData = ByteBuffer.allocate(37 + 16 + 2 + credentialId.length + coseKey.length)
+            .put(rpIdHash)
+            .put((byte) (FLAGS_UP_UV | FLAG_AT))
+            .putInt(0)
+            .put(new byte[16])
+            .putShort((short) credentialId.length)
+            .put(credentialId)
+            .put(coseKey)
+            .array();
+
+        ObjectNode response = objectMapper.createObjectNode()
+            .put("clientDataJSON", clientData("webauthn.create", options.path("challenge").asText()))
+            .put("attestationObject", BASE64_URL.encodeToString(encodeAttestationObject(authenticatorData)));
+        return credential(credentialId, response);
+    }
+
+    /**
+     * Answers {@code navigator.credentials.get()} options with the first allowed credential.
+     */
+    String get(String requestOptionsJson, String userHandle) throws GeneralSecurityException, IOException {
+        JsonNode options = objectMapper.readTree(requestOptionsJson).path("publicKey");
+        byte[] credentialId = Base64.getUrlDecoder().decode(options.path("allowCredentials").path(0).path("id").asText());
+
+        byte[] authenticatorData = ByteBuffer.allocate(37)
+            .put(rpIdHash)
+            .put(FLAGS_UP_UV)
+            .putInt(0)
+            .array();
+        String clientData = clientData("webauthn.get", options.path("challenge").asText());
+
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(authenticatorData);
+        signature.update(sha256(Base64.getUrlDecoder().decode(clientData)));
+
+        ObjectNode response = objectMapper.createObjectNode()
+            .put("clientDataJSON", clientData)
+            .put("authenticatorData", BASE64_URL.encodeToString(authenticatorData))
+            .put("signature", BASE64_URL.encodeToString(signature.sign()))
+            .put("userHandle", userHandle);
+        return credential(credentialId, response);
+    }
+
+    private String credential(byte[] credentialId, ObjectNode response) throws IOException {
+        ObjectNode credential = objectMapper.createObjectNode()
+            .put("type", "public-key")
+            .put("id", BASE64_URL.encodeToString(credentialId))
+            .put("rawId", BASE64_URL.encodeToString(credentialId));
+        credential.set("response", response);
+        credential.putObject("clientExtensionResults");
+        return objectMapper.writeValueAsString(credential);
+    }
+
+    private String clientData(String type, String challenge) throws IOException {
+        ObjectNode clientData = objectMapper.createObjectNode()
+            .put("type", type)
+            .put("challenge", challenge)
+            .put("origin", origin)
+            .put("crossOrigin", false);
+        return BASE64_URL.encodeToString(objectMapper.writeValueAsBytes(clientData));
+    }
+
+    private static byte[] encodeCoseKey(ECPublicKey publicKey) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(80);
+        try (CBORGenerator generator = CBOR_FACTORY.createGenerator(out)) {
+            generator.writeStartObject(null, 5);
+            generator.writeFieldId(1);
+            generator.writeNumber(2);
+            generator.writeFieldId(3);
+            generator.writeNumber(-7);
+            generator.writeFieldId(-1);
+            generator.writeNumber(1);
+            generator.writeFieldId(-2);
+            generator.writeBinary(unsigned(publicKey.getW().getAffineX()));
+            generator.writeFieldId(-3);
+            generator.writeBinary(unsigned(publicKey.getW().getAffineY()));
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeAttestationObject(byte[] authenticatorData) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(authenticatorData.length + 32);
+        try (CBORGenerator generator = CBOR_FACTORY.createGenerator(out)) {
+            generator.writeStartObject(null, 3);
+            generator.writeStringField("fmt", "none");
+            generator.writeFieldName("attStmt");
+            generator.writeStartObject(null, 0);
+            generator.writeEndObject();
+            generator.writeFieldName("authData");
+            generator.writeBinary(authenticatorData);
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Big-endian unsigned bytes of a P-256 coordinate, left-padded to 32 bytes.
+     */
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 32) {
+            return Arrays.copyOfRange(bytes, bytes.length - 32, bytes.length);
+        }
+        byte[] padded = new byte[32];
+        System.arraycopy(bytes, 0, padded, 32 - bytes.length, bytes.length);
+        return padded;
+    }
+
+    private static byte[] sha256(byte[] data) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.warmup;
+
+import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.RegisteredCredential;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the warm-up credentials in memory, so the synthetic ceremonies never touch user data.
+ */
+class WarmUpCredentialRepository implements CredentialRepository {
+
+    private final Map<String, RegisteredCredential> credentialsByUsername = new ConcurrentHashMap<>();
+    private final Map<ByteArray, String> usernamesByHandle = new ConcurrentHashMap<>();
+
+    void add(CredentialRegistrationResult registration) {
+        RegisteredCredential credential = RegisteredCredential.builder()
+            .credentialId(ByteArray.fromBase64(registration.credentialId()))
+            .userHandle(ByteArray.fromBase64(registration.userHandle()))
+            .publicKeyCose(ByteArray.fromBase64(registration.publicKeyCose()))
+            .signatureCount(registration.signatureCount())
+            .build();
+        credentialsByUsername.put(registration.name(), credential);
+        usernamesByHandle.put(credential.getUserHandle(), registration.name());
+    }
+
+    @Override
+    public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String username) {
+        return Optional.ofNullable(credentialsByUsername.get(username))
+            .map(credential -> PublicKeyCredentialDescriptor.builder().id(credential.getCredentialId()).build())
+            .stream()
+            .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Optional<ByteArray> getUserHandleForUsername(String username) {
+        return Optional.ofNullable(credentialsByUsername.get(username)).map(RegisteredCredential::getUserHandle);
+    }
+
+    @Override
+    public Optional<String> getUsernameForUserHandle(ByteArray userHandle) {
+        return Optional.ofNullable(usernamesByHandle.get(userHandle));
+    }
+
+    @Override
+    public Optional<RegisteredCredential> lookup(ByteArray credentialId, ByteArray userHandle) {
+        return getUsernameForUserHandle(userHandle)
+            .map(credentialsByUsername::get)
+            .filter(credential -> credential.getCredentialId().equals(credentialId));
+    }
+
+    @Override
+    public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
+        return credentialsByUsername.values().stream()
+            .filter(credential -> credential.getCredentialId().equals(credentialId))
+            .collect(Collectors.toSet());
+    }
+}
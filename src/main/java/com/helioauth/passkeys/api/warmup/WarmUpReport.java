@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.warmup;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Timings of a warm-up run.
+ */
+public record WarmUpReport(
+    Phase pool,
+    Phase statements,
+    Phase registrations,
+    Phase assertions,
+    Duration elapsed
+) {
+
+    /**
+     * One warm-up phase. For the ceremonies, {@code firstTenth} and {@code lastTenth} are the mean
+     * latency of the first and last tenth of the iterations, which shows how far the JIT got.
+     */
+    public record Phase(
+        String name,
+        int operations,
+        Duration elapsed,
+        Duration firstTenth,
+        Duration lastTenth
+    ) {
+
+        static Phase of(String name, long[] latencies, int operations) {
+            long total = Arrays.stream(latencies, 0, operations).sum();
+            int tenth = Math.max(1, operations / 10);
+            return new Phase(
+                name,
+                operations,
+                Duration.ofNanos(total),
+                operations == 0 ? null : mean(latencies, 0, tenth),
+                operations == 0 ? null : mean(latencies, operations - tenth, operations)
+            );
+        }
+
+        private static Duration mean(long[] latencies, int from, int to) {
+            return Duration.ofNanos(Arrays.stream(latencies, from, to).sum() / (to - from));
+        }
+
+        @Override
+        public String toString() {
+            String summary = name + " " + operations + " in " + elapsed.toMillis() + " ms";
+            if (firstTenth == null) {
+                return summary;
+            }
+            return summary + " (first tenth " + firstTenth.toNanos() / 1000 + " µs, last tenth "
+                + lastTenth.toNanos() / 1000 + " µs each)";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pool + "; " + statements + "; " + registrations + "; " + assertions;
+    }
+}
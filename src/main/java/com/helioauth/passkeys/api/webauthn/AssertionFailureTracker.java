@@ -0,0 +1,360 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.AssertionLockoutProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks failed assertions in a sliding time window and temporarily locks out keys
+ * (credential ids, user handles, source addresses) that fail too often.
+ * <p>
+ * Credential ids and user handles are not secret, so their failures are counted per source
+ * address: failures sent from one address never lock out the owner signing in from another.
+ * <p>
+ * The state lives in a fixed table of buckets of {@value #WAYS} slots, each slot holding a ring
+ * buffer of the last {@code threshold} failure timestamps, each bucket guarded by its own monitor.
+ * Keys are hashed into the table with SipHash under a key drawn at startup, so nobody can pick
+ * keys that land in a given bucket, and memory stays bounded regardless of how many distinct
+ * keys are seen. A new key only takes a slot that is free or idle; a slot with failures inside
+ * the window or a running lockout is never evicted. When a bucket has no such slot, the failure
+ * goes untracked and is counted as such.
+ */
+@Component
+public class AssertionFailureTracker {
+
+    static final int WAYS = 4;
+
+    public enum KeyType {
+        CREDENTIAL_ID,
+        USER_HANDLE,
+        SOURCE_ADDRESS
+    }
+
+    private final AssertionLockoutProperties properties;
+    private final Clock clock;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long hashKey0;
+    private final long hashKey1;
+
+    private final LongAdder failuresRecorded = new LongAdder();
+    private final LongAdder failuresUntracked = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @Autowired
+    public AssertionFailureTracker(AssertionLockoutProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    AssertionFailureTracker(AssertionLockoutProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+
+        int size = Integer.highestOneBit(Math.max(WAYS, properties.getSlots()) - 1) << 1;
+        int threshold = Math.max(1, properties.getThreshold());
+        this.buckets = new Bucket[size / WAYS];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(threshold);
+        }
+        this.mask = buckets.length - 1;
+
+        SecureRandom random = new SecureRandom();
+        this.hashKey0 = random.nextLong();
+        this.hashKey1 = random.nextLong();
+    }
+
+    public boolean isLockedOut(KeyType type, String key) {
+        return isLockedOut(type, key, null);
+    }
+
+    public boolean isLockedOut(KeyType type, String key, String sourceAddress) {
+        if (!properties.isEnabled() || key == null) {
+            return false;
+        }
+
+        long hash = hash(type, key, sourceAddress);
+        Bucket bucket = bucketFor(hash);
+        synchronized (bucket) {
+            Slot slot = bucket.find(hash);
+            boolean locked = slot != null && slot.lockedUntil > clock.millis();
+            if (locked) {
+                rejections.increment();
+            }
+            return locked;
+        }
+    }
+
+    public void recordFailure(KeyType type, String key) {
+        recordFailure(type, key, null);
+    }
+
+    public void recordFailure(KeyType type, String key, String sourceAddress) {
+        if (!properties.isEnabled() || key == null) {
+            return;
+        }
+
+        long now = clock.millis();
+        long windowMillis = properties.getWindow().toMillis();
+        long hash = hash(type, key, sourceAddress);
+        Bucket bucket = bucketFor(hash);
+        synchronized (bucket) {
+            Slot slot = bucket.find(hash);
+            if (slot == null) {
+                slot = bucket.idle(now, windowMillis);
+                if (slot == null) {
+                    failuresUntracked.increment();
+                    return;
+                }
+                slot.reset(hash);
+            }
+
+            failuresRecorded.increment();
+            slot.failures[slot.next] = now;
+            slot.next = (slot.next + 1) % slot.failures.length;
+            slot.count = Math.min(slot.count + 1, slot.failures.length);
+
+            long oldest = slot.failures[slot.next];
+            if (slot.count == slot.failures.length && now - oldest <= windowMillis) {
+                slot.lockedUntil = now + properties.getLockout().toMillis();
+                slot.count = 0;
+                lockouts.increment();
+            }
+        }
+    }
+
+    public void recordSuccess(KeyType type, String key) {
+        recordSuccess(type, key, null);
+    }
+
+    public void recordSuccess(KeyType type, String key, String sourceAddress) {
+        if (!properties.isEnabled() || key == null) {
+            return;
+        }
+
+        long hash = hash(type, key, sourceAddress);
+        Bucket bucket = bucketFor(hash);
+        synchronized (bucket) {
+            Slot slot = bucket.find(hash);
+            if (slot != null && slot.lockedUntil <= clock.millis()) {
+                slot.reset(0);
+            }
+        }
+    }
+
+    public Snapshot snapshot() {
+        long now = clock.millis();
+        long windowMillis = properties.getWindow().toMillis();
+        int tracked = 0;
+        int locked = 0;
+
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                for (Slot slot : bucket.slots) {
+                    if (slot.lockedUntil > now) {
+                        locked++;
+                        tracked++;
+                    } else if (slot.isActive(now, windowMillis)) {
+                        tracked++;
+                    }
+                }
+            }
+        }
+
+        return new Snapshot(
+            properties.isEnabled(),
+            buckets.length * WAYS,
+            tracked,
+            locked,
+            failuresRecorded.sum(),
+            failuresUntracked.sum(),
+            lockouts.sum(),
+            rejections.sum()
+        );
+    }
+
+    private Bucket bucketFor(long hash) {
+        return buckets[(int) (hash ^ (hash >>> 32)) & mask];
+    }
+
+    private long hash(KeyType type, String key, String sourceAddress) {
+        long h = new SipHash(hashKey0, hashKey1)
+            .add(type.ordinal())
+            .add(key)
+            .add(sourceAddress)
+            .finish();
+        return h == 0 ? 1 : h;
+    }
+
+    public record Snapshot(
+        boolean enabled,
+        int slots,
+        int trackedKeys,
+        int lockedKeys,
+        long failuresRecorded,
+        long failuresUntracked,
+        long lockouts,
+        long rejections
+    ) {}
+
+    private static final class Bucket {
+        private final Slot[] slots = new Slot[WAYS];
+
+        private Bucket(int threshold) {
+            for (int i = 0; i < WAYS; i++) {
+                slots[i] = new Slot(threshold);
+            }
+        }
+
+        private Slot find(long keyHash) {
+            for (Slot slot : slots) {
+                if (slot.keyHash == keyHash) {
+                    return slot;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return a slot holding no key, or one whose key is neither locked out nor has failures
+         * inside the window, or {@code null} if every slot is in use
+         */
+        private Slot idle(long now, long windowMillis) {
+            for (Slot slot : slots) {
+                if (slot.keyHash == 0 || (slot.lockedUntil <= now && !slot.isActive(now, windowMillis))) {
+                    return slot;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Slot {
+        private final long[] failures;
+        private long keyHash;
+        private int next;
+        private int count;
+        private long lockedUntil;
+
+        private Slot(int threshold) {
+            this.failures = new long[threshold];
+        }
+
+        private void reset(long keyHash) {
+            this.keyHash = keyHash;
+            this.next = 0;
+            this.count = 0;
+            this.lockedUntil = 0;
+        }
+
+        private boolean isActive(long now, long windowMillis) {
+            return count > 0 && now - newest() <= windowMillis;
+        }
+
+        private long newest() {
+            return failures[(next - 1 + failures.length) % failures.length];
+        }
+    }
+
+    /**
+     * SipHash-2-4 over a stream of bytes, with strings fed as their length and UTF-16 code units
+     * and {@code null} as length -1.
+     */
+    private static final class SipHash {
+        private long v0;
+        private long v1;
+        private long v2;
+        private long v3;
+        private long word;
+        private int length;
+
+        private SipHash(long k0, long k1) {
+            v0 = 0x736f6d6570736575L ^ k0;
+            v1 = 0x646f72616e646f6dL ^ k1;
+            v2 = 0x6c7967656e657261L ^ k0;
+            v3 = 0x7465646279746573L ^ k1;
+        }
+
+        private SipHash add(int value) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                addByte(value >>> shift);
+            }
+            return this;
+        }
+
+        private SipHash add(String value) {
+            if (value == null) {
+                return add(-1);
+            }
+            add(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                addByte(c);
+                addByte(c >>> 8);
+            }
+            return this;
+        }
+
+        private void addByte(int value) {
+            word |= (value & 0xffL) << ((length & 7) << 3);
+            length++;
+            if ((length & 7) == 0) {
+                compress(word);
+                word = 0;
+            }
+        }
+
+        private long finish() {
+            compress(((long) length << 56) | word);
+            v2 ^= 0xff;
+            for (int i = 0; i < 4; i++) {
+                round();
+            }
+            return v0 ^ v1 ^ v2 ^ v3;
+        }
+
+        private void compress(long m) {
+            v3 ^= m;
+            round();
+            round();
+            v0 ^= m;
+        }
+
+        private void round() {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13);
+            v1 ^= v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16);
+            v3 ^= v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21);
+            v3 ^= v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17);
+            v1 ^= v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * The mapper for WebAuthn ceremony objects.
+ */
+public final class CeremonyJson {
+
+    /**
+     * Configured like the mapper behind the {@code fromJson}/{@code toJson} helpers of the WebAuthn
+     * library, which build a new one on every call. Sharing one keeps its serializer caches warm.
+     */
+    public static final ObjectMapper MAPPER = JsonMapper.builder()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true)
+        .serializationInclusion(JsonInclude.Include.NON_ABSENT)
+        .defaultBase64Variant(Base64Variants.MODIFIED_FOR_URL)
+        .addModule(new Jdk8Module())
+        .addModule(new JavaTimeModule())
+        .build();
+
+    private CeremonyJson() {
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.jfr.CeremonyCacheEvictionEvent;
+import com.helioauth.passkeys.api.service.exception.CeremonyCapacityExceededException;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Pending ceremony requests, keyed by request id, between the start and finish calls.
+ * <p>
+ * The cache is bounded by the approximate bytes its entries take rather than by their number,
+ * since an assertion request with a long {@code allowCredentials} list can be many times the
+ * size of another. Each entry lives for its ceremony's WebAuthn timeout plus a grace period.
+ * <p>
+ * Every client application gets a partition of its own, so a flood of ceremonies from one
+ * application cannot push out those of another. Request ids start with the application id (see
+ * {@link #requestId}), which routes the finish call straight to the right partition. Ceremonies
+ * started without an application share one partition. A partition that is full spills into a
+ * shared overflow pool, of which it may hold at most {@code overflow-share}. When that is used up
+ * too, new ceremonies of that application are rejected with {@link CeremonyCapacityExceededException}
+ * instead of evicting ones users are in the middle of. Room is reserved before an entry is
+ * inserted and given back when it is removed, so concurrent starts cannot push each other's
+ * entries out.
+ * <p>
+ * Ceremonies are held as their JSON form.
+ */
+@Slf4j
+public class CeremonyRequestCache implements CeremonyStore {
+
+    /**
+     * Approximate bytes per entry on top of the key and value characters: the two strings and their
+     * arrays, the cache node and the expiry bookkeeping. The characters themselves take one byte
+     * each, as request ids and ceremony JSON are ASCII.
+     */
+    static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * Partition for ceremonies started without a client application.
+     */
+    static final String SHARED = "shared";
+    static final String OVERFLOW = "overflow";
+
+    static final char PARTITION_SEPARATOR = '.';
+
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final Partition overflow;
+    private final long partitionCapacity;
+    private final long overflowShare;
+    private final boolean rejectWhenFull;
+    private final Duration defaultLifetime;
+    private final Duration expiryGrace;
+    private final Ticker ticker;
+
+    private volatile MeterRegistry meterRegistry;
+
+    public CeremonyRequestCache(WebAuthnRelyingPartyProperties.Cache properties) {
+        this(properties, Ticker.systemTicker());
+    }
+
+    CeremonyRequestCache(WebAuthnRelyingPartyProperties.Cache properties, Ticker ticker) {
+        this.partitionCapacity = properties.getPartitionWeight().toBytes();
+        this.rejectWhenFull = properties.isRejectWhenFull();
+        this.defaultLifetime = properties.getExpiration();
+        this.expiryGrace = properties.getExpiryGrace();
+        this.ticker = ticker;
+
+        long overflowCapacity = properties.getOverflowWeight().toBytes();
+        this.overflowShare = (long) (overflowCapacity * properties.getOverflowShare());
+        this.overflow = new Partition(OVERFLOW, overflowCapacity);
+    }
+
+    /**
+     * Builds the request id of a ceremony started on behalf of {@code applicationId}.
+     *
+     * @param applicationId the client application, or {@code null} for the shared partition
+     * @param nonce         a random, unguessable string without {@code '.'}
+     */
+    public static String requestId(String applicationId, String nonce) {
+        return applicationId != null ? applicationId + PARTITION_SEPARATOR + nonce : nonce;
+    }
+
+    /**
+     * Stores a pending request for the duration of its ceremony, in the partition its request id names.
+     *
+     * @param timeout the ceremony's WebAuthn timeout, or {@code null} for {@code relying-party.cache.expiration}
+     * @throws CeremonyCapacityExceededException if the partition and its share of the overflow pool are full
+     */
+    public void put(String requestId, String requestJson, Duration timeout) {
+        store(requestId, requestJson, timeout != null ? timeout.plus(expiryGrace) : defaultLifetime);
+    }
+
+    private void store(String requestId, String requestJson, Duration lifetime) {
+        Partition partition = partitions.computeIfAbsent(partitionOf(requestId), this::newPartition);
+        int weight = weigh(requestId, requestJson);
+
+        if (partition.reserve(weight)) {
+            partition.cache.put(requestId, new PendingRequest(requestJson, lifetime, partition, weight));
+            return;
+        }
+
+        if (partition.reserveOverflow(weight)) {
+            overflow.cache.put(requestId, new PendingRequest(requestJson, lifetime, partition, weight));
+            return;
+        }
+
+        partition.rejections.increment();
+        throw new CeremonyCapacityExceededException();
+    }
+
+    @Override
+    public void putRegistration(String requestId, PublicKeyCredentialCreationOptions options) {
+        put(requestId, toJson(options), options.getTimeout().map(Duration::ofMillis).orElse(null));
+    }
+
+    @Override
+    public void putAssertion(String requestId, AssertionRequest request) {
+        put(requestId, toJson(request),
+            request.getPublicKeyCredentialRequestOptions().getTimeout().map(Duration::ofMillis).orElse(null));
+    }
+
+    @Override
+    public PublicKeyCredentialCreationOptions getRegistration(String requestId) {
+        return fromJson(requestId, PublicKeyCredentialCreationOptions.class);
+    }
+
+    @Override
+    public AssertionRequest getAssertion(String requestId) {
+        return fromJson(requestId, AssertionRequest.class);
+    }
+
+    public String getIfPresent(String requestId) {
+        Partition partition = partitions.get(partitionOf(requestId));
+        PendingRequest request = partition != null ? partition.cache.getIfPresent(requestId) : null;
+        if (request == null) {
+            request = overflow.cache.getIfPresent(requestId);
+        }
+        return request != null ? request.json() : null;
+    }
+
+    @Override
+    public void invalidate(String requestId) {
+        Partition partition = partitions.get(partitionOf(requestId));
+        if (partition != null) {
+            partition.cache.invalidate(requestId);
+        }
+        overflow.cache.invalidate(requestId);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return overflow.cache.estimatedSize()
+            + partitions.values().stream().mapToLong(partition -> partition.cache.estimatedSize()).sum();
+    }
+
+    public long weightedSize() {
+        return overflow.weightedSize() + partitions.values().stream().mapToLong(Partition::weightedSize).sum();
+    }
+
+    @Override
+    public void cleanUp() {
+        partitions.values().forEach(partition -> partition.cache.cleanUp());
+        overflow.cache.cleanUp();
+    }
+
+    @Override
+    public void export(PendingCeremonyVisitor visitor) {
+        Stream.concat(partitions.values().stream(), Stream.of(overflow)).forEach(partition -> {
+            Policy.VarExpiration<String, PendingRequest> expiration = partition.cache.policy().expireVariably().orElseThrow();
+            partition.cache.asMap().forEach((requestId, request) -> {
+                Duration remaining = expiration.getExpiresAfter(requestId).orElse(null);
+                byte[] ceremony = encode(request.json());
+                if (remaining != null && remaining.isPositive() && ceremony != null) {
+                    visitor.visit(requestId, ceremony, remaining);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void restore(String requestId, byte[] ceremony, Duration remaining) {
+        PublicKeyCredentialCreationOptions registration = CompactCeremonyCodec.decodeRegistration(ceremony);
+        store(requestId, toJson(registration != null ? registration : CompactCeremonyCodec.decodeAssertion(ceremony)), remaining);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        overflow.bindTo(registry);
+        partitions.values().forEach(partition -> partition.bindTo(registry));
+    }
+
+    private static String toJson(Object ceremony) {
+        try {
+            return CeremonyJson.MAPPER.writeValueAsString(ceremony);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the pending ceremony back, or returns {@code null} when there is none or it is of the other kind.
+     */
+    private <T> T fromJson(String requestId, Class<T> type) {
+        String requestJson = getIfPresent(requestId);
+        if (requestJson == null) {
+            return null;
+        }
+
+        try {
+            return CeremonyJson.MAPPER.readValue(requestJson, type);
+        } catch (JsonProcessingException e) {
+            log.debug("Pending request {} is not a {}", requestId, type.getSimpleName());
+            return null;
+        }
+    }
+
+    /**
+     * Converts ceremony JSON to the form of {@link CompactCeremonyCodec}, or returns {@code null}
+     * if it is neither a registration nor an assertion.
+     */
+    private static byte[] encode(String requestJson) {
+        try {
+            return CompactCeremonyCodec.encode(CeremonyJson.MAPPER.readValue(requestJson, PublicKeyCredentialCreationOptions.class));
+        } catch (JsonProcessingException e) {
+            // Not a registration
+        }
+        try {
+            return CompactCeremonyCodec.encode(CeremonyJson.MAPPER.readValue(requestJson, AssertionRequest.class));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    static int weigh(String requestId, String requestJson) {
+        return ENTRY_OVERHEAD + requestId.length() + requestJson.length();
+    }
+
+    static String partitionOf(String requestId) {
+        String applicationId = applicationIdOf(requestId);
+        return applicationId != null ? applicationId : SHARED;
+    }
+
+    /**
+     * @return the client application {@code requestId} was built for, or {@code null} if none
+     */
+    public static String applicationIdOf(String requestId) {
+        int separator = requestId.indexOf(PARTITION_SEPARATOR);
+        return separator > 0 ? requestId.substring(0, separator) : null;
+    }
+
+    private Partition newPartition(String name) {
+        Partition partition = new Partition(name, partitionCapacity);
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            partition.bindTo(registry);
+        }
+        return partition;
+    }
+
+    /**
+     * @param owner  the partition the ceremony belongs to, which differs from where it is stored
+     *               when it spilled into the overflow pool
+     * @param weight the entry's weight, released from where it is stored, and from the owner's
+     *               overflow share if it spilled, when it is removed
+     */
+    private record PendingRequest(String json, Duration lifetime, Partition owner, int weight) {}
+
+    private final class Partition {
+
+        private final String name;
+        private final long capacity;
+        private final Cache<String, PendingRequest> cache;
+        private final Policy.Eviction<String, PendingRequest> eviction;
+
+        private final Map<RemovalCause, LongAdder> evictions = new EnumMap<>(RemovalCause.class);
+        private final LongAdder rejections = new LongAdder();
+
+        /**
+         * Bytes of the entries stored in this partition and of those about to be.
+         */
+        private final AtomicLong reserved = new AtomicLong();
+
+        /**
+         * Bytes of this partition's ceremonies held in the overflow pool.
+         */
+        private final AtomicLong overflowWeight = new AtomicLong();
+
+        private Partition(String name, long capacity) {
+            this.name = name;
+            this.capacity = capacity;
+
+            for (RemovalCause cause : RemovalCause.values()) {
+                if (cause.wasEvicted()) {
+                    evictions.put(cause, new LongAdder());
+                }
+            }
+
+            this.cache = Caffeine.newBuilder()
+                .maximumWeight(capacity)
+                .weigher((String _, PendingRequest request) -> request.weight())
+                .expireAfter(new CeremonyExpiry())
+                .ticker(ticker)
+                // Reservations are released as soon as the entry is gone, not some time later
+                .executor(Runnable::run)
+                .removalListener((String _, PendingRequest request, RemovalCause cause) -> {
+                    release(request);
+                    if (cause.wasEvicted()) {
+                        request.owner().evictions.get(cause).increment();
+                        CeremonyCacheEvictionEvent.record(cause);
+                    }
+                })
+                .build();
+            this.eviction = cache.policy().eviction().orElseThrow();
+        }
+
+        /**
+         * Reserves {@code bytes} of the partition. Without {@code reject-when-full} it always
+         * succeeds and the cache evicts by size instead.
+         */
+        private boolean reserve(int bytes) {
+            if (reserved.addAndGet(bytes) <= capacity || !rejectWhenFull) {
+                return true;
+            }
+            reserved.addAndGet(-bytes);
+            return false;
+        }
+
+        /**
+         * Reserves {@code bytes} of this partition's share of the overflow pool, and of the pool.
+         */
+        private boolean reserveOverflow(int bytes) {
+            if (overflowWeight.addAndGet(bytes) <= overflowShare && overflow.reserve(bytes)) {
+                return true;
+            }
+            overflowWeight.addAndGet(-bytes);
+            return false;
+        }
+
+        private void release(PendingRequest request) {
+            reserved.addAndGet(-request.weight());
+            if (request.owner() != this) {
+                request.owner().overflowWeight.addAndGet(-request.weight());
+            }
+        }
+
+        private long weightedSize() {
+            return eviction.weightedSize().orElse(0);
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            Gauge.builder("passkeys.ceremony.cache.weight", this, Partition::weightedSize)
+                .description("Approximate bytes held by pending ceremony requests")
+                .tag("partition", name)
+                .baseUnit("bytes")
+                .register(registry);
+            Gauge.builder("passkeys.ceremony.cache.capacity", this, partition -> partition.capacity)
+                .description("Bytes of pending ceremony requests a partition holds before spilling over or rejecting")
+                .tag("partition", name)
+                .baseUnit("bytes")
+                .register(registry);
+            Gauge.builder("passkeys.ceremony.cache.entries", cache, Cache::estimatedSize)
+                .description("Pending ceremony requests")
+                .tag("partition", name)
+                .register(registry);
+            if (this == overflow) {
+                return;
+            }
+
+            Gauge.builder("passkeys.ceremony.cache.overflow.weight", overflowWeight, AtomicLong::get)
+                .description("Approximate bytes of a partition's pending ceremony requests held in the overflow pool")
+                .tag("partition", name)
+                .baseUnit("bytes")
+                .register(registry);
+            evictions.forEach((cause, count) ->
+                FunctionCounter.builder("passkeys.ceremony.cache.evictions", count, LongAdder::sum)
+                    .description("Pending ceremony requests dropped before they were finished")
+                    .tag("partition", name)
+                    .tag("cause", cause.name())
+                    .register(registry));
+            FunctionCounter.builder("passkeys.ceremony.cache.rejections", rejections, LongAdder::sum)
+                .description("Ceremonies not started because the partition and its overflow share were full")
+                .tag("partition", name)
+                .register(registry);
+        }
+    }
+
+    /**
+     * Expires each entry its own lifetime after it was stored. Reads do not extend it.
+     */
+    private static final class CeremonyExpiry implements Expiry<String, PendingRequest> {
+
+        @Override
+        public long expireAfterCreate(String requestId, PendingRequest request, long currentTime) {
+            return request.lifetime().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String requestId, PendingRequest request, long currentTime, long currentDuration) {
+            return request.lifetime().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String requestId, PendingRequest request, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues request ids that name the node holding the ceremony.
+ * <p>
+ * The nonce part of an id is 31 bytes in unpadded base64url: a version byte, the two-byte node id,
+ * the four-byte second at which the node started and 24 random bytes. A load balancer or peer can
+ * tell from the id alone where its finish call has to go, and a node can tell an id it issued
+ * before a restart, whose ceremony is gone, from one it still holds.
+ */
+@Component
+public class CeremonyRequestIds {
+
+    private static final byte VERSION = 1;
+    private static final int RANDOM_LENGTH = 24;
+    private static final int NONCE_LENGTH = 1 + 2 + 4 + RANDOM_LENGTH;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final int nodeId;
+    private final int epoch;
+
+    public CeremonyRequestIds(ClusterProperties properties) {
+        if (properties.getNodeId() < 0 || properties.getNodeId() > 0xFFFF) {
+            throw new IllegalArgumentException("cluster.node-id must be between 0 and 65535");
+        }
+        this.nodeId = properties.getNodeId();
+        this.epoch = (int) Instant.now().getEpochSecond();
+    }
+
+    public int nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @param applicationId the client application whose capacity the ceremony counts against, or {@code null}
+     */
+    public String next(String applicationId) {
+        ByteBuffer nonce = ByteBuffer.allocate(NONCE_LENGTH)
+            .put(VERSION)
+            .putShort((short) nodeId)
+            .putInt(epoch);
+        byte[] randomPart = new byte[RANDOM_LENGTH];
+        random.nextBytes(randomPart);
+        nonce.put(randomPart);
+
+        return CeremonyRequestCache.requestId(applicationId, ENCODER.encodeToString(nonce.array()));
+    }
+
+    /**
+     * @return where the ceremony of {@code requestId} was started, or {@code null} for ids not
+     * issued by this class, such as those of earlier releases
+     */
+    public static Origin originOf(String requestId) {
+        if (requestId == null) {
+            return null;
+        }
+
+        String nonce = requestId.substring(requestId.lastIndexOf(CeremonyRequestCache.PARTITION_SEPARATOR) + 1);
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(nonce);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length != NONCE_LENGTH || bytes[0] != VERSION) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 6);
+        return new Origin(Short.toUnsignedInt(buffer.getShort()), Integer.toUnsignedLong(buffer.getInt()));
+    }
+
+    /**
+     * @return whether {@code origin} is this node since its last start
+     */
+    public boolean isCurrent(Origin origin) {
+        return origin.nodeId() == nodeId && origin.epoch() == Integer.toUnsignedLong(epoch);
+    }
+
+    /**
+     * @param epoch second at which the node that issued the id started
+     */
+    public record Origin(int nodeId, long epoch) {
+    }
+}
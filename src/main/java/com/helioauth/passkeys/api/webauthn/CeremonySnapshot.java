@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.service.exception.CeremonyCapacityExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Carries pending ceremonies over a restart.
+ * <p>
+ * On shutdown, once the web server has stopped taking requests, the ceremonies that have not
+ * expired are written to {@code relying-party.cache.snapshot.path} in the form of
+ * {@link CompactCeremonyCodec}. Expiries are kept in wall-clock time, since the ticker of the next
+ * process starts elsewhere. On startup, before the web server takes requests, the snapshot is
+ * mapped and checked, the ceremonies still unexpired are put back, and the file is deleted. A
+ * snapshot that is truncated or fails its checksum is dropped as a whole.
+ * <p>
+ * File layout: magic, version, time written; per ceremony the request id, its expiry in epoch
+ * milliseconds and the ceremony, the request id and ceremony preceded by their lengths; a request
+ * id length of {@code -1}, the number of ceremonies and the CRC-32 of everything before that end
+ * marker.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "relying-party.cache.snapshot", name = "enabled", havingValue = "true")
+public class CeremonySnapshot implements SmartLifecycle {
+
+    private static final int MAGIC = 0x504B4353;
+    private static final byte VERSION = 1;
+    private static final short END = -1;
+    private static final int HEADER = 4 + 1 + 8;
+
+    private final CeremonyStore ceremonyStore;
+    private final Path path;
+    private final Clock clock;
+
+    private volatile boolean running;
+
+    @Autowired
+    public CeremonySnapshot(CeremonyStore ceremonyStore, WebAuthnRelyingPartyProperties.Cache properties) {
+        this(ceremonyStore, properties.getSnapshot().getPath(), Clock.systemUTC());
+    }
+
+    CeremonySnapshot(CeremonyStore ceremonyStore, Path path, Clock clock) {
+        this.ceremonyStore = ceremonyStore;
+        this.path = path;
+        this.clock = clock;
+    }
+
+    /**
+     * Restores before the web server starts, and writes after it has stopped.
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding ceremony snapshot {}: {}", path, e.toString());
+        }
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete ceremony snapshot {}: {}", path, e.toString());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write ceremony snapshot {}: {}", path, e.toString());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void write() throws IOException {
+        long started = System.nanoTime();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        int[] count = new int[1];
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), checksum));
+            Instant now = clock.instant();
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(now.toEpochMilli());
+
+            IOException[] failure = new IOException[1];
+            ceremonyStore.export((requestId, ceremony, remaining) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    byte[] key = requestId.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(key.length);
+                    out.write(key);
+                    out.writeLong(now.plus(remaining).toEpochMilli());
+                    out.writeInt(ceremony.length);
+                    out.write(ceremony);
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            long crc = checksum.getValue();
+            out.writeShort(END);
+            out.writeInt(count[0]);
+            out.writeLong(crc);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote {} pending ceremonies to {} ({} bytes) in {} ms",
+            count[0], path, Files.size(path), Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    void restore() throws IOException {
+        MappedByteBuffer snapshot;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int end = verify(snapshot);
+        long now = clock.millis();
+        int restored = 0;
+        int expired = 0;
+        int rejected = 0;
+
+        ByteBuffer records = snapshot.duplicate().position(HEADER).limit(end);
+        while (records.hasRemaining()) {
+            byte[] key = new byte[records.getShort()];
+            records.get(key);
+            long expiresAt = records.getLong();
+            byte[] ceremony = new byte[records.getInt()];
+            records.get(ceremony);
+
+            if (expiresAt <= now) {
+                expired++;
+                continue;
+            }
+            try {
+                ceremonyStore.restore(new String(key, StandardCharsets.UTF_8), ceremony, Duration.ofMillis(expiresAt - now));
+                restored++;
+            } catch (CeremonyCapacityExceededException e) {
+                rejected++;
+            }
+        }
+
+        log.info("Restored {} pending ceremonies from {}, {} expired, {} over capacity", restored, path, expired, rejected);
+    }
+
+    /**
+     * @return the offset of the end marker
+     * @throws IOException if the snapshot is not complete and intact
+     */
+    private static int verify(ByteBuffer snapshot) throws IOException {
+        try {
+            if (snapshot.getInt(0) != MAGIC || snapshot.get(4) != VERSION) {
+                throw new IOException("Not a ceremony snapshot");
+            }
+
+            ByteBuffer records = snapshot.duplicate().position(HEADER);
+            int count = 0;
+            for (short keyLength = records.getShort(); keyLength != END; keyLength = records.getShort()) {
+                if (keyLength < 0) {
+                    throw new IOException("Malformed ceremony snapshot");
+                }
+                records.position(records.position() + keyLength + 8);
+                int ceremonyLength = records.getInt();
+                records.position(records.position() + ceremonyLength);
+                count++;
+            }
+
+            int end = records.position() - 2;
+            CRC32 checksum = new CRC32();
+            checksum.update(snapshot.duplicate().position(0).limit(end));
+            if (records.getInt() != count || records.getLong() != checksum.getValue()) {
+                throw new IOException("Ceremony snapshot checksum mismatch");
+            }
+            return end;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated ceremony snapshot", e);
+        }
+    }
+}
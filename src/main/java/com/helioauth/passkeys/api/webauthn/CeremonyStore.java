@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.service.exception.CeremonyCapacityExceededException;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+
+/**
+ * Pending ceremonies, keyed by request id, between the start and finish calls.
+ * <p>
+ * Each ceremony is kept for its WebAuthn timeout plus {@code relying-party.cache.expiry-grace}.
+ * Request ids built with {@link CeremonyRequestCache#requestId} name the client application
+ * whose capacity the ceremony counts against.
+ */
+public interface CeremonyStore extends MeterBinder {
+
+    /**
+     * @throws CeremonyCapacityExceededException if the application has no room for another ceremony
+     */
+    void putRegistration(String requestId, PublicKeyCredentialCreationOptions options);
+
+    /**
+     * @throws CeremonyCapacityExceededException if the application has no room for another ceremony
+     */
+    void putAssertion(String requestId, AssertionRequest request);
+
+    /**
+     * @return the pending registration, or {@code null} if there is none under this id
+     */
+    PublicKeyCredentialCreationOptions getRegistration(String requestId);
+
+    /**
+     * @return the pending assertion, or {@code null} if there is none under this id
+     */
+    AssertionRequest getAssertion(String requestId);
+
+    void invalidate(String requestId);
+
+    long estimatedSize();
+
+    /**
+     * Drops expired ceremonies now rather than on later writes.
+     */
+    void cleanUp();
+
+    /**
+     * Passes every ceremony that has not expired to {@code visitor}, in the form {@link #restore}
+     * takes. Ceremonies started meanwhile may be missed.
+     */
+    void export(PendingCeremonyVisitor visitor);
+
+    /**
+     * Adds a ceremony exported by this or another store.
+     *
+     * @param remaining how long the ceremony has left before it expires
+     * @throws CeremonyCapacityExceededException if the application has no room for another ceremony
+     */
+    void restore(String requestId, byte[] ceremony, Duration remaining);
+
+    @FunctionalInterface
+    interface PendingCeremonyVisitor {
+        void visit(String requestId, byte[] ceremony, Duration remaining);
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.data.AssertionExtensionInputs;
+import com.yubico.webauthn.data.AttestationConveyancePreference;
+import com.yubico.webauthn.data.AuthenticatorAttachment;
+import com.yubico.webauthn.data.AuthenticatorSelectionCriteria;
+import com.yubico.webauthn.data.AuthenticatorTransport;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.COSEAlgorithmIdentifier;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+import com.yubico.webauthn.data.PublicKeyCredentialParameters;
+import com.yubico.webauthn.data.PublicKeyCredentialRequestOptions;
+import com.yubico.webauthn.data.RegistrationExtensionInputs;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.ResidentKeyRequirement;
+import com.yubico.webauthn.data.UserIdentity;
+import com.yubico.webauthn.data.UserVerificationRequirement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Binary form of pending ceremonies that keeps only what the finish call verifies against.
+ * <p>
+ * Registrations drop {@code excludeCredentials}, which only the client uses. Lengths and counts
+ * are varints, absent values take a single byte, enums are stored as their ordinal and
+ * credential parameters as their COSE algorithm id. Extension inputs are rare and small, so
+ * they keep their JSON form.
+ */
+final class CompactCeremonyCodec {
+
+    static final byte REGISTRATION = 1;
+    static final byte ASSERTION = 2;
+
+    private CompactCeremonyCodec() {
+    }
+
+    static byte[] encode(PublicKeyCredentialCreationOptions options) {
+        Writer out = new Writer();
+        out.writeByte(REGISTRATION);
+        out.writeBytes(options.getChallenge());
+        out.writeString(options.getRp().getId());
+        out.writeString(options.getRp().getName());
+
+        UserIdentity user = options.getUser();
+        out.writeBytes(user.getId());
+        out.writeString(user.getName());
+        out.writeString(user.getDisplayName().equals(user.getName()) ? null : user.getDisplayName());
+
+        out.writeTimeout(options.getTimeout());
+        AuthenticatorSelectionCriteria selection = options.getAuthenticatorSelection().orElse(null);
+        out.writeBoolean(selection != null);
+        if (selection != null) {
+            out.writeEnum(selection.getAuthenticatorAttachment().orElse(null));
+            out.writeEnum(selection.getResidentKey().orElse(null));
+            out.writeEnum(selection.getUserVerification().orElse(null));
+        }
+        out.writeEnum(options.getAttestation());
+
+        out.writeLength(options.getPubKeyCredParams().size());
+        for (PublicKeyCredentialParameters parameters : options.getPubKeyCredParams()) {
+            out.writeVarint(-parameters.getAlg().getId());
+        }
+        out.writeJson(options.getExtensions());
+        return out.toByteArray();
+    }
+
+    static byte[] encode(AssertionRequest request) {
+        PublicKeyCredentialRequestOptions options = request.getPublicKeyCredentialRequestOptions();
+        Writer out = new Writer();
+        out.writeByte(ASSERTION);
+        out.writeBytes(options.getChallenge());
+        out.writeString(options.getRpId());
+        out.writeTimeout(options.getTimeout());
+        out.writeEnum(options.getUserVerification().orElse(null));
+
+        List<PublicKeyCredentialDescriptor> allowCredentials = options.getAllowCredentials().orElse(null);
+        out.writeBoolean(allowCredentials != null);
+        if (allowCredentials != null) {
+            out.writeLength(allowCredentials.size());
+            for (PublicKeyCredentialDescriptor credential : allowCredentials) {
+                out.writeBytes(credential.getId());
+                Set<AuthenticatorTransport> transports = credential.getTransports().orElse(null);
+                out.writeBoolean(transports != null);
+                if (transports != null) {
+                    out.writeLength(transports.size());
+                    transports.forEach(transport -> out.writeString(transport.getId()));
+                }
+            }
+        }
+        out.writeJson(options.getExtensions());
+
+        out.writeString(request.getUsername().orElse(null));
+        out.writeBytes(request.getUserHandle().orElse(null));
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the registration, or {@code null} if {@code encoded} holds an assertion
+     */
+    static PublicKeyCredentialCreationOptions decodeRegistration(byte[] encoded) {
+        Reader in = new Reader(encoded);
+        if (in.readByte() != REGISTRATION) {
+            return null;
+        }
+
+        ByteArray challenge = in.readBytes();
+        RelyingPartyIdentity rp = RelyingPartyIdentity.builder().id(in.readString()).name(in.readString()).build();
+        ByteArray userId = in.readBytes();
+        String name = in.readString();
+        String displayName = in.readString();
+        UserIdentity user = UserIdentity.builder()
+            .name(name)
+            .displayName(displayName != null ? displayName : name)
+            .id(userId)
+            .build();
+
+        Optional<Long> timeout = in.readTimeout();
+        AuthenticatorSelectionCriteria selection = null;
+        if (in.readBoolean()) {
+            selection = AuthenticatorSelectionCriteria.builder()
+                .authenticatorAttachment(Optional.ofNullable(in.readEnum(AuthenticatorAttachment.values())))
+                .residentKey(in.readEnum(ResidentKeyRequirement.values()))
+                .userVerification(in.readEnum(UserVerificationRequirement.values()))
+                .build();
+        }
+        AttestationConveyancePreference attestation = in.readEnum(AttestationConveyancePreference.values());
+
+        int parameterCount = in.readLength();
+        List<PublicKeyCredentialParameters> parameters = new ArrayList<>(parameterCount);
+        for (int i = 0; i < parameterCount; i++) {
+            long algorithm = -in.readVarint();
+            parameters.add(PublicKeyCredentialParameters.builder()
+                .alg(COSEAlgorithmIdentifier.fromId(algorithm)
+                    .orElseThrow(() -> new IllegalStateException("Unknown COSE algorithm " + algorithm)))
+                .build());
+        }
+
+        return PublicKeyCredentialCreationOptions.builder()
+            .rp(rp)
+            .user(user)
+            .challenge(challenge)
+            .pubKeyCredParams(parameters)
+            .timeout(timeout)
+            .authenticatorSelection(Optional.ofNullable(selection))
+            .attestation(attestation)
+            .extensions(in.readJson(RegistrationExtensionInputs.class))
+            .build();
+    }
+
+    /**
+     * @return the assertion, or {@code null} if {@code encoded} holds a registration
+     */
+    static AssertionRequest decodeAssertion(byte[] encoded) {
+        Reader in = new Reader(encoded);
+        if (in.readByte() != ASSERTION) {
+            return null;
+        }
+
+        ByteArray challenge = in.readBytes();
+        String rpId = in.readString();
+        Optional<Long> timeout = in.readTimeout();
+        UserVerificationRequirement userVerification = in.readEnum(UserVerificationRequirement.values());
+
+        List<PublicKeyCredentialDescriptor> allowCredentials = null;
+        if (in.readBoolean()) {
+            int credentialCount = in.readLength();
+            allowCredentials = new ArrayList<>(credentialCount);
+            for (int i = 0; i < credentialCount; i++) {
+                ByteArray id = in.readBytes();
+                Set<AuthenticatorTransport> transports = null;
+                if (in.readBoolean()) {
+                    int transportCount = in.readLength();
+                    transports = new TreeSet<>();
+                    for (int j = 0; j < transportCount; j++) {
+                        transports.add(AuthenticatorTransport.of(in.readString()));
+                    }
+                }
+                allowCredentials.add(PublicKeyCredentialDescriptor.builder()
+                    .id(id)
+                    .transports(Optional.ofNullable(transports))
+                    .build());
+            }
+        }
+
+        PublicKeyCredentialRequestOptions options = PublicKeyCredentialRequestOptions.builder()
+            .challenge(challenge)
+            .timeout(timeout)
+            .rpId(Optional.ofNullable(rpId))
+            .allowCredentials(Optional.ofNullable(allowCredentials))
+            .userVerification(userVerification)
+            .extensions(in.readJson(AssertionExtensionInputs.class))
+            .build();
+
+        return AssertionRequest.builder()
+            .publicKeyCredentialRequestOptions(options)
+            .username(Optional.ofNullable(in.readString()))
+            .userHandle(Optional.ofNullable(in.readBytes()))
+            .build();
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        private Writer() {
+            super(256);
+        }
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeBoolean(boolean value) {
+            write(value ? 1 : 0);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLength(int length) {
+            writeVarint(length);
+        }
+
+        /**
+         * Writes {@code 0} for {@code null}, otherwise the length plus one and the bytes.
+         */
+        void writeRaw(byte[] bytes) {
+            if (bytes == null) {
+                write(0);
+                return;
+            }
+            writeVarint(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        void writeBytes(ByteArray bytes) {
+            writeRaw(bytes != null ? bytes.getBytes() : null);
+        }
+
+        void writeString(String value) {
+            writeRaw(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        void writeTimeout(Optional<Long> timeout) {
+            writeVarint(timeout.map(millis -> millis + 1).orElse(0L));
+        }
+
+        void writeEnum(Enum<?> value) {
+            write(value != null ? value.ordinal() + 1 : 0);
+        }
+
+        void writeJson(Object value) {
+            try {
+                writeRaw(CeremonyJson.MAPPER.writeValueAsBytes(value));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer buffer;
+
+        private Reader(byte[] encoded) {
+            this.buffer = ByteBuffer.wrap(encoded);
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        int readLength() {
+            return (int) readVarint();
+        }
+
+        byte[] readRaw() {
+            int length = readLength();
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length - 1];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        ByteArray readBytes() {
+            byte[] bytes = readRaw();
+            return bytes != null ? new ByteArray(bytes) : null;
+        }
+
+        String readString() {
+            byte[] bytes = readRaw();
+            return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+        }
+
+        Optional<Long> readTimeout() {
+            long value = readVarint();
+            return value == 0 ? Optional.empty() : Optional.of(value - 1);
+        }
+
+        <E extends Enum<E>> E readEnum(E[] values) {
+            int ordinal = buffer.get();
+            return ordinal == 0 ? null : values[ordinal - 1];
+        }
+
+        <T> T readJson(Class<T> type) {
+            try {
+                return CeremonyJson.MAPPER.readValue(readRaw(), type);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -16,10 +16,13 @@
 
 package com.helioauth.passkeys.api.webauthn;
 
-import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.datasource.ReadYourWrites;
+import com.helioauth.passkeys.api.datasource.Shards;
 import com.helioauth.passkeys.api.domain.UserCredential;
 import com.helioauth.passkeys.api.domain.UserCredentialRepository;
 import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.jfr.CredentialLookupEvent;
 import com.yubico.webauthn.CredentialRepository;
 import com.yubico.webauthn.RegisteredCredential;
 import com.yubico.webauthn.data.AuthenticatorTransport;
@@ -28,17 +31,22 @@ import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
 import com.yubico.webauthn.data.PublicKeyCredentialType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 
 /**
+ * Every lookup is scoped to the client application of the call, see {@link ApplicationScope}.
+ *
  * @author Viktor Stanchev
  */
 @Service
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class DatabaseCredentialRepository implements CredentialRepository {
 
@@ -48,14 +56,22 @@ public class DatabaseCredentialRepository implements CredentialRepository {
 
     private final UserCredentialRegisteredCredentialMapper userCredentialRegisteredCredentialMapper;
 
+    private final ReadYourWrites readYourWrites;
+
+    private final Shards shards;
+
     @Override
     public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String s) {
-        Optional<User> user = userRepository.findByName(s);
-        if (user.isEmpty()) {
+        CredentialLookupEvent event = CredentialLookupEvent.begin("getCredentialIdsForUsername");
+        List<UserCredential> userCredentials = shards.forUser(s, () -> readYourWrites.read(s, () -> ApplicationScope.find(
+                    applicationId -> userRepository.findByClientApplicationIdAndName(applicationId, s))
+                .map(user -> List.copyOf(user.getUserCredentials()))
+                .orElse(null)));
+        if (userCredentials == null) {
+            event.complete(0);
             return Collections.emptySet();
         }
 
-        List<UserCredential> userCredentials = user.get().getUserCredentials();
         Set<PublicKeyCredentialDescriptor> result = HashSet.newHashSet(userCredentials.size());
 
         for (UserCredential userCredential : userCredentials) {
@@ -68,37 +84,53 @@ public class DatabaseCredentialRepository implements CredentialRepository {
             );
         }
 
+        event.complete(result.size());
         return result;
     }
 
     @Override
     public Optional<ByteArray> getUserHandleForUsername(String s) {
-        Optional<UserCredential> userCredential = userCredentialRepository.findFirstByUserName(s);
+        CredentialLookupEvent event = CredentialLookupEvent.begin("getUserHandleForUsername");
+        Optional<UserCredential> userCredential = shards.forUser(s,
+                () -> readYourWrites.read(s, () -> ApplicationScope.find(
+                    applicationId -> userCredentialRepository.findFirstByClientApplicationIdAndUserName(applicationId, s))));
+        event.complete(userCredential.isPresent() ? 1 : 0);
         return userCredential.map(credential -> ByteArray.fromBase64(credential.getUserHandle()));
 
     }
 
     @Override
     public Optional<String> getUsernameForUserHandle(ByteArray byteArray) {
-        Optional<User> user = userRepository.findFirstByUserCredentialsUserHandle(byteArray.getBase64());
-        return user.map(User::getName);
+        CredentialLookupEvent event = CredentialLookupEvent.begin("getUsernameForUserHandle");
+        String userHandle = byteArray.getBase64();
+        Optional<String> username = shards.forUserHandle(userHandle, () -> ApplicationScope.find(
+                applicationId -> userCredentialRepository.findFirstWithUserByClientApplicationIdAndUserHandle(applicationId, userHandle))
+            .map(credential -> credential.getUser().getName()));
+        event.complete(username.isPresent() ? 1 : 0);
+        return username;
     }
 
     @Override
     public Optional<RegisteredCredential> lookup(ByteArray credentialId, ByteArray userHandle) {
-        Optional<UserCredential> optional = userCredentialRepository.findFirstByUserHandleAndCredentialId(
-                userHandle.getBase64(),
-                credentialId.getBase64()
-        );
+        CredentialLookupEvent event = CredentialLookupEvent.begin("lookup");
+        Optional<UserCredential> optional = shards.forUserHandle(userHandle.getBase64(),
+                () -> ApplicationScope.find(applicationId -> userCredentialRepository.findFirstByClientApplicationIdAndUserHandleAndCredentialId(
+                        applicationId,
+                        userHandle.getBase64(),
+                        credentialId.getBase64()
+                )));
+        event.complete(optional.isPresent() ? 1 : 0);
 
         return optional.map(userCredentialRegisteredCredentialMapper::toRegisteredCredential);
     }
 
     @Override
     public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
-        List<UserCredential> credentialsList = userCredentialRepository.findAllByUserHandle(
-                credentialId.getBase64()
-        );
+        CredentialLookupEvent event = CredentialLookupEvent.begin("lookupAll");
+        UUID applicationId = ApplicationScope.current();
+        List<UserCredential> credentialsList = shards.forUserHandle(credentialId.getBase64(),
+                () -> userCredentialRepository.findAllByClientApplicationIdAndUserHandle(applicationId, credentialId.getBase64()));
+        event.complete(credentialsList.size());
 
         return userCredentialRegisteredCredentialMapper.toRegisteredCredentialSet(credentialsList);
     }
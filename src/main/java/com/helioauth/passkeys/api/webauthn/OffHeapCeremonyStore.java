@@ -0,0 +1,704 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.jfr.CeremonyCacheEvictionEvent;
+import com.helioauth.passkeys.api.service.exception.CeremonyCapacityExceededException;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pending ceremonies in preallocated direct memory, so that a large number of them adds
+ * neither heap nor garbage collection work.
+ * <p>
+ * Ceremonies are stored in the form of {@link CompactCeremonyCodec}, in chains of fixed-size
+ * blocks. The store is split into stripes by the hash of the request id. Each stripe owns its
+ * blocks, an open-addressing index from request id hash to the first block of a ceremony, and a
+ * timing wheel that expires ceremonies in one-second buckets, all guarded by the stripe's monitor.
+ * Free blocks are linked through their headers, and expired ceremonies are swept on the stripe's
+ * next write, so there is no heap state per ceremony and no background thread.
+ * <p>
+ * Like {@link CeremonyRequestCache}, each client application may hold up to
+ * {@code partition-weight} plus its {@code overflow-share} of {@code overflow-weight}, counted in
+ * whole blocks. What applications hold beyond {@code partition-weight} is reserved from one
+ * overflow pool of {@code overflow-weight} shared by all of them. The store never evicts pending
+ * ceremonies: when an application is over its share, the overflow pool is used up or a stripe is
+ * out of blocks, new ceremonies are rejected with {@link CeremonyCapacityExceededException}.
+ */
+public class OffHeapCeremonyStore implements CeremonyStore {
+
+    /**
+     * Head block: next block, previous and next ceremony in the wheel bucket, expiry, request id
+     * hash, partition, length of the key and ceremony, length of the key.
+     */
+    static final int HEAD_HEADER = 4 + 4 + 4 + 8 + 8 + 4 + 4 + 2;
+    static final int NEXT_HEADER = 4;
+
+    /**
+     * Index slot: request id hash and first block.
+     */
+    private static final int INDEX_ENTRY = 8 + 4;
+
+    private static final int NONE = -1;
+    private static final long TICK = Duration.ofSeconds(1).toNanos();
+    private static final int WHEEL_SLOTS = 512;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int blockSize;
+    private final long partitionWeight;
+    private final long partitionLimit;
+    private final long overflowCapacity;
+    private final AtomicLong overflowWeight = new AtomicLong();
+    private final Duration defaultLifetime;
+    private final Duration expiryGrace;
+    private final Ticker ticker;
+
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final List<Partition> partitionsById = new CopyOnWriteArrayList<>();
+
+    private volatile MeterRegistry meterRegistry;
+
+    public OffHeapCeremonyStore(WebAuthnRelyingPartyProperties.Cache properties) {
+        this(properties, Ticker.systemTicker());
+    }
+
+    OffHeapCeremonyStore(WebAuthnRelyingPartyProperties.Cache properties, Ticker ticker) {
+        WebAuthnRelyingPartyProperties.OffHeap offHeap = properties.getOffHeap();
+        this.blockSize = (int) offHeap.getBlockSize().toBytes();
+        if (blockSize < 64) {
+            throw new IllegalArgumentException("relying-party.cache.off-heap.block-size must be at least 64 bytes");
+        }
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, offHeap.getStripes() - 1)) << 1;
+        long stripeBytes = offHeap.getCapacity().toBytes() / stripeCount;
+        int blocks = (int) Math.min(Integer.MAX_VALUE / blockSize, stripeBytes / (blockSize + INDEX_ENTRY));
+        if (blocks < 2) {
+            throw new IllegalArgumentException("relying-party.cache.off-heap.capacity is too small for "
+                + stripeCount + " stripes of " + blockSize + " byte blocks");
+        }
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(blocks);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.partitionWeight = properties.getPartitionWeight().toBytes();
+        this.overflowCapacity = properties.getOverflowWeight().toBytes();
+        this.partitionLimit = partitionWeight + (long) (overflowCapacity * properties.getOverflowShare());
+        this.defaultLifetime = properties.getExpiration();
+        this.expiryGrace = properties.getExpiryGrace();
+        this.ticker = ticker;
+    }
+
+    @Override
+    public void putRegistration(String requestId, PublicKeyCredentialCreationOptions options) {
+        put(requestId, CompactCeremonyCodec.encode(options), options.getTimeout());
+    }
+
+    @Override
+    public void putAssertion(String requestId, AssertionRequest request) {
+        put(requestId, CompactCeremonyCodec.encode(request), request.getPublicKeyCredentialRequestOptions().getTimeout());
+    }
+
+    @Override
+    public PublicKeyCredentialCreationOptions getRegistration(String requestId) {
+        byte[] encoded = get(requestId);
+        return encoded != null ? CompactCeremonyCodec.decodeRegistration(encoded) : null;
+    }
+
+    @Override
+    public AssertionRequest getAssertion(String requestId) {
+        byte[] encoded = get(requestId);
+        return encoded != null ? CompactCeremonyCodec.decodeAssertion(encoded) : null;
+    }
+
+    @Override
+    public void invalidate(String requestId) {
+        byte[] key = requestId.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        stripeFor(hash).remove(hash, key);
+    }
+
+    @Override
+    public long estimatedSize() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void cleanUp() {
+        long now = ticker.read();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.expire(now);
+            }
+        }
+    }
+
+    @Override
+    public void export(PendingCeremonyVisitor visitor) {
+        for (Stripe stripe : stripes) {
+            // Copied out first, so the visitor runs without the stripe's lock
+            for (Exported ceremony : stripe.export(ticker.read())) {
+                visitor.visit(ceremony.requestId(), ceremony.ceremony(), ceremony.remaining());
+            }
+        }
+    }
+
+    @Override
+    public void restore(String requestId, byte[] ceremony, Duration remaining) {
+        put(requestId, ceremony, remaining);
+    }
+
+    /**
+     * Bytes of direct memory held by pending ceremonies, in whole blocks.
+     */
+    public long usedBytes() {
+        long used = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                used += (long) (stripe.blockCount - stripe.freeBlocks) * blockSize;
+            }
+        }
+        return used;
+    }
+
+    public long capacityBytes() {
+        return (long) stripes.length * stripes[0].blockCount * blockSize;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        Gauge.builder("passkeys.ceremony.cache.memory.used", this, OffHeapCeremonyStore::usedBytes)
+            .description("Direct memory held by pending ceremony requests")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("passkeys.ceremony.cache.memory.capacity", this, OffHeapCeremonyStore::capacityBytes)
+            .description("Direct memory reserved for pending ceremony requests")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("passkeys.ceremony.cache.weight", overflowWeight, AtomicLong::get)
+            .description("Approximate bytes held by pending ceremony requests")
+            .tag("partition", CeremonyRequestCache.OVERFLOW)
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("passkeys.ceremony.cache.capacity", this, _ -> overflowCapacity)
+            .description("Bytes of pending ceremony requests a partition holds before rejecting")
+            .tag("partition", CeremonyRequestCache.OVERFLOW)
+            .baseUnit("bytes")
+            .register(registry);
+        partitionsById.forEach(partition -> partition.bindTo(registry));
+    }
+
+    private void put(String requestId, byte[] ceremony, Optional<Long> timeout) {
+        put(requestId, ceremony, timeout.map(millis -> Duration.ofMillis(millis).plus(expiryGrace)).orElse(defaultLifetime));
+    }
+
+    private void put(String requestId, byte[] ceremony, Duration lifetime) {
+        byte[] key = requestId.getBytes(StandardCharsets.UTF_8);
+        if (key.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Request id too long");
+        }
+
+        Partition partition = partitions.computeIfAbsent(CeremonyRequestCache.partitionOf(requestId), this::newPartition);
+        int weight = blocksFor(key.length + ceremony.length) * blockSize;
+        if (!partition.reserve(weight)) {
+            cleanUp();
+            if (!partition.reserve(weight)) {
+                partition.rejections.increment();
+                throw new CeremonyCapacityExceededException();
+            }
+        }
+
+        long hash = hash(key);
+        long now = ticker.read();
+        if (!stripeFor(hash).put(hash, key, ceremony, now + lifetime.toNanos(), partition, now)) {
+            partition.release(weight);
+            partition.rejections.increment();
+            throw new CeremonyCapacityExceededException();
+        }
+    }
+
+    private byte[] get(String requestId) {
+        byte[] key = requestId.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        return stripeFor(hash).get(hash, key, ticker.read());
+    }
+
+    private Stripe stripeFor(long hash) {
+        return stripes[(int) (hash >>> 40) & stripeMask];
+    }
+
+    private int blocksFor(int length) {
+        int inHead = blockSize - HEAD_HEADER;
+        if (length <= inHead) {
+            return 1;
+        }
+        int perBlock = blockSize - NEXT_HEADER;
+        return 1 + (length - inHead + perBlock - 1) / perBlock;
+    }
+
+    /**
+     * FNV-1a followed by the MurmurHash3 finalizer, since stripes and index slots take different bits.
+     * Never {@code 0}, which marks an empty index slot.
+     */
+    static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private synchronized Partition newPartition(String name) {
+        Partition partition = new Partition(name, partitionsById.size());
+        partitionsById.add(partition);
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            partition.bindTo(registry);
+        }
+        return partition;
+    }
+
+    private record Exported(String requestId, byte[] ceremony, Duration remaining) {}
+
+    /**
+     * Capacity accounting of one client application, or of ceremonies started without one.
+     */
+    private final class Partition {
+
+        private final String name;
+        private final int id;
+        private final AtomicLong weight = new AtomicLong();
+        private final AtomicLong entries = new AtomicLong();
+        private final LongAdder expirations = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+
+        private Partition(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        /**
+         * Reserves {@code bytes} of the partition, and from the overflow pool whatever of them lies
+         * beyond {@code partition-weight}.
+         */
+        private boolean reserve(int bytes) {
+            long after = weight.addAndGet(bytes);
+            long spilled = beyondPartitionWeight(after - bytes, after);
+            long pooled = spilled > 0 ? overflowWeight.addAndGet(spilled) : 0;
+            if (after <= partitionLimit && pooled <= overflowCapacity) {
+                return true;
+            }
+            release(bytes);
+            return false;
+        }
+
+        private void release(int bytes) {
+            long after = weight.addAndGet(-bytes);
+            long returned = beyondPartitionWeight(after, after + bytes);
+            if (returned > 0) {
+                overflowWeight.addAndGet(-returned);
+            }
+        }
+
+        /**
+         * Bytes between {@code from} and {@code to} that lie beyond {@code partition-weight}. Each
+         * change of the partition's weight moves exactly this much into or out of the overflow
+         * pool, so the pool always holds the sum of what partitions hold beyond their own weight.
+         */
+        private long beyondPartitionWeight(long from, long to) {
+            return Math.max(0, to - partitionWeight) - Math.max(0, from - partitionWeight);
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            Gauge.builder("passkeys.ceremony.cache.weight", weight, AtomicLong::get)
+                .description("Approximate bytes held by pending ceremony requests")
+                .tag("partition", name)
+                .baseUnit("bytes")
+                .register(registry);
+            Gauge.builder("passkeys.ceremony.cache.capacity", this, _ -> partitionLimit)
+                .description("Bytes of pending ceremony requests a partition holds before rejecting")
+                .tag("partition", name)
+                .baseUnit("bytes")
+                .register(registry);
+            Gauge.builder("passkeys.ceremony.cache.entries", entries, AtomicLong::get)
+                .description("Pending ceremony requests")
+                .tag("partition", name)
+                .register(registry);
+            FunctionCounter.builder("passkeys.ceremony.cache.evictions", expirations, LongAdder::sum)
+                .description("Pending ceremony requests dropped before they were finished")
+                .tag("partition", name)
+                .tag("cause", RemovalCause.EXPIRED.name())
+                .register(registry);
+            FunctionCounter.builder("passkeys.ceremony.cache.rejections", rejections, LongAdder::sum)
+                .description("Ceremonies not started because the partition was full")
+                .tag("partition", name)
+                .register(registry);
+        }
+    }
+
+    /**
+     * A share of the store with its own blocks, index and timing wheel.
+     * <p>
+     * Blocks are addressed by number. The first block of a ceremony holds {@link #HEAD_HEADER}
+     * and the start of the request id and ceremony bytes, and links to the blocks holding the rest.
+     * The index uses linear probing with backward-shift deletion, and holds at most three
+     * quarters as many ceremonies as it has slots.
+     */
+    private final class Stripe {
+
+        private static final int NEXT = 0;
+        private static final int WHEEL_PREV = 4;
+        private static final int WHEEL_NEXT = 8;
+        private static final int DEADLINE = 12;
+        private static final int HASH = 20;
+        private static final int PARTITION = 28;
+        private static final int LENGTH = 32;
+        private static final int KEY_LENGTH = 36;
+
+        private final ByteBuffer memory;
+        private final ByteBuffer index;
+        private final int blockCount;
+        private final int indexMask;
+        private final int maxSize;
+        private final int[] wheel = new int[WHEEL_SLOTS];
+
+        private int freeHead;
+        private int freeBlocks;
+        private int size;
+        private long wheelTick = Long.MIN_VALUE;
+
+        private Stripe(int blockCount) {
+            this.blockCount = blockCount;
+            int indexSlots = Integer.highestOneBit(blockCount);
+            this.memory = ByteBuffer.allocateDirect(blockCount * blockSize);
+            this.index = ByteBuffer.allocateDirect(indexSlots * INDEX_ENTRY);
+            this.indexMask = indexSlots - 1;
+            this.maxSize = Math.max(1, indexSlots / 4 * 3);
+
+            for (int block = 0; block < blockCount; block++) {
+                memory.putInt(block * blockSize + NEXT, block + 1 < blockCount ? block + 1 : NONE);
+            }
+            this.freeHead = 0;
+            this.freeBlocks = blockCount;
+            Arrays.fill(wheel, NONE);
+        }
+
+        private synchronized boolean put(long hash, byte[] key, byte[] ceremony, long deadline, Partition partition, long now) {
+            expire(now);
+            int existing = find(hash, key);
+            if (existing != NONE) {
+                removeEntry(existing, false);
+            }
+
+            int length = key.length + ceremony.length;
+            int needed = blocksFor(length);
+            if (needed > freeBlocks || size >= maxSize) {
+                return false;
+            }
+
+            int head = allocate(needed);
+            int at = head * blockSize;
+            memory.putLong(at + DEADLINE, deadline);
+            memory.putLong(at + HASH, hash);
+            memory.putInt(at + PARTITION, partition.id);
+            memory.putInt(at + LENGTH, length);
+            memory.putShort(at + KEY_LENGTH, (short) key.length);
+            int position = write(head, 0, key);
+            write(head, position, ceremony);
+
+            insertIndex(hash, head);
+            link(head, deadline);
+            size++;
+            partition.entries.incrementAndGet();
+            return true;
+        }
+
+        private synchronized byte[] get(long hash, byte[] key, long now) {
+            int head = find(hash, key);
+            if (head == NONE || memory.getLong(head * blockSize + DEADLINE) - now <= 0) {
+                return null;
+            }
+
+            int at = head * blockSize;
+            int keyLength = memory.getShort(at + KEY_LENGTH);
+            byte[] ceremony = new byte[memory.getInt(at + LENGTH) - keyLength];
+            read(head, keyLength, ceremony);
+            return ceremony;
+        }
+
+        private synchronized List<Exported> export(long now) {
+            List<Exported> exported = new ArrayList<>(size);
+            for (int slot = 0; slot <= indexMask; slot++) {
+                if (index.getLong(slot * INDEX_ENTRY) == 0) {
+                    continue;
+                }
+
+                int head = index.getInt(slot * INDEX_ENTRY + 8);
+                int at = head * blockSize;
+                long remaining = memory.getLong(at + DEADLINE) - now;
+                if (remaining <= 0) {
+                    continue;
+                }
+                byte[] key = new byte[memory.getShort(at + KEY_LENGTH)];
+                byte[] ceremony = new byte[memory.getInt(at + LENGTH) - key.length];
+                read(head, 0, key);
+                read(head, key.length, ceremony);
+                exported.add(new Exported(new String(key, StandardCharsets.UTF_8), ceremony, Duration.ofNanos(remaining)));
+            }
+            return exported;
+        }
+
+        private synchronized void remove(long hash, byte[] key) {
+            int head = find(hash, key);
+            if (head != NONE) {
+                removeEntry(head, false);
+            }
+        }
+
+        /**
+         * Advances the timing wheel to {@code now}, dropping the ceremonies that expired on the way.
+         * Ceremonies due more than a full turn of the wheel later stay in their bucket for the next turn.
+         */
+        private void expire(long now) {
+            long tick = Math.floorDiv(now, TICK);
+            if (wheelTick == Long.MIN_VALUE) {
+                wheelTick = tick;
+                return;
+            }
+
+            long from = Math.max(wheelTick + 1, tick - WHEEL_SLOTS + 1);
+            for (long t = from; t <= tick; t++) {
+                int ceremony = wheel[(int) (t & (WHEEL_SLOTS - 1))];
+                while (ceremony != NONE) {
+                    int next = memory.getInt(ceremony * blockSize + WHEEL_NEXT);
+                    if (memory.getLong(ceremony * blockSize + DEADLINE) - now <= 0) {
+                        removeEntry(ceremony, true);
+                    }
+                    ceremony = next;
+                }
+            }
+            wheelTick = Math.max(wheelTick, tick);
+        }
+
+        private void removeEntry(int head, boolean expired) {
+            int at = head * blockSize;
+            removeIndex(memory.getLong(at + HASH), head);
+            unlink(head);
+
+            Partition partition = partitionsById.get(memory.getInt(at + PARTITION));
+            partition.release(blocksFor(memory.getInt(at + LENGTH)) * blockSize);
+            partition.entries.decrementAndGet();
+            if (expired) {
+                partition.expirations.increment();
+                CeremonyCacheEvictionEvent.record(RemovalCause.EXPIRED);
+            }
+
+            free(head);
+            size--;
+        }
+
+        private int find(long hash, byte[] key) {
+            for (int slot = (int) hash & indexMask; ; slot = (slot + 1) & indexMask) {
+                long slotHash = index.getLong(slot * INDEX_ENTRY);
+                if (slotHash == 0) {
+                    return NONE;
+                }
+                int head = index.getInt(slot * INDEX_ENTRY + 8);
+                if (slotHash == hash && keyEquals(head, key)) {
+                    return head;
+                }
+            }
+        }
+
+        private void insertIndex(long hash, int head) {
+            int slot = (int) hash & indexMask;
+            while (index.getLong(slot * INDEX_ENTRY) != 0) {
+                slot = (slot + 1) & indexMask;
+            }
+            index.putLong(slot * INDEX_ENTRY, hash);
+            index.putInt(slot * INDEX_ENTRY + 8, head);
+        }
+
+        private void removeIndex(long hash, int head) {
+            int slot = (int) hash & indexMask;
+            while (index.getInt(slot * INDEX_ENTRY + 8) != head || index.getLong(slot * INDEX_ENTRY) != hash) {
+                slot = (slot + 1) & indexMask;
+            }
+
+            // Shift later entries of the probe run back, so lookups never stop at the hole
+            int hole = slot;
+            for (int next = (hole + 1) & indexMask; ; next = (next + 1) & indexMask) {
+                long nextHash = index.getLong(next * INDEX_ENTRY);
+                if (nextHash == 0) {
+                    break;
+                }
+                int home = (int) nextHash & indexMask;
+                if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                    index.putLong(hole * INDEX_ENTRY, nextHash);
+                    index.putInt(hole * INDEX_ENTRY + 8, index.getInt(next * INDEX_ENTRY + 8));
+                    hole = next;
+                }
+            }
+            index.putLong(hole * INDEX_ENTRY, 0);
+        }
+
+        private void link(int head, long deadline) {
+            int bucket = (int) (Math.floorDiv(deadline + TICK - 1, TICK) & (WHEEL_SLOTS - 1));
+            int first = wheel[bucket];
+            memory.putInt(head * blockSize + WHEEL_PREV, NONE);
+            memory.putInt(head * blockSize + WHEEL_NEXT, first);
+            if (first != NONE) {
+                memory.putInt(first * blockSize + WHEEL_PREV, head);
+            }
+            wheel[bucket] = head;
+        }
+
+        private void unlink(int head) {
+            int prev = memory.getInt(head * blockSize + WHEEL_PREV);
+            int next = memory.getInt(head * blockSize + WHEEL_NEXT);
+            if (prev != NONE) {
+                memory.putInt(prev * blockSize + WHEEL_NEXT, next);
+            } else {
+                long deadline = memory.getLong(head * blockSize + DEADLINE);
+                wheel[(int) (Math.floorDiv(deadline + TICK - 1, TICK) & (WHEEL_SLOTS - 1))] = next;
+            }
+            if (next != NONE) {
+                memory.putInt(next * blockSize + WHEEL_PREV, prev);
+            }
+        }
+
+        private int allocate(int blocks) {
+            int head = freeHead;
+            int last = head;
+            for (int i = 1; i < blocks; i++) {
+                last = memory.getInt(last * blockSize + NEXT);
+            }
+            freeHead = memory.getInt(last * blockSize + NEXT);
+            memory.putInt(last * blockSize + NEXT, NONE);
+            freeBlocks -= blocks;
+            return head;
+        }
+
+        private void free(int head) {
+            int last = head;
+            int blocks = 1;
+            for (int next = memory.getInt(head * blockSize + NEXT); next != NONE; next = memory.getInt(next * blockSize + NEXT)) {
+                last = next;
+                blocks++;
+            }
+            memory.putInt(last * blockSize + NEXT, freeHead);
+            freeHead = head;
+            freeBlocks += blocks;
+        }
+
+        /**
+         * Copies {@code source} into the ceremony starting at {@code head}, at {@code position} of its
+         * key and ceremony bytes.
+         *
+         * @return the position after the copied bytes
+         */
+        private int write(int head, int position, byte[] source) {
+            int copied = 0;
+            while (copied < source.length) {
+                int at = offsetOf(head, position + copied);
+                int room = blockSize - (at % blockSize);
+                int length = Math.min(room, source.length - copied);
+                memory.put(at, source, copied, length);
+                copied += length;
+            }
+            return position + copied;
+        }
+
+        private void read(int head, int position, byte[] target) {
+            int copied = 0;
+            while (copied < target.length) {
+                int at = offsetOf(head, position + copied);
+                int room = blockSize - (at % blockSize);
+                int length = Math.min(room, target.length - copied);
+                memory.get(at, target, copied, length);
+                copied += length;
+            }
+        }
+
+        private boolean keyEquals(int head, byte[] key) {
+            if (memory.getShort(head * blockSize + KEY_LENGTH) != key.length) {
+                return false;
+            }
+            int compared = 0;
+            while (compared < key.length) {
+                int at = offsetOf(head, compared);
+                int end = compared + Math.min(blockSize - (at % blockSize), key.length - compared);
+                for (; compared < end; compared++, at++) {
+                    if (memory.get(at) != key[compared]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Memory offset of byte {@code position} of the key and ceremony bytes starting at block {@code head}.
+         */
+        private int offsetOf(int head, int position) {
+            int inHead = blockSize - HEAD_HEADER;
+            if (position < inHead) {
+                return head * blockSize + HEAD_HEADER + position;
+            }
+            int perBlock = blockSize - NEXT_HEADER;
+            int block = memory.getInt(head * blockSize + NEXT);
+            for (int skip = (position - inHead) / perBlock; skip > 0; skip--) {
+                block = memory.getInt(block * blockSize + NEXT);
+            }
+            return block * blockSize + NEXT_HEADER + (position - inHead) % perBlock;
+        }
+    }
+}
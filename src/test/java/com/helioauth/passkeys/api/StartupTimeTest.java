@@ -0,0 +1,202 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Measures the time from launching a fresh JVM to the first successful {@code /v1/signin/start},
+ * which is what scale-out during a traffic burst waits for. Sign-in start needs a client application,
+ * which is added through the admin API as soon as the application answers.
+ * <p>
+ * The application is launched the way the container image runs it: the executable jar named by
+ * {@code -Dstartup.jar} is extracted, a training run that only refreshes the context records a
+ * class data sharing archive, and the measured run starts with {@code -XX:SharedArchiveFile} and
+ * {@code -Xshare:on}, so it fails outright if the archive cannot be used. The {@code startup} Maven
+ * profile runs this test after {@code package}; the default test run skips it. The budget is
+ * {@code -Dstartup.budget} (an ISO-8601 duration).
+ */
+class StartupTimeTest {
+
+    private static final Duration BUDGET = Duration.parse(System.getProperty("startup.budget", "PT20S"));
+    private static final Duration TRAINING_TIMEOUT = Duration.ofMinutes(2);
+    private static final Pattern APPLICATION_ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+
+    private Path workDir;
+
+    @Test
+    void firstSignInStart_withClassDataSharing_succeedsWithinBudget() throws Exception {
+        String jar = System.getProperty("startup.jar");
+        assertNotNull(jar, "Set -Dstartup.jar to the executable jar, or run with -Pstartup");
+        workDir = Path.of(jar).resolveSibling("startup-time");
+        FileSystemUtils.deleteRecursively(workDir);
+        Files.createDirectories(workDir);
+        Path classPath = extract(Path.of(jar));
+        Path archive = workDir.resolve("application.jsa");
+
+        train(classPath, archive);
+        assertTrue(Files.exists(archive), "The training run recorded no archive, see " + workDir.resolve("training.log"));
+
+        int port = freePort();
+        Path log = workDir.resolve("startup.log");
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest addApplication = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/admin/v1/apps"))
+            .header("Content-Type", "application/json")
+            .header("X-Api-Key", "testapikey")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"startup\",\"relyingPartyHostname\":\"localhost\"}"))
+            .build();
+        String applicationId = null;
+
+        long start = System.nanoTime();
+        Process application = new ProcessBuilder(command(classPath, port, "-XX:SharedArchiveFile=" + archive, "-Xshare:on"))
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+        try {
+            long deadline = start + BUDGET.multipliedBy(2).toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!application.isAlive()) {
+                    fail("Application exited with " + application.exitValue() + ", see " + log);
+                }
+                try {
+                    if (applicationId == null) {
+                        HttpResponse<String> added = client.send(addApplication, HttpResponse.BodyHandlers.ofString());
+                        Matcher id = APPLICATION_ID.matcher(added.body());
+                        if (added.statusCode() != 201 || !id.find()) {
+                            Thread.sleep(20);
+                            continue;
+                        }
+                        applicationId = id.group(1);
+                    }
+                    if (client.send(signInStart(port, applicationId), HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+                        assertTrue(elapsed.compareTo(BUDGET) <= 0, "Startup took " + elapsed + ", budget is " + BUDGET);
+                        return;
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(20);
+            }
+            fail("No successful /v1/signin/start within " + BUDGET.multipliedBy(2) + ", see " + log);
+        } finally {
+            application.destroy();
+            application.waitFor();
+        }
+    }
+
+    /**
+     * Extracts the executable jar like the image does, since class data sharing cannot archive
+     * classes loaded from nested jars.
+     *
+     * @return the class path of the extracted application
+     */
+    private Path extract(Path jar) throws Exception {
+        Path extracted = workDir.resolve("extracted");
+        Process extract = new ProcessBuilder(java(), "-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", extracted.toString())
+            .redirectErrorStream(true)
+            .redirectOutput(workDir.resolve("extract.log").toFile())
+            .start();
+        assertTrue(extract.waitFor(TRAINING_TIMEOUT.toSeconds(), TimeUnit.SECONDS), "Extracting " + jar + " timed out");
+        assertEquals(0, extract.exitValue(), "Could not extract " + jar + ", see " + workDir.resolve("extract.log"));
+        return extracted.resolve(jar.getFileName());
+    }
+
+    private void train(Path classPath, Path archive) throws Exception {
+        Path log = workDir.resolve("training.log");
+        Process training = new ProcessBuilder(command(classPath, freePort(),
+                "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"))
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+        if (!training.waitFor(TRAINING_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            training.destroyForcibly();
+            fail("Training run did not exit within " + TRAINING_TIMEOUT + ", see " + log);
+        }
+    }
+
+    private static HttpRequest signInStart(int port, String applicationId) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/signin/start"))
+            .header("Content-Type", "application/json")
+            .header("X-App-Id", applicationId)
+            .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"startup\"}"))
+            .build();
+    }
+
+    /**
+     * The test profile runs on H2, which is a test dependency and so missing from the jar; it is
+     * taken from the test class path.
+     */
+    private static List<String> command(Path classPath, int port, String... jvmArgs) {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+            .filter("--enable-preview"::equals)
+            .forEach(command::add);
+        command.addAll(Arrays.asList(jvmArgs));
+        command.add("-cp");
+        command.add(classPath + File.pathSeparator + h2());
+        command.add(PasskeysApiApplication.class.getName());
+        command.add("--spring.profiles.active=test");
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:h2:mem:startup");
+        return command;
+    }
+
+    private static String java() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+
+    private static String h2() {
+        String testClassPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        return Arrays.stream(testClassPath.split(File.pathSeparator))
+            .filter(entry -> Path.of(entry).getFileName().toString().startsWith("h2-"))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("H2 is not on the test class path"));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.actuator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AssertionLockoutEndpointTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void state_requiresAdminKey() throws Exception {
+        mockMvc.perform(get("/actuator/assertionlockout"))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/assertionlockout").header("X-Api-Key", "wrong"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void state_withAdminKey_returnsSnapshot() throws Exception {
+        mockMvc.perform(get("/actuator/assertionlockout").header("X-Api-Key", "testapikey"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.enabled").value(true));
+    }
+}
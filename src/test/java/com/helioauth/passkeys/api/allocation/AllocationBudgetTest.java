@@ -0,0 +1,310 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.allocation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.config.properties.AssertionLockoutProperties;
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import com.helioauth.passkeys.api.config.properties.ReadReplicaProperties;
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.controller.CredentialsController;
+import com.helioauth.passkeys.api.datasource.ReadYourWrites;
+import com.helioauth.passkeys.api.datasource.Shards;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.mapper.CredentialRegistrationResultMapper;
+import com.helioauth.passkeys.api.mapper.RegistrationResponseMapper;
+import com.helioauth.passkeys.api.service.UserSignInService;
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import com.helioauth.passkeys.api.webauthn.DatabaseCredentialRepository;
+import com.helioauth.passkeys.api.webauthn.UserCredentialRegisteredCredentialMapper;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.RegisteredCredential;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fails the build when a ceremony hot path starts allocating noticeably more per call.
+ * <p>
+ * Budgets are the measured figure plus roughly 25% headroom for JDK and library differences.
+ * When a change lowers a figure, lower its budget too so the gain is kept; when a change has
+ * to raise one, say why in the commit.
+ */
+class AllocationBudgetTest {
+
+    private static final long FINISH_ASSERTION_BUDGET = 96_000;
+    private static final long CREDENTIAL_LOOKUP_BUDGET = 2_400;
+    private static final long SIGN_IN_FINISH_REQUEST_BUDGET = 130_000;
+
+    private static final String RP_ID = "localhost";
+    private static final String ORIGIN = "https://localhost";
+    private static final String USERNAME = "allocation-budget";
+    private static final UUID APPLICATION_ID = UUID.randomUUID();
+
+    private final AllocationMeter meter = new AllocationMeter(1_000, 201);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private KeyPair keyPair;
+    private RegisteredCredential credential;
+    private WebAuthnAuthenticator webAuthnAuthenticator;
+
+    @BeforeAll
+    static void checkSupport() {
+        assumeTrue(AllocationMeter.isSupported(), "Per-thread allocation counters are not available on this JVM");
+    }
+
+    @BeforeEach
+    void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        credential = RegisteredCredential.builder()
+            .credentialId(WebAuthnAuthenticator.generateRandom())
+            .userHandle(WebAuthnAuthenticator.generateRandom())
+            .publicKeyCose(cosePublicKey((ECPublicKey) keyPair.getPublic()))
+            .signatureCount(0)
+            .build();
+
+        WebAuthnRelyingPartyProperties properties = new WebAuthnRelyingPartyProperties();
+        properties.setHostname(RP_ID);
+        properties.setDisplayName("Allocation budget");
+        properties.setCache(new WebAuthnRelyingPartyProperties.Cache());
+        webAuthnAuthenticator = new WebAuthnAuthenticator(
+            new SingleCredentialRepository(credential),
+            properties,
+            Mappers.getMapper(CredentialRegistrationResultMapper.class),
+            new CeremonyRequestCache(properties.getCache()),
+            new CeremonyRequestIds(new ClusterProperties()),
+            new AssertionFailureTracker(new AssertionLockoutProperties()),
+            ObservationRegistry.NOOP
+        );
+    }
+
+    @Test
+    void finishAssertion() throws Exception {
+        long bytes = meter.bytesPerCall(this::signedAssertion, assertion -> webAuthnAuthenticator.finishAssertion(
+            assertion.requestId(), assertion.credentialJson(), null
+        ));
+
+        assertWithinBudget("WebAuthnAuthenticator.finishAssertion", bytes, FINISH_ASSERTION_BUDGET);
+    }
+
+    @Test
+    void credentialLookup() throws Exception {
+        UserCredential userCredential = UserCredential.builder()
+            .credentialId(credential.getCredentialId().getBase64())
+            .userHandle(credential.getUserHandle().getBase64())
+            .publicKeyCose(credential.getPublicKeyCose().getBase64())
+            .signatureCount(credential.getSignatureCount())
+            .build();
+        Map<String, UserCredential> credentialsById = Map.of(userCredential.getCredentialId(), userCredential);
+
+        UserCredentialRepository userCredentialRepository = InMemoryRepositories.repository(UserCredentialRepository.class, Map.of(
+            "findFirstByClientApplicationIdAndUserHandleAndCredentialId", args -> Optional.ofNullable(credentialsById.get((String) args[2]))
+                .filter(found -> found.getUserHandle().equals(args[1]))
+        ));
+        DatabaseCredentialRepository repository = new DatabaseCredentialRepository(
+            InMemoryRepositories.repository(UserRepository.class, Map.of()),
+            userCredentialRepository,
+            new UserCredentialRegisteredCredentialMapper(),
+            new ReadYourWrites(new ReadReplicaProperties()),
+            new Shards(new ShardingProperties(), null)
+        );
+        ByteArray credentialId = credential.getCredentialId();
+        ByteArray userHandle = credential.getUserHandle();
+        // Lookups only see the credentials of the calling application
+        assertTrue(ApplicationScope.call(APPLICATION_ID, () -> repository.lookup(credentialId, userHandle)).isPresent());
+
+        long bytes = meter.bytesPerCall(() -> ApplicationScope.call(APPLICATION_ID, () -> repository.lookup(credentialId, userHandle)));
+
+        assertWithinBudget("DatabaseCredentialRepository.lookup", bytes, CREDENTIAL_LOOKUP_BUDGET);
+    }
+
+    @Test
+    void signInFinishRequest() throws Exception {
+        Map<String, User> usersByName = new HashMap<>();
+        usersByName.put(USERNAME, User.builder().name(USERNAME).displayName(USERNAME).build());
+
+        UserSignInService userSignInService = new UserSignInService(
+            InMemoryRepositories.repository(UserCredentialRepository.class, Map.of(
+                "updateUsageByUserHandleAndCredentialId", _ -> null
+            )),
+            InMemoryRepositories.repository(UserRepository.class, Map.of(
+                "findByClientApplicationIdAndName", args -> Optional.ofNullable(usersByName.get((String) args[1]))
+            )),
+            webAuthnAuthenticator,
+            Mappers.getMapper(RegistrationResponseMapper.class),
+            new Shards(new ShardingProperties(), null)
+        );
+        // Only sign-in is measured, so the controller gets no sign-up service.
+        MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new CredentialsController(userSignInService, null, Mappers.getMapper(RegistrationResponseMapper.class)))
+            .build();
+
+        long bytes = meter.bytesPerCall(this::signInFinishBody, body -> mockMvc.perform(post("/v1/signin/finish")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk()));
+
+        assertWithinBudget("POST /v1/signin/finish", bytes, SIGN_IN_FINISH_REQUEST_BUDGET);
+    }
+
+    /**
+     * Starts an assertion and answers it the way a platform authenticator would, with an ES256
+     * signature over the authenticator data and the client data hash.
+     */
+    private SignedAssertion signedAssertion() throws Exception {
+        AssertionStartResult start = webAuthnAuthenticator.startAssertion(USERNAME);
+        String challenge = objectMapper.readTree(start.options()).get("publicKey").get("challenge").asText();
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] authenticatorData = ByteBuffer.allocate(37)
+            .put(sha256.digest(RP_ID.getBytes(StandardCharsets.UTF_8)))
+            .put((byte) 0x05)
+            .putInt(1)
+            .array();
+        byte[] clientDataJson = ("{\"type\":\"webauthn.get\",\"challenge\":\"" + challenge
+            + "\",\"origin\":\"" + ORIGIN + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(authenticatorData);
+        signature.update(sha256.digest(clientDataJson));
+
+        String credentialJson = objectMapper.writeValueAsString(Map.of(
+            "type", "public-key",
+            "id", credential.getCredentialId().getBase64Url(),
+            "rawId", credential.getCredentialId().getBase64Url(),
+            "response", Map.of(
+                "authenticatorData", new ByteArray(authenticatorData).getBase64Url(),
+                "clientDataJSON", new ByteArray(clientDataJson).getBase64Url(),
+                "signature", new ByteArray(signature.sign()).getBase64Url(),
+                "userHandle", credential.getUserHandle().getBase64Url()
+            ),
+            "clientExtensionResults", Map.of()
+        ));
+        return new SignedAssertion(start.requestId(), credentialJson);
+    }
+
+    private String signInFinishBody() throws Exception {
+        SignedAssertion assertion = signedAssertion();
+        return objectMapper.writeValueAsString(Map.of(
+            "requestId", assertion.requestId(),
+            "publicKeyCredentialWithAssertion", assertion.credentialJson()
+        ));
+    }
+
+    private static void assertWithinBudget(String path, long bytes, long budget) {
+        assertTrue(bytes <= budget, () -> String.format(
+            "%s allocated %,d bytes per call, over its budget of %,d bytes", path, bytes, budget
+        ));
+    }
+
+    /**
+     * Encodes an EC2 P-256 key as the CBOR map {1: 2, 3: -7, -1: 1, -2: x, -3: y}.
+     */
+    private static ByteArray cosePublicKey(ECPublicKey key) {
+        return new ByteArray(ByteBuffer.allocate(77)
+            .put(new byte[]{(byte) 0xa5, 0x01, 0x02, 0x03, 0x26, 0x20, 0x01})
+            .put(new byte[]{0x21, 0x58, 0x20}).put(coordinate(key.getW().getAffineX()))
+            .put(new byte[]{0x22, 0x58, 0x20}).put(coordinate(key.getW().getAffineY()))
+            .array());
+    }
+
+    private static byte[] coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] coordinate = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, coordinate, 32 - length, length);
+        return coordinate;
+    }
+
+    private record SignedAssertion(String requestId, String credentialJson) {
+    }
+
+    /**
+     * The one credential of {@link #USERNAME}, so the ceremony engine is measured rather than a store.
+     */
+    private record SingleCredentialRepository(RegisteredCredential credential) implements CredentialRepository {
+
+        @Override
+        public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String username) {
+            return USERNAME.equals(username)
+                ? Set.of(PublicKeyCredentialDescriptor.builder().id(credential.getCredentialId()).build())
+                : Set.of();
+        }
+
+        @Override
+        public Optional<ByteArray> getUserHandleForUsername(String username) {
+            return USERNAME.equals(username) ? Optional.of(credential.getUserHandle()) : Optional.empty();
+        }
+
+        @Override
+        public Optional<String> getUsernameForUserHandle(ByteArray userHandle) {
+            return credential.getUserHandle().equals(userHandle) ? Optional.of(USERNAME) : Optional.empty();
+        }
+
+        @Override
+        public Optional<RegisteredCredential> lookup(ByteArray credentialId, ByteArray userHandle) {
+            return credential.getCredentialId().equals(credentialId) && credential.getUserHandle().equals(userHandle)
+                ? Optional.of(credential)
+                : Optional.empty();
+        }
+
+        @Override
+        public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
+            return credential.getCredentialId().equals(credentialId) ? Set.of(credential) : Set.of();
+        }
+    }
+}
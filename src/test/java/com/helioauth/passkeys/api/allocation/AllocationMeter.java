@@ -0,0 +1,88 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.allocation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Measures the bytes a task allocates on the calling thread, using the per-thread allocation
+ * counter of HotSpot's {@code ThreadMXBean}.
+ * <p>
+ * The task runs {@code warmup} times first so the JIT has settled (escape analysis can remove
+ * allocations), then the median of {@code samples} runs is reported. The median is robust to the
+ * odd run that hits a cache refill or lazy initialization. Results are kept reachable so the
+ * JIT cannot eliminate the work being measured.
+ */
+final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmup;
+    private final int samples;
+    private volatile Object sink;
+
+    AllocationMeter(int warmup, int samples) {
+        this.warmup = warmup;
+        this.samples = samples;
+    }
+
+    static boolean isSupported() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Median bytes allocated by one run of {@code task}. {@code setup} runs before each run and is not counted.
+     */
+    <T> long bytesPerCall(Setup<T> setup, Task<T> task) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            sink = task.run(setup.prepare());
+        }
+
+        long[] allocated = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            T input = setup.prepare();
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            Object result = task.run(input);
+            allocated[i] = THREADS.getCurrentThreadAllocatedBytes() - before;
+            sink = result;
+        }
+
+        Arrays.sort(allocated);
+        return allocated[samples / 2];
+    }
+
+    long bytesPerCall(Call call) throws Exception {
+        return bytesPerCall(() -> null, _ -> call.run());
+    }
+
+    @FunctionalInterface
+    interface Setup<T> {
+        T prepare() throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Task<T> {
+        Object run(T input) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Call {
+        Object run() throws Exception;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.cbor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helioauth.passkeys.api.controller.dto.SignUpFinishRequestV2;
+import com.helioauth.passkeys.api.controller.dto.SignUpStartResponseV2;
+import com.helioauth.passkeys.api.generated.models.ListPasskeysResponse;
+import com.helioauth.passkeys.api.generated.models.PasskeyCredential;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebAuthnCborModuleTest {
+
+    private static final String REGISTRATION_RESPONSE_JSON = """
+    {
+        "type":"public-key",
+        "id":"kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8",
+        "rawId":"kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8",
+        "authenticatorAttachment":"platform",
+        "response": {
+            "clientDataJSON":"eyJ0eXBlIjoid2ViYXV0aG4uY3JlYXRlIiwiY2hhbGxlbmdlIjoiVVdldEpneFVJbF91N0RuNnJGOF9rdk45SWVHajIyN1BjNmk1OU11VU93OCIsIm9yaWdpbiI6Imh0dHA6Ly9sb2NhbGhvc3Q6ODA4MSIsImNyb3NzT3JpZ2luIjpmYWxzZX0",
+            "attestationObject":"o2NmbXRkbm9uZWdhdHRTdG10oGhhdXRoRGF0YVikSZYN5YgOjGh0NBcPZHZgW4_krrmihjLHmVzzuoMdl2NFAAAAAQECAwQFBgcIAQIDBAUGBwgAIJFGgSPjJkYOjZkbqRjQP08dCTp8ihdamQrPRZKqQDL_pQECAyYgASFYIMri0ZKX3-DsEsvFSkRlLfXskw9KK2nS99vZmw85z_O4Ilgg4ZO7yiq0dSWs2S4CN4bBvzvWoyCjF1-F_PUWGjTcv-g",
+            "transports": ["internal"]
+        },
+        "clientExtensionResults": { "credProps": { "rk": true } }
+    }""";
+
+    private static final String CREDENTIAL_ID = "kUaBI+MmRg6NmRupGNA/Tx0JOnyKF1qZCs9FkqpAMv8=";
+    private static final String USER_HANDLE = "VocUvpS/E/+xD41LO8ej5zVAxZuRw5dbtnIMsVWtso4=";
+
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor()
+        .modulesToInstall(new WebAuthnCborModule())
+        .build();
+
+    @Test
+    void writesCredentialIdsAsByteStrings() throws Exception {
+        ListPasskeysResponse response = passkeys(1);
+
+        byte[] cbor = cborMapper.writeValueAsBytes(response);
+        JsonNode tree = cborMapper.readTree(cbor);
+        JsonNode passkey = tree.get("passkeys").get(0);
+
+        assertTrue(passkey.get("credentialId").isBinary());
+        assertTrue(passkey.get("userHandle").isBinary());
+        assertEquals(32, passkey.get("credentialId").binaryValue().length);
+
+        ListPasskeysResponse decoded = cborMapper.readValue(cbor, ListPasskeysResponse.class);
+        assertEquals(CREDENTIAL_ID, decoded.getPasskeys().getFirst().getCredentialId());
+        assertEquals(USER_HANDLE, decoded.getPasskeys().getFirst().getUserHandle());
+    }
+
+    @Test
+    void embedsRawOptionsAsCborMap() throws Exception {
+        SignUpStartResponseV2 response = new SignUpStartResponseV2("requestId", "{\"publicKey\":{\"challenge\":\"abc\"}}");
+
+        JsonNode tree = cborMapper.readTree(cborMapper.writeValueAsBytes(response));
+
+        assertTrue(tree.get("options").isObject());
+        assertEquals("abc", tree.get("options").get("publicKey").get("challenge").asText());
+    }
+
+    @Test
+    void roundTripsPublicKeyCredentialWithBinaryFields() throws Exception {
+        SignUpFinishRequestV2 request = new SignUpFinishRequestV2(
+            "requestId",
+            PublicKeyCredential.parseRegistrationResponseJson(REGISTRATION_RESPONSE_JSON)
+        );
+
+        byte[] cbor = cborMapper.writeValueAsBytes(request);
+        JsonNode tree = cborMapper.readTree(cbor);
+        assertTrue(tree.get("publicKeyCredential").get("response").get("attestationObject").isBinary());
+
+        SignUpFinishRequestV2 decoded = cborMapper.readValue(cbor, SignUpFinishRequestV2.class);
+        assertEquals(request.publicKeyCredential(), decoded.publicKeyCredential());
+    }
+
+    private static ListPasskeysResponse passkeys(int count) {
+        List<PasskeyCredential> passkeys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            passkeys.add(new PasskeyCredential()
+                .credentialId(CREDENTIAL_ID)
+                .userHandle(USER_HANDLE)
+                .signatureCount((long) i)
+                .displayName("Passkey " + i)
+                .createdAt(Instant.parse("2025-01-01T00:00:00Z"))
+                .lastUsedAt(Instant.parse("2025-01-02T00:00:00Z")));
+        }
+        return new ListPasskeysResponse(passkeys);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.cluster;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CeremonyForwardingFilterTest {
+
+    private static final String SECRET = "peer-secret";
+
+    private final AtomicReference<String> relayedBody = new AtomicReference<>();
+    private final AtomicReference<String> relayedClient = new AtomicReference<>();
+    private HttpServer peer;
+    private CeremonyRequestIds peerIds;
+    private CeremonyForwardingFilter filter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        peer.createContext("/", exchange -> {
+            relayedBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            relayedClient.set(exchange.getRequestHeaders().getFirst(CeremonyForwardingFilter.FORWARDED_FOR_HEADER));
+            byte[] response = "{\"username\":\"alice\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set(CeremonyForwardingFilter.NODE_HEADER, "2");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        peer.start();
+
+        peerIds = new CeremonyRequestIds(cluster(2));
+        ClusterProperties properties = cluster(1);
+        properties.getForwarding().setEnabled(true);
+        properties.getForwarding().setSecret(SECRET);
+        properties.getForwarding().setNodes(Map.of(2, URI.create("http://127.0.0.1:" + peer.getAddress().getPort())));
+        filter = new CeremonyForwardingFilter(new CeremonyRequestIds(properties), properties.getForwarding());
+    }
+
+    @AfterEach
+    void tearDown() {
+        peer.stop(0);
+    }
+
+    @Test
+    void requestIds_nameTheirNodeAndApplication() {
+        CeremonyRequestIds ids = new CeremonyRequestIds(cluster(513));
+        String requestId = ids.next("app");
+
+        assertTrue(requestId.startsWith("app."));
+        assertEquals(46, requestId.length());
+        CeremonyRequestIds.Origin origin = CeremonyRequestIds.originOf(requestId);
+        assertNotNull(origin);
+        assertEquals(513, origin.nodeId());
+        assertTrue(ids.isCurrent(origin));
+        assertEquals(origin, CeremonyRequestIds.originOf(ids.next(null)));
+        assertNull(CeremonyRequestIds.originOf("app." + "ab".repeat(32)));
+    }
+
+    @Test
+    void finishForAnotherNode_isRelayedWithTheClientAddress() throws Exception {
+        String body = "{\"publicKeyCredential\":{\"id\":\"x\"},\"requestId\":\"" + peerIds.next("app") + "\"}";
+        MockHttpServletRequest request = finish("/v2/signup/finish", MediaType.APPLICATION_JSON_VALUE, body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        assertEquals("{\"username\":\"alice\"}", response.getContentAsString());
+        assertEquals("2", response.getHeader(CeremonyForwardingFilter.NODE_HEADER));
+        assertEquals(body, relayedBody.get());
+        assertEquals("203.0.113.7", relayedClient.get());
+    }
+
+    @Test
+    void cborFinishForAnotherNode_isRelayed() throws Exception {
+        byte[] body = new CBORMapper().writeValueAsBytes(Map.of("requestId", peerIds.next("app")));
+        MockHttpServletRequest request = finish("/v2/signin/finish", MediaType.APPLICATION_CBOR_VALUE, body);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(chain.getRequest());
+        assertNotNull(relayedBody.get());
+    }
+
+    @Test
+    void finishForThisNode_isHandledWithItsBodyIntact() throws Exception {
+        String body = "{\"requestId\":\"" + new CeremonyRequestIds(cluster(1)).next("app") + "\"}";
+        MockHttpServletRequest request = finish("/v1/signin/finish", MediaType.APPLICATION_JSON_VALUE, body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertNull(relayedBody.get());
+        assertEquals("1", response.getHeader(CeremonyForwardingFilter.NODE_HEADER));
+        assertEquals(body, new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void finishForThisNode_canBeReadAsynchronously() throws Exception {
+        String body = "{\"requestId\":\"" + new CeremonyRequestIds(cluster(1)).next("app") + "\"}";
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(finish("/v1/signin/finish", MediaType.APPLICATION_JSON_VALUE, body.getBytes(StandardCharsets.UTF_8)),
+            new MockHttpServletResponse(), chain);
+        ServletInputStream in = chain.getRequest().getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("data");
+                while (in.isReady() && !in.isFinished()) {
+                    read.write(in.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+
+        assertEquals(List.of("data", "done"), events);
+        assertEquals(body, read.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void failingReadListener_isToldOfItsError() throws Exception {
+        String body = "{\"requestId\":\"" + new CeremonyRequestIds(cluster(1)).next("app") + "\"}";
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(finish("/v1/signin/finish", MediaType.APPLICATION_JSON_VALUE, body.getBytes(StandardCharsets.UTF_8)),
+            new MockHttpServletResponse(), chain);
+        IOException failure = new IOException("listener failed");
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        chain.getRequest().getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                throw failure;
+            }
+
+            @Override
+            public void onAllDataRead() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error.set(t);
+            }
+        });
+
+        assertEquals(failure, error.get());
+    }
+
+    @Test
+    void relayedFinish_isNeverRelayedAgain_andKeepsTheClientAddressOnlyFromPeers() throws Exception {
+        byte[] body = ("{\"requestId\":\"" + peerIds.next("app") + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        MockHttpServletRequest fromPeer = finish("/v1/signup/finish", MediaType.APPLICATION_JSON_VALUE, body);
+        fromPeer.addHeader(CeremonyForwardingFilter.FORWARDED_HEADER, SECRET);
+        fromPeer.addHeader(CeremonyForwardingFilter.FORWARDED_FOR_HEADER, "198.51.100.1");
+        MockFilterChain peerChain = new MockFilterChain();
+        filter.doFilter(fromPeer, new MockHttpServletResponse(), peerChain);
+
+        MockHttpServletRequest spoofed = finish("/v1/signup/finish", MediaType.APPLICATION_JSON_VALUE, body);
+        spoofed.addHeader(CeremonyForwardingFilter.FORWARDED_HEADER, "guess");
+        spoofed.addHeader(CeremonyForwardingFilter.FORWARDED_FOR_HEADER, "198.51.100.1");
+        MockFilterChain spoofedChain = new MockFilterChain();
+        filter.doFilter(spoofed, new MockHttpServletResponse(), spoofedChain);
+
+        assertNull(relayedBody.get());
+        assertEquals("198.51.100.1", ((HttpServletRequest) peerChain.getRequest()).getRemoteAddr());
+        assertEquals("203.0.113.7", ((HttpServletRequest) spoofedChain.getRequest()).getRemoteAddr());
+    }
+
+    @Test
+    void unreachableOwner_isUnavailable() throws Exception {
+        peer.stop(0);
+        byte[] body = ("{\"requestId\":\"" + peerIds.next("app") + "\"}").getBytes(StandardCharsets.UTF_8);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(finish("/v1/signin/finish", MediaType.APPLICATION_JSON_VALUE, body), response, new MockFilterChain());
+
+        assertEquals(503, response.getStatus());
+    }
+
+    private static MockHttpServletRequest finish(String path, String contentType, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setContentType(contentType);
+        request.setContent(body);
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("X-Api-Key", "key");
+        return request;
+    }
+
+    private static ClusterProperties cluster(int nodeId) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setNodeId(nodeId);
+        return properties;
+    }
+}
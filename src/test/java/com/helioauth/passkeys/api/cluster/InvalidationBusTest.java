@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.cluster;
+
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.config.ClientApplicationCorsConfigurationSource;
+import com.helioauth.passkeys.api.domain.CacheInvalidation;
+import com.helioauth.passkeys.api.domain.CacheInvalidationRepository;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.service.UserAccountManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "cluster.invalidation.enabled=true",
+    "cluster.invalidation.batch-window=20ms",
+    "cluster.invalidation.poll-interval=50ms"
+})
+@ActiveProfiles("test")
+class InvalidationBusTest {
+
+    @Autowired
+    CacheInvalidationRepository cacheInvalidationRepository;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    ClientApplicationCorsConfigurationSource corsConfigurationSource;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserAccountManager userAccountManager;
+
+    @Test
+    void changeOnThisNode_isLoggedForTheOthers() throws InterruptedException {
+        ClientApplication application = clientApplicationRepository.save(
+            new ClientApplication("invalidated", UUID.randomUUID().toString()));
+        User user = userRepository.save(User.builder()
+            .name("invalidated-" + UUID.randomUUID())
+            .clientApplication(application)
+            .build());
+
+        ApplicationScope.call(application.getId(), () -> {
+            userAccountManager.deleteUser(user.getId());
+            return null;
+        });
+
+        awaitTrue(() -> !logged(CacheInvalidation.Type.USER, user.getId()).isEmpty());
+    }
+
+    @Test
+    void changeOnAnotherNode_reachesTheLocalCaches() throws InterruptedException {
+        ClientApplication application = clientApplicationRepository.save(ClientApplication.builder()
+            .name("elsewhere")
+            .apiKey(UUID.randomUUID().toString())
+            .relyingPartyHostname("elsewhere.example.com")
+            .build());
+        assertFalse(corsConfigurationSource.isAllowed("https://elsewhere.example.com"));
+
+        cacheInvalidationRepository.save(CacheInvalidation.builder()
+            .origin(42)
+            .type(CacheInvalidation.Type.CLIENT_APPLICATION)
+            .subject(application.getId())
+            .createdAt(Instant.now())
+            .build());
+
+        awaitTrue(() -> corsConfigurationSource.isAllowed("https://elsewhere.example.com"));
+        // Relayed, not logged again by this node
+        Thread.sleep(100);
+        assertEquals(1, logged(CacheInvalidation.Type.CLIENT_APPLICATION, application.getId()).size());
+    }
+
+    private List<CacheInvalidation> logged(CacheInvalidation.Type type, UUID subject) {
+        return cacheInvalidationRepository.findAll().stream()
+            .filter(invalidation -> invalidation.getType() == type && subject.equals(invalidation.getSubject()))
+            .toList();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.config.properties.CorsProperties;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClientApplicationCorsConfigurationSourceTest {
+
+    @Mock
+    private ClientApplicationRepository clientApplicationRepository;
+
+    private WebAuthnRelyingPartyProperties relyingPartyProperties;
+    private ClientApplicationCorsConfigurationSource source;
+
+    @BeforeEach
+    void setUp() {
+        CorsProperties corsProperties = new CorsProperties();
+        corsProperties.setAllowedOrigins(List.of("https://login.example.org/"));
+        corsProperties.setMaxAge(Duration.ofHours(2));
+
+        relyingPartyProperties = new WebAuthnRelyingPartyProperties();
+        relyingPartyProperties.setHostname("localhost");
+
+        when(clientApplicationRepository.findAll()).thenReturn(List.of(
+            ClientApplication.builder().name("app").relyingPartyHostname("Shop.Example.com").build(),
+            ClientApplication.builder().name("no-rp").build()
+        ));
+
+        source = new ClientApplicationCorsConfigurationSource(clientApplicationRepository, corsProperties, relyingPartyProperties);
+        source.refresh();
+    }
+
+    @Test
+    void allowsOriginsDerivedFromApplications() {
+        assertTrue(source.isAllowed("https://shop.example.com"));
+        assertTrue(source.isAllowed("https://login.example.org"));
+        assertTrue(source.isAllowed("http://localhost"));
+        assertFalse(source.isAllowed("http://shop.example.com"));
+        assertFalse(source.isAllowed("https://evil.example.com"));
+        assertFalse(source.isAllowed(null));
+    }
+
+    @Test
+    void allowsAnyPortOnlyWhenConfigured() {
+        assertFalse(source.isAllowed("https://shop.example.com:8443"));
+
+        relyingPartyProperties.setAllowOriginPort(true);
+
+        assertTrue(source.isAllowed("https://shop.example.com:8443"));
+        assertTrue(source.isAllowed("http://localhost:8081"));
+        assertFalse(source.isAllowed("http://shop.example.com:8080"));
+    }
+
+    @Test
+    void appliesOnlyToApiPathsWithLongMaxAge() {
+        CorsConfiguration configuration = source.getCorsConfiguration(new MockHttpServletRequest("POST", "/v1/signin/start"));
+
+        assertNotNull(configuration);
+        assertEquals(7200L, configuration.getMaxAge());
+        assertEquals("https://shop.example.com", configuration.checkOrigin("https://shop.example.com"));
+        assertNull(configuration.checkOrigin("https://evil.example.com"));
+        assertNull(source.getCorsConfiguration(new MockHttpServletRequest("GET", "/admin/v1/apps")));
+    }
+}
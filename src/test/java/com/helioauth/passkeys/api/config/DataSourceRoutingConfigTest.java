@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.PasskeysApiApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataSourceRoutingConfigTest {
+
+    @Test
+    void readReplicasWithSharding_failStartup() {
+        assertStartupFails("read-replicas.enabled", "sharding.enabled");
+    }
+
+    @Test
+    void readReplicasWithTenantPools_failStartup() {
+        assertStartupFails("read-replicas.enabled", "tenant-pools.enabled");
+    }
+
+    @Test
+    void shardingWithTenantPools_failsStartup() {
+        assertStartupFails("sharding.enabled", "tenant-pools.enabled");
+    }
+
+    @Test
+    void allThree_failStartup() {
+        assertStartupFails("read-replicas.enabled", "sharding.enabled", "tenant-pools.enabled");
+    }
+
+    private static void assertStartupFails(String... enabled) {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(PasskeysApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test");
+        String[] args = Arrays.stream(enabled).map(property -> "--" + property + "=true").toArray(String[]::new);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> application.run(args));
+        for (String property : enabled) {
+            assertTrue(e.getMessage().contains(property), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.config;
+
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.config.properties.TenantPoolProperties;
+import com.helioauth.passkeys.api.datasource.TenantPoolRoutingDataSource;
+import com.helioauth.passkeys.api.datasource.TenantPools;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TenantPoolConfigTest {
+
+    private static final UUID PREMIUM_APPLICATION = UUID.randomUUID();
+    private static final UUID OTHER_APPLICATION = UUID.randomUUID();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TenantPoolProperties properties = new TenantPoolProperties();
+
+    private TenantPools tenantPools;
+    private TenantPoolRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setStatementTimeout(Duration.ofSeconds(10));
+
+        TenantPoolProperties.Pool premium = new TenantPoolProperties.Pool();
+        premium.setApplications(List.of(PREMIUM_APPLICATION));
+        premium.setMaximumPoolSize(1);
+        premium.setStatementTimeout(Duration.ofSeconds(2));
+        premium.setConnectionTimeout(Duration.ofMillis(250));
+        properties.getPools().put("premium", premium);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (tenantPools != null) {
+            tenantPools.close();
+            dataSource.close();
+        }
+    }
+
+    @Test
+    void applicationsInATier_useThePoolAndStatementTimeoutOfTheTier() {
+        JdbcTemplate jdbc = new JdbcTemplate(create());
+
+        assertEquals(10, queryTimeout(jdbc));
+        assertEquals(2, ApplicationScope.call(PREMIUM_APPLICATION, () -> queryTimeout(jdbc)));
+        assertEquals(10, ApplicationScope.call(OTHER_APPLICATION, () -> queryTimeout(jdbc)));
+        assertEquals(1, transactions("premium"));
+        // The lazy proxy takes one more connection to read the defaults of the first one
+        assertEquals(3, transactions(TenantPools.SHARED));
+    }
+
+    @Test
+    void exhaustedPool_failsFast_andLeavesTheSharedPoolAlone() throws SQLException {
+        JdbcTemplate jdbc = new JdbcTemplate(create());
+
+        try (Connection held = ApplicationScope.call(PREMIUM_APPLICATION, this::openConnection)) {
+            assertEquals(1.0, meterRegistry.get("passkeys.db.pool.saturation").tag("pool", "premium").gauge().value());
+
+            assertThrows(DataAccessException.class, () -> ApplicationScope.call(PREMIUM_APPLICATION, () -> queryTimeout(jdbc)));
+            assertEquals(10, ApplicationScope.call(OTHER_APPLICATION, () -> queryTimeout(jdbc)));
+        }
+        assertEquals(2, ApplicationScope.call(PREMIUM_APPLICATION, () -> queryTimeout(jdbc)));
+    }
+
+    @Test
+    void applicationInTwoTiers_isRejected() {
+        TenantPoolProperties.Pool standard = new TenantPoolProperties.Pool();
+        standard.setApplications(List.of(PREMIUM_APPLICATION));
+        properties.getPools().put("standard", standard);
+
+        assertThrows(IllegalStateException.class, this::create);
+    }
+
+    @Test
+    void statementTimeouts_areSetPerSession() {
+        assertEquals("SET statement_timeout = 1500",
+            TenantPoolConfig.statementTimeoutSql("jdbc:postgresql://db:5432/passkeys", Duration.ofMillis(1500)));
+        assertThrows(IllegalStateException.class,
+            () -> TenantPoolConfig.statementTimeoutSql("jdbc:mysql://db/passkeys", Duration.ofSeconds(1)));
+    }
+
+    private TenantPoolRoutingDataSource create() {
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl("jdbc:h2:mem:tenant-pools-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSourceProperties.setUsername("sa");
+
+        TenantPoolConfig config = new TenantPoolConfig();
+        tenantPools = config.tenantPools(properties, dataSourceProperties, new MockEnvironment(),
+            new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry)).getBeanProvider(MeterRegistry.class));
+        tenantPools.bindTo(meterRegistry);
+        dataSource = config.tenantPoolRoutingDataSource(tenantPools);
+        return dataSource;
+    }
+
+    private Connection openConnection() {
+        try {
+            Connection connection = dataSource.getConnection();
+            // Takes the connection from the pool, which the lazy proxy only does on first use
+            connection.createStatement().close();
+            return connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Integer queryTimeout(JdbcTemplate jdbc) {
+        return jdbc.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.getQueryTimeout();
+            }
+        });
+    }
+
+    private double transactions(String pool) {
+        return meterRegistry.get("passkeys.db.pool.transactions").tag("pool", pool).counter().count();
+    }
+}
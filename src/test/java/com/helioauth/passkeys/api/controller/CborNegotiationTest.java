@@ -0,0 +1,237 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helioauth.passkeys.api.controller.dto.SignUpFinishRequestV2;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.generated.models.SignInStartRequest;
+import com.helioauth.passkeys.api.generated.models.SignUpFinishResponse;
+import com.helioauth.passkeys.api.generated.models.SignUpStartRequest;
+import com.helioauth.passkeys.api.service.UserSignupService;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CborNegotiationTest {
+
+    private static final MediaType APPLICATION_CBOR = MediaType.parseMediaType("application/cbor");
+
+    private static final String REGISTRATION_RESPONSE_JSON = """
+    {
+        "type":"public-key",
+        "id":"kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8",
+        "rawId":"kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8",
+        "authenticatorAttachment":"platform",
+        "response": {
+            "clientDataJSON":"eyJ0eXBlIjoid2ViYXV0aG4uY3JlYXRlIiwiY2hhbGxlbmdlIjoiVVdldEpneFVJbF91N0RuNnJGOF9rdk45SWVHajIyN1BjNmk1OU11VU93OCIsIm9yaWdpbiI6Imh0dHA6Ly9sb2NhbGhvc3Q6ODA4MSIsImNyb3NzT3JpZ2luIjpmYWxzZX0",
+            "attestationObject":"o2NmbXRkbm9uZWdhdHRTdG10oGhhdXRoRGF0YVikSZYN5YgOjGh0NBcPZHZgW4_krrmihjLHmVzzuoMdl2NFAAAAAQECAwQFBgcIAQIDBAUGBwgAIJFGgSPjJkYOjZkbqRjQP08dCTp8ihdamQrPRZKqQDL_pQECAyYgASFYIMri0ZKX3-DsEsvFSkRlLfXskw9KK2nS99vZmw85z_O4Ilgg4ZO7yiq0dSWs2S4CN4bBvzvWoyCjF1-F_PUWGjTcv-g",
+            "transports": ["internal"]
+        },
+        "clientExtensionResults": { "credProps": { "rk": true } }
+    }""";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserCredentialRepository userCredentialRepository;
+
+    @SpyBean
+    UserSignupService userSignupService;
+
+    ObjectMapper cborMapper;
+    ClientApplication application;
+
+    @BeforeEach
+    void setUp() {
+        cborMapper = cborHttpMessageConverter.getObjectMapper();
+        application = new ClientApplication("cbor", "cbor-api-key");
+        application.setRelyingPartyHostname("localhost");
+        application.setRelyingPartyName("CBOR");
+        application = clientApplicationRepository.save(application);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userCredentialRepository.deleteAll();
+        userRepository.deleteAll();
+        clientApplicationRepository.delete(application);
+    }
+
+    @Test
+    void signUpStartV2_readsAndWritesCbor_withOptionsAsMap() throws Exception {
+        byte[] body = mockMvc.perform(post("/v2/signup/start")
+                .header("X-App-Id", application.getId().toString())
+                .contentType(APPLICATION_CBOR)
+                .accept(APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(new SignUpStartRequest("cbor-user"))))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode response = cborMapper.readTree(body);
+        assertTrue(response.get("requestId").isTextual());
+        assertTrue(response.get("options").get("publicKey").isObject());
+    }
+
+    @Test
+    void signInStartV1_readsAndWritesCbor_withOptionsAsJsonString() throws Exception {
+        byte[] body = mockMvc.perform(post("/v1/signin/start")
+                .header("X-App-Id", application.getId().toString())
+                .contentType(APPLICATION_CBOR)
+                .accept(APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(new SignInStartRequest("cbor-user"))))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode response = cborMapper.readTree(body);
+        assertTrue(response.get("requestId").isTextual());
+        assertTrue(response.get("options").isTextual());
+    }
+
+    @Test
+    void signUpFinishV2_readsBinaryCredentialFromCbor() throws Exception {
+        SignUpFinishRequestV2 request = new SignUpFinishRequestV2(
+            "cbor-request",
+            PublicKeyCredential.parseRegistrationResponseJson(REGISTRATION_RESPONSE_JSON)
+        );
+        UUID userId = UUID.randomUUID();
+        doReturn(new SignUpFinishResponse("cbor-request", userId))
+            .when(userSignupService).finishRegistration(eq("cbor-request"), eq(request.publicKeyCredential()));
+
+        byte[] body = mockMvc.perform(post("/v2/signup/finish")
+                .header("X-Api-Key", application.getApiKey())
+                .contentType(APPLICATION_CBOR)
+                .accept(APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(request)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        verify(userSignupService).finishRegistration(eq("cbor-request"), eq(request.publicKeyCredential()));
+        assertEquals(userId, cborMapper.readValue(body, SignUpFinishResponse.class).getUserId());
+    }
+
+    @Test
+    void listCredentials_writesCredentialIdsAsByteStrings() throws Exception {
+        User user = userWithCredential("listed");
+
+        byte[] body = mockMvc.perform(get("/v1/users/{uuid}/credentials", user.getId())
+                .header("X-Api-Key", application.getApiKey())
+                .accept(APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode passkey = cborMapper.readTree(body).get("passkeys").get(0);
+        assertTrue(passkey.get("credentialId").isBinary());
+        assertTrue(passkey.get("userHandle").isBinary());
+    }
+
+    @Test
+    void listCredentials_staysJson_withoutAccept() throws Exception {
+        User user = userWithCredential("listed");
+
+        mockMvc.perform(get("/v1/users/{uuid}/credentials", user.getId())
+                .header("X-Api-Key", application.getApiKey()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void unsupportedAccept_isNotAcceptable() throws Exception {
+        mockMvc.perform(post("/v1/signin/start")
+                .header("X-App-Id", application.getId().toString())
+                .contentType(APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_XML)
+                .content(cborMapper.writeValueAsBytes(new SignInStartRequest("cbor-user"))))
+            .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void unsupportedContentType_isUnsupportedMediaType() throws Exception {
+        mockMvc.perform(post("/v1/signin/start")
+                .header("X-App-Id", application.getId().toString())
+                .contentType(MediaType.APPLICATION_XML)
+                .accept(APPLICATION_CBOR)
+                .content("<name>cbor-user</name>"))
+            .andExpect(status().isUnsupportedMediaType());
+    }
+
+    private User userWithCredential(String name) {
+        User user = userRepository.save(User.builder()
+            .name(name)
+            .displayName(name)
+            .clientApplication(application)
+            .build());
+        byte[] credentialId = new byte[32];
+        credentialId[0] = 1;
+        userCredentialRepository.save(UserCredential.builder()
+            .user(user)
+            .clientApplication(application)
+            .credentialId(Base64.getEncoder().encodeToString(credentialId))
+            .userHandle(Base64.getEncoder().encodeToString(new byte[32]))
+            .publicKeyCose("pQECAyYgASFYIA")
+            .signatureCount(0L)
+            .createdAt(Instant.now())
+            .build());
+        return user;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.controller;
+
+import com.helioauth.passkeys.api.service.UserSignInService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs on a real port, so that the address seen by the controller is the one Tomcat resolved.
+ * Requests from the test come from the loopback address, which is a trusted proxy by default.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ClientAddressTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private UserSignInService userSignInService;
+
+    @Test
+    void signInFinish_behindTrustedProxy_usesForwardedClientAddress() {
+        assertEquals(HttpStatus.OK, finishSignIn("203.0.113.7").getStatusCode());
+
+        verify(userSignInService).finishAssertion(eq("request"), anyString(), eq("203.0.113.7"));
+    }
+
+    @Test
+    void signInFinish_ignoresAddressesPrependedByTheClient() {
+        finishSignIn("198.51.100.1, 203.0.113.7");
+
+        verify(userSignInService).finishAssertion(eq("request"), anyString(), eq("203.0.113.7"));
+    }
+
+    @Test
+    void signInFinish_withoutForwardedHeader_usesPeerAddress() {
+        finishSignIn(null);
+
+        verify(userSignInService).finishAssertion(eq("request"), anyString(), eq("127.0.0.1"));
+    }
+
+    private ResponseEntity<String> finishSignIn(String forwardedFor) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (forwardedFor != null) {
+            headers.set("X-Forwarded-For", forwardedFor);
+        }
+        return restTemplate.postForEntity("/v1/signin/finish",
+            new HttpEntity<>("{\"requestId\":\"request\",\"publicKeyCredentialWithAssertion\":\"{}\"}", headers),
+            String.class);
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 
+import static com.helioauth.passkeys.api.datasource.QueryBudgetMatchers.atMostStatements;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -37,7 +38,8 @@ class ClientApplicationControllerTest {
         mockMvc.perform(
             get("/admin/v1/apps")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
-        ).andExpect(status().isUnauthorized());
+        ).andExpect(status().isUnauthorized())
+            .andExpect(atMostStatements(0));
     }
 
     @Test
@@ -48,7 +50,8 @@ class ClientApplicationControllerTest {
             get("/admin/v1/apps")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .header("X-Api-Key", "wrongapikey")
-        ).andExpect(status().isUnauthorized());
+        ).andExpect(status().isUnauthorized())
+            .andExpect(atMostStatements(0));
     }
 
     @Test
@@ -59,6 +62,7 @@ class ClientApplicationControllerTest {
             get("/admin/v1/apps")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .header("X-Api-Key", "testapikey")
-        ).andExpect(status().isOk());
+        ).andExpect(status().isOk())
+            .andExpect(atMostStatements(0));
     }
 }
\ No newline at end of file
@@ -45,8 +45,11 @@ import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.helioauth.passkeys.api.datasource.QueryBudgetMatchers.atMostStatements;
+import static com.helioauth.passkeys.api.datasource.QueryBudgetMatchers.atMostWrites;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -63,6 +66,10 @@ class CredentialsControllerTest {
     public static final String PATH_SIGNIN_START = "/v1/signin/start";
     public static final String PATH_SIGNIN_FINISH = "/v1/signin/finish";
 
+    public static final String PATH_SIGNUP_START_V2 = "/v2/signup/start";
+    public static final String PATH_SIGNUP_FINISH_V2 = "/v2/signup/finish";
+    public static final String PATH_SIGNIN_START_V2 = "/v2/signin/start";
+
     public static final UUID TEST_APP_ID = UUID.randomUUID();
     public static final ClientApplication TEST_APP = ClientApplication.builder()
         .id(TEST_APP_ID)
@@ -123,7 +130,9 @@ class CredentialsControllerTest {
                 .header(X_APP_ID, TEST_APP_ID.toString())
                 .contentType("application/json")
                 .content(requestJson)
-            ).andExpect(status().isOk());
+            ).andExpect(status().isOk())
+            .andExpect(atMostStatements(3))
+            .andExpect(atMostWrites(0));
     }
 
     @Test
@@ -131,6 +140,7 @@ class CredentialsControllerTest {
         userRepository.save(User.builder()
             .name("test")
             .displayName("test")
+            .clientApplication(TEST_APP)
             .build());
 
         SignUpStartRequest request = new SignUpStartRequest("test");
@@ -141,7 +151,9 @@ class CredentialsControllerTest {
             .header(X_APP_ID, TEST_APP_ID.toString())
             .contentType("application/json")
             .content(requestJson)
-        ).andExpect(status().isBadRequest()); // Expect 400 Bad Request for existing user
+        ).andExpect(status().isBadRequest()) // Expect 400 Bad Request for existing user
+            .andExpect(atMostStatements(3))
+            .andExpect(atMostWrites(0));
     }
 
     @Test
@@ -150,7 +162,8 @@ class CredentialsControllerTest {
             .header(X_APP_ID, UUID.randomUUID().toString())
             .contentType("application/json")
             .content("{}")
-        ).andExpect(status().isUnauthorized());
+        ).andExpect(status().isUnauthorized())
+            .andExpect(atMostStatements(0));
     }
 
     @Test
@@ -162,7 +175,9 @@ class CredentialsControllerTest {
             .header(X_API_KEY, TEST_APP.getApiKey())
             .contentType("application/json")
             .content(requestJson)
-        ).andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
+        ).andExpect(status().is(HttpStatus.BAD_REQUEST.value()))
+            .andExpect(atMostStatements(6))
+            .andExpect(atMostWrites(0));
     }
 
     @Test
@@ -171,7 +186,8 @@ class CredentialsControllerTest {
             .header(X_API_KEY, "invalid api key")
             .contentType("application/json")
             .content("{}")
-        ).andExpect(status().isUnauthorized());
+        ).andExpect(status().isUnauthorized())
+            .andExpect(atMostStatements(0));
     }
 
     @Test
@@ -181,8 +197,76 @@ class CredentialsControllerTest {
         String requestJson = objectMapper.writeValueAsString(request);
 
         mockMvc.perform(post(PATH_SIGNIN_START)
+            .header(X_APP_ID, TEST_APP_ID.toString())
+            .contentType("application/json")
+            .content(requestJson)
+        ).andExpect(status().isOk())
+            .andExpect(atMostStatements(4))
+            .andExpect(atMostWrites(0));
+    }
+
+    @Test
+    void postSignInStart_withoutAppId_isUnauthorized() throws Exception {
+        mockMvc.perform(post(PATH_SIGNIN_START)
+            .contentType("application/json")
+            .content(objectMapper.writeValueAsString(new SignInStartRequest("test")))
+        ).andExpect(status().isUnauthorized())
+            .andExpect(atMostStatements(0));
+    }
+
+    @Test
+    void postSignUpStartV2_returnsOptionsAsObject() throws Exception {
+        SignUpStartRequest request = new SignUpStartRequest("test");
+
+        mockMvc.perform(post(PATH_SIGNUP_START_V2)
+            .header(X_APP_ID, TEST_APP_ID.toString())
+            .contentType("application/json")
+            .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk())
+            .andExpect(jsonPath("$.requestId").isString())
+            .andExpect(jsonPath("$.options.publicKey.rp.id").value("localhost"))
+            .andExpect(atMostStatements(3))
+            .andExpect(atMostWrites(0));
+    }
+
+    @Test
+    void postSignUpFinishV2_unknownRequest() throws Exception {
+        String requestJson = """
+            {
+                "requestId": "requestId",
+                "publicKeyCredential": {
+                    "type": "public-key",
+                    "id": "kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8",
+                    "rawId": "kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8",
+                    "response": {
+                        "clientDataJSON": "eyJ0eXBlIjoid2ViYXV0aG4uY3JlYXRlIn0",
+                        "attestationObject": "o2NmbXRkbm9uZQ"
+                    },
+                    "clientExtensionResults": {}
+                }
+            }""";
+
+        mockMvc.perform(post(PATH_SIGNUP_FINISH_V2)
+            .header(X_API_KEY, TEST_APP.getApiKey())
             .contentType("application/json")
             .content(requestJson)
-        ).andExpect(status().isOk());
+        ).andExpect(status().is(HttpStatus.BAD_REQUEST.value()))
+            .andExpect(atMostStatements(6))
+            .andExpect(atMostWrites(0));
+    }
+
+    @Test
+    void postSignInStartV2_returnsOptionsAsObject() throws Exception {
+        SignInStartRequest request = new SignInStartRequest("test");
+
+        mockMvc.perform(post(PATH_SIGNIN_START_V2)
+            .header(X_APP_ID, TEST_APP_ID.toString())
+            .contentType("application/json")
+            .content(objectMapper.writeValueAsString(request))
+        ).andExpect(status().isOk())
+            .andExpect(jsonPath("$.accountExists").value(false))
+            .andExpect(jsonPath("$.options.publicKey.challenge").isString())
+            .andExpect(atMostStatements(4))
+            .andExpect(atMostWrites(0));
     }
 }
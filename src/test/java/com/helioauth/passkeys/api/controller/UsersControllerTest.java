@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.controller;
+
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static com.helioauth.passkeys.api.datasource.QueryBudgetMatchers.atMostStatements;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UsersControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    ClientApplication owner;
+    ClientApplication other;
+    User user;
+
+    @BeforeEach
+    void setUp() {
+        owner = clientApplicationRepository.save(new ClientApplication("owner", "owner-api-key"));
+        other = clientApplicationRepository.save(new ClientApplication("other", "other-api-key"));
+        user = userRepository.save(User.builder()
+            .name("owned-" + UUID.randomUUID())
+            .clientApplication(owner)
+            .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        clientApplicationRepository.delete(owner);
+        clientApplicationRepository.delete(other);
+    }
+
+    @Test
+    void getUserCredentials_unauthorized_withoutApiKey() throws Exception {
+        mockMvc.perform(get("/v1/users/{uuid}/credentials", user.getId()))
+            .andExpect(status().isUnauthorized())
+            .andExpect(atMostStatements(0));
+    }
+
+    @Test
+    void getUserCredentials_ok_forUserOfTheCallingApplication() throws Exception {
+        mockMvc.perform(get("/v1/users/{uuid}/credentials", user.getId()).header("X-Api-Key", owner.getApiKey()))
+            .andExpect(status().isOk())
+            .andExpect(atMostStatements(3))
+            .andExpect(jsonPath("$.passkeys").isEmpty());
+    }
+
+    @Test
+    void getUserCredentials_notFound_forUserOfAnotherApplication() throws Exception {
+        mockMvc.perform(get("/v1/users/{uuid}/credentials", user.getId()).header("X-Api-Key", other.getApiKey()))
+            .andExpect(status().isNotFound())
+            .andExpect(atMostStatements(3));
+    }
+
+    @Test
+    void deleteUser_notFound_forUserOfAnotherApplication() throws Exception {
+        mockMvc.perform(delete("/v1/users/{uuid}", user.getId()).header("X-Api-Key", other.getApiKey()))
+            .andExpect(status().isNotFound())
+            .andExpect(atMostStatements(2));
+
+        assertTrue(userRepository.existsById(user.getId()));
+    }
+
+    @Test
+    void deleteUser_deletesUserOfTheCallingApplication() throws Exception {
+        mockMvc.perform(delete("/v1/users/{uuid}", user.getId()).header("X-Api-Key", owner.getApiKey()))
+            .andExpect(status().isNoContent())
+            .andExpect(atMostStatements(5));
+
+        assertTrue(userRepository.findById(user.getId()).isEmpty());
+    }
+}
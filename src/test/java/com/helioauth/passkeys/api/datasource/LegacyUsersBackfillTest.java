@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LegacyUsersBackfillTest {
+
+    @Autowired
+    LegacyUsersBackfill legacyUsersBackfill;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserCredentialRepository userCredentialRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    ClientApplication application;
+
+    @BeforeEach
+    void setUp() {
+        application = clientApplicationRepository.save(new ClientApplication("legacy", "legacy-api-key"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userCredentialRepository.deleteAll();
+        userRepository.deleteAll();
+        clientApplicationRepository.delete(application);
+    }
+
+    @Test
+    void usersOfNoApplication_moveIntoTheConfiguredOne_withTheirCredentials() {
+        User legacy = userWithCredential("dave", null);
+
+        legacyUsersBackfill.backfill(application.getId());
+
+        assertEquals(application.getId(), applicationOfUser(legacy.getId()));
+        assertEquals(application.getId(), applicationOfCredentialsOf(legacy.getId()));
+    }
+
+    @Test
+    void usersWhoseNameIsTaken_stayWhereTheyAre() {
+        User legacy = userWithCredential("erin", null);
+        userWithCredential("erin", application);
+
+        legacyUsersBackfill.backfill(application.getId());
+
+        assertNull(applicationOfUser(legacy.getId()));
+        assertNull(applicationOfCredentialsOf(legacy.getId()));
+    }
+
+    @Test
+    void credentialsWithoutApplication_takeTheOneOfTheirUser() {
+        User user = userWithCredential("frank", application);
+        jdbcTemplate.update("UPDATE user_credentials SET application_id = NULL WHERE user_id = ?", user.getId());
+
+        legacyUsersBackfill.backfill(null);
+
+        assertEquals(application.getId(), applicationOfCredentialsOf(user.getId()));
+    }
+
+    @Test
+    void unknownApplication_movesNoUsers() {
+        User legacy = userWithCredential("grace", null);
+
+        legacyUsersBackfill.backfill(UUID.randomUUID());
+
+        assertNull(applicationOfUser(legacy.getId()));
+    }
+
+    private UUID applicationOfUser(UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT application_id FROM users WHERE id = ?", UUID.class, userId);
+    }
+
+    private UUID applicationOfCredentialsOf(UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT application_id FROM user_credentials WHERE user_id = ?", UUID.class, userId);
+    }
+
+    private User userWithCredential(String name, ClientApplication owner) {
+        User user = userRepository.save(User.builder().name(name).displayName(name).clientApplication(owner).build());
+        userCredentialRepository.save(UserCredential.builder()
+            .user(user)
+            .clientApplication(owner)
+            .userHandle(ShardKeys.randomUserHandle().getBase64())
+            .credentialId(ShardKeys.randomUserHandle().getBase64())
+            .publicKeyCose("pQECAyYgASFYIA")
+            .signatureCount(0L)
+            .createdAt(Instant.now())
+            .build());
+        return user;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedTablesTest {
+
+    private static final List<PartitionedTables.Column> USERS = List.of(
+        new PartitionedTables.Column("id", "uuid", false),
+        new PartitionedTables.Column("name", "varchar(255)", true),
+        new PartitionedTables.Column("application_id", "uuid", true)
+    );
+
+    private static final List<PartitionedTables.Column> CREDENTIALS = List.of(
+        new PartitionedTables.Column("id", "bigint", false),
+        new PartitionedTables.Column("user_handle", "varchar(255)", true),
+        new PartitionedTables.Column("credential_id", "varchar(255)", true),
+        new PartitionedTables.Column("user_id", "uuid", false),
+        new PartitionedTables.Column("application_id", "uuid", true)
+    );
+
+    @Test
+    void createsUsersPartitionedByApplication() {
+        List<String> ddl = PartitionedTables.users(PartitionedTables.State.ABSENT, USERS, Set.of());
+
+        assertEquals("create table users (id uuid not null, name varchar(255), application_id uuid) "
+            + "partition by list (application_id)", ddl.get(0));
+        assertEquals("create table users_default partition of users default", ddl.get(1));
+        assertEquals("alter table users_default add primary key (id)", ddl.get(2));
+    }
+
+    @Test
+    void createsCredentialsPartitionedByUserHandle() {
+        List<String> ddl = PartitionedTables.credentials(PartitionedTables.State.ABSENT, CREDENTIALS, Set.of(), 4);
+
+        assertEquals("create table user_credentials (id bigint not null, user_handle varchar(255), "
+            + "credential_id varchar(255), user_id uuid not null, application_id uuid, primary key (id, user_handle)) "
+            + "partition by hash (user_handle)", ddl.get(0));
+        assertEquals("create table user_credentials_p3 partition of user_credentials "
+            + "for values with (modulus 4, remainder 3)", ddl.get(4));
+        assertTrue(ddl.contains("create index if not exists user_credentials_application_id_user_handle_idx "
+            + "on user_credentials (application_id, user_handle, credential_id)"));
+    }
+
+    @Test
+    void convertsPlainTables() {
+        List<String> users = PartitionedTables.users(PartitionedTables.State.PLAIN, USERS, Set.of("id", "name"));
+        List<String> credentials = PartitionedTables.credentials(PartitionedTables.State.PLAIN, CREDENTIALS,
+            Set.of("id", "user_handle", "credential_id", "user_id"), 2);
+
+        assertEquals(List.of(
+            "alter table users add column application_id uuid",
+            "alter table users rename to users_default"
+        ), users.subList(0, 2));
+        assertEquals("alter table users attach partition users_default default", users.get(3));
+        assertEquals("alter table user_credentials rename to user_credentials_unpartitioned", credentials.get(0));
+        assertEquals("insert into user_credentials (id, user_handle, credential_id, user_id) "
+            + "select id, user_handle, credential_id, user_id from user_credentials_unpartitioned", credentials.get(4));
+        assertEquals("drop table user_credentials_unpartitioned", credentials.get(5));
+    }
+
+    @Test
+    void addsColumnsMappedSinceToPartitionedTables() {
+        List<String> ddl = PartitionedTables.users(PartitionedTables.State.PARTITIONED, USERS, Set.of("id", "application_id"));
+
+        assertEquals("alter table users add column name varchar(255)", ddl.getFirst());
+        assertEquals(3, ddl.size());
+    }
+
+    @Test
+    void namesPartitionsAfterTheApplication() {
+        assertEquals("users_0f8fad5bd9cb469fa16570867728950e",
+            PartitionedTables.usersPartition(UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e")));
+    }
+}
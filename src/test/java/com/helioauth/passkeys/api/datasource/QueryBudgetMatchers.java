@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc matchers over the statements a request executed, e.g.
+ * {@code mockMvc.perform(...).andExpect(atMostStatements(3))}.
+ */
+public final class QueryBudgetMatchers {
+
+    private QueryBudgetMatchers() {
+    }
+
+    public static ResultMatcher atMostStatements(int max) {
+        return result -> {
+            QueryStatistics statistics = statistics(result.getRequest().getAttribute(QueryBudgetFilter.STATISTICS_ATTRIBUTE));
+            assertTrue(statistics.getStatements() <= max,
+                () -> "Expected at most " + max + " statements but the request executed " + statistics);
+        };
+    }
+
+    public static ResultMatcher atMostWrites(int max) {
+        return result -> {
+            QueryStatistics statistics = statistics(result.getRequest().getAttribute(QueryBudgetFilter.STATISTICS_ATTRIBUTE));
+            assertTrue(statistics.getWrites() <= max,
+                () -> "Expected at most " + max + " writes but the request executed " + statistics);
+        };
+    }
+
+    private static QueryStatistics statistics(Object attribute) {
+        assertNotNull(attribute, "No query statistics recorded; is query-budget.enabled false?");
+        return (QueryStatistics) attribute;
+    }
+}
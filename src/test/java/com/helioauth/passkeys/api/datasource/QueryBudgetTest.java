@@ -0,0 +1,157 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static com.helioauth.passkeys.api.datasource.QueryBudgetMatchers.atMostStatements;
+import static com.helioauth.passkeys.api.datasource.QueryBudgetMatchers.atMostWrites;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserCredentialRepository userCredentialRepository;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    ClientApplication application;
+
+    @BeforeEach
+    void setUp() {
+        application = clientApplicationRepository.save(new ClientApplication("query-budget", "query-budget-api-key"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userCredentialRepository.deleteAll();
+        userRepository.deleteAll();
+        clientApplicationRepository.delete(application);
+    }
+
+    @Test
+    void signInStart_staysWithinBudget_regardlessOfCredentialCount() throws Exception {
+        userWithCredentials("one-credential", 1);
+        userWithCredentials("many-credentials", 8);
+
+        mockMvc.perform(signInStart("one-credential"))
+            .andExpect(status().isOk())
+            .andExpect(atMostStatements(4))
+            .andExpect(atMostWrites(0));
+        mockMvc.perform(signInStart("many-credentials"))
+            .andExpect(status().isOk())
+            .andExpect(atMostStatements(4))
+            .andExpect(atMostWrites(0));
+    }
+
+    @Test
+    void listCredentials_isASingleStatementAfterAuthentication() throws Exception {
+        User user = userWithCredentials("listed", 4);
+
+        mockMvc.perform(get("/v1/users/" + user.getId() + "/credentials").header("X-Api-Key", application.getApiKey()))
+            .andExpect(status().isOk())
+            .andExpect(atMostStatements(2));
+    }
+
+    @Test
+    void finishedRequests_arePublishedAsMetrics() throws Exception {
+        mockMvc.perform(signInStart("metrics"))
+            .andExpect(status().isOk());
+
+        DistributionSummary summary = meterRegistry.find("passkeys.db.statements")
+            .tag("operation", "POST /v1/signin/start")
+            .summary();
+        assertNotNull(summary);
+        assertTrue(summary.count() > 0);
+    }
+
+    @Test
+    void nestedScopes_countTowardsEveryOpenScope() {
+        try (QueryStatistics.Scope outer = QueryStatistics.open()) {
+            userRepository.count();
+            try (QueryStatistics.Scope inner = QueryStatistics.open()) {
+                userRepository.count();
+                assertEquals(1, inner.statistics().getStatements());
+            }
+            userRepository.count();
+            assertEquals(3, outer.statistics().getStatements());
+            assertEquals(3, outer.statistics().getSelects());
+        }
+    }
+
+    private MockHttpServletRequestBuilder signInStart(String name) {
+        return post("/v1/signin/start")
+            .header("X-App-Id", application.getId().toString())
+            .contentType("application/json")
+            .content("{\"name\":\"" + name + "\"}");
+    }
+
+    private User userWithCredentials(String name, int credentials) {
+        User user = userRepository.save(User.builder().name(name).displayName(name).clientApplication(application).build());
+        String userHandle = Base64.getEncoder().encodeToString(UUID.randomUUID().toString().getBytes());
+        for (int i = 0; i < credentials; i++) {
+            userCredentialRepository.save(UserCredential.builder()
+                .user(user)
+                .clientApplication(application)
+                .userHandle(userHandle)
+                .credentialId(Base64.getEncoder().encodeToString(UUID.randomUUID().toString().getBytes()))
+                .publicKeyCose("pQECAyYgASFYIA")
+                .signatureCount(0L)
+                .createdAt(Instant.now())
+                .build());
+        }
+        return user;
+    }
+}
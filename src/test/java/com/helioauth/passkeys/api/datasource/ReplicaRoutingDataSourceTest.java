@@ -0,0 +1,185 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.ReadReplicaProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReadReplicaProperties properties = new ReadReplicaProperties();
+
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMaxLag(Duration.ofSeconds(5));
+        properties.setLagQuery("SELECT seconds FROM replica_lag");
+
+        primary = database("primary");
+        replica = database("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+        new JdbcTemplate(replica).execute("INSERT INTO replica_lag VALUES (0.5)");
+    }
+
+    @Test
+    void readOnlyTransactions_readFromTheReplica() {
+        ReplicaRouter router = router(Map.of("replica-0", replica));
+        Reads reads = new Reads(new ReplicaRoutingDataSource(primary, router));
+
+        assertEquals("replica", reads.readOnly());
+        assertEquals("primary", reads.readWrite());
+        assertEquals("primary", reads.withoutTransaction());
+        assertEquals("primary", reads.readOnlyInsideReadWrite());
+        assertEquals(1, reads("replica-0"));
+        assertEquals(0.5, meterRegistry.get("passkeys.db.replica.lag").tag("replica", "replica-0").gauge().value());
+    }
+
+    @Test
+    void spreadsReadsOverTheReplicas() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        replicas.put("replica-1", replica);
+        Reads reads = new Reads(new ReplicaRoutingDataSource(primary, router(replicas)));
+
+        for (int i = 0; i < 10; i++) {
+            reads.readOnly();
+        }
+
+        assertEquals(5, reads("replica-0"));
+        assertEquals(5, reads("replica-1"));
+    }
+
+    @Test
+    void laggingReplica_getsNoReadsUntilItCatchesUp() {
+        ReplicaRouter router = router(Map.of("replica-0", replica));
+        Reads reads = new Reads(new ReplicaRoutingDataSource(primary, router));
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 30");
+        router.check();
+        assertEquals("primary", reads.readOnly());
+        assertEquals(1, reads(ReplicaRouter.PRIMARY));
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = NULL");
+        router.check();
+        assertEquals("replica", reads.readOnly());
+    }
+
+    @Test
+    void unreachableReplica_fallsBackToThePrimary() throws SQLException {
+        DataSource unreachable = mock(DataSource.class);
+        when(unreachable.getConnection())
+            .thenReturn(replica.getConnection())
+            .thenThrow(new SQLException("Connection refused"));
+        ReplicaRouter router = router(Map.of("replica-0", unreachable));
+        Reads reads = new Reads(new ReplicaRoutingDataSource(primary, router));
+
+        assertEquals("primary", reads.readOnly());
+        assertEquals("primary", reads.readOnly());
+        assertEquals(0, reads("replica-0"));
+        assertEquals(2, reads(ReplicaRouter.PRIMARY));
+        assertEquals(Double.NaN, meterRegistry.get("passkeys.db.replica.lag").tag("replica", "replica-0").gauge().value());
+    }
+
+    @Test
+    void recentlyWrittenUsers_areReadFromThePrimary() {
+        ReplicaRouter router = router(Map.of("replica-0", replica));
+        Reads reads = new Reads(new ReplicaRoutingDataSource(primary, router));
+        ReadYourWrites readYourWrites = new ReadYourWrites(properties);
+
+        readYourWrites.recordWrite("alice");
+
+        assertEquals("primary", readYourWrites.read("alice", reads::readOnly));
+        assertEquals("replica", readYourWrites.read("bob", reads::readOnly));
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(reads::readOnly));
+    }
+
+    private ReplicaRouter router(Map<String, DataSource> replicas) {
+        ReplicaRouter router = new ReplicaRouter(replicas, properties);
+        router.bindTo(meterRegistry);
+        router.check();
+        return router;
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("passkeys.db.reads").tag("target", target).counter().count();
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE source (name VARCHAR(16))");
+        jdbc.update("INSERT INTO source VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static final class Reads {
+
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        private Reads(DataSource dataSource) {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+            this.readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String readOnly() {
+            return readOnly.execute(status -> source());
+        }
+
+        String readWrite() {
+            return readWrite.execute(status -> source());
+        }
+
+        String readOnlyInsideReadWrite() {
+            return readWrite.execute(status -> readOnly());
+        }
+
+        String withoutTransaction() {
+            return source();
+        }
+
+        private String source() {
+            return jdbc.queryForObject("SELECT name FROM source", String.class);
+        }
+    }
+}
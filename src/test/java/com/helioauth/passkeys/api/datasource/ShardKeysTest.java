@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.yubico.webauthn.data.ByteArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardKeysTest {
+
+    private final ShardKeys keys = new ShardKeys("secret");
+
+    @Test
+    void bucketOfUsername_isStable() {
+        // Moving buckets between shards relies on this never changing
+        assertEquals(keys.bucketOf("alice@example.com"), new ShardKeys("secret").bucketOf("alice@example.com"));
+        // HMAC-SHA256("secret", "123456789") starts with e9f1f915
+        assertEquals(0xE9F1F915L % ShardKeys.BUCKETS, keys.bucketOf("123456789"));
+    }
+
+    @Test
+    void bucketOfUsername_dependsOnTheSecret() {
+        ShardKeys otherKeys = new ShardKeys("other secret");
+
+        assertFalse(IntStream.range(0, 20).allMatch(i -> keys.bucketOf("user-" + i) == otherKeys.bucketOf("user-" + i)));
+    }
+
+    @Test
+    void newUserHandle_carriesTheBucketOfTheUser() {
+        ByteArray handle = keys.newUserHandle("alice@example.com");
+
+        assertEquals(32, handle.size());
+        assertEquals(keys.bucketOf("alice@example.com"), ShardKeys.bucketOf(handle));
+        assertNotEquals(handle, keys.newUserHandle("alice@example.com"));
+    }
+
+    @Test
+    void usersAreNotSharded_getRandomHandles() {
+        Shards shards = new Shards(new ShardingProperties(), null);
+
+        ByteArray handle = shards.newUserHandle("alice@example.com");
+
+        assertEquals(32, handle.size());
+        assertEquals(-1, ShardKeys.bucketOf(handle));
+    }
+
+    @Test
+    void shardingWithoutBucketSecret_isRejected() {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+
+        assertThrows(IllegalStateException.class, () -> new Shards(properties, null));
+    }
+
+    @Test
+    void handlesWithoutBucket_areRecognised() {
+        byte[] random = new byte[32];
+        random[0] = 1;
+
+        assertEquals(-1, ShardKeys.bucketOf(new ByteArray(random)));
+        assertEquals(-1, ShardKeys.bucketOf(new ByteArray(new byte[64])));
+        assertEquals(-1, ShardKeys.bucketOf(new ByteArray(new byte[]{(byte) 0xA5, 0x5A, 0x01, (byte) 0xFF, (byte) 0xFF})));
+    }
+
+    @Test
+    void assignBuckets_leavesUnlistedBucketsOnShardZero() {
+        Map<String, Integer> ranges = new LinkedHashMap<>();
+        ranges.put("512-1023", 1);
+        ranges.put("7", 2);
+
+        int[] shardOfBucket = Shards.assignBuckets(ranges, 3);
+
+        assertEquals(0, shardOfBucket[0]);
+        assertEquals(0, shardOfBucket[511]);
+        assertEquals(2, shardOfBucket[7]);
+        assertArrayEquals(new int[]{1, 1}, new int[]{shardOfBucket[512], shardOfBucket[1023]});
+    }
+
+    @Test
+    void assignBuckets_rejectsUnknownShardsAndRanges() {
+        assertThrows(IllegalStateException.class, () -> Shards.assignBuckets(Map.of("0-9", 3), 3));
+        assertThrows(IllegalStateException.class, () -> Shards.assignBuckets(Map.of("512-1024", 1), 3));
+        assertThrows(IllegalStateException.class, () -> Shards.assignBuckets(Map.of("9-0", 1), 3));
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.datasource;
+
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.generated.models.ListPasskeysResponse;
+import com.helioauth.passkeys.api.service.UserAccountManager;
+import com.helioauth.passkeys.api.service.UserCredentialManager;
+import com.helioauth.passkeys.api.service.exception.UserNotFoundException;
+import com.helioauth.passkeys.api.webauthn.DatabaseCredentialRepository;
+import com.yubico.webauthn.data.ByteArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "sharding.enabled=true",
+    "sharding.bucket-secret=sharding-test",
+    "sharding.shards[0].url=jdbc:h2:mem:sharding-test-1;DB_CLOSE_DELAY=-1",
+    "sharding.shards[0].username=sa",
+    "sharding.shards[1].url=jdbc:h2:mem:sharding-test-2;DB_CLOSE_DELAY=-1",
+    "sharding.shards[1].username=sa",
+    "sharding.buckets.341-681=1",
+    "sharding.buckets.682-1023=2"
+})
+@ActiveProfiles("test")
+class ShardingTest {
+
+    private static final ShardKeys KEYS = new ShardKeys("sharding-test");
+
+    @Autowired
+    Shards shards;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserCredentialRepository userCredentialRepository;
+
+    @Autowired
+    DatabaseCredentialRepository credentialRepository;
+
+    @Autowired
+    UserCredentialManager userCredentialManager;
+
+    @Autowired
+    UserAccountManager userAccountManager;
+
+    @Autowired
+    LegacyUsersBackfill legacyUsersBackfill;
+
+    ClientApplication application;
+
+    @BeforeEach
+    void setUp() {
+        application = clientApplicationRepository.save(new ClientApplication("sharded", "sharded-api-key"));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        clientApplicationRepository.delete(application);
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            JdbcTemplate jdbc = shard(shard);
+            jdbc.update("DELETE FROM user_credentials");
+            jdbc.update("DELETE FROM users");
+        }
+        shard(0).update("DELETE FROM user_handle_directory");
+    }
+
+    @Test
+    void usersAreStoredOnTheShardOfTheirBucket() throws SQLException {
+        for (int i = 0; i < 30; i++) {
+            String name = "user-" + i;
+            userWithCredential(name, shards.newUserHandle(name));
+        }
+
+        for (int i = 0; i < 30; i++) {
+            String name = "user-" + i;
+            int expected = Math.min(KEYS.bucketOf(name) / 341, 2);
+            assertEquals(expected, shards.shardOf(name));
+            assertEquals(1, countUsers(expected, name), name);
+        }
+    }
+
+    @Test
+    void findsUsersByNameAndByUserHandle() {
+        String name = nameOnShard(2);
+        ByteArray userHandle = shards.newUserHandle(name);
+        UserCredential credential = userWithCredential(name, userHandle);
+
+        assertEquals(Optional.of(userHandle), inApplication(() -> credentialRepository.getUserHandleForUsername(name)));
+        assertEquals(1, inApplication(() -> credentialRepository.getCredentialIdsForUsername(name)).size());
+        assertEquals(Optional.of(name), inApplication(() -> credentialRepository.getUsernameForUserHandle(userHandle)));
+        assertTrue(inApplication(() -> credentialRepository.lookup(ByteArray.fromBase64(credential.getCredentialId()), userHandle))
+            .isPresent());
+    }
+
+    @Test
+    void legacyUserHandles_areFoundThroughTheDirectory() throws SQLException {
+        String name = nameOnShard(1);
+        ByteArray legacyHandle = new ByteArray(UUID.randomUUID().toString().getBytes());
+        userWithCredential(name, legacyHandle);
+        assertEquals(Optional.empty(), inApplication(() -> credentialRepository.getUsernameForUserHandle(legacyHandle)));
+
+        shard(0).update("INSERT INTO user_handle_directory (user_handle, bucket) VALUES (?, ?)",
+            legacyHandle.getBase64(), KEYS.bucketOf(name));
+
+        assertEquals(Optional.of(name), inApplication(() -> credentialRepository.getUsernameForUserHandle(legacyHandle)));
+    }
+
+    @Test
+    void usersOfNoApplication_areBackfilledOnEveryShard() throws SQLException {
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            String name = nameOnShard(shard);
+            userWithCredential(name, shards.newUserHandle(name), null);
+        }
+
+        legacyUsersBackfill.backfill(application.getId());
+
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            String name = nameOnShard(shard);
+            assertEquals(1, shard(shard).queryForObject("SELECT COUNT(*) FROM users WHERE name = ? AND application_id = ?",
+                Integer.class, name, application.getId()));
+            assertEquals(1, inApplication(() -> credentialRepository.getCredentialIdsForUsername(name)).size());
+        }
+    }
+
+    @Test
+    void adminOperations_findUsersOnAnyShard() throws SQLException {
+        String name = nameOnShard(2);
+        User user = userWithCredential(name, shards.newUserHandle(name)).getUser();
+
+        ListPasskeysResponse passkeys = inApplication(() -> userCredentialManager.getUserCredentials(user.getId()));
+        assertEquals(1, passkeys.getPasskeys().size());
+        assertThrows(UserNotFoundException.class, () -> ApplicationScope.call(UUID.randomUUID(), () -> {
+            userAccountManager.deleteUser(user.getId());
+            return null;
+        }));
+
+        inApplication(() -> {
+            userAccountManager.deleteUser(user.getId());
+            return null;
+        });
+        assertEquals(0, countUsers(2, name));
+    }
+
+    @Test
+    void everyShardHasTheSchema() throws SQLException {
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            assertEquals(0, shard(shard).queryForObject("SELECT COUNT(*) FROM user_credentials", Integer.class));
+        }
+        assertFalse(shards.find(() -> userRepository.existsById(UUID.randomUUID())).isPresent());
+    }
+
+    private <T> T inApplication(Supplier<T> work) {
+        return ApplicationScope.call(application.getId(), work);
+    }
+
+    private UserCredential userWithCredential(String name, ByteArray userHandle) {
+        return userWithCredential(name, userHandle, application);
+    }
+
+    private UserCredential userWithCredential(String name, ByteArray userHandle, ClientApplication application) {
+        return shards.forUser(name, () -> {
+            User user = userRepository.save(User.builder().name(name).displayName(name).clientApplication(application).build());
+            return userCredentialRepository.save(UserCredential.builder()
+                .user(user)
+                .clientApplication(application)
+                .userHandle(userHandle.getBase64())
+                .credentialId(ShardKeys.randomUserHandle().getBase64())
+                .publicKeyCose("pQECAyYgASFYIA")
+                .signatureCount(0L)
+                .createdAt(Instant.now())
+                .build());
+        });
+    }
+
+    private static String nameOnShard(int shard) {
+        for (int i = 0; ; i++) {
+            String name = "user-" + i;
+            if (Math.min(KEYS.bucketOf(name) / 341, 2) == shard) {
+                return name;
+            }
+        }
+    }
+
+    private int countUsers(int shard, String name) throws SQLException {
+        return shard(shard).queryForObject("SELECT COUNT(*) FROM users WHERE name = ?", Integer.class, name);
+    }
+
+    private JdbcTemplate shard(int shard) throws SQLException {
+        return new JdbcTemplate(dataSource.unwrap(ShardRoutingDataSource.class).shard(shard));
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.grpc;
+
+import com.helioauth.passkeys.api.auth.ApplicationApiKeyAuthenticationProvider;
+import com.helioauth.passkeys.api.controller.CredentialsController;
+import com.helioauth.passkeys.api.controller.UsersController;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignUpRequest;
+import com.helioauth.passkeys.api.generated.grpc.ListCredentialsRequest;
+import com.helioauth.passkeys.api.generated.grpc.PasskeysGrpc;
+import com.helioauth.passkeys.api.generated.models.ListPasskeysResponse;
+import com.helioauth.passkeys.api.generated.models.PasskeyCredential;
+import com.helioauth.passkeys.api.generated.models.SignUpFinishResponse;
+import com.helioauth.passkeys.api.mapper.RegistrationResponseMapper;
+import com.helioauth.passkeys.api.service.UserAccountManager;
+import com.helioauth.passkeys.api.service.UserCredentialManager;
+import com.helioauth.passkeys.api.service.UserSignInService;
+import com.helioauth.passkeys.api.service.UserSignupService;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.RequestHeaderAuthenticationFilter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares the in-process latency and throughput of the gRPC service with the REST endpoints it mirrors.
+ * Both paths run against the same mocked services, so the numbers isolate transport, serialization and
+ * authentication overhead.
+ */
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+class GrpcRestComparisonTest {
+
+    private static final String API_KEY = "backend-api-key";
+    private static final int WARMUP_CALLS = 2_000;
+    private static final int MEASURED_CALLS = 5_000;
+
+    @Mock
+    private ClientApplicationRepository clientApplicationRepository;
+
+    @Mock
+    private UserSignupService userSignupService;
+
+    @Mock
+    private UserSignInService userSignInService;
+
+    @Mock
+    private UserCredentialManager userCredentialManager;
+
+    @Mock
+    private UserAccountManager userAccountManager;
+
+    private MockMvc mockMvc;
+    private Server server;
+    private ManagedChannel channel;
+    private PasskeysGrpc.PasskeysBlockingStub stub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ApplicationApiKeyAuthenticationProvider authenticationProvider =
+            new ApplicationApiKeyAuthenticationProvider(clientApplicationRepository);
+
+        RequestHeaderAuthenticationFilter restAuthFilter = new RequestHeaderAuthenticationFilter();
+        restAuthFilter.setPrincipalRequestHeader("X-Api-Key");
+        restAuthFilter.setExceptionIfHeaderMissing(false);
+        restAuthFilter.setAuthenticationManager(new ProviderManager(List.of(authenticationProvider)));
+        mockMvc = MockMvcBuilders
+            .standaloneSetup(
+                new UsersController(userCredentialManager, userAccountManager),
+                new CredentialsController(userSignInService, userSignupService, Mappers.getMapper(RegistrationResponseMapper.class))
+            )
+            .addFilters(restAuthFilter)
+            .build();
+
+        ApiKeyAuthenticationInterceptor interceptor = new ApiKeyAuthenticationInterceptor(authenticationProvider, "X-Api-Key");
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+            .addService(ServerInterceptors.intercept(
+                new PasskeysGrpcService(userSignupService, userSignInService, userCredentialManager, userAccountManager),
+                interceptor
+            ))
+            .addTransportFilter(interceptor.transportFilter())
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+
+        Metadata headers = new Metadata();
+        headers.put(Metadata.Key.of("x-api-key", Metadata.ASCII_STRING_MARSHALLER), API_KEY);
+        stub = PasskeysGrpc.newBlockingStub(channel).withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+
+        when(clientApplicationRepository.findByApiKey(API_KEY))
+            .thenReturn(Optional.of(new ClientApplication("backend", API_KEY)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void listCredentials() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userCredentialManager.getUserCredentials(userId)).thenReturn(passkeys(5));
+        ListCredentialsRequest request = ListCredentialsRequest.newBuilder().setUserId(userId.toString()).build();
+
+        Result rest = measure(() -> perform(get("/v1/users/{uuid}/credentials", userId).header("X-Api-Key", API_KEY)));
+        verify(clientApplicationRepository, times(WARMUP_CALLS + MEASURED_CALLS)).findByApiKey(API_KEY);
+        clearInvocations(clientApplicationRepository);
+
+        Result grpc = measure(() -> stub.listCredentials(request));
+        verify(clientApplicationRepository, times(1)).findByApiKey(API_KEY);
+
+        report("list credentials", rest, grpc);
+    }
+
+    @Test
+    void finishSignUp() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userSignupService.finishRegistration(anyString(), anyString()))
+            .thenReturn(new SignUpFinishResponse("request", userId));
+        String credential = "{\"type\":\"public-key\",\"id\":\"AQID\",\"rawId\":\"AQID\",\"response\":{}}";
+
+        String restBody = "{\"requestId\":\"request\",\"publicKeyCredential\":" + quote(credential) + "}";
+        Result rest = measure(() -> perform(post("/v1/signup/finish")
+            .header("X-Api-Key", API_KEY)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(restBody)));
+
+        FinishSignUpRequest request = FinishSignUpRequest.newBuilder()
+            .setRequestId("request")
+            .setPublicKeyCredential(credential)
+            .build();
+        Result grpc = measure(() -> stub.finishSignUp(request));
+
+        report("signup finish", rest, grpc);
+    }
+
+    /**
+     * Performs a REST call like the stateless security chain would, authenticating every request.
+     */
+    private void perform(RequestBuilder request) throws Exception {
+        try {
+            mockMvc.perform(request).andExpect(status().isOk());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static Result measure(Call call) throws Exception {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            call.run();
+        }
+
+        long[] latencies = new long[MEASURED_CALLS];
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            long callStart = System.nanoTime();
+            call.run();
+            latencies[i] = System.nanoTime() - callStart;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(
+            latencies[MEASURED_CALLS / 2],
+            latencies[(int) (MEASURED_CALLS * 0.99)],
+            MEASURED_CALLS * 1_000_000_000.0 / elapsed
+        );
+    }
+
+    private static void report(String operation, Result rest, Result grpc) {
+        log.info("{} REST: p50 {} us, p99 {} us, {} calls/s",
+            operation, rest.p50Nanos() / 1_000, rest.p99Nanos() / 1_000, Math.round(rest.callsPerSecond()));
+        log.info("{} gRPC: p50 {} us, p99 {} us, {} calls/s",
+            operation, grpc.p50Nanos() / 1_000, grpc.p99Nanos() / 1_000, Math.round(grpc.callsPerSecond()));
+    }
+
+    private static ListPasskeysResponse passkeys(int count) {
+        List<PasskeyCredential> passkeys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            passkeys.add(new PasskeyCredential()
+                .credentialId("kUaBI+MmRg6NmRupGNA/Tx0JOnyKF1qZCs9FkqpAMv8=")
+                .userHandle("VocUvpS/E/+xD41LO8ej5zVAxZuRw5dbtnIMsVWtso4=")
+                .signatureCount((long) i)
+                .displayName("Passkey " + i)
+                .createdAt(Instant.parse("2025-01-01T00:00:00Z"))
+                .lastUsedAt(Instant.parse("2025-01-02T00:00:00Z")));
+        }
+        return new ListPasskeysResponse(passkeys);
+    }
+
+    private static String quote(String json) {
+        return "\"" + json.replace("\"", "\\\"") + "\"";
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private record Result(long p50Nanos, long p99Nanos, double callsPerSecond) {}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.grpc;
+
+import com.helioauth.passkeys.api.auth.ApplicationApiKeyAuthenticationProvider;
+import com.helioauth.passkeys.api.config.properties.GrpcProperties;
+import com.helioauth.passkeys.api.datasource.QueryBudgetServerInterceptor;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignInRequest;
+import com.helioauth.passkeys.api.generated.grpc.PasskeysGrpc;
+import com.helioauth.passkeys.api.service.UserAccountManager;
+import com.helioauth.passkeys.api.service.UserCredentialManager;
+import com.helioauth.passkeys.api.service.UserSignInService;
+import com.helioauth.passkeys.api.service.UserSignupService;
+import io.grpc.ChannelCredentials;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.TlsChannelCredentials;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(MockitoExtension.class)
+class GrpcServerTest {
+
+    private static final ClassPathResource CERTIFICATE_CHAIN = new ClassPathResource("grpc/server.crt");
+    private static final ClassPathResource PRIVATE_KEY = new ClassPathResource("grpc/server.key");
+
+    @Mock
+    private ClientApplicationRepository clientApplicationRepository;
+
+    @Mock
+    private UserSignupService userSignupService;
+
+    @Mock
+    private UserSignInService userSignInService;
+
+    @Mock
+    private UserCredentialManager userCredentialManager;
+
+    @Mock
+    private UserAccountManager userAccountManager;
+
+    private final GrpcProperties properties = new GrpcProperties();
+    private GrpcServer server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        properties.setPort(0);
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        server = new GrpcServer(
+            properties,
+            new PasskeysGrpcService(userSignupService, userSignInService, userCredentialManager, userAccountManager),
+            new ApiKeyAuthenticationInterceptor(new ApplicationApiKeyAuthenticationProvider(clientApplicationRepository), "X-Api-Key"),
+            beanFactory.getBeanProvider(QueryBudgetServerInterceptor.class),
+            beanFactory.getBeanProvider(ObservationRegistry.class)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (channel != null) {
+            channel.shutdownNow();
+        }
+        server.stop();
+    }
+
+    @Test
+    void start_withoutCertificate_failsStartup() {
+        properties.getTls().setPrivateKey(PRIVATE_KEY);
+
+        assertThrows(IllegalStateException.class, server::start);
+    }
+
+    @Test
+    void start_withCertificate_servesTls() throws IOException {
+        properties.getTls().setCertificateChain(CERTIFICATE_CHAIN);
+        properties.getTls().setPrivateKey(PRIVATE_KEY);
+        server.start();
+
+        try (InputStream trusted = CERTIFICATE_CHAIN.getInputStream()) {
+            // Reaching the API key check means the TLS handshake succeeded
+            assertEquals(Status.Code.UNAUTHENTICATED, finishSignIn(TlsChannelCredentials.newBuilder()
+                .trustManager(trusted)
+                .build()));
+        }
+    }
+
+    @Test
+    void start_withCertificate_rejectsPlaintext() {
+        properties.getTls().setCertificateChain(CERTIFICATE_CHAIN);
+        properties.getTls().setPrivateKey(PRIVATE_KEY);
+        server.start();
+
+        assertEquals(Status.Code.UNAVAILABLE, finishSignIn(InsecureChannelCredentials.create()));
+    }
+
+    private Status.Code finishSignIn(ChannelCredentials credentials) {
+        channel = Grpc.newChannelBuilderForAddress("localhost", server.getPort(), credentials).build();
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+            () -> PasskeysGrpc.newBlockingStub(channel).finishSignIn(FinishSignInRequest.newBuilder()
+                .setRequestId("request")
+                .setPublicKeyCredential("{}")
+                .build()));
+        return e.getStatus().getCode();
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.grpc;
+
+import com.helioauth.passkeys.api.auth.ApplicationApiKeyAuthenticationProvider;
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.helioauth.passkeys.api.datasource.Shards;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.generated.grpc.DeleteUserRequest;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignInRequest;
+import com.helioauth.passkeys.api.generated.grpc.FinishSignInResponse;
+import com.helioauth.passkeys.api.generated.grpc.ListCredentialsRequest;
+import com.helioauth.passkeys.api.generated.grpc.ListCredentialsResponse;
+import com.helioauth.passkeys.api.generated.grpc.PasskeysGrpc;
+import com.helioauth.passkeys.api.generated.models.ListPasskeysResponse;
+import com.helioauth.passkeys.api.generated.models.PasskeyCredential;
+import com.helioauth.passkeys.api.mapper.UserCredentialMapper;
+import com.helioauth.passkeys.api.service.UserAccountManager;
+import com.helioauth.passkeys.api.service.UserCredentialManager;
+import com.helioauth.passkeys.api.service.UserSignInService;
+import com.helioauth.passkeys.api.service.UserSignupService;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
+import com.helioauth.passkeys.api.service.exception.UserNotFoundException;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PasskeysGrpcServiceTest {
+
+    private static final String API_KEY = "backend-api-key";
+    private static final UUID APPLICATION_ID = UUID.randomUUID();
+
+    @Mock
+    private ClientApplicationRepository clientApplicationRepository;
+
+    @Mock
+    private UserSignupService userSignupService;
+
+    @Mock
+    private UserSignInService userSignInService;
+
+    @Mock
+    private UserCredentialManager userCredentialManager;
+
+    @Mock
+    private UserAccountManager userAccountManager;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserCredentialRepository userCredentialRepository;
+
+    private ApiKeyAuthenticationInterceptor interceptor;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        start(new PasskeysGrpcService(userSignupService, userSignInService, userCredentialManager, userAccountManager));
+    }
+
+    /**
+     * Serves {@code service} in place of the one with mocked managers.
+     */
+    private void start(PasskeysGrpcService service) throws IOException {
+        if (server != null) {
+            tearDown();
+        }
+        interceptor = new ApiKeyAuthenticationInterceptor(
+            new ApplicationApiKeyAuthenticationProvider(clientApplicationRepository),
+            "X-Api-Key"
+        );
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+            .directExecutor()
+            .addService(ServerInterceptors.intercept(service, interceptor))
+            .addTransportFilter(interceptor.transportFilter())
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void listCredentials_returnsBinaryIdsAndTimestamps() {
+        UUID userId = UUID.randomUUID();
+        givenApiKeyIsValid();
+        when(userCredentialManager.getUserCredentials(userId)).thenReturn(new ListPasskeysResponse(List.of(
+            new PasskeyCredential()
+                .credentialId("AQID")
+                .userHandle("BAUG")
+                .signatureCount(7L)
+                .displayName("Laptop")
+                .createdAt(Instant.ofEpochSecond(1_700_000_000L, 5))
+        )));
+
+        ListCredentialsResponse response = stub(API_KEY).listCredentials(
+            ListCredentialsRequest.newBuilder().setUserId(userId.toString()).build()
+        );
+
+        assertEquals(1, response.getPasskeysCount());
+        assertArrayEquals(new byte[] {1, 2, 3}, response.getPasskeys(0).getCredentialId().toByteArray());
+        assertArrayEquals(new byte[] {4, 5, 6}, response.getPasskeys(0).getUserHandle().toByteArray());
+        assertEquals(7L, response.getPasskeys(0).getSignatureCount());
+        assertEquals("Laptop", response.getPasskeys(0).getDisplayName());
+        assertEquals(1_700_000_000L, response.getPasskeys(0).getCreatedAt().getSeconds());
+        assertEquals(5, response.getPasskeys(0).getCreatedAt().getNanos());
+    }
+
+    @Test
+    void apiKeyIsVerifiedOncePerConnection() {
+        givenApiKeyIsValid();
+        when(userCredentialManager.getUserCredentials(any()))
+            .thenReturn(new ListPasskeysResponse(List.of()));
+
+        PasskeysGrpc.PasskeysBlockingStub stub = stub(API_KEY);
+        for (int i = 0; i < 5; i++) {
+            stub.listCredentials(ListCredentialsRequest.newBuilder().setUserId(UUID.randomUUID().toString()).build());
+        }
+
+        verify(clientApplicationRepository, times(1)).findByApiKey(API_KEY);
+    }
+
+    @Test
+    void apiKeyIsVerifiedAgainAfterClientApplicationChange() {
+        givenApiKeyIsValid();
+        when(userCredentialManager.getUserCredentials(any()))
+            .thenReturn(new ListPasskeysResponse(List.of()));
+
+        PasskeysGrpc.PasskeysBlockingStub stub = stub(API_KEY);
+        ListCredentialsRequest request = ListCredentialsRequest.newBuilder().setUserId(UUID.randomUUID().toString()).build();
+        stub.listCredentials(request);
+        interceptor.onClientApplicationChanged(new ClientApplicationChangedEvent(UUID.randomUUID()));
+        stub.listCredentials(request);
+
+        verify(clientApplicationRepository, times(2)).findByApiKey(API_KEY);
+    }
+
+    @Test
+    void missingApiKey_isUnauthenticated() {
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+            PasskeysGrpc.newBlockingStub(channel).deleteUser(
+                DeleteUserRequest.newBuilder().setUserId(UUID.randomUUID().toString()).build()
+            )
+        );
+
+        assertEquals(Status.Code.UNAUTHENTICATED, e.getStatus().getCode());
+    }
+
+    @Test
+    void invalidApiKey_isUnauthenticated() {
+        when(clientApplicationRepository.findByApiKey("wrong")).thenReturn(Optional.empty());
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+            stub("wrong").deleteUser(DeleteUserRequest.newBuilder().setUserId(UUID.randomUUID().toString()).build())
+        );
+
+        assertEquals(Status.Code.UNAUTHENTICATED, e.getStatus().getCode());
+    }
+
+    @Test
+    void deleteUser_mapsUserNotFoundToNotFound() {
+        UUID userId = UUID.randomUUID();
+        givenApiKeyIsValid();
+        doThrow(new UserNotFoundException()).when(userAccountManager).deleteUser(userId);
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+            stub(API_KEY).deleteUser(DeleteUserRequest.newBuilder().setUserId(userId.toString()).build())
+        );
+
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    }
+
+    @Test
+    void listCredentials_ofUserOfAnotherApplication_isNotFound() throws IOException {
+        UUID userId = UUID.randomUUID();
+        startWithScopedManagers();
+        givenApiKeyIsValid();
+        when(userCredentialRepository.findAllByUserIdAndUserClientApplicationId(userId, APPLICATION_ID))
+            .thenReturn(List.of());
+        when(userRepository.existsByIdAndClientApplicationId(userId, APPLICATION_ID)).thenReturn(false);
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+            stub(API_KEY).listCredentials(ListCredentialsRequest.newBuilder().setUserId(userId.toString()).build())
+        );
+
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    }
+
+    @Test
+    void listCredentials_ofUserOfTheCallingApplication_isListed() throws IOException {
+        UUID userId = UUID.randomUUID();
+        startWithScopedManagers();
+        givenApiKeyIsValid();
+        when(userCredentialRepository.findAllByUserIdAndUserClientApplicationId(userId, APPLICATION_ID))
+            .thenReturn(List.of(UserCredential.builder()
+                .credentialId("AQID")
+                .displayName("Laptop")
+                .createdAt(Instant.now())
+                .lastUsedAt(Instant.now())
+                .build()));
+
+        ListCredentialsResponse response = stub(API_KEY)
+            .listCredentials(ListCredentialsRequest.newBuilder().setUserId(userId.toString()).build());
+
+        assertEquals(1, response.getPasskeysCount());
+    }
+
+    @Test
+    void deleteUser_ofUserOfAnotherApplication_isNotFound() throws IOException {
+        UUID userId = UUID.randomUUID();
+        startWithScopedManagers();
+        givenApiKeyIsValid();
+        when(userRepository.existsByIdAndClientApplicationId(userId, APPLICATION_ID)).thenReturn(false);
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+            stub(API_KEY).deleteUser(DeleteUserRequest.newBuilder().setUserId(userId.toString()).build())
+        );
+
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+        verify(userRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void deleteUser_rejectsMalformedUserId() {
+        givenApiKeyIsValid();
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () ->
+            stub(API_KEY).deleteUser(DeleteUserRequest.newBuilder().setUserId("not-a-uuid").build())
+        );
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+
+    @Test
+    void finishSignIn_withoutClientAddress_passesNullSourceAddress() {
+        givenApiKeyIsValid();
+        when(userSignInService.finishAssertion(anyString(), anyString(), isNull())).thenReturn("alice");
+
+        FinishSignInResponse response = stub(API_KEY).finishSignIn(FinishSignInRequest.newBuilder()
+            .setRequestId("request")
+            .setPublicKeyCredential("{}")
+            .build());
+
+        assertEquals("request", response.getRequestId());
+        assertEquals("alice", response.getUsername());
+    }
+
+    private void givenApiKeyIsValid() {
+        when(clientApplicationRepository.findByApiKey(API_KEY)).thenReturn(Optional.of(ClientApplication.builder()
+            .id(APPLICATION_ID)
+            .name("backend")
+            .apiKey(API_KEY)
+            .build()));
+    }
+
+    /**
+     * Serves the service with real managers over the mocked repositories, so that calls are
+     * scoped to the application of the API key.
+     */
+    private void startWithScopedManagers() throws IOException {
+        Shards shards = new Shards(new ShardingProperties(), null);
+        UserCredentialManager scopedCredentialManager = new UserCredentialManager(null, userRepository,
+            userCredentialRepository, Mappers.getMapper(UserCredentialMapper.class), null, null, null, shards);
+        UserAccountManager scopedAccountManager = new UserAccountManager(userRepository, null, shards);
+        start(new PasskeysGrpcService(userSignupService, userSignInService, scopedCredentialManager, scopedAccountManager));
+    }
+
+    private PasskeysGrpc.PasskeysBlockingStub stub(String apiKey) {
+        Metadata headers = new Metadata();
+        headers.put(Metadata.Key.of("x-api-key", Metadata.ASCII_STRING_MARSHALLER), apiKey);
+        return PasskeysGrpc.newBlockingStub(channel).withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+    }
+}
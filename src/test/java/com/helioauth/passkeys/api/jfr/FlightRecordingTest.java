@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.jfr;
+
+import com.helioauth.passkeys.api.config.WebAuthnRelyingPartyConfig;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "flight-recorder.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FlightRecordingTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void signInStart_recordsCeremonyEvent() throws Exception {
+        ClientApplication application = clientApplicationRepository.save(new ClientApplication("jfr", "jfr-api-key"));
+        mockMvc.perform(post("/v1/signin/start")
+                .header("X-App-Id", application.getId().toString())
+                .contentType("application/json")
+                .content("{\"name\":\"jfr-user\"}"))
+            .andExpect(status().isOk());
+
+        byte[] dump = mockMvc.perform(get("/actuator/flightrecording").header("X-Api-Key", "testapikey"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+        Path file = Files.write(tempDir.resolve("dump.jfr"), dump);
+        List<RecordedEvent> ceremonies = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().equals("com.helioauth.passkeys.Ceremony"))
+            .toList();
+
+        assertFalse(ceremonies.isEmpty());
+        RecordedEvent ceremony = ceremonies.getLast();
+        // Sign-in for an unknown user starts a registration instead.
+        assertEquals(CeremonyEvent.REGISTRATION, ceremony.getString("ceremony"));
+        assertEquals(CeremonyEvent.START, ceremony.getString("phase"));
+        assertEquals(CeremonyEvent.SUCCESS, ceremony.getString("outcome"));
+        assertEquals("localhost", ceremony.getString("rpId"));
+    }
+
+    @Test
+    void dump_requiresAdminKey() throws Exception {
+        mockMvc.perform(get("/actuator/flightrecording"))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/flightrecording").header("X-Api-Key", "wrong"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void cacheEviction_isRecorded() throws Exception {
+        WebAuthnRelyingPartyProperties.Cache cacheConfig = new WebAuthnRelyingPartyProperties.Cache();
+        cacheConfig.setPartitionWeight(DataSize.ofBytes(256));
+        cacheConfig.setRejectWhenFull(false);
+        CeremonyRequestCache cache = (CeremonyRequestCache) new WebAuthnRelyingPartyConfig().webAuthnRequestCache(cacheConfig);
+
+        Path file = tempDir.resolve("eviction.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CeremonyCacheEvictionEvent.class);
+            recording.start();
+            for (int i = 0; i < 10; i++) {
+                cache.put("request-" + i, "{}", null);
+            }
+            cache.cleanUp();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> evictions = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().equals("com.helioauth.passkeys.CeremonyCacheEviction"))
+            .toList();
+        assertFalse(evictions.isEmpty());
+        assertTrue(evictions.stream().allMatch(event -> event.getString("cause").equals("SIZE")));
+    }
+}
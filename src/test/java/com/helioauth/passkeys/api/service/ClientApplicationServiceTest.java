@@ -16,6 +16,7 @@
 
 package com.helioauth.passkeys.api.service;
 
+import com.helioauth.passkeys.api.datasource.TenantPartitions;
 import com.helioauth.passkeys.api.domain.ClientApplication;
 import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
 import com.helioauth.passkeys.api.generated.models.AddApplicationRequest;
@@ -23,6 +24,7 @@ import com.helioauth.passkeys.api.generated.models.Application;
 import com.helioauth.passkeys.api.generated.models.ApplicationApiKey;
 import com.helioauth.passkeys.api.generated.models.EditApplicationRequest;
 import com.helioauth.passkeys.api.mapper.ClientApplicationMapper;
+import com.helioauth.passkeys.api.service.event.ClientApplicationChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
@@ -31,6 +33,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.Instant;
 import java.util.List;
@@ -69,6 +72,12 @@ public class ClientApplicationServiceTest {
     @Mock
     private ClientApplicationRepository repository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TenantPartitions tenantPartitions;
+
     @Spy
     private ClientApplicationMapper mapper = Mappers.getMapper( ClientApplicationMapper.class);
 
@@ -158,9 +167,13 @@ public class ClientApplicationServiceTest {
 
         // Validate
         assertTrue(result);
+        verify(tenantPartitions).dropTenant(id);
+        verify(eventPublisher, times(1)).publishEvent(new ClientApplicationChangedEvent(id));
         when(repository.existsById(id)).thenReturn(false);
         result = service.delete(id);
         assertFalse(result);
+        verify(tenantPartitions, times(1)).dropTenant(any());
+        verify(eventPublisher, times(1)).publishEvent(any(ClientApplicationChangedEvent.class));
     }
 
     @Test
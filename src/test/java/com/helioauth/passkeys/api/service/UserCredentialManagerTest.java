@@ -17,6 +17,11 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.helioauth.passkeys.api.datasource.ReadYourWrites;
+import com.helioauth.passkeys.api.datasource.Shards;
+import com.helioauth.passkeys.api.domain.ClientApplication;
 import com.helioauth.passkeys.api.domain.User;
 import com.helioauth.passkeys.api.domain.UserCredential;
 import com.helioauth.passkeys.api.domain.UserCredentialRepository;
@@ -30,8 +35,10 @@ import com.helioauth.passkeys.api.mapper.UserCredentialMapper;
 import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
 import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
 import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.api.service.event.UserChangedEvent;
 import com.helioauth.passkeys.api.service.exception.CreateCredentialFailedException;
 import com.helioauth.passkeys.api.service.exception.SignUpFailedException;
+import com.helioauth.passkeys.api.service.exception.UserNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
@@ -39,6 +46,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -53,6 +63,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,6 +73,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class UserCredentialManagerTest {
 
+    private static final UUID APPLICATION_ID = UUID.randomUUID();
+
     @Mock
     private UserCredentialRepository userCredentialRepository;
 
@@ -70,22 +84,35 @@ class UserCredentialManagerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Spy
     private UserCredentialMapper userCredentialMapper = Mappers.getMapper(UserCredentialMapper.class);
 
     @Spy
     private RegistrationResponseMapper registrationResponseMapper = Mappers.getMapper(RegistrationResponseMapper.class);
 
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @Spy
+    private Shards shards = new Shards(new ShardingProperties(), null);
+
     @InjectMocks
     private UserCredentialManager userCredentialManager;
 
     @Test
-    void getUserCredentials_returnsEmpty_whenResultEmpty() {
+    void getUserCredentials_returnsEmpty_whenUserHasNoCredentials() {
         // Arrange
-        when(userCredentialRepository.findAllByUserId(any())).thenReturn(Collections.emptyList());
+        UUID userUuid = UUID.randomUUID();
+        when(userCredentialRepository.findAllByUserIdAndUserClientApplicationId(userUuid, APPLICATION_ID))
+            .thenReturn(Collections.emptyList());
+        when(userRepository.existsByIdAndClientApplicationId(userUuid, APPLICATION_ID)).thenReturn(true);
 
         // Act
-        ListPasskeysResponse result = userCredentialManager.getUserCredentials(UUID.randomUUID());
+        ListPasskeysResponse result = ApplicationScope.call(APPLICATION_ID,
+            () -> userCredentialManager.getUserCredentials(userUuid));
 
         // Assert
         assertTrue(result.getPasskeys().isEmpty(), "Expected no user credentials");
@@ -106,10 +133,12 @@ class UserCredentialManagerTest {
 
         List<UserCredential> credentialList = Collections.singletonList(credential);
 
-        when(userCredentialRepository.findAllByUserId(userUuid)).thenReturn(credentialList);
+        when(userCredentialRepository.findAllByUserIdAndUserClientApplicationId(userUuid, APPLICATION_ID))
+            .thenReturn(credentialList);
 
         // Act
-        ListPasskeysResponse response = userCredentialManager.getUserCredentials(userUuid);
+        ListPasskeysResponse response = ApplicationScope.call(APPLICATION_ID,
+            () -> userCredentialManager.getUserCredentials(userUuid));
 
         // Assert
         assertNotNull(response);
@@ -118,6 +147,23 @@ class UserCredentialManagerTest {
         assertEquals("Credential Name", response.getPasskeys().getFirst().getDisplayName());
     }
 
+    @Test
+    void getUserCredentials_throwsUserNotFound_forUserOfAnotherApplication() {
+        // Arrange
+        UUID userUuid = UUID.randomUUID();
+        when(userCredentialRepository.findAllByUserIdAndUserClientApplicationId(userUuid, APPLICATION_ID))
+            .thenReturn(Collections.emptyList());
+        when(userRepository.existsByIdAndClientApplicationId(userUuid, APPLICATION_ID)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(UserNotFoundException.class, () -> ApplicationScope.call(APPLICATION_ID,
+            () -> userCredentialManager.getUserCredentials(userUuid)));
+    }
+
+    @Test
+    void getUserCredentials_throwsUserNotFound_withoutApplication() {
+        assertThrows(UserNotFoundException.class, () -> userCredentialManager.getUserCredentials(UUID.randomUUID()));
+    }
 
     @Test
     void createCredential_returnsResponse_whenSuccessful() throws JsonProcessingException {
@@ -149,7 +195,7 @@ class UserCredentialManagerTest {
     @Test
     void finishCreateCredential_returnsResponse_whenSuccessful() throws IOException {
         // Arrange
-        SignUpFinishRequest finishRequest = new SignUpFinishRequest("requestId", "publicKeyCredential");
+        SignUpFinishRequest finishRequest = new SignUpFinishRequest(APPLICATION_ID + ".requestId", "publicKeyCredential");
         User user = User.builder().id(UUID.randomUUID()).name("testUser").build();
         CredentialRegistrationResult registrationResult = new CredentialRegistrationResult(
             user.getName(), "credential", "test", "handle", 0L, "test",
@@ -158,7 +204,7 @@ class UserCredentialManagerTest {
 
         when(authenticator.finishRegistration(finishRequest.getRequestId(), finishRequest.getPublicKeyCredential()))
             .thenReturn(registrationResult);
-        when(userRepository.findByName(registrationResult.name())).thenReturn(Optional.of(user));
+        when(userRepository.findByClientApplicationIdAndName(APPLICATION_ID, registrationResult.name())).thenReturn(Optional.of(user));
 
         // Act
         SignUpFinishResponse response = userCredentialManager.finishCreateCredential(finishRequest);
@@ -167,6 +213,24 @@ class UserCredentialManagerTest {
         assertNotNull(response);
         assertEquals(finishRequest.getRequestId(), response.getRequestId());
         assertEquals(user.getId(), response.getUserId());
+        verify(eventPublisher).publishEvent(new UserChangedEvent(user.getId()));
+        verify(readYourWrites).recordWrite(user.getName());
+    }
+
+    @Test
+    void finishCreateCredential_throwsException_forCeremonyOfAnotherApplication() throws IOException {
+        ClientApplication caller = new ClientApplication("caller", "caller-api-key");
+        caller.setId(UUID.randomUUID());
+        SignUpFinishRequest finishRequest = new SignUpFinishRequest(APPLICATION_ID + ".requestId", "publicKeyCredential");
+        SecurityContextHolder.getContext().setAuthentication(new PreAuthenticatedAuthenticationToken(caller, "N/A", List.of()));
+
+        try {
+            assertThrows(SignUpFailedException.class, () -> userCredentialManager.finishCreateCredential(finishRequest));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        verify(authenticator, never()).finishRegistration(finishRequest.getRequestId(), finishRequest.getPublicKeyCredential());
     }
 
     @Test
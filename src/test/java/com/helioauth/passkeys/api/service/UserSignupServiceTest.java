@@ -1,6 +1,11 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.config.properties.ShardingProperties;
+import com.helioauth.passkeys.api.datasource.ReadYourWrites;
+import com.helioauth.passkeys.api.datasource.Shards;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
 import com.helioauth.passkeys.api.domain.User;
 import com.helioauth.passkeys.api.domain.UserCredential;
 import com.helioauth.passkeys.api.domain.UserCredentialRepository;
@@ -18,17 +23,22 @@ import com.helioauth.passkeys.api.service.exception.UsernameAlreadyRegisteredExc
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -40,6 +50,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class UserSignupServiceTest {
 
+    private static final UUID APPLICATION_ID = UUID.randomUUID();
+
     @Mock
     private WebAuthnAuthenticator webAuthnAuthenticator;
 
@@ -49,12 +61,21 @@ class UserSignupServiceTest {
     @Mock
     private UserCredentialRepository userCredentialRepository;
 
+    @Mock
+    private ClientApplicationRepository clientApplicationRepository;
+
     @Spy
     private UserCredentialMapper userCredentialMapper = Mappers.getMapper(UserCredentialMapper.class);
 
     @Mock
     private RegistrationResponseMapper registrationResponseMapper;
 
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @Spy
+    private Shards shards = new Shards(new ShardingProperties(), null);
+
     @InjectMocks
     private UserSignupService userSignupService;
 
@@ -103,7 +124,7 @@ class UserSignupServiceTest {
     @Test
     void testFinishRegistration_Success() throws Exception {
         // Arrange
-        String requestId = "requestId123";
+        String requestId = APPLICATION_ID + ".requestId123";
         String publicKeyCredentialJson = "{\"key\":\"value\"}";
         String username = "testuser";
         String displayName = "Test User";
@@ -123,8 +144,10 @@ class UserSignupServiceTest {
         UserCredential mockCredential = new UserCredential();
 
         when(webAuthnAuthenticator.getUsernameByRequestId(requestId)).thenReturn(username);
-        when(userRepository.findByName(username)).thenReturn(Optional.empty());
+        when(userRepository.findByClientApplicationIdAndName(APPLICATION_ID, username)).thenReturn(Optional.empty());
         when(webAuthnAuthenticator.finishRegistration(requestId, publicKeyCredentialJson)).thenReturn(mockResult);
+        when(clientApplicationRepository.getReferenceById(APPLICATION_ID))
+            .thenReturn(ClientApplication.builder().id(APPLICATION_ID).build());
         when(userCredentialRepository.save(any(UserCredential.class))).thenReturn(mockCredential);
         when(userRepository.save(any(User.class))).thenReturn(mockUser);
 
@@ -136,18 +159,53 @@ class UserSignupServiceTest {
         assertEquals(requestId, response.getRequestId());
         assertNotNull(response.getUserId());
         verify(userCredentialMapper, times(1)).fromCredentialRegistrationResult(mockResult);
+        verify(readYourWrites).recordWrite(username);
+    }
+
+    @Test
+    void testFinishRegistration_RegistersUserWithApplicationOfRequest() throws Exception {
+        // Arrange
+        UUID applicationId = UUID.randomUUID();
+        String requestId = applicationId + ".nonce";
+        String publicKeyCredentialJson = "{\"key\":\"value\"}";
+        String username = "testuser";
+        ClientApplication clientApplication = ClientApplication.builder().id(applicationId).build();
+
+        CredentialRegistrationResult mockResult = new CredentialRegistrationResult(
+            username, username,
+            "test", "test", 0L,
+            "", "","",
+            true, true, true
+        );
+
+        when(webAuthnAuthenticator.getUsernameByRequestId(requestId)).thenReturn(username);
+        when(userRepository.findByClientApplicationIdAndName(applicationId, username)).thenReturn(Optional.empty());
+        when(webAuthnAuthenticator.finishRegistration(requestId, publicKeyCredentialJson)).thenReturn(mockResult);
+        when(clientApplicationRepository.getReferenceById(applicationId)).thenReturn(clientApplication);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        userSignupService.finishRegistration(requestId, publicKeyCredentialJson);
+
+        // Assert
+        ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(user.capture());
+        assertSame(clientApplication, user.getValue().getClientApplication());
+        ArgumentCaptor<UserCredential> credential = ArgumentCaptor.forClass(UserCredential.class);
+        verify(userCredentialRepository).save(credential.capture());
+        assertSame(clientApplication, credential.getValue().getClientApplication());
     }
 
     @Test
     void testFinishRegistration_ThrowsUsernameAlreadyRegisteredException() throws Exception {
         // Arrange
-        String requestId = "requestId123";
+        String requestId = APPLICATION_ID + ".requestId123";
         String publicKeyCredentialJson = "{\"key\":\"value\"}";
         String username = "testuser";
         User existingUser = User.builder().name(username).build();
 
         when(webAuthnAuthenticator.getUsernameByRequestId(requestId)).thenReturn(username);
-        when(userRepository.findByName(username)).thenReturn(Optional.of(existingUser));
+        when(userRepository.findByClientApplicationIdAndName(APPLICATION_ID, username)).thenReturn(Optional.of(existingUser));
 
         // Act & Assert
         assertThrows(UsernameAlreadyRegisteredException.class,
@@ -172,21 +230,56 @@ class UserSignupServiceTest {
             () -> userSignupService.finishRegistration(requestId, publicKeyCredentialJson)
         );
 
-        verify(userRepository, never()).findByName(anyString());
+        verify(userRepository, never()).findByClientApplicationIdAndName(any(), anyString());
         verify(webAuthnAuthenticator, never()).finishRegistration(anyString(), anyString());
         verify(userRepository, never()).save(any(User.class));
         verify(userCredentialRepository, never()).save(any(UserCredential.class));
     }
 
-     @Test
-    void testFinishRegistration_ThrowsSignUpFailedException_OnFinishRegistration() throws Exception {
+    @Test
+    void testFinishRegistration_ThrowsSignUpFailedException_WithoutApplication() throws Exception {
         // Arrange
         String requestId = "requestId123";
+        when(webAuthnAuthenticator.getUsernameByRequestId(requestId)).thenReturn("testuser");
+
+        // Act & Assert
+        assertThrows(SignUpFailedException.class,
+            () -> userSignupService.finishRegistration(requestId, "{}")
+        );
+
+        verify(webAuthnAuthenticator, never()).finishRegistration(anyString(), anyString());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testFinishRegistration_ThrowsSignUpFailedException_ForCeremonyOfAnotherApplication() throws Exception {
+        // Arrange
+        ClientApplication caller = new ClientApplication("caller", "caller-api-key");
+        caller.setId(UUID.randomUUID());
+        SecurityContextHolder.getContext().setAuthentication(new PreAuthenticatedAuthenticationToken(caller, "N/A", List.of()));
+
+        // Act & Assert
+        try {
+            assertThrows(SignUpFailedException.class,
+                () -> userSignupService.finishRegistration(APPLICATION_ID + ".requestId123", "{}")
+            );
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        verify(webAuthnAuthenticator, never()).finishRegistration(anyString(), anyString());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testFinishRegistration_ThrowsSignUpFailedException_OnFinishRegistration() throws Exception {
+        // Arrange
+        String requestId = APPLICATION_ID + ".requestId123";
         String publicKeyCredentialJson = "{\"key\":\"value\"}";
         String username = "testuser";
 
         when(webAuthnAuthenticator.getUsernameByRequestId(requestId)).thenReturn(username);
-        when(userRepository.findByName(username)).thenReturn(Optional.empty());
+        when(userRepository.findByClientApplicationIdAndName(APPLICATION_ID, username)).thenReturn(Optional.empty());
         when(webAuthnAuthenticator.finishRegistration(requestId, publicKeyCredentialJson)).thenThrow(IOException.class);
 
         // Act & Assert
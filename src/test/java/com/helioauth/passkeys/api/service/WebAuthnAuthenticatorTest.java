@@ -17,21 +17,38 @@
 package com.helioauth.passkeys.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.github.benmanes.caffeine.cache.Cache;
+import com.helioauth.passkeys.api.config.properties.AssertionLockoutProperties;
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
 import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
 import com.helioauth.passkeys.api.mapper.CredentialRegistrationResultMapper;
 import com.helioauth.passkeys.api.mapper.RegistrationResponseMapper;
 import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
+import com.helioauth.passkeys.api.service.dto.CredentialAssertionResult;
 import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
 import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.api.service.exception.AssertionLockedOutException;
+import com.helioauth.passkeys.api.service.exception.CredentialAssertionFailedException;
 import com.helioauth.passkeys.api.service.exception.CredentialRegistrationFailedException;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import com.helioauth.passkeys.api.webauthn.CeremonyStore;
 import com.helioauth.passkeys.api.webauthn.DatabaseCredentialRepository;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker.KeyType;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.RegisteredCredential;
 import com.yubico.webauthn.RegistrationResult;
+import com.yubico.webauthn.data.AuthenticatorAssertionResponse;
 import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
 import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.ClientAssertionExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialRequestOptions;
 import com.yubico.webauthn.data.UserIdentity;
+import com.yubico.webauthn.data.exception.Base64UrlException;
 import com.yubico.webauthn.data.exception.HexException;
 import com.yubico.webauthn.exception.RegistrationFailedException;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -42,15 +59,29 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -68,6 +99,11 @@ public class WebAuthnAuthenticatorTest {
         .id(TEST_USER_ID)
         .build();
 
+    private static final String ASSERTION_REQUEST_ID = "assertionRequestId";
+    private static final ByteArray CREDENTIAL_ID = new ByteArray(new byte[]{4, 5, 6});
+    private static final ByteArray CHALLENGE = new ByteArray(new byte[]{7, 8, 9});
+    private static final KeyPair CREDENTIAL_KEY_PAIR = generateKeyPair();
+
     private static final String AUTHENTICATOR_REQUEST_JSON = """
         {
             "rp": { "name": "HelioAuth Passkeys API", "id": "localhost" },
@@ -104,7 +140,10 @@ public class WebAuthnAuthenticatorTest {
     }""";
 
     @Mock
-    private Cache<String, String> webAuthnRequestCache;
+    private CeremonyStore webAuthnRequestCache;
+
+    @Spy
+    private CeremonyRequestIds requestIds = new CeremonyRequestIds(new ClusterProperties());
 
     @Spy
     private WebAuthnRelyingPartyProperties relyingPartyProperties = new WebAuthnRelyingPartyProperties();
@@ -112,6 +151,12 @@ public class WebAuthnAuthenticatorTest {
     @Mock
     private DatabaseCredentialRepository databaseCredentialRepository;
 
+    @Spy
+    private AssertionFailureTracker assertionFailureTracker = new AssertionFailureTracker(new AssertionLockoutProperties());
+
+    @Spy
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
     @Spy
     private CredentialRegistrationResultMapper credentialRegistrationResultMapper = Mappers.getMapper(CredentialRegistrationResultMapper.class);
 
@@ -138,7 +183,8 @@ public class WebAuthnAuthenticatorTest {
                 .build()
         );
 
-        verify(webAuthnRequestCache, times(1)).put(anyString(), anyString());
+        verify(webAuthnRequestCache, times(1)).putRegistration(anyString(),
+            argThat(options -> options.getTimeout().equals(Optional.of(300_000L))));
         assertNotNull(response);
         assertNotNull(response.requestId());
         assertNotNull(response.options());
@@ -151,7 +197,8 @@ public class WebAuthnAuthenticatorTest {
     public void testStartRegistrationWithName() throws JsonProcessingException, HexException {
         AssertionStartResult response = authenticator.startRegistration(RegistrationStartRequest.withName(TEST_USER_NAME).build());
 
-        verify(webAuthnRequestCache, times(1)).put(anyString(), anyString());
+        verify(webAuthnRequestCache, times(1)).putRegistration(anyString(),
+            argThat(options -> options.getTimeout().equals(Optional.of(300_000L))));
         assertNotNull(response);
         assertNotNull(response.requestId());
         assertNotNull(response.options());
@@ -173,7 +220,7 @@ public class WebAuthnAuthenticatorTest {
                 any(AuthenticatorAttestationResponse.class)
             );
 
-        when(webAuthnRequestCache.getIfPresent(requestId)).thenReturn(AUTHENTICATOR_REQUEST_JSON);
+        when(webAuthnRequestCache.getRegistration(requestId)).thenReturn(PublicKeyCredentialCreationOptions.fromJson(AUTHENTICATOR_REQUEST_JSON));
 
         CredentialRegistrationResult result = authenticator.finishRegistration(requestId, AUTHENTICATOR_RESPONSE_JSON);
 
@@ -182,12 +229,37 @@ public class WebAuthnAuthenticatorTest {
         verify(webAuthnRequestCache, times(1)).invalidate(requestId);
     }
 
+    @Test
+    public void testFinishRegistrationWithParsedCredential() throws IOException {
+        String requestId = "requestId";
+
+        CredentialRegistrationResult mappedResult = new CredentialRegistrationResult("name", "displayName", "credentialId", "userHandle", 1L, "publicKeyCose",
+                "attestationObject", "clientDataJson", true, true, true);
+
+        doReturn(mappedResult).when(credentialRegistrationResultMapper)
+            .fromRegistrationResult(
+                any(RegistrationResult.class),
+                any(UserIdentity.class),
+                any(AuthenticatorAttestationResponse.class)
+            );
+
+        when(webAuthnRequestCache.getRegistration(requestId)).thenReturn(PublicKeyCredentialCreationOptions.fromJson(AUTHENTICATOR_REQUEST_JSON));
+
+        CredentialRegistrationResult result = authenticator.finishRegistration(
+            requestId,
+            PublicKeyCredential.parseRegistrationResponseJson(AUTHENTICATOR_RESPONSE_JSON)
+        );
+
+        assertEquals(mappedResult.name(), result.name());
+        verify(webAuthnRequestCache, times(1)).invalidate(requestId);
+    }
+
     @Test
     public void testFinishRegistrationRequestIdNotFound() {
         String requestId = "nonexistentId";
         String responseJson = "{}";
 
-        when(webAuthnRequestCache.getIfPresent(requestId)).thenReturn(null);
+        when(webAuthnRequestCache.getRegistration(requestId)).thenReturn(null);
 
         assertThrows(
             CredentialRegistrationFailedException.class,
@@ -198,9 +270,9 @@ public class WebAuthnAuthenticatorTest {
     }
 
     @Test
-    public void testFinishRegistrationThrowsException() throws RegistrationFailedException {
+    public void testFinishRegistrationThrowsException() throws IOException, RegistrationFailedException {
         String requestId = "requestId";
-        when(webAuthnRequestCache.getIfPresent(requestId)).thenReturn(AUTHENTICATOR_REQUEST_JSON);
+        when(webAuthnRequestCache.getRegistration(requestId)).thenReturn(PublicKeyCredentialCreationOptions.fromJson(AUTHENTICATOR_REQUEST_JSON));
 
         doThrow(new RuntimeException("Simulated mapping error")).when(credentialRegistrationResultMapper)
             .fromRegistrationResult(
@@ -220,4 +292,172 @@ public class WebAuthnAuthenticatorTest {
 
         verify(webAuthnRequestCache, times(1)).invalidate(requestId);
     }
+
+    @Test
+    public void testFinishAssertionLocksOutCredentialAfterRepeatedFailures() throws IOException {
+        givenAssertionRequest();
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(
+                CredentialAssertionFailedException.class,
+                () -> authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(false), null)
+            );
+        }
+
+        assertThrows(
+            AssertionLockedOutException.class,
+            () -> authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(true), null)
+        );
+        assertTrue(assertionFailureTracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID.getBase64()));
+        assertTrue(assertionFailureTracker.isLockedOut(KeyType.USER_HANDLE, TEST_USER_ID.getBase64()));
+    }
+
+    @Test
+    public void testFinishAssertionFailuresFromOtherAddressDoNotLockOutOwner() throws IOException {
+        givenAssertionRequest();
+        givenRegisteredCredential();
+
+        for (int i = 0; i < 5; i++) {
+            String attacker = "198.51.100." + i;
+            for (int j = 0; j < 4; j++) {
+                assertThrows(
+                    CredentialAssertionFailedException.class,
+                    () -> authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(false), attacker)
+                );
+            }
+        }
+
+        CredentialAssertionResult result = authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(true), "203.0.113.7");
+        assertEquals(TEST_USER_NAME, result.username());
+    }
+
+    @Test
+    public void testFinishAssertionSuccessResetsFailures() throws IOException {
+        givenAssertionRequest();
+        givenRegisteredCredential();
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(
+                CredentialAssertionFailedException.class,
+                () -> authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(false), null)
+            );
+        }
+
+        CredentialAssertionResult result = authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(true), null);
+        assertEquals(TEST_USER_NAME, result.username());
+        verify(assertionFailureTracker).recordSuccess(KeyType.CREDENTIAL_ID, CREDENTIAL_ID.getBase64(), null);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(
+                CredentialAssertionFailedException.class,
+                () -> authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(false), null)
+            );
+        }
+        assertFalse(assertionFailureTracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID.getBase64()));
+    }
+
+    @Test
+    public void testFinishAssertionWithUnknownRequestIdRecordsNoFailure() throws IOException {
+        String sourceAddress = "203.0.113.7";
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(
+                CredentialAssertionFailedException.class,
+                () -> authenticator.finishAssertion("madeUpRequestId", assertion(false), sourceAddress)
+            );
+        }
+
+        verify(assertionFailureTracker, never()).recordFailure(any(), any(), any());
+        verify(webAuthnRequestCache, never()).invalidate(anyString());
+
+        givenAssertionRequest();
+        givenRegisteredCredential();
+        CredentialAssertionResult result = authenticator.finishAssertion(ASSERTION_REQUEST_ID, assertion(true), sourceAddress);
+        assertEquals(CREDENTIAL_ID.getBase64(), result.credentialId());
+    }
+
+    private void givenAssertionRequest() {
+        when(webAuthnRequestCache.getAssertion(ASSERTION_REQUEST_ID)).thenReturn(AssertionRequest.builder()
+            .publicKeyCredentialRequestOptions(PublicKeyCredentialRequestOptions.builder()
+                .challenge(CHALLENGE)
+                .rpId(TEST_RP_HOSTNAME)
+                .build())
+            .build());
+    }
+
+    private void givenRegisteredCredential() {
+        when(databaseCredentialRepository.getUsernameForUserHandle(TEST_USER_ID)).thenReturn(Optional.of(TEST_USER_NAME));
+        when(databaseCredentialRepository.lookup(CREDENTIAL_ID, TEST_USER_ID)).thenReturn(Optional.of(RegisteredCredential.builder()
+            .credentialId(CREDENTIAL_ID)
+            .userHandle(TEST_USER_ID)
+            .publicKeyCose(cosePublicKey((ECPublicKey) CREDENTIAL_KEY_PAIR.getPublic()))
+            .signatureCount(0)
+            .build()));
+    }
+
+    /**
+     * An ES256 assertion over the test challenge, signed by the test credential's key. An invalid
+     * one signs the authenticator data alone.
+     */
+    private static PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> assertion(boolean valid) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] authenticatorData = ByteBuffer.allocate(37)
+                .put(sha256.digest(TEST_RP_HOSTNAME.getBytes(StandardCharsets.UTF_8)))
+                .put((byte) 0x05)
+                .putInt(1)
+                .array();
+            byte[] clientDataJson = ("{\"type\":\"webauthn.get\",\"challenge\":\"" + CHALLENGE.getBase64Url()
+                + "\",\"origin\":\"https://" + TEST_RP_HOSTNAME + "\"}").getBytes(StandardCharsets.UTF_8);
+
+            Signature signature = Signature.getInstance("SHA256withECDSA");
+            signature.initSign(CREDENTIAL_KEY_PAIR.getPrivate());
+            signature.update(authenticatorData);
+            if (valid) {
+                signature.update(sha256.digest(clientDataJson));
+            }
+
+            return PublicKeyCredential.<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs>builder()
+                .id(CREDENTIAL_ID)
+                .response(AuthenticatorAssertionResponse.builder()
+                    .authenticatorData(new ByteArray(authenticatorData))
+                    .clientDataJSON(new ByteArray(clientDataJson))
+                    .signature(new ByteArray(signature.sign()))
+                    .userHandle(TEST_USER_ID)
+                    .build())
+                .clientExtensionResults(ClientAssertionExtensionOutputs.builder().build())
+                .build();
+        } catch (GeneralSecurityException | IOException | Base64UrlException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes an EC2 P-256 key as the CBOR map {1: 2, 3: -7, -1: 1, -2: x, -3: y}.
+     */
+    private static ByteArray cosePublicKey(ECPublicKey key) {
+        return new ByteArray(ByteBuffer.allocate(77)
+            .put(new byte[]{(byte) 0xa5, 0x01, 0x02, 0x03, 0x26, 0x20, 0x01})
+            .put(new byte[]{0x21, 0x58, 0x20}).put(coordinate(key.getW().getAffineX()))
+            .put(new byte[]{0x22, 0x58, 0x20}).put(coordinate(key.getW().getAffineY()))
+            .array());
+    }
+
+    private static byte[] coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] coordinate = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, coordinate, 32 - length, length);
+        return coordinate;
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.tracing;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Stands in for an OpenTelemetry collector: accepts OTLP/HTTP trace exports on {@code /v1/traces}
+ * and keeps the raw protobuf payloads. Span names and ids are plain bytes in the payload, which
+ * is enough to check what was exported without the OTLP protobuf classes.
+ */
+class LocalOtlpCollector implements AutoCloseable {
+
+    private final HttpServer server;
+    private final List<byte[]> exports = new CopyOnWriteArrayList<>();
+
+    LocalOtlpCollector() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/traces", exchange -> {
+            exports.add(exchange.getRequestBody().readAllBytes());
+            exchange.getResponseHeaders().add("Content-Type", "application/x-protobuf");
+            // An empty body is a valid, empty ExportTraceServiceResponse.
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1/traces";
+    }
+
+    int exportCount() {
+        return exports.size();
+    }
+
+    boolean received(String spanName) {
+        byte[] name = spanName.getBytes(StandardCharsets.UTF_8);
+        return exports.stream().anyMatch(export -> indexOf(export, name) >= 0);
+    }
+
+    boolean receivedTrace(String traceIdHex) {
+        byte[] traceId = HexFormat.of().parseHex(traceIdHex);
+        return exports.stream().anyMatch(export -> indexOf(export, traceId) >= 0);
+    }
+
+    void clear() {
+        exports.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
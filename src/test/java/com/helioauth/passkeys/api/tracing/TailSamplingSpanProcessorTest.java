@@ -0,0 +1,180 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.tracing;
+
+import com.helioauth.passkeys.api.config.properties.TailSamplingProperties;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TailSamplingSpanProcessorTest {
+
+    private final CollectingProcessor exported = new CollectingProcessor();
+    private final TailSamplingProperties properties = new TailSamplingProperties();
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        properties.setProbability(0);
+        properties.setSlowThreshold(Duration.ofMillis(200));
+        tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(new TailSamplingSpanProcessor(exported, properties))
+            .build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void fastTraceWithoutErrors_isDropped() {
+        trace(0, false);
+
+        assertTrue(exported.names().isEmpty());
+    }
+
+    @Test
+    void traceWithFailedChild_isExportedWhole() {
+        trace(0, true);
+
+        assertEquals(List.of("child", "root"), exported.names());
+    }
+
+    @Test
+    void slowTrace_isExportedWhole() {
+        trace(TimeUnit.MILLISECONDS.toNanos(250), false);
+
+        assertEquals(List.of("child", "root"), exported.names());
+    }
+
+    @Test
+    void probability_keepsOrdinaryTraces() {
+        properties.setProbability(1);
+
+        trace(0, false);
+
+        assertEquals(List.of("child", "root"), exported.names());
+    }
+
+    @Test
+    void spansWaitForTheirRoot() {
+        Span root = tracer.spanBuilder("root").startSpan();
+        try (Scope _ = root.makeCurrent()) {
+            tracer.spanBuilder("child").startSpan().setStatus(StatusCode.ERROR).end();
+        }
+
+        assertTrue(exported.names().isEmpty());
+        root.end();
+        assertEquals(List.of("child", "root"), exported.names());
+    }
+
+    @Test
+    void stragglerOfDroppedTrace_isDropped() {
+        Span root = tracer.spanBuilder("root").startSpan();
+        Span straggler;
+        try (Scope _ = root.makeCurrent()) {
+            straggler = tracer.spanBuilder("straggler").startSpan();
+        }
+        root.end();
+
+        straggler.setStatus(StatusCode.ERROR);
+        straggler.end();
+
+        assertTrue(exported.names().isEmpty());
+    }
+
+    @Test
+    void stragglerOfKeptTrace_isExported() {
+        Span root = tracer.spanBuilder("root").startSpan();
+        Span straggler;
+        try (Scope _ = root.makeCurrent()) {
+            straggler = tracer.spanBuilder("straggler").startSpan();
+            tracer.spanBuilder("child").startSpan().setStatus(StatusCode.ERROR).end();
+        }
+        root.end();
+
+        straggler.end();
+
+        assertEquals(List.of("child", "root", "straggler"), exported.names());
+    }
+
+    private void trace(long rootDurationNanos, boolean childFails) {
+        long start = System.nanoTime();
+        Span root = tracer.spanBuilder("root").setStartTimestamp(start, TimeUnit.NANOSECONDS).startSpan();
+        try (Scope _ = root.makeCurrent()) {
+            Span child = tracer.spanBuilder("child").startSpan();
+            if (childFails) {
+                child.setStatus(StatusCode.ERROR);
+            }
+            child.end();
+        }
+        root.end(start + Math.max(rootDurationNanos, 1), TimeUnit.NANOSECONDS);
+    }
+
+    private static final class CollectingProcessor implements SpanProcessor {
+        private final List<ReadableSpan> spans = new CopyOnWriteArrayList<>();
+
+        List<String> names() {
+            return spans.stream().map(ReadableSpan::getName).toList();
+        }
+
+        @Override
+        public void onStart(Context parentContext, ReadWriteSpan span) {
+        }
+
+        @Override
+        public boolean isStartRequired() {
+            return false;
+        }
+
+        @Override
+        public void onEnd(ReadableSpan span) {
+            spans.add(span);
+        }
+
+        @Override
+        public boolean isEndRequired() {
+            return true;
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
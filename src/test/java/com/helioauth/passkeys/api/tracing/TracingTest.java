@@ -0,0 +1,161 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.tracing;
+
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "management.tracing.sampling.probability=1.0",
+    "tracing.tail-sampling.probability=0",
+    "tracing.tail-sampling.slow-threshold=1m"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class TracingTest {
+
+    private static final LocalOtlpCollector collector = startCollector();
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    SdkTracerProvider tracerProvider;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void otlpEndpoint(DynamicPropertyRegistry registry) {
+        registry.add("management.otlp.tracing.endpoint", collector::endpoint);
+    }
+
+    @AfterAll
+    static void stopCollector() {
+        collector.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        flush();
+        collector.clear();
+    }
+
+    @Test
+    void failedCeremony_isExportedUnderCallersTrace() throws Exception {
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+        // The assertion failure is not mapped to a status, so it surfaces as a servlet error.
+        assertThrows(ServletException.class, () -> mockMvc.perform(post("/v1/signin/finish")
+            .header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-01")
+            .contentType("application/json")
+            .content(signInFinishBody("unknown-request"))));
+        flush();
+
+        assertTrue(collector.receivedTrace(traceId), "trace of the calling application was not exported");
+        assertTrue(collector.received("assertion finish"), "ceremony span was not exported");
+        assertTrue(collector.received("http post /v1/signin/finish"), "request span was not exported");
+    }
+
+    @Test
+    void failedCeremony_isExported_whenCallerDidNotSample() throws Exception {
+        String traceId = "5cf92f3577b34da6a3ce929d0e0e4736";
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(post("/v1/signin/finish")
+            .header("traceparent", "00-" + traceId + "-00f067aa0ba902b7-00")
+            .contentType("application/json")
+            .content(signInFinishBody("unknown-request"))));
+        flush();
+
+        assertTrue(collector.receivedTrace(traceId), "unsampled trace of the calling application was not exported");
+    }
+
+    @Test
+    void fastSuccessfulRequest_isDroppedByTailSampling() throws Exception {
+        ClientApplication application = clientApplicationRepository.save(new ClientApplication("traced", "traced-api-key"));
+        mockMvc.perform(post("/v1/signin/start")
+                .header("X-App-Id", application.getId().toString())
+                .header("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01")
+                .contentType("application/json")
+                .content("{\"name\":\"traced-user\"}"))
+            .andExpect(status().isOk());
+        flush();
+
+        assertEquals(0, collector.exportCount());
+        // Still observed, only not exported: the repository call shows up as a timer.
+        assertNotNull(meterRegistry.find("passkeys.repository").tag("method", "findByClientApplicationIdAndName").timer());
+    }
+
+    private void flush() {
+        tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A well-formed assertion for a ceremony that was never started, so it fails once the request is looked up.
+     */
+    private static String signInFinishBody(String requestId) {
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        String clientData = base64.encodeToString(
+            "{\"type\":\"webauthn.get\",\"challenge\":\"AAAA\",\"origin\":\"https://localhost\"}".getBytes(StandardCharsets.UTF_8)
+        );
+        String credential = "{\"type\":\"public-key\",\"id\":\"AQID\",\"rawId\":\"AQID\",\"response\":{"
+            + "\"authenticatorData\":\"" + base64.encodeToString(new byte[37]) + "\","
+            + "\"clientDataJSON\":\"" + clientData + "\","
+            + "\"signature\":\"AAAA\"},"
+            + "\"clientExtensionResults\":{}}";
+        return "{\"requestId\":\"" + requestId + "\",\"publicKeyCredentialWithAssertion\":"
+            + "\"" + credential.replace("\"", "\\\"") + "\"}";
+    }
+
+    private static LocalOtlpCollector startCollector() {
+        try {
+            return new LocalOtlpCollector();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.warmup;
+
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.helioauth.passkeys.api.webauthn.CeremonyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "warm-up.enabled=true",
+    "warm-up.iterations=20",
+    "warm-up.statement-rounds=2"
+})
+@ActiveProfiles("test")
+class WarmUpTest {
+
+    @Autowired
+    WarmUp warmUp;
+
+    @Autowired
+    ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CeremonyStore webAuthnRequestCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void runsEveryPhaseBeforeAcceptingTraffic() {
+        WarmUpReport report = warmUp.getReport();
+
+        assertNotNull(report);
+        assertEquals(5, report.pool().operations());
+        assertEquals(5 * 2 * 10, report.statements().operations());
+        assertEquals(20, report.registrations().operations());
+        assertEquals(20, report.assertions().operations());
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+        assertNotNull(meterRegistry.find("passkeys.warmup").tag("phase", "assertions").timer());
+    }
+
+    @Test
+    void leavesNoUsersOrPendingRequestsBehind() {
+        assertTrue(userRepository.findByClientApplicationIdAndName(null, "warmup-0").isEmpty());
+        webAuthnRequestCache.cleanUp();
+        assertEquals(0, webAuthnRequestCache.estimatedSize());
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.AssertionLockoutProperties;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker.KeyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AssertionFailureTrackerTest {
+
+    private static final String CREDENTIAL_ID = "kUaBI-MmRg6NmRupGNA_Tx0JOnyKF1qZCs9FkqpAMv8";
+
+    @Mock
+    private Clock clock;
+
+    private AssertionLockoutProperties properties;
+    private AssertionFailureTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AssertionLockoutProperties();
+        properties.setSlots(16);
+        properties.setThreshold(3);
+        properties.setWindow(Duration.ofSeconds(60));
+        properties.setLockout(Duration.ofSeconds(300));
+        tracker = new AssertionFailureTracker(properties, clock);
+    }
+
+    @Test
+    void locksOutAfterThresholdWithinWindow() {
+        when(clock.millis()).thenReturn(1_000L, 2_000L, 3_000L, 4_000L);
+
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+
+        assertTrue(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID));
+    }
+
+    @Test
+    void doesNotLockOutWhenFailuresAreSpreadOutsideWindow() {
+        when(clock.millis()).thenReturn(0L, 40_000L, 80_000L, 81_000L);
+
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+
+        assertFalse(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID));
+    }
+
+    @Test
+    void lockoutExpires() {
+        when(clock.millis()).thenReturn(1_000L, 2_000L, 3_000L, 304_000L);
+
+        tracker.recordFailure(KeyType.USER_HANDLE, "handle");
+        tracker.recordFailure(KeyType.USER_HANDLE, "handle");
+        tracker.recordFailure(KeyType.USER_HANDLE, "handle");
+
+        assertFalse(tracker.isLockedOut(KeyType.USER_HANDLE, "handle"));
+    }
+
+    @Test
+    void keyTypesAreTrackedSeparately() {
+        when(clock.millis()).thenReturn(1_000L);
+
+        for (int i = 0; i < 3; i++) {
+            tracker.recordFailure(KeyType.SOURCE_ADDRESS, "10.0.0.1");
+        }
+
+        assertTrue(tracker.isLockedOut(KeyType.SOURCE_ADDRESS, "10.0.0.1"));
+        assertFalse(tracker.isLockedOut(KeyType.CREDENTIAL_ID, "10.0.0.1"));
+    }
+
+    @Test
+    void sourceAddressesAreTrackedSeparately() {
+        when(clock.millis()).thenReturn(1_000L);
+
+        for (int i = 0; i < 3; i++) {
+            tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID, "198.51.100.1");
+        }
+
+        assertTrue(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID, "198.51.100.1"));
+        assertFalse(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID, "203.0.113.7"));
+        assertFalse(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID));
+    }
+
+    @Test
+    void successClearsFailures() {
+        when(clock.millis()).thenReturn(1_000L);
+
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordSuccess(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+
+        assertFalse(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID));
+    }
+
+    @Test
+    void otherKeysDoNotEvictActiveSlot() {
+        properties.setSlots(AssertionFailureTracker.WAYS);
+        tracker = new AssertionFailureTracker(properties, clock);
+        when(clock.millis()).thenReturn(1_000L);
+
+        for (int i = 0; i < 3; i++) {
+            tracker.recordFailure(KeyType.SOURCE_ADDRESS, "10.0.0.1");
+            for (int j = 0; j < 2 * AssertionFailureTracker.WAYS; j++) {
+                tracker.recordFailure(KeyType.CREDENTIAL_ID, "credential-" + i + "-" + j);
+            }
+        }
+
+        assertTrue(tracker.isLockedOut(KeyType.SOURCE_ADDRESS, "10.0.0.1"));
+        assertTrue(tracker.snapshot().failuresUntracked() > 0);
+    }
+
+    @Test
+    void idleSlotIsReused() {
+        properties.setSlots(AssertionFailureTracker.WAYS);
+        tracker = new AssertionFailureTracker(properties, clock);
+        when(clock.millis()).thenReturn(1_000L, 1_000L, 1_000L, 1_000L, 62_000L);
+
+        for (int i = 0; i < AssertionFailureTracker.WAYS; i++) {
+            tracker.recordFailure(KeyType.CREDENTIAL_ID, "credential-" + i);
+        }
+        tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+
+        AssertionFailureTracker.Snapshot snapshot = tracker.snapshot();
+        assertEquals(AssertionFailureTracker.WAYS + 1, snapshot.failuresRecorded());
+        assertEquals(0, snapshot.failuresUntracked());
+    }
+
+    @Test
+    void disabledTrackerNeverLocksOut() {
+        properties.setEnabled(false);
+
+        for (int i = 0; i < 3; i++) {
+            tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        }
+
+        assertFalse(tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID));
+    }
+
+    @Test
+    void snapshotReportsLockedKeys() {
+        when(clock.millis()).thenReturn(1_000L);
+
+        for (int i = 0; i < 3; i++) {
+            tracker.recordFailure(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+        }
+        tracker.isLockedOut(KeyType.CREDENTIAL_ID, CREDENTIAL_ID);
+
+        AssertionFailureTracker.Snapshot snapshot = tracker.snapshot();
+        assertEquals(16, snapshot.slots());
+        assertEquals(1, snapshot.lockedKeys());
+        assertEquals(3, snapshot.failuresRecorded());
+        assertEquals(1, snapshot.lockouts());
+        assertEquals(1, snapshot.rejections());
+    }
+}
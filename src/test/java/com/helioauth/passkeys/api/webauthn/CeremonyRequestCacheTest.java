@@ -0,0 +1,231 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.service.exception.CeremonyCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.helioauth.passkeys.api.webauthn.CeremonyRequestCache.SHARED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CeremonyRequestCacheTest {
+
+    private static final String SMALL_REQUEST = "{\"challenge\":\"abc\"}";
+    private static final String LARGE_REQUEST = "{\"allowCredentials\":[" + "\"x\",".repeat(200) + "\"x\"]}";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WebAuthnRelyingPartyProperties.Cache properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WebAuthnRelyingPartyProperties.Cache();
+        properties.setPartitionWeight(DataSize.ofBytes(2_000));
+        properties.setOverflowWeight(DataSize.ofBytes(0));
+        properties.setExpiryGrace(Duration.ofSeconds(10));
+        properties.setExpiration(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void weighsEntriesByTheirSize() {
+        CeremonyRequestCache cache = cache();
+
+        cache.put("small", SMALL_REQUEST, null);
+        cache.put("large", LARGE_REQUEST, null);
+        cache.cleanUp();
+
+        assertEquals(CeremonyRequestCache.weigh("small", SMALL_REQUEST) + CeremonyRequestCache.weigh("large", LARGE_REQUEST),
+            cache.weightedSize());
+    }
+
+    @Test
+    void rejectsNewCeremonies_insteadOfEvictingPendingOnes() {
+        CeremonyRequestCache cache = cache();
+        cache.put("pending-1", LARGE_REQUEST, null);
+        cache.put("pending-2", LARGE_REQUEST, null);
+        cache.cleanUp();
+
+        assertThrows(CeremonyCapacityExceededException.class, () -> cache.put("new", LARGE_REQUEST, null));
+
+        assertNotNull(cache.getIfPresent("pending-1"));
+        assertNotNull(cache.getIfPresent("pending-2"));
+        assertNull(cache.getIfPresent("new"));
+        assertEquals(1, counter("passkeys.ceremony.cache.rejections", SHARED));
+        assertEquals(0, evictions(SHARED, "SIZE"));
+    }
+
+    @Test
+    void evictsBySize_whenRejectingIsDisabled() {
+        properties.setRejectWhenFull(false);
+        CeremonyRequestCache cache = cache();
+
+        for (int i = 0; i < 5; i++) {
+            cache.put("request-" + i, LARGE_REQUEST, null);
+        }
+        cache.cleanUp();
+
+        assertEquals(3, evictions(SHARED, "SIZE"));
+    }
+
+    @Test
+    void expiresEachEntryAfterItsCeremonyTimeoutAndGrace() {
+        CeremonyRequestCache cache = cache();
+        cache.put("short", SMALL_REQUEST, Duration.ofSeconds(30));
+        cache.put("long", SMALL_REQUEST, Duration.ofMinutes(2));
+        cache.put("default", SMALL_REQUEST, null);
+
+        nanos.addAndGet(Duration.ofSeconds(39).toNanos());
+        assertNotNull(cache.getIfPresent("short"));
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.getIfPresent("short"));
+        assertNotNull(cache.getIfPresent("long"));
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertNull(cache.getIfPresent("long"));
+        assertNotNull(cache.getIfPresent("default"));
+
+        nanos.addAndGet(Duration.ofMinutes(3).toNanos());
+        assertNull(cache.getIfPresent("default"));
+        cache.cleanUp();
+        assertEquals(3, evictions(SHARED, "EXPIRED"));
+    }
+
+    @Test
+    void requestIdRoutesToTheApplicationsPartition() {
+        CeremonyRequestCache cache = cache();
+        String requestId = CeremonyRequestCache.requestId("app-a", "nonce");
+        cache.put(requestId, SMALL_REQUEST, null);
+
+        assertEquals("app-a.nonce", requestId);
+        assertEquals(SMALL_REQUEST, cache.getIfPresent(requestId));
+        assertNull(cache.getIfPresent(CeremonyRequestCache.requestId("app-b", "nonce")));
+        assertNull(cache.getIfPresent("nonce"));
+        cache.cleanUp();
+        assertEquals(CeremonyRequestCache.weigh(requestId, SMALL_REQUEST),
+            meterRegistry.get("passkeys.ceremony.cache.weight").tag("partition", "app-a").gauge().value());
+    }
+
+    @Test
+    void floodFromOneApplication_onlyRejectsThatApplication() {
+        CeremonyRequestCache cache = cache();
+        cache.put(CeremonyRequestCache.requestId("quiet", "pending"), LARGE_REQUEST, null);
+        for (int i = 0; i < 2; i++) {
+            cache.put(CeremonyRequestCache.requestId("noisy", "n" + i), LARGE_REQUEST, null);
+        }
+        cache.cleanUp();
+
+        assertThrows(CeremonyCapacityExceededException.class,
+            () -> cache.put(CeremonyRequestCache.requestId("noisy", "n2"), LARGE_REQUEST, null));
+        cache.put(CeremonyRequestCache.requestId("quiet", "new"), LARGE_REQUEST, null);
+
+        assertNotNull(cache.getIfPresent(CeremonyRequestCache.requestId("quiet", "pending")));
+        assertNotNull(cache.getIfPresent(CeremonyRequestCache.requestId("quiet", "new")));
+        assertEquals(1, counter("passkeys.ceremony.cache.rejections", "noisy"));
+        assertEquals(0, counter("passkeys.ceremony.cache.rejections", "quiet"));
+    }
+
+    @Test
+    void fullPartition_spillsIntoItsShareOfTheOverflowPool() {
+        properties.setOverflowWeight(DataSize.ofBytes(4_000));
+        properties.setOverflowShare(0.5);
+        CeremonyRequestCache cache = cache();
+
+        for (int i = 0; i < 4; i++) {
+            cache.put(CeremonyRequestCache.requestId("app", "n" + i), LARGE_REQUEST, null);
+            cache.cleanUp();
+        }
+        assertThrows(CeremonyCapacityExceededException.class,
+            () -> cache.put(CeremonyRequestCache.requestId("app", "n4"), LARGE_REQUEST, null));
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(cache.getIfPresent(CeremonyRequestCache.requestId("app", "n" + i)));
+        }
+
+        // Finishing a spilled ceremony gives its share back
+        cache.invalidate(CeremonyRequestCache.requestId("app", "n3"));
+        cache.put(CeremonyRequestCache.requestId("app", "n4"), LARGE_REQUEST, null);
+        cache.cleanUp();
+        assertEquals(2 * CeremonyRequestCache.weigh("app.n2", LARGE_REQUEST),
+            meterRegistry.get("passkeys.ceremony.cache.overflow.weight").tag("partition", "app").gauge().value());
+
+        // Another application still gets its own partition and share
+        cache.put(CeremonyRequestCache.requestId("other", "n0"), LARGE_REQUEST, null);
+        assertEquals(0, evictions("app", "SIZE"));
+    }
+
+    @Test
+    void concurrentStarts_neverPushOutPendingCeremonies() throws Exception {
+        properties.setOverflowWeight(DataSize.ofBytes(2_000));
+        properties.setOverflowShare(1.0);
+        CeremonyRequestCache cache = cache();
+        cache.put("pending", LARGE_REQUEST, null);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                String prefix = "t" + thread + "-";
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        try {
+                            cache.put(prefix + i, LARGE_REQUEST, null);
+                            cache.invalidate(prefix + i);
+                        } catch (CeremonyCapacityExceededException e) {
+                            // Full for now
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+        cache.cleanUp();
+
+        assertNotNull(cache.getIfPresent("pending"));
+        assertEquals(0, evictions(SHARED, "SIZE"));
+        assertEquals(CeremonyRequestCache.weigh("pending", LARGE_REQUEST), cache.weightedSize());
+        assertEquals(0, meterRegistry.get("passkeys.ceremony.cache.overflow.weight").tag("partition", SHARED).gauge().value());
+    }
+
+    private double counter(String name, String partition) {
+        return meterRegistry.get(name).tag("partition", partition).functionCounter().count();
+    }
+
+    private double evictions(String partition, String cause) {
+        return meterRegistry.get("passkeys.ceremony.cache.evictions").tag("partition", partition).tag("cause", cause)
+            .functionCounter().count();
+    }
+
+    private CeremonyRequestCache cache() {
+        CeremonyRequestCache cache = new CeremonyRequestCache(properties, nanos::get);
+        cache.bindTo(meterRegistry);
+        return cache;
+    }
+}
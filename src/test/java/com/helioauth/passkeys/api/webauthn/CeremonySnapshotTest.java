@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartAssertionOptions;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.UserIdentity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CeremonySnapshotTest {
+
+    private static final Instant SHUTDOWN = Instant.parse("2025-06-01T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+    private WebAuthnRelyingPartyProperties.Cache properties;
+    private RelyingParty relyingParty;
+
+    @BeforeEach
+    void setUp() {
+        path = directory.resolve("ceremonies.snapshot");
+        properties = new WebAuthnRelyingPartyProperties.Cache();
+        properties.getOffHeap().setCapacity(DataSize.ofMegabytes(4));
+        properties.getOffHeap().setStripes(2);
+
+        CredentialRepository credentialRepository = mock(CredentialRepository.class);
+        when(credentialRepository.getCredentialIdsForUsername(anyString())).thenReturn(Set.of());
+        when(credentialRepository.getUserHandleForUsername(anyString())).thenReturn(Optional.of(new ByteArray(new byte[]{7})));
+        relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id("example.com").name("Example").build())
+            .credentialRepository(credentialRepository)
+            .build();
+    }
+
+    @Test
+    void restoresUnexpiredCeremonies_intoEitherStore() throws IOException {
+        PublicKeyCredentialCreationOptions registration = registration("alice");
+        AssertionRequest assertion = assertion("bob", 60_000);
+        AssertionRequest longAssertion = assertion("carol", 600_000);
+
+        for (boolean fromHeap : new boolean[]{true, false}) {
+            CeremonyStore before = fromHeap ? new CeremonyRequestCache(properties) : new OffHeapCeremonyStore(properties);
+            before.putRegistration("app.registration", registration);
+            before.putAssertion("app.assertion", assertion);
+            before.putAssertion("long", longAssertion);
+            new CeremonySnapshot(before, path, Clock.fixed(SHUTDOWN, ZoneOffset.UTC)).stop();
+
+            CeremonyStore after = fromHeap ? new OffHeapCeremonyStore(properties) : new CeremonyRequestCache(properties);
+            new CeremonySnapshot(after, path, Clock.fixed(SHUTDOWN.plus(Duration.ofMinutes(2)), ZoneOffset.UTC)).start();
+
+            assertEquals(registration.toBuilder().excludeCredentials(Optional.empty()).build(), after.getRegistration("app.registration"));
+            assertNull(after.getAssertion("app.assertion"), "expired during the restart");
+            assertEquals(longAssertion, after.getAssertion("long"));
+            assertEquals(2, after.estimatedSize());
+            assertFalse(Files.exists(path));
+        }
+    }
+
+    @Test
+    void restoredCeremonies_keepTheirRemainingLifetime() throws IOException {
+        CeremonyStore before = new CeremonyRequestCache(properties);
+        before.putAssertion("request", assertion("alice", 60_000));
+        new CeremonySnapshot(before, path, Clock.fixed(SHUTDOWN, ZoneOffset.UTC)).write();
+
+        Duration[] remaining = new Duration[1];
+        CeremonyStore after = new CeremonyRequestCache(properties);
+        new CeremonySnapshot(after, path, Clock.fixed(SHUTDOWN.plusSeconds(30), ZoneOffset.UTC)).restore();
+        after.export((requestId, ceremony, left) -> remaining[0] = left);
+
+        assertNotNull(remaining[0]);
+        assertTrue(remaining[0].compareTo(Duration.ofSeconds(61)) < 0 && remaining[0].compareTo(Duration.ofSeconds(55)) > 0,
+            remaining[0].toString());
+    }
+
+    @Test
+    void damagedSnapshot_isDiscarded() throws IOException {
+        CeremonyStore before = new OffHeapCeremonyStore(properties);
+        before.putRegistration("request", registration("alice"));
+        new CeremonySnapshot(before, path, Clock.fixed(SHUTDOWN, ZoneOffset.UTC)).write();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        CeremonyStore after = new OffHeapCeremonyStore(properties);
+        new CeremonySnapshot(after, path, Clock.fixed(SHUTDOWN, ZoneOffset.UTC)).start();
+
+        assertEquals(0, after.estimatedSize());
+        assertFalse(Files.exists(path));
+    }
+
+    private PublicKeyCredentialCreationOptions registration(String name) {
+        return relyingParty.startRegistration(StartRegistrationOptions.builder()
+            .user(UserIdentity.builder()
+                .name(name)
+                .displayName(name)
+                .id(new ByteArray(name.getBytes()))
+                .build())
+            .timeout(300_000)
+            .build());
+    }
+
+    private AssertionRequest assertion(String name, long timeout) {
+        return relyingParty.startAssertion(StartAssertionOptions.builder()
+            .username(name)
+            .timeout(timeout)
+            .build());
+    }
+}
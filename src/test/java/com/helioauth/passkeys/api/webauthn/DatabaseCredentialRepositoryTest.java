@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.auth.ApplicationScope;
+import com.helioauth.passkeys.api.datasource.ShardKeys;
+import com.helioauth.passkeys.api.domain.ClientApplication;
+import com.helioauth.passkeys.api.domain.ClientApplicationRepository;
+import com.helioauth.passkeys.api.domain.User;
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.domain.UserCredentialRepository;
+import com.helioauth.passkeys.api.domain.UserRepository;
+import com.yubico.webauthn.data.ByteArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DatabaseCredentialRepositoryTest {
+
+    @Autowired
+    DatabaseCredentialRepository credentialRepository;
+
+    @Autowired
+    ClientApplicationRepository clientApplicationRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserCredentialRepository userCredentialRepository;
+
+    private ClientApplication first;
+    private ClientApplication second;
+
+    @BeforeEach
+    void setUp() {
+        first = application("first");
+        second = application("second");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userCredentialRepository.deleteAll();
+        userRepository.deleteAll();
+        clientApplicationRepository.deleteAll(List.of(first, second));
+    }
+
+    @Test
+    void sameNameInTwoApplications_areDifferentUsers() {
+        ByteArray firstHandle = userWithCredential("alice", first);
+        ByteArray secondHandle = userWithCredential("alice", second);
+
+        assertEquals(Optional.of(firstHandle), inScope(first, () -> credentialRepository.getUserHandleForUsername("alice")));
+        assertEquals(Optional.of(secondHandle), inScope(second, () -> credentialRepository.getUserHandleForUsername("alice")));
+        assertEquals(Optional.empty(), inScope(null, () -> credentialRepository.getUserHandleForUsername("alice")));
+    }
+
+    @Test
+    void userHandleOfAnotherApplication_isNotFound() {
+        ByteArray handle = userWithCredential("bob", first);
+        ByteArray credentialId = ByteArray.fromBase64(userCredentialRepository.findAll().getFirst().getCredentialId());
+
+        assertEquals(Optional.of("bob"), inScope(first, () -> credentialRepository.getUsernameForUserHandle(handle)));
+        assertTrue(inScope(first, () -> credentialRepository.lookup(credentialId, handle)).isPresent());
+        assertEquals(Optional.empty(), inScope(second, () -> credentialRepository.getUsernameForUserHandle(handle)));
+        assertFalse(inScope(second, () -> credentialRepository.lookup(credentialId, handle)).isPresent());
+    }
+
+    @Test
+    void usersOfNoApplication_areNotFound() {
+        ByteArray handle = userWithCredential("carol", null);
+
+        assertEquals(Optional.empty(), inScope(first, () -> credentialRepository.getUserHandleForUsername("carol")));
+        assertTrue(inScope(second, () -> credentialRepository.getCredentialIdsForUsername("carol")).isEmpty());
+        assertEquals(Optional.empty(), inScope(second, () -> credentialRepository.getUsernameForUserHandle(handle)));
+        assertEquals(Optional.empty(), inScope(null, () -> credentialRepository.getUsernameForUserHandle(handle)));
+    }
+
+    private static <T> T inScope(ClientApplication application, Supplier<T> lookup) {
+        return ApplicationScope.call(application != null ? application.getId() : null, lookup);
+    }
+
+    private ByteArray userWithCredential(String name, ClientApplication application) {
+        ByteArray userHandle = ShardKeys.randomUserHandle();
+        User user = userRepository.save(User.builder().name(name).displayName(name).clientApplication(application).build());
+        userCredentialRepository.save(UserCredential.builder()
+            .user(user)
+            .clientApplication(application)
+            .userHandle(userHandle.getBase64())
+            .credentialId(ShardKeys.randomUserHandle().getBase64())
+            .publicKeyCose("pQECAyYgASFYIA")
+            .signatureCount(0L)
+            .createdAt(Instant.now())
+            .build());
+        return userHandle;
+    }
+
+    private ClientApplication application(String name) {
+        return clientApplicationRepository.save(ClientApplication.builder()
+            .name(name)
+            .apiKey(UUID.randomUUID().toString())
+            .relyingPartyHostname(name + ".example.com")
+            .build());
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.api.webauthn;
+
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.service.exception.CeremonyCapacityExceededException;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartAssertionOptions;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.AuthenticatorSelectionCriteria;
+import com.yubico.webauthn.data.AuthenticatorTransport;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.ResidentKeyRequirement;
+import com.yubico.webauthn.data.UserIdentity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.helioauth.passkeys.api.webauthn.CeremonyRequestCache.SHARED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OffHeapCeremonyStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WebAuthnRelyingPartyProperties.Cache properties;
+    private RelyingParty relyingParty;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WebAuthnRelyingPartyProperties.Cache();
+        properties.setPartitionWeight(DataSize.ofMegabytes(1));
+        properties.setOverflowWeight(DataSize.ofBytes(0));
+        properties.setExpiryGrace(Duration.ofSeconds(10));
+        properties.setExpiration(Duration.ofMinutes(5));
+        properties.getOffHeap().setCapacity(DataSize.ofMegabytes(2));
+        properties.getOffHeap().setStripes(4);
+
+        CredentialRepository credentialRepository = mock(CredentialRepository.class);
+        when(credentialRepository.getCredentialIdsForUsername(anyString())).thenReturn(Set.of(
+            PublicKeyCredentialDescriptor.builder()
+                .id(new ByteArray(new byte[]{1, 2, 3}))
+                .transports(Set.of(AuthenticatorTransport.INTERNAL, AuthenticatorTransport.HYBRID))
+                .build(),
+            PublicKeyCredentialDescriptor.builder()
+                .id(new ByteArray(new byte[64]))
+                .build()
+        ));
+        when(credentialRepository.getUserHandleForUsername(anyString())).thenReturn(Optional.of(new ByteArray(new byte[]{7})));
+        relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id("example.com").name("Example").build())
+            .credentialRepository(credentialRepository)
+            .build();
+    }
+
+    @Test
+    void keepsWhatRegistrationFinishNeeds() {
+        OffHeapCeremonyStore store = store();
+        PublicKeyCredentialCreationOptions options = registration("alice");
+
+        store.putRegistration("app.request", options);
+
+        assertEquals(options.toBuilder().excludeCredentials(Optional.empty()).build(), store.getRegistration("app.request"));
+        assertNull(store.getAssertion("app.request"));
+    }
+
+    @Test
+    void keepsWhatAssertionFinishNeeds() {
+        OffHeapCeremonyStore store = store();
+        AssertionRequest request = relyingParty.startAssertion(StartAssertionOptions.builder()
+            .username("alice")
+            .timeout(60_000)
+            .build());
+
+        store.putAssertion("request", request);
+
+        assertEquals(request, store.getAssertion("request"));
+        assertNull(store.getRegistration("request"));
+    }
+
+    @Test
+    void invalidate_releasesTheBlocks() {
+        OffHeapCeremonyStore store = store();
+        store.putRegistration("request", registration("alice"));
+        assertTrue(store.usedBytes() > 0);
+
+        store.invalidate("request");
+
+        assertNull(store.getRegistration("request"));
+        assertEquals(0, store.usedBytes());
+        assertEquals(0, store.estimatedSize());
+        assertEquals(0, gauge("passkeys.ceremony.cache.weight", SHARED));
+    }
+
+    @Test
+    void expiresEachCeremonyAfterItsTimeoutAndGrace() {
+        properties.setExpiration(Duration.ofMinutes(20));
+        OffHeapCeremonyStore store = store();
+        store.putRegistration("short", registration("alice", 30_000L));
+        store.putRegistration("long", registration("bob", 120_000L));
+        store.putRegistration("default", registration("carol", null));
+
+        nanos.addAndGet(Duration.ofSeconds(39).toNanos());
+        assertNotNull(store.getRegistration("short"));
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(store.getRegistration("short"));
+        assertNotNull(store.getRegistration("long"));
+
+        nanos.addAndGet(Duration.ofMinutes(10).toNanos());
+        store.cleanUp();
+        assertEquals(1, store.estimatedSize());
+        assertNotNull(store.getRegistration("default"));
+
+        nanos.addAndGet(Duration.ofMinutes(10).toNanos());
+        store.cleanUp();
+        assertEquals(0, store.estimatedSize());
+        assertEquals(0, store.usedBytes());
+        assertEquals(3, meterRegistry.get("passkeys.ceremony.cache.evictions").tag("partition", SHARED)
+            .functionCounter().count());
+    }
+
+    @Test
+    void floodFromOneApplication_onlyRejectsThatApplication() {
+        properties.setPartitionWeight(DataSize.ofKilobytes(4));
+        OffHeapCeremonyStore store = store();
+        store.putRegistration(CeremonyRequestCache.requestId("quiet", "pending"), registration("quiet"));
+
+        assertThrows(CeremonyCapacityExceededException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                store.putRegistration(CeremonyRequestCache.requestId("noisy", "n" + i), registration("noisy"));
+            }
+        });
+        store.putRegistration(CeremonyRequestCache.requestId("quiet", "new"), registration("quiet"));
+
+        assertNotNull(store.getRegistration(CeremonyRequestCache.requestId("quiet", "pending")));
+        assertNotNull(store.getRegistration(CeremonyRequestCache.requestId("quiet", "new")));
+        assertTrue(gauge("passkeys.ceremony.cache.weight", "noisy") <= DataSize.ofKilobytes(4).toBytes());
+        assertEquals(1, meterRegistry.get("passkeys.ceremony.cache.rejections").tag("partition", "noisy")
+            .functionCounter().count());
+    }
+
+    @Test
+    void applicationsShareOneOverflowPool() {
+        properties.setPartitionWeight(DataSize.ofKilobytes(4));
+        properties.setOverflowWeight(DataSize.ofKilobytes(8));
+        properties.setOverflowShare(0.5);
+        OffHeapCeremonyStore store = store();
+
+        List<String> applications = List.of("first", "second", "third");
+        for (String application : applications) {
+            try {
+                for (int i = 0; i < 100; i++) {
+                    store.putRegistration(CeremonyRequestCache.requestId(application, "r" + i), registration(application));
+                }
+            } catch (CeremonyCapacityExceededException e) {
+                // Over its share, or the pool is used up
+            }
+        }
+
+        double pooled = gauge("passkeys.ceremony.cache.weight", CeremonyRequestCache.OVERFLOW);
+        assertTrue(pooled <= DataSize.ofKilobytes(8).toBytes(), "overflow pool holds " + pooled + " bytes");
+        assertTrue(gauge("passkeys.ceremony.cache.weight", "third") <= DataSize.ofKilobytes(4).toBytes());
+
+        store.invalidate(CeremonyRequestCache.requestId("first", "r0"));
+        store.putRegistration(CeremonyRequestCache.requestId("third", "again"), registration("third"));
+    }
+
+    @Test
+    void rejectsWhenOutOfMemory_andReusesFreedBlocks() {
+        properties.setPartitionWeight(DataSize.ofMegabytes(64));
+        properties.getOffHeap().setCapacity(DataSize.ofKilobytes(64));
+        properties.getOffHeap().setStripes(1);
+        OffHeapCeremonyStore store = store();
+
+        int stored = 0;
+        try {
+            while (true) {
+                store.putRegistration("request-" + stored, registration("user-" + stored));
+                stored++;
+            }
+        } catch (CeremonyCapacityExceededException e) {
+            assertTrue(stored > 10);
+        }
+
+        store.invalidate("request-0");
+        store.putRegistration("request-again", registration("user-0"));
+        for (int i = 1; i < stored; i++) {
+            assertEquals("user-" + i, store.getRegistration("request-" + i).getUser().getName());
+        }
+    }
+
+    @Test
+    void findsEveryCeremony_acrossInsertsAndRemovals() {
+        properties.setPartitionWeight(DataSize.ofMegabytes(64));
+        properties.getOffHeap().setCapacity(DataSize.ofMegabytes(8));
+        properties.getOffHeap().setStripes(2);
+        OffHeapCeremonyStore store = store();
+        PublicKeyCredentialCreationOptions options = registration("alice");
+
+        for (int i = 0; i < 10_000; i++) {
+            store.putRegistration("request-" + i, options);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            store.invalidate("request-" + i);
+        }
+
+        assertEquals(5_000, store.estimatedSize());
+        for (int i = 0; i < 10_000; i++) {
+            PublicKeyCredentialCreationOptions stored = store.getRegistration("request-" + i);
+            if (i % 2 == 0) {
+                assertNull(stored, "request-" + i);
+            } else {
+                assertNotNull(stored, "request-" + i);
+            }
+        }
+    }
+
+    private PublicKeyCredentialCreationOptions registration(String name) {
+        return registration(name, 300_000L);
+    }
+
+    private PublicKeyCredentialCreationOptions registration(String name, Long timeout) {
+        StartRegistrationOptions.StartRegistrationOptionsBuilder options = StartRegistrationOptions.builder()
+            .user(UserIdentity.builder()
+                .name(name)
+                .displayName(name)
+                .id(new ByteArray(name.getBytes()))
+                .build())
+            .authenticatorSelection(AuthenticatorSelectionCriteria.builder()
+                .residentKey(ResidentKeyRequirement.PREFERRED)
+                .build());
+        if (timeout != null) {
+            options.timeout(timeout);
+        }
+        return relyingParty.startRegistration(options.build());
+    }
+
+    private double gauge(String name, String partition) {
+        return meterRegistry.get(name).tag("partition", partition).gauge().value();
+    }
+
+    private OffHeapCeremonyStore store() {
+        OffHeapCeremonyStore store = new OffHeapCeremonyStore(properties, nanos::get);
+        store.bindTo(meterRegistry);
+        return store;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
+import com.helioauth.passkeys.api.service.dto.CredentialAssertionResult;
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assertion ceremony cost in {@link WebAuthnAuthenticator} against a population of users
+ * registered through real ceremonies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssertionBenchmark {
+
+    @Param({"ES256", "EdDSA", "RS256"})
+    public CoseAlgorithm algorithm;
+
+    @Param({"100"})
+    public int users;
+
+    private WebAuthnAuthenticator webAuthnAuthenticator;
+    private SoftwareAuthenticator authenticator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryCredentialRepository credentialRepository = new InMemoryCredentialRepository();
+        webAuthnAuthenticator = Ceremonies.webAuthnAuthenticator(credentialRepository);
+        authenticator = new SoftwareAuthenticator(Ceremonies.ORIGIN);
+
+        for (int i = 0; i < users; i++) {
+            credentialRepository.add(Ceremonies.register(
+                webAuthnAuthenticator, authenticator, username(i), algorithm, AttestationFormat.NONE
+            ));
+        }
+    }
+
+    @Benchmark
+    public AssertionStartResult startAssertion() throws IOException {
+        return webAuthnAuthenticator.startAssertion(randomUsername());
+    }
+
+    @Benchmark
+    public CredentialAssertionResult finishAssertion(PendingAssertion pending) throws IOException {
+        return webAuthnAuthenticator.finishAssertion(pending.requestId, pending.credentialJson, null);
+    }
+
+    private String randomUsername() {
+        return username(ThreadLocalRandom.current().nextInt(users));
+    }
+
+    private static String username(int index) {
+        return "user-" + index;
+    }
+
+    /**
+     * A started assertion and the authenticator's signed response to it.
+     */
+    @State(Scope.Thread)
+    public static class PendingAssertion {
+        String requestId;
+        String credentialJson;
+
+        @Setup(Level.Invocation)
+        public void prepare(AssertionBenchmark benchmark) throws IOException {
+            AssertionStartResult start = benchmark.startAssertion();
+            requestId = start.requestId();
+            credentialJson = SoftwareAuthenticator.toJson(benchmark.authenticator.authenticate(
+                SoftwareAuthenticator.parseRequestOptions(start.options())
+            ));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helioauth.passkeys.api.cbor.WebAuthnCborModule;
+import com.helioauth.passkeys.api.controller.dto.SignUpFinishRequestV2;
+import com.helioauth.passkeys.api.generated.models.ListPasskeysResponse;
+import com.helioauth.passkeys.api.generated.models.PasskeyCredential;
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.UserIdentity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire formats of the API: encoding and decoding the sign-up finish request and the credential
+ * listing as {@code application/json} and as {@code application/cbor}, with the mappers the
+ * message converters use. Payload sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CborBenchmark {
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    @Param({"1", "20"})
+    public int credentialsPerUser;
+
+    private ObjectMapper mapper;
+    private SignUpFinishRequestV2 signUpFinishRequest;
+    private ListPasskeysResponse listing;
+    private byte[] encodedSignUpFinishRequest;
+    private byte[] encodedListing;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().modulesToInstall(new WebAuthnCborModule()).build();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+
+        RelyingParty relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id(Ceremonies.RP_ID).name("Benchmark").build())
+            .credentialRepository(new InMemoryCredentialRepository())
+            .build();
+        PublicKeyCredentialCreationOptions options = relyingParty.startRegistration(StartRegistrationOptions.builder()
+            .user(UserIdentity.builder()
+                .name("user")
+                .displayName("user")
+                .id(new ByteArray(new byte[32]))
+                .build())
+            .build());
+        signUpFinishRequest = new SignUpFinishRequestV2(
+            "requestId",
+            new SoftwareAuthenticator(Ceremonies.ORIGIN).register(options, CoseAlgorithm.ES256, AttestationFormat.PACKED)
+        );
+
+        List<PasskeyCredential> passkeys = new ArrayList<>(credentialsPerUser);
+        for (int i = 0; i < credentialsPerUser; i++) {
+            passkeys.add(new PasskeyCredential()
+                .credentialId(signUpFinishRequest.publicKeyCredential().getId().getBase64())
+                .userHandle(options.getUser().getId().getBase64())
+                .signatureCount((long) i)
+                .displayName("Passkey " + i)
+                .createdAt(Instant.parse("2025-01-01T00:00:00Z"))
+                .lastUsedAt(Instant.parse("2025-01-02T00:00:00Z")));
+        }
+        listing = new ListPasskeysResponse(passkeys);
+
+        encodedSignUpFinishRequest = mapper.writeValueAsBytes(signUpFinishRequest);
+        encodedListing = mapper.writeValueAsBytes(listing);
+        System.out.printf("%n%s: sign-up finish request %d bytes, listing of %d credentials %d bytes%n",
+            format, encodedSignUpFinishRequest.length, credentialsPerUser, encodedListing.length);
+    }
+
+    @Benchmark
+    public byte[] encodeSignUpFinishRequest() throws IOException {
+        return mapper.writeValueAsBytes(signUpFinishRequest);
+    }
+
+    @Benchmark
+    public SignUpFinishRequestV2 decodeSignUpFinishRequest() throws IOException {
+        return mapper.readValue(encodedSignUpFinishRequest, SignUpFinishRequestV2.class);
+    }
+
+    @Benchmark
+    public byte[] encodeListing() throws IOException {
+        return mapper.writeValueAsBytes(listing);
+    }
+
+    @Benchmark
+    public ListPasskeysResponse decodeListing() throws IOException {
+        return mapper.readValue(encodedListing, ListPasskeysResponse.class);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.helioauth.passkeys.api.config.properties.AssertionLockoutProperties;
+import com.helioauth.passkeys.api.config.properties.ClusterProperties;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.mapper.CredentialRegistrationResultMapper;
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
+import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
+import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.api.webauthn.AssertionFailureTracker;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestIds;
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.yubico.webauthn.CredentialRepository;
+import io.micrometer.observation.ObservationRegistry;
+import org.mapstruct.factory.Mappers;
+
+import java.io.IOException;
+
+/**
+ * Wires the ceremony engine the way the Spring context does, without the context.
+ */
+final class Ceremonies {
+
+    static final String RP_ID = "localhost";
+    static final String ORIGIN = "https://localhost";
+
+    private Ceremonies() {
+    }
+
+    static WebAuthnRelyingPartyProperties relyingPartyProperties() {
+        WebAuthnRelyingPartyProperties properties = new WebAuthnRelyingPartyProperties();
+        properties.setHostname(RP_ID);
+        properties.setDisplayName("Benchmark");
+        properties.setCache(new WebAuthnRelyingPartyProperties.Cache());
+        return properties;
+    }
+
+    static CeremonyRequestCache requestCache(WebAuthnRelyingPartyProperties.Cache cacheProperties) {
+        return new CeremonyRequestCache(cacheProperties);
+    }
+
+    static WebAuthnAuthenticator webAuthnAuthenticator(CredentialRepository credentialRepository) {
+        WebAuthnRelyingPartyProperties properties = relyingPartyProperties();
+        return new WebAuthnAuthenticator(
+            credentialRepository,
+            properties,
+            Mappers.getMapper(CredentialRegistrationResultMapper.class),
+            requestCache(properties.getCache()),
+            new CeremonyRequestIds(new ClusterProperties()),
+            new AssertionFailureTracker(new AssertionLockoutProperties()),
+            ObservationRegistry.NOOP
+        );
+    }
+
+    /**
+     * Runs a full registration ceremony and returns what the API would persist.
+     */
+    static CredentialRegistrationResult register(WebAuthnAuthenticator webAuthnAuthenticator,
+                                                 SoftwareAuthenticator authenticator,
+                                                 String username,
+                                                 CoseAlgorithm algorithm,
+                                                 AttestationFormat format) throws IOException {
+        AssertionStartResult start = webAuthnAuthenticator.startRegistration(RegistrationStartRequest.withName(username).build());
+        return webAuthnAuthenticator.finishRegistration(
+            start.requestId(),
+            authenticator.register(SoftwareAuthenticator.parseCreationOptions(start.options()), algorithm, format)
+        );
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartAssertionOptions;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.UserIdentity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ceremony cache layer: storing pending ceremonies in the request cache and
+ * deserializing them again when the ceremony finishes. Run with {@code -t} to measure
+ * contention on the shared cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CeremonyCacheBenchmark {
+
+    private static final int KEYS = 1 << 16;
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+    @Param({"1MB", "64MB"})
+    public String partitionWeight;
+
+    private CeremonyRequestCache cache;
+    private String creationOptionsJson;
+    private String assertionRequestJson;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        WebAuthnRelyingPartyProperties.Cache cacheProperties = new WebAuthnRelyingPartyProperties.Cache();
+        cacheProperties.setPartitionWeight(DataSize.parse(partitionWeight));
+        cacheProperties.setRejectWhenFull(false);
+        cache = Ceremonies.requestCache(cacheProperties);
+
+        RelyingParty relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id(Ceremonies.RP_ID).name("Benchmark").build())
+            .credentialRepository(new InMemoryCredentialRepository())
+            .build();
+        PublicKeyCredentialCreationOptions creationOptions = relyingParty.startRegistration(StartRegistrationOptions.builder()
+            .user(UserIdentity.builder()
+                .name("user")
+                .displayName("user")
+                .id(WebAuthnAuthenticator.generateRandom())
+                .build())
+            .build());
+        creationOptionsJson = creationOptions.toJson();
+        assertionRequestJson = relyingParty.startAssertion(StartAssertionOptions.builder().build()).toJson();
+
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = WebAuthnAuthenticator.generateRandom().getHex();
+        }
+        long capacity = DataSize.parse(partitionWeight).toBytes();
+        for (int i = 0; i < KEYS && cache.weightedSize() < capacity; i++) {
+            cache.put(keys[i], creationOptionsJson, TIMEOUT);
+        }
+    }
+
+    /**
+     * One ceremony's worth of cache traffic: put on start, read and invalidate on finish.
+     */
+    @Benchmark
+    public String startAndFinish(Cursor cursor) {
+        String key = keys[cursor.next()];
+        cache.put(key, creationOptionsJson, TIMEOUT);
+        String value = cache.getIfPresent(key);
+        cache.invalidate(key);
+        return value;
+    }
+
+    @Benchmark
+    public String lookupPending(Cursor cursor) {
+        return cache.getIfPresent(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public String generateRequestId() {
+        return WebAuthnAuthenticator.generateRandom().getHex();
+    }
+
+    @Benchmark
+    public PublicKeyCredentialCreationOptions readCreationOptions() throws IOException {
+        return PublicKeyCredentialCreationOptions.fromJson(creationOptionsJson);
+    }
+
+    @Benchmark
+    public AssertionRequest readAssertionRequest() throws IOException {
+        return AssertionRequest.fromJson(assertionRequestJson);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next() {
+            position = (position + 1) & (KEYS - 1);
+            return position;
+        }
+    }
+}
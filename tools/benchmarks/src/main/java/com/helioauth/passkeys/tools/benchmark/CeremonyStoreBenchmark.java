@@ -0,0 +1,148 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.helioauth.passkeys.api.config.properties.WebAuthnRelyingPartyProperties;
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.webauthn.CeremonyRequestCache;
+import com.helioauth.passkeys.api.webauthn.CeremonyStore;
+import com.helioauth.passkeys.api.webauthn.OffHeapCeremonyStore;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.AuthenticatorSelectionCriteria;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.ResidentKeyRequirement;
+import com.yubico.webauthn.data.UserIdentity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heap and off-heap ceremony stores holding a large number of pending ceremonies. Setup
+ * prints the heap and direct memory the pending ceremonies retain. {@code fullGc} times a full
+ * collection with them live, and {@code startAndFinish} the store traffic of one more ceremony;
+ * run it with {@code -prof gc} to compare allocation and collection time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-XX:MaxDirectMemorySize=1g"})
+@State(Scope.Benchmark)
+public class CeremonyStoreBenchmark {
+
+    private static final String APPLICATION = UUID.randomUUID().toString();
+
+    @Param({"heap", "off-heap"})
+    public String store;
+
+    @Param({"1000000"})
+    public int pending;
+
+    private CeremonyStore ceremonies;
+    private PublicKeyCredentialCreationOptions creationOptions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long heapBefore = usedHeapAfterGc();
+        long directBefore = usedDirectMemory();
+
+        WebAuthnRelyingPartyProperties.Cache cacheProperties = new WebAuthnRelyingPartyProperties.Cache();
+        cacheProperties.setPartitionWeight(DataSize.ofGigabytes(2));
+        cacheProperties.getOffHeap().setCapacity(DataSize.ofMegabytes(768));
+        ceremonies = store.equals("heap")
+            ? new CeremonyRequestCache(cacheProperties)
+            : new OffHeapCeremonyStore(cacheProperties);
+
+        RelyingParty relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id(Ceremonies.RP_ID).name("Benchmark").build())
+            .credentialRepository(new InMemoryCredentialRepository())
+            .build();
+        creationOptions = relyingParty.startRegistration(StartRegistrationOptions.builder()
+            .user(UserIdentity.builder()
+                .name("user@example.com")
+                .displayName("user@example.com")
+                .id(WebAuthnAuthenticator.generateRandom())
+                .build())
+            .authenticatorSelection(AuthenticatorSelectionCriteria.builder()
+                .residentKey(ResidentKeyRequirement.PREFERRED)
+                .build())
+            .timeout(Duration.ofMinutes(5).toMillis())
+            .build());
+
+        for (int i = 0; i < pending; i++) {
+            ceremonies.putRegistration(requestId(), creationOptions);
+        }
+        long heap = usedHeapAfterGc() - heapBefore;
+        long direct = usedDirectMemory() - directBefore;
+        long inUse = ceremonies instanceof OffHeapCeremonyStore offHeap ? offHeap.usedBytes() : 0;
+        System.out.printf("%n%s: %d pending ceremonies retain %d MB of heap (%d bytes each), %d MB of %d MB direct memory in use%n",
+            store, pending, heap >> 20, heap / pending, inUse >> 20, direct >> 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public void fullGc() {
+        System.gc();
+    }
+
+    @Benchmark
+    public PublicKeyCredentialCreationOptions startAndFinish() {
+        String requestId = requestId();
+        ceremonies.putRegistration(requestId, creationOptions);
+        PublicKeyCredentialCreationOptions options = ceremonies.getRegistration(requestId);
+        ceremonies.invalidate(requestId);
+        return options;
+    }
+
+    private static String requestId() {
+        return CeremonyRequestCache.requestId(APPLICATION, WebAuthnAuthenticator.generateRandom().getHex());
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirectMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> pool.getName().equals("direct"))
+            .mapToLong(BufferPoolMXBean::getMemoryUsed)
+            .sum();
+    }
+}
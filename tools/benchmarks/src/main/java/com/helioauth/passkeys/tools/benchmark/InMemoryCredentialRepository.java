@@ -0,0 +1,95 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.RegisteredCredential;
+import com.yubico.webauthn.data.AuthenticatorTransport;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link CredentialRepository} backed by hash maps, so benchmarks measure the ceremony
+ * engine rather than the database.
+ */
+public class InMemoryCredentialRepository implements CredentialRepository {
+
+    private final Map<String, ByteArray> userHandlesByUsername = new ConcurrentHashMap<>();
+    private final Map<ByteArray, String> usernamesByUserHandle = new ConcurrentHashMap<>();
+    private final Map<ByteArray, RegisteredCredential> credentialsById = new ConcurrentHashMap<>();
+    private final Map<ByteArray, Set<ByteArray>> credentialIdsByUserHandle = new ConcurrentHashMap<>();
+
+    public void add(CredentialRegistrationResult result) {
+        ByteArray userHandle = ByteArray.fromBase64(result.userHandle());
+        ByteArray credentialId = ByteArray.fromBase64(result.credentialId());
+
+        userHandlesByUsername.put(result.name(), userHandle);
+        usernamesByUserHandle.put(userHandle, result.name());
+        credentialsById.put(credentialId, RegisteredCredential.builder()
+            .credentialId(credentialId)
+            .userHandle(userHandle)
+            .publicKeyCose(ByteArray.fromBase64(result.publicKeyCose()))
+            .signatureCount(result.signatureCount())
+            .build());
+        credentialIdsByUserHandle.computeIfAbsent(userHandle, _ -> ConcurrentHashMap.newKeySet()).add(credentialId);
+    }
+
+    @Override
+    public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String username) {
+        ByteArray userHandle = userHandlesByUsername.get(username);
+        if (userHandle == null) {
+            return Collections.emptySet();
+        }
+
+        return credentialIdsByUserHandle.getOrDefault(userHandle, Set.of()).stream()
+            .map(credentialId -> PublicKeyCredentialDescriptor.builder()
+                .id(credentialId)
+                .transports(Set.of(AuthenticatorTransport.INTERNAL))
+                .build())
+            .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Optional<ByteArray> getUserHandleForUsername(String username) {
+        return Optional.ofNullable(userHandlesByUsername.get(username));
+    }
+
+    @Override
+    public Optional<String> getUsernameForUserHandle(ByteArray userHandle) {
+        return Optional.ofNullable(usernamesByUserHandle.get(userHandle));
+    }
+
+    @Override
+    public Optional<RegisteredCredential> lookup(ByteArray credentialId, ByteArray userHandle) {
+        return Optional.ofNullable(credentialsById.get(credentialId))
+            .filter(credential -> credential.getUserHandle().equals(userHandle));
+    }
+
+    @Override
+    public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
+        RegisteredCredential credential = credentialsById.get(credentialId);
+        return credential != null ? Set.of(credential) : Set.of();
+    }
+}
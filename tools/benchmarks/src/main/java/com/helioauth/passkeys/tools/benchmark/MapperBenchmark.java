@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.helioauth.passkeys.api.domain.UserCredential;
+import com.helioauth.passkeys.api.mapper.CredentialRegistrationResultMapper;
+import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
+import com.helioauth.passkeys.api.webauthn.UserCredentialRegisteredCredentialMapper;
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.yubico.webauthn.FinishRegistrationOptions;
+import com.yubico.webauthn.RegisteredCredential;
+import com.yubico.webauthn.RegistrationResult;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.ClientRegistrationExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.UserIdentity;
+import com.yubico.webauthn.exception.RegistrationFailedException;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping between Yubico results, DTOs and entities on the registration and lookup paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param({"ES256", "RS256"})
+    public CoseAlgorithm algorithm;
+
+    @Param({"1", "10"})
+    public int credentialsPerUser;
+
+    private final CredentialRegistrationResultMapper credentialRegistrationResultMapper =
+        Mappers.getMapper(CredentialRegistrationResultMapper.class);
+    private final UserCredentialRegisteredCredentialMapper registeredCredentialMapper =
+        new UserCredentialRegisteredCredentialMapper();
+
+    private RegistrationResult registrationResult;
+    private UserIdentity userIdentity;
+    private AuthenticatorAttestationResponse attestationResponse;
+    private List<UserCredential> userCredentials;
+
+    @Setup(Level.Trial)
+    public void setUp() throws RegistrationFailedException {
+        SoftwareAuthenticator authenticator = new SoftwareAuthenticator(Ceremonies.ORIGIN);
+        RelyingParty relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id(Ceremonies.RP_ID).name("Benchmark").build())
+            .credentialRepository(new InMemoryCredentialRepository())
+            .build();
+
+        userIdentity = UserIdentity.builder()
+            .name("user")
+            .displayName("user")
+            .id(new ByteArray(new byte[32]))
+            .build();
+
+        userCredentials = new ArrayList<>(credentialsPerUser);
+        for (int i = 0; i < credentialsPerUser; i++) {
+            PublicKeyCredentialCreationOptions options = relyingParty.startRegistration(
+                StartRegistrationOptions.builder().user(userIdentity).build()
+            );
+            PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> credential =
+                authenticator.register(options, algorithm, AttestationFormat.PACKED);
+
+            registrationResult = relyingParty.finishRegistration(FinishRegistrationOptions.builder()
+                .request(options)
+                .response(credential)
+                .build());
+            attestationResponse = credential.getResponse();
+
+            CredentialRegistrationResult result = credentialRegistrationResultMapper.fromRegistrationResult(
+                registrationResult, userIdentity, attestationResponse
+            );
+            userCredentials.add(UserCredential.builder()
+                .credentialId(result.credentialId())
+                .userHandle(result.userHandle())
+                .publicKeyCose(result.publicKeyCose())
+                .signatureCount(result.signatureCount())
+                .attestationObject(result.attestationObject())
+                .clientDataJson(result.clientDataJson())
+                .build());
+        }
+    }
+
+    @Benchmark
+    public CredentialRegistrationResult fromRegistrationResult() {
+        return credentialRegistrationResultMapper.fromRegistrationResult(registrationResult, userIdentity, attestationResponse);
+    }
+
+    @Benchmark
+    public RegisteredCredential toRegisteredCredential() {
+        return registeredCredentialMapper.toRegisteredCredential(userCredentials.getFirst());
+    }
+
+    @Benchmark
+    public Set<RegisteredCredential> toRegisteredCredentialSet() {
+        return registeredCredentialMapper.toRegisteredCredentialSet(userCredentials);
+    }
+}
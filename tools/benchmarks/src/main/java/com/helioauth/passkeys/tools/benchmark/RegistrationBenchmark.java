@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.benchmark;
+
+import com.helioauth.passkeys.api.service.WebAuthnAuthenticator;
+import com.helioauth.passkeys.api.service.dto.AssertionStartResult;
+import com.helioauth.passkeys.api.service.dto.CredentialRegistrationResult;
+import com.helioauth.passkeys.api.service.dto.RegistrationStartRequest;
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
+import com.yubico.webauthn.data.ClientRegistrationExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registration ceremony cost in {@link WebAuthnAuthenticator}. The software authenticator's work
+ * happens in per-invocation setup and is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+    @Param({"ES256", "EdDSA", "RS256"})
+    public CoseAlgorithm algorithm;
+
+    @Param({"NONE", "PACKED"})
+    public AttestationFormat format;
+
+    private WebAuthnAuthenticator webAuthnAuthenticator;
+    private SoftwareAuthenticator authenticator;
+    private final AtomicLong users = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        webAuthnAuthenticator = Ceremonies.webAuthnAuthenticator(new InMemoryCredentialRepository());
+        authenticator = new SoftwareAuthenticator(Ceremonies.ORIGIN);
+    }
+
+    @Benchmark
+    public AssertionStartResult startRegistration() throws IOException {
+        return webAuthnAuthenticator.startRegistration(RegistrationStartRequest.withName(nextUsername()).build());
+    }
+
+    @Benchmark
+    public CredentialRegistrationResult finishRegistration(PendingRegistration pending) throws IOException {
+        return webAuthnAuthenticator.finishRegistration(pending.requestId, pending.credentialJson);
+    }
+
+    @Benchmark
+    public CredentialRegistrationResult finishRegistrationParsed(PendingRegistration pending) throws IOException {
+        return webAuthnAuthenticator.finishRegistration(pending.requestId, pending.credential);
+    }
+
+    private String nextUsername() {
+        return "user-" + users.incrementAndGet();
+    }
+
+    /**
+     * A started ceremony and the authenticator's response to it, ready to be finished.
+     */
+    @State(Scope.Thread)
+    public static class PendingRegistration {
+        String requestId;
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> credential;
+        String credentialJson;
+
+        @Setup(Level.Invocation)
+        public void prepare(RegistrationBenchmark benchmark) throws IOException {
+            AssertionStartResult start = benchmark.startRegistration();
+            requestId = start.requestId();
+            credential = benchmark.authenticator.register(
+                SoftwareAuthenticator.parseCreationOptions(start.options()),
+                benchmark.algorithm,
+                benchmark.format
+            );
+            credentialJson = SoftwareAuthenticator.toJson(credential);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+
+/**
+ * Portable writer using batched prepared statements. With the PostgreSQL driver, set
+ * {@code reWriteBatchedInserts=true} on the URL to send each batch as multi-row inserts.
+ */
+final class BatchDatasetWriter implements DatasetWriter {
+
+    private final Connection connection;
+    private final PreparedStatement applications;
+    private final PreparedStatement users;
+    private final PreparedStatement credentials;
+
+    BatchDatasetWriter(Connection connection) throws SQLException {
+        this.connection = connection;
+        connection.setAutoCommit(false);
+        this.applications = connection.prepareStatement("insert into applications "
+            + "(id, name, api_key, relying_party_name, relying_party_hostname, created_at, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)");
+        this.users = connection.prepareStatement("insert into users (" + USER_COLUMNS + ") values (?, ?, ?, ?, ?, ?)");
+        this.credentials = connection.prepareStatement("insert into user_credentials (" + CREDENTIAL_COLUMNS + ") "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    @Override
+    public void application(SyntheticDataset.Application application) throws SQLException {
+        applications.setObject(1, application.id());
+        applications.setString(2, application.name());
+        applications.setString(3, application.apiKey());
+        applications.setString(4, application.relyingPartyName());
+        applications.setString(5, application.relyingPartyHostname());
+        applications.setTimestamp(6, timestamp(application.createdAt()));
+        applications.setTimestamp(7, timestamp(application.createdAt()));
+        applications.addBatch();
+    }
+
+    @Override
+    public void user(SyntheticDataset.User user, SyntheticDataset.Application application) throws SQLException {
+        users.setObject(1, user.id());
+        users.setString(2, user.name());
+        users.setString(3, user.name());
+        users.setTimestamp(4, timestamp(user.createdAt()));
+        users.setTimestamp(5, timestamp(user.createdAt()));
+        users.setObject(6, application.id());
+        users.addBatch();
+    }
+
+    @Override
+    public void credential(long id, SyntheticDataset.Credential credential, SyntheticDataset.Application application)
+        throws SQLException {
+        credentials.setLong(1, id);
+        credentials.setString(2, credential.credentialId().getBase64());
+        credentials.setString(3, credential.user().userHandle().getBase64());
+        credentials.setString(4, credential.user().name());
+        credentials.setLong(5, credential.signatureCount());
+        credentials.setString(6, credential.publicKeyCose().getBase64());
+        credentials.setString(7, credential.attestationObject().getBase64());
+        credentials.setString(8, credential.clientDataJson().getBase64());
+        credentials.setBoolean(9, credential.backupEligible());
+        credentials.setBoolean(10, credential.backupState());
+        credentials.setBoolean(11, true);
+        credentials.setTimestamp(12, timestamp(credential.createdAt()));
+        if (credential.lastUsedAt() == null) {
+            credentials.setNull(13, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            credentials.setTimestamp(13, timestamp(credential.lastUsedAt()));
+        }
+        credentials.setObject(14, credential.user().id());
+        credentials.setObject(15, application.id());
+        credentials.addBatch();
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        applications.executeBatch();
+        users.executeBatch();
+        credentials.executeBatch();
+        connection.commit();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        applications.close();
+        users.close();
+        credentials.close();
+        connection.close();
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.from(instant);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * PostgreSQL writer streaming rows with {@code COPY ... FROM STDIN}, which skips per-row
+ * statement parsing and planning and is the fastest way to bulk-load through JDBC.
+ * Applications are few and go through a plain insert.
+ */
+final class CopyDatasetWriter implements DatasetWriter {
+
+    private static final String COPY_USERS = "COPY users (" + USER_COLUMNS + ") FROM STDIN (FORMAT csv)";
+    private static final String COPY_CREDENTIALS = "COPY user_credentials (" + CREDENTIAL_COLUMNS + ") FROM STDIN (FORMAT csv)";
+
+    private final Connection connection;
+    private final CopyManager copyManager;
+    private final PreparedStatement applications;
+    private final StringBuilder users = new StringBuilder();
+    private final StringBuilder credentials = new StringBuilder();
+
+    CopyDatasetWriter(Connection connection) throws SQLException {
+        this.connection = connection;
+        this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        connection.setAutoCommit(false);
+        this.applications = connection.prepareStatement("insert into applications "
+            + "(id, name, api_key, relying_party_name, relying_party_hostname, created_at, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    @Override
+    public void application(SyntheticDataset.Application application) throws SQLException {
+        applications.setObject(1, application.id());
+        applications.setString(2, application.name());
+        applications.setString(3, application.apiKey());
+        applications.setString(4, application.relyingPartyName());
+        applications.setString(5, application.relyingPartyHostname());
+        applications.setTimestamp(6, Timestamp.from(application.createdAt()));
+        applications.setTimestamp(7, Timestamp.from(application.createdAt()));
+        applications.addBatch();
+    }
+
+    @Override
+    public void user(SyntheticDataset.User user, SyntheticDataset.Application application) {
+        users.append(user.id()).append(',')
+            .append(quote(user.name())).append(',')
+            .append(quote(user.name())).append(',')
+            .append(user.createdAt()).append(',')
+            .append(user.createdAt()).append(',')
+            .append(application.id()).append('\n');
+    }
+
+    @Override
+    public void credential(long id, SyntheticDataset.Credential credential, SyntheticDataset.Application application) {
+        // Base64 and ISO-8601 values contain no CSV metacharacters; an empty field is NULL
+        credentials.append(id).append(',')
+            .append(credential.credentialId().getBase64()).append(',')
+            .append(credential.user().userHandle().getBase64()).append(',')
+            .append(quote(credential.user().name())).append(',')
+            .append(credential.signatureCount()).append(',')
+            .append(credential.publicKeyCose().getBase64()).append(',')
+            .append(credential.attestationObject().getBase64()).append(',')
+            .append(credential.clientDataJson().getBase64()).append(',')
+            .append(credential.backupEligible()).append(',')
+            .append(credential.backupState()).append(',')
+            .append(true).append(',')
+            .append(credential.createdAt()).append(',')
+            .append(credential.lastUsedAt() == null ? "" : credential.lastUsedAt().toString()).append(',')
+            .append(credential.user().id()).append(',')
+            .append(application.id()).append('\n');
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        applications.executeBatch();
+        try {
+            copy(COPY_USERS, users);
+            copy(COPY_CREDENTIALS, credentials);
+        } catch (IOException e) {
+            throw new SQLException("COPY failed", e);
+        }
+        connection.commit();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        applications.close();
+        connection.close();
+    }
+
+    private void copy(String sql, StringBuilder rows) throws SQLException, IOException {
+        if (!rows.isEmpty()) {
+            copyManager.copyIn(sql, new StringReader(rows.toString()));
+            rows.setLength(0);
+        }
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
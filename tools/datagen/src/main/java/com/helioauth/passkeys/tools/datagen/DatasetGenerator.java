@@ -0,0 +1,68 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import java.sql.DriverManager;
+import java.util.Arrays;
+
+/**
+ * Bulk-loads a synthetic dataset into the API's database and writes its manifest.
+ * The manifest lets the load test sign in as any generated user.
+ */
+public final class DatasetGenerator {
+
+    private DatasetGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(DatasetGeneratorOptions.USAGE);
+            return;
+        }
+
+        DatasetGeneratorOptions options;
+        try {
+            options = DatasetGeneratorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(DatasetGeneratorOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        SyntheticDataset dataset = new SyntheticDataset(options.spec());
+        DatasetSpec spec = options.spec();
+        System.out.printf("Generating %,d applications x %,d users (seed %d) with %d threads, %s mode%n",
+            spec.applications(), spec.usersPerApplication(), spec.seed(), options.threads(), options.mode());
+
+        DatasetLoader.Result result = new DatasetLoader(
+            dataset,
+            () -> DriverManager.getConnection(options.jdbcUrl(), options.username(), options.password()),
+            options.mode(),
+            options.threads(),
+            options.batchSize(),
+            System.out
+        ).load();
+
+        DatasetManifest.of(dataset).write(options.manifest());
+        System.out.printf("Loaded %,d users and %,d credentials in %.1f s (%.0f users/s)%n",
+            result.users(), result.credentials(), result.elapsed().toMillis() / 1000.0,
+            result.users() / Math.max(0.001, result.elapsed().toMillis() / 1000.0));
+        System.out.printf("Manifest written to %s%n", options.manifest().toAbsolutePath());
+    }
+}
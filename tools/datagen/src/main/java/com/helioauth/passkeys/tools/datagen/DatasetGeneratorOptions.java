@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line options of the dataset generator.
+ */
+public record DatasetGeneratorOptions(
+    String jdbcUrl,
+    String username,
+    String password,
+    DatasetSpec spec,
+    DatasetLoader.Mode mode,
+    int threads,
+    int batchSize,
+    Path manifest
+) {
+
+    static final String USAGE = """
+        Usage: java -jar datagen.jar --jdbc-url=URL [options]
+
+          --jdbc-url=URL            database of the API, with the schema already created
+          --db-username=NAME        (default passkeys)
+          --db-password=PASSWORD
+          --seed=N                  equal seeds and sizes generate identical data (default 1)
+          --applications=N          client applications to create (default 1)
+          --users=N                 users per application (default 10000)
+          --rp-hostname=HOST        relying party of the credentials; {app} is replaced with the
+                                    application index (default localhost)
+          --reference-time=INSTANT  the dataset's "now", ISO-8601 (default start of today, UTC)
+          --history=DURATION        age of the oldest users, e.g. 730d (default 730d)
+          --mode=MODE               copy (PostgreSQL only) or batch (default copy on PostgreSQL)
+          --threads=N               generator threads (default available processors)
+          --batch-size=N            users per transaction (default 1000)
+          --manifest=FILE           where to write the dataset manifest (default dataset.json)
+        """;
+
+    public static DatasetGeneratorOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(arg.substring(2), args[++i]);
+            } else {
+                values.put(arg.substring(2), "true");
+            }
+        }
+
+        String jdbcUrl = values.get("jdbc-url");
+        if (jdbcUrl == null) {
+            throw new IllegalArgumentException("--jdbc-url is required");
+        }
+
+        DatasetSpec spec = new DatasetSpec(
+            Long.parseLong(values.getOrDefault("seed", "1")),
+            Integer.parseInt(values.getOrDefault("applications", "1")),
+            Integer.parseInt(values.getOrDefault("users", "10000")),
+            values.getOrDefault("rp-hostname", "localhost"),
+            values.containsKey("reference-time")
+                ? Instant.parse(values.get("reference-time"))
+                : Instant.now().truncatedTo(ChronoUnit.DAYS),
+            parseDuration(values.getOrDefault("history", "730d"))
+        );
+
+        boolean postgres = jdbcUrl.startsWith("jdbc:postgresql:");
+        DatasetLoader.Mode mode = DatasetLoader.Mode.valueOf(
+            values.getOrDefault("mode", postgres ? "copy" : "batch").toUpperCase(Locale.ROOT));
+        if (mode == DatasetLoader.Mode.COPY && !postgres) {
+            throw new IllegalArgumentException("--mode=copy requires a PostgreSQL database");
+        }
+
+        int threads = Integer.parseInt(values.getOrDefault("threads",
+            Integer.toString(Runtime.getRuntime().availableProcessors())));
+        int batchSize = Integer.parseInt(values.getOrDefault("batch-size", "1000"));
+        if (threads < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("--threads and --batch-size must be positive");
+        }
+
+        return new DatasetGeneratorOptions(
+            jdbcUrl,
+            values.getOrDefault("db-username", "passkeys"),
+            values.get("db-password"),
+            spec,
+            mode,
+            threads,
+            batchSize,
+            Path.of(values.getOrDefault("manifest", "dataset.json"))
+        );
+    }
+
+    /**
+     * Parses durations written as {@code 30s}, {@code 5m}, {@code 12h} or {@code 730d}, or ISO-8601.
+     */
+    static Duration parseDuration(String value) {
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        if (lower.startsWith("p")) {
+            return Duration.parse(value);
+        }
+
+        long amount = Long.parseLong(lower.substring(0, lower.length() - 1));
+        return switch (lower.charAt(lower.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'd' -> Duration.ofDays(amount);
+            default -> throw new IllegalArgumentException("Invalid duration " + value);
+        };
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads a {@link SyntheticDataset} into the API's schema, which must already exist.
+ * <p>
+ * Users are split into chunks of {@code batchSize} that worker threads generate and write
+ * independently, each on its own connection and one transaction per chunk. Key generation
+ * dominates the cost, so the number of threads should match the cores available to the loader.
+ * <p>
+ * Credential row ids are assigned from the user's position in the dataset, above the largest
+ * existing id, and the id sequence is moved past them afterwards so the API keeps working.
+ */
+public final class DatasetLoader {
+
+    public enum Mode {
+        COPY,
+        BATCH
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Hibernate allocates ids in blocks of 50 from {@code user_credentials_seq}; moving the sequence
+     * a full block past the loaded rows keeps both pooled optimizers clear of them.
+     */
+    private static final long SEQUENCE_HEADROOM = 51;
+
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+
+    private final SyntheticDataset dataset;
+    private final ConnectionFactory connections;
+    private final Mode mode;
+    private final int threads;
+    private final int batchSize;
+    private final PrintStream out;
+
+    private final LongAdder usersWritten = new LongAdder();
+    private final LongAdder credentialsWritten = new LongAdder();
+
+    public DatasetLoader(SyntheticDataset dataset, ConnectionFactory connections, Mode mode,
+                         int threads, int batchSize, PrintStream out) {
+        this.dataset = dataset;
+        this.connections = connections;
+        this.mode = mode;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.out = out;
+    }
+
+    public Result load() throws SQLException, InterruptedException {
+        long start = System.nanoTime();
+        DatasetSpec spec = dataset.spec();
+
+        SyntheticDataset.Application[] applications = new SyntheticDataset.Application[spec.applications()];
+        for (int i = 0; i < applications.length; i++) {
+            applications[i] = dataset.application(i);
+        }
+
+        long baseId;
+        try (DatasetWriter writer = writer(connections.open())) {
+            for (SyntheticDataset.Application application : applications) {
+                writer.application(application);
+            }
+            writer.flush();
+        }
+        try (Connection connection = connections.open();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select coalesce(max(id), 0) from user_credentials")) {
+            resultSet.next();
+            baseId = resultSet.getLong(1);
+        }
+
+        AtomicLong nextChunk = new AtomicLong();
+        long chunks = (spec.totalUsers() + batchSize - 1) / batchSize;
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> reportProgress(start), PROGRESS_INTERVAL.toMillis(),
+            PROGRESS_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(workers.submit(() -> {
+                    try (DatasetWriter writer = writer(connections.open())) {
+                        long chunk;
+                        while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                            writeChunk(writer, applications, baseId, chunk);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("Dataset generation failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            progress.shutdownNow();
+        }
+
+        advanceCredentialSequence(baseId + spec.totalUsers() * SyntheticDataset.MAX_CREDENTIALS_PER_USER);
+        return new Result(usersWritten.sum(), credentialsWritten.sum(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void writeChunk(DatasetWriter writer, SyntheticDataset.Application[] applications,
+                            long baseId, long chunk) throws SQLException {
+        DatasetSpec spec = dataset.spec();
+        long end = Math.min(spec.totalUsers(), (chunk + 1) * batchSize);
+        long credentials = 0;
+
+        for (long ordinal = chunk * batchSize; ordinal < end; ordinal++) {
+            int application = (int) (ordinal / spec.usersPerApplication());
+            SyntheticDataset.User user = dataset.user(application, (int) (ordinal % spec.usersPerApplication()));
+            writer.user(user, applications[application]);
+
+            for (int index = 0; index < user.credentialCount(); index++) {
+                long id = baseId + ordinal * SyntheticDataset.MAX_CREDENTIALS_PER_USER + index + 1;
+                writer.credential(id, dataset.credential(user, index), applications[application]);
+                credentials++;
+            }
+        }
+
+        writer.flush();
+        usersWritten.add(end - chunk * batchSize);
+        credentialsWritten.add(credentials);
+    }
+
+    private void advanceCredentialSequence(long maxId) throws SQLException {
+        long next = maxId + SEQUENCE_HEADROOM;
+        try (Connection connection = connections.open()) {
+            if (connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("PostgreSQL")) {
+                try (PreparedStatement statement = connection.prepareStatement(
+                    "select setval('user_credentials_seq', greatest(?, (select last_value from user_credentials_seq)))")) {
+                    statement.setLong(1, next);
+                    statement.execute();
+                }
+            } else {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("alter sequence user_credentials_seq restart with " + next);
+                }
+            }
+        } catch (SQLException e) {
+            out.printf("Could not advance user_credentials_seq to %d, do so before using the API: %s%n", next, e.getMessage());
+        }
+    }
+
+    private DatasetWriter writer(Connection connection) throws SQLException {
+        return mode == Mode.COPY ? new CopyDatasetWriter(connection) : new BatchDatasetWriter(connection);
+    }
+
+    private void reportProgress(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long users = usersWritten.sum();
+        out.printf("%,d / %,d users, %,d credentials (%.0f users/s)%n",
+            users, dataset.spec().totalUsers(), credentialsWritten.sum(), users / seconds);
+    }
+
+    public record Result(long users, long credentials, Duration elapsed) {}
+}
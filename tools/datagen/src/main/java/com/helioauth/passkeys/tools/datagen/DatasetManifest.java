@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JSON description of a loaded dataset: the spec it was generated from, enough to re-derive every
+ * row, plus the application credentials a client needs to call the API.
+ */
+public record DatasetManifest(
+    long seed,
+    int applications,
+    int usersPerApplication,
+    String relyingPartyHostname,
+    String referenceTime,
+    String history,
+    List<ApplicationEntry> applicationEntries
+) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public record ApplicationEntry(int index, UUID id, String apiKey, String relyingPartyHostname) {}
+
+    public static DatasetManifest of(SyntheticDataset dataset) {
+        DatasetSpec spec = dataset.spec();
+        List<ApplicationEntry> entries = new ArrayList<>();
+        for (int i = 0; i < spec.applications(); i++) {
+            SyntheticDataset.Application application = dataset.application(i);
+            entries.add(new ApplicationEntry(i, application.id(), application.apiKey(), application.relyingPartyHostname()));
+        }
+
+        return new DatasetManifest(
+            spec.seed(),
+            spec.applications(),
+            spec.usersPerApplication(),
+            spec.relyingPartyHostname(),
+            spec.referenceTime().toString(),
+            spec.history().toString(),
+            entries
+        );
+    }
+
+    public static DatasetManifest read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), DatasetManifest.class);
+    }
+
+    public void write(Path path) throws IOException {
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    public DatasetSpec spec() {
+        return new DatasetSpec(
+            seed,
+            applications,
+            usersPerApplication,
+            relyingPartyHostname,
+            Instant.parse(referenceTime),
+            Duration.parse(history)
+        );
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Shape of a synthetic dataset. Two datasets generated from equal specs are identical, down to
+ * the ids, API keys and key pairs.
+ *
+ * @param relyingPartyHostname hostname the credentials are scoped to; {@code {app}} is replaced
+ *                             with the application index to give each application its own hostname
+ * @param referenceTime the "now" of the dataset; creation and last-used times lie before it
+ * @param history how far back before {@code referenceTime} users were created
+ */
+public record DatasetSpec(
+    long seed,
+    int applications,
+    int usersPerApplication,
+    String relyingPartyHostname,
+    Instant referenceTime,
+    Duration history
+) {
+
+    public DatasetSpec {
+        if (applications < 1 || usersPerApplication < 1) {
+            throw new IllegalArgumentException("A dataset needs at least one application and one user per application");
+        }
+    }
+
+    public long totalUsers() {
+        return (long) applications * usersPerApplication;
+    }
+
+    public String relyingPartyHostname(int application) {
+        return relyingPartyHostname.replace("{app}", Integer.toString(application));
+    }
+}
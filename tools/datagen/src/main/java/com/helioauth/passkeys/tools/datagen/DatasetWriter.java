@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import java.sql.SQLException;
+
+/**
+ * Writes generated rows to the API's tables. Rows are buffered until {@link #flush()}, which
+ * writes them in one transaction, users before the credentials referencing them.
+ */
+interface DatasetWriter extends AutoCloseable {
+
+    String USER_COLUMNS = "id, name, display_name, created_at, updated_at, application_id";
+
+    String CREDENTIAL_COLUMNS = "id, credential_id, user_handle, display_name, signature_count, public_key_cose, "
+        + "attestation_object, client_data_json, backup_eligible, backup_state, is_discoverable, created_at, "
+        + "last_used_at, user_id, application_id";
+
+    void application(SyntheticDataset.Application application) throws SQLException;
+
+    void user(SyntheticDataset.User user, SyntheticDataset.Application application) throws SQLException;
+
+    /**
+     * @param application the application of the credential's user, which the credential carries too
+     */
+    void credential(long id, SyntheticDataset.Credential credential, SyntheticDataset.Application application)
+        throws SQLException;
+
+    void flush() throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
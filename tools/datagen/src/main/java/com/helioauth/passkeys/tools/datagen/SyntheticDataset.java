@@ -0,0 +1,363 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.helioauth.passkeys.tools.authenticator.SoftwareCredential;
+import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.ClientRegistrationExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialParameters;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.UserIdentity;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Derives the rows of a synthetic dataset from a {@link DatasetSpec}.
+ * <p>
+ * Every application, user and credential is computed from the seed and its own indexes alone,
+ * so rows can be generated in any order or in parallel, and a load test can re-derive the
+ * private key of any stored credential without the generator having to write the keys out.
+ * <p>
+ * The distributions approximate a consumer passkey deployment:
+ * <ul>
+ *     <li>credentials per user follow a power law capped at {@link #MAX_CREDENTIALS_PER_USER},
+ *     most users having one and few having many</li>
+ *     <li>ES256 keys dominate, with some RS256 (Windows Hello) and EdDSA keys. RS256 key pairs come
+ *     from a small pool shared across credentials, since generating 2048-bit keys would otherwise
+ *     take most of the load time</li>
+ *     <li>most credentials are synced passkeys with {@code none} attestation and a zero signature
+ *     counter, the rest are device-bound with {@code packed} attestation and a running counter</li>
+ *     <li>last use is exponentially distributed towards the reference time, and some credentials
+ *     were never used after registration</li>
+ * </ul>
+ */
+public final class SyntheticDataset {
+
+    public static final int MAX_CREDENTIALS_PER_USER = 8;
+
+    private static final double CREDENTIAL_COUNT_EXPONENT = 2.2;
+    private static final double ES256_SHARE = 0.95;
+    private static final double RS256_SHARE = 0.03;
+    private static final double SYNCED_SHARE = 0.75;
+    private static final double NEVER_USED_SHARE = 0.12;
+    private static final Duration MEAN_TIME_SINCE_LAST_USE = Duration.ofDays(21);
+    private static final double MEAN_SIGN_INS_PER_DAY = 0.5;
+
+    private static final int RSA_KEY_POOL_SIZE = 16;
+
+    private static final long APPLICATION = 0x6170706c69636174L;
+    private static final long USER = 0x7573657273000000L;
+    private static final long CREDENTIAL = 0x63726564656e7469L;
+
+    private final DatasetSpec spec;
+    private final double[] credentialCountCumulative;
+    private final KeyPair[] rsaKeyPool = new KeyPair[RSA_KEY_POOL_SIZE];
+
+    public SyntheticDataset(DatasetSpec spec) {
+        this.spec = spec;
+        this.credentialCountCumulative = new double[MAX_CREDENTIALS_PER_USER];
+        double sum = 0;
+        for (int count = 1; count <= MAX_CREDENTIALS_PER_USER; count++) {
+            sum += Math.pow(count, -CREDENTIAL_COUNT_EXPONENT);
+            credentialCountCumulative[count - 1] = sum;
+        }
+        for (int i = 0; i < credentialCountCumulative.length; i++) {
+            credentialCountCumulative[i] /= sum;
+        }
+    }
+
+    public DatasetSpec spec() {
+        return spec;
+    }
+
+    public Application application(int index) {
+        SplittableRandom random = random(APPLICATION, index, 0, 0);
+        String hostname = spec.relyingPartyHostname(index);
+        byte[] apiKey = new byte[16];
+        nextBytes(random, apiKey);
+
+        return new Application(
+            index,
+            uuid(random),
+            "Synthetic application " + index,
+            HexFormat.of().formatHex(apiKey),
+            hostname,
+            "Synthetic application " + index,
+            spec.referenceTime().minus(spec.history())
+        );
+    }
+
+    public User user(int application, int index) {
+        SplittableRandom random = random(USER, application, index, 0);
+        byte[] userHandle = new byte[32];
+        nextBytes(random, userHandle);
+
+        long historyMillis = spec.history().toMillis();
+        Instant createdAt = spec.referenceTime().minusMillis(random.nextLong(1, historyMillis + 1));
+
+        return new User(
+            application,
+            index,
+            uuid(random),
+            username(application, index),
+            new ByteArray(userHandle),
+            createdAt,
+            credentialCount(random.nextDouble())
+        );
+    }
+
+    /**
+     * Registers the credential with a software authenticator, producing the attestation object
+     * and client data a real registration would have stored.
+     */
+    public Credential credential(User user, int index) {
+        Draws draws = draws(user, index);
+        String rpId = spec.relyingPartyHostname(user.application());
+
+        SoftwareAuthenticator authenticator = authenticator(user, index, rpId);
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> registration =
+            authenticator.register(
+                PublicKeyCredentialCreationOptions.builder()
+                    .rp(RelyingPartyIdentity.builder().id(rpId).name(rpId).build())
+                    .user(UserIdentity.builder()
+                        .name(user.name())
+                        .displayName(user.name())
+                        .id(user.userHandle())
+                        .build())
+                    .challenge(draws.challenge())
+                    .pubKeyCredParams(List.of(PublicKeyCredentialParameters.builder()
+                        .alg(draws.algorithm().getIdentifier())
+                        .build()))
+                    .build(),
+                draws.algorithm(),
+                draws.synced() ? AttestationFormat.NONE : AttestationFormat.PACKED
+            );
+
+        return new Credential(
+            user,
+            registration.getId(),
+            authenticator.getCredential(registration.getId()).orElseThrow().getPublicKeyCose(),
+            registration.getResponse().getAttestationObject(),
+            registration.getResponse().getClientDataJSON(),
+            draws.signatureCount(),
+            draws.synced(),
+            draws.synced(),
+            draws.createdAt(),
+            draws.lastUsedAt()
+        );
+    }
+
+    /**
+     * Re-derives the key pair and signature counter of a stored credential without building the
+     * attestation, for clients that sign in as a generated user.
+     */
+    public SoftwareCredential softwareCredential(User user, int index) {
+        Draws draws = draws(user, index);
+        String rpId = spec.relyingPartyHostname(user.application());
+        SoftwareCredential credential = authenticator(user, index, rpId)
+            .createCredential(user.userHandle(), rpId, draws.algorithm());
+
+        return new SoftwareCredential(
+            credential.getCredentialId(),
+            credential.getUserHandle(),
+            credential.getRpId(),
+            credential.getAlgorithm(),
+            credential.getKeyPair(),
+            draws.signatureCount()
+        );
+    }
+
+    public String username(int application, int index) {
+        return "user-" + index + "@app-" + application + ".synthetic";
+    }
+
+    /**
+     * Returns the user index encoded in a generated username, or -1 if the name was not generated
+     * for the given application.
+     */
+    public int userIndex(int application, String username) {
+        String suffix = "@app-" + application + ".synthetic";
+        if (!username.startsWith("user-") || !username.endsWith(suffix)) {
+            return -1;
+        }
+
+        try {
+            int index = Integer.parseInt(username, 5, username.length() - suffix.length(), 10);
+            return index < spec.usersPerApplication() ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private SoftwareAuthenticator authenticator(User user, int index, String rpId) {
+        long seed = mix(spec.seed(), CREDENTIAL ^ 1, user.application(), user.index(), index);
+        return new SoftwareAuthenticator("https://" + rpId, SoftwareAuthenticator.seededRandom(seed), this::keyPair);
+    }
+
+    private KeyPair keyPair(CoseAlgorithm algorithm, SecureRandom random) {
+        if (algorithm != CoseAlgorithm.RS256) {
+            return algorithm.generateKeyPair(random);
+        }
+
+        int slot = random.nextInt(RSA_KEY_POOL_SIZE);
+        synchronized (rsaKeyPool) {
+            if (rsaKeyPool[slot] == null) {
+                long seed = mix(spec.seed(), CoseAlgorithm.RS256.ordinal(), slot);
+                rsaKeyPool[slot] = CoseAlgorithm.RS256.generateKeyPair(SoftwareAuthenticator.seededRandom(seed));
+            }
+            return rsaKeyPool[slot];
+        }
+    }
+
+    private int credentialCount(double value) {
+        for (int i = 0; i < credentialCountCumulative.length; i++) {
+            if (value < credentialCountCumulative[i]) {
+                return i + 1;
+            }
+        }
+        return MAX_CREDENTIALS_PER_USER;
+    }
+
+    private static CoseAlgorithm algorithm(double value) {
+        if (value < ES256_SHARE) {
+            return CoseAlgorithm.ES256;
+        }
+        return value < ES256_SHARE + RS256_SHARE ? CoseAlgorithm.RS256 : CoseAlgorithm.EdDSA;
+    }
+
+    private Draws draws(User user, int index) {
+        SplittableRandom random = random(CREDENTIAL, user.application(), user.index(), index);
+        CoseAlgorithm algorithm = algorithm(random.nextDouble());
+        boolean synced = random.nextDouble() < SYNCED_SHARE;
+        boolean neverUsed = random.nextDouble() < NEVER_USED_SHARE;
+
+        // Later credentials were added after the first one, somewhere between sign-up and now
+        Instant createdAt = index == 0
+            ? user.createdAt()
+            : between(random, user.createdAt(), spec.referenceTime());
+        Instant lastUsedAt = neverUsed
+            ? null
+            : latest(createdAt, spec.referenceTime().minusMillis(
+                (long) (-Math.log(1 - random.nextDouble()) * MEAN_TIME_SINCE_LAST_USE.toMillis())));
+        long signatureCount = synced || lastUsedAt == null
+            ? 0
+            : 1 + (long) (Duration.between(createdAt, lastUsedAt).toDays() * MEAN_SIGN_INS_PER_DAY * random.nextDouble());
+
+        byte[] challenge = new byte[32];
+        nextBytes(random, challenge);
+
+        return new Draws(algorithm, synced, createdAt, lastUsedAt, signatureCount, new ByteArray(challenge));
+    }
+
+    private SplittableRandom random(long type, long a, long b, long c) {
+        return new SplittableRandom(mix(spec.seed(), type, a, b, c));
+    }
+
+    private static Instant between(SplittableRandom random, Instant from, Instant to) {
+        long span = Duration.between(from, to).toMillis();
+        return span <= 0 ? from : from.plusMillis(random.nextLong(span + 1));
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static UUID uuid(SplittableRandom random) {
+        long most = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long least = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(most, least);
+    }
+
+    private static void nextBytes(SplittableRandom random, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt();
+        }
+    }
+
+    /**
+     * SplitMix64 over the parts, so neighbouring indexes give unrelated seeds.
+     */
+    static long mix(long... parts) {
+        long h = 0x9e3779b97f4a7c15L;
+        for (long part : parts) {
+            h ^= part;
+            h += 0x9e3779b97f4a7c15L;
+            h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+            h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    public record Application(
+        int index,
+        UUID id,
+        String name,
+        String apiKey,
+        String relyingPartyHostname,
+        String relyingPartyName,
+        Instant createdAt
+    ) {}
+
+    public record User(
+        int application,
+        int index,
+        UUID id,
+        String name,
+        ByteArray userHandle,
+        Instant createdAt,
+        int credentialCount
+    ) {}
+
+    /**
+     * @param lastUsedAt {@code null} for credentials never used after registration
+     */
+    public record Credential(
+        User user,
+        ByteArray credentialId,
+        ByteArray publicKeyCose,
+        ByteArray attestationObject,
+        ByteArray clientDataJson,
+        long signatureCount,
+        boolean backupEligible,
+        boolean backupState,
+        Instant createdAt,
+        Instant lastUsedAt
+    ) {}
+
+    private record Draws(
+        CoseAlgorithm algorithm,
+        boolean synced,
+        Instant createdAt,
+        Instant lastUsedAt,
+        long signatureCount,
+        ByteArray challenge
+    ) {}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatasetLoaderTest {
+
+    private final String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    @BeforeEach
+    void createSchema() throws SQLException {
+        try (Connection connection = open(); Statement statement = connection.createStatement()) {
+            statement.execute("create sequence user_credentials_seq start with 1 increment by 50");
+            statement.execute("create table applications (id uuid primary key, name varchar(255) not null, "
+                + "api_key varchar(255) not null, relying_party_name varchar(255), relying_party_hostname varchar(255), "
+                + "created_at timestamp(6) with time zone not null, updated_at timestamp(6) with time zone not null)");
+            statement.execute("create table users (id uuid primary key, name varchar(255), display_name varchar(255), "
+                + "created_at timestamp(6) with time zone, updated_at timestamp(6) with time zone, "
+                + "application_id uuid references applications)");
+            statement.execute("create table user_credentials (id bigint primary key, credential_id varchar(255), "
+                + "user_handle varchar(255), display_name varchar(255), signature_count bigint, public_key_cose text, "
+                + "attestation_object text, client_data_json text, backup_eligible boolean, backup_state boolean, "
+                + "is_discoverable boolean, created_at timestamp(6) with time zone not null, "
+                + "last_used_at timestamp(6) with time zone, user_id uuid not null references users, "
+                + "application_id uuid references applications)");
+        }
+    }
+
+    @Test
+    void loadsEveryUserAndCredential() throws Exception {
+        DatasetSpec spec = new DatasetSpec(7, 2, 60, "localhost", Instant.parse("2025-01-01T00:00:00Z"), Duration.ofDays(90));
+        SyntheticDataset dataset = new SyntheticDataset(spec);
+        long expectedCredentials = 0;
+        for (int application = 0; application < 2; application++) {
+            for (int user = 0; user < 60; user++) {
+                expectedCredentials += dataset.user(application, user).credentialCount();
+            }
+        }
+
+        DatasetLoader.Result result = new DatasetLoader(dataset, this::open, DatasetLoader.Mode.BATCH, 3, 16,
+            new PrintStream(new ByteArrayOutputStream())).load();
+
+        assertEquals(120, result.users());
+        assertEquals(expectedCredentials, result.credentials());
+        assertEquals(2, count("select count(*) from applications"));
+        assertEquals(120, count("select count(*) from users"));
+        assertEquals(expectedCredentials, count("select count(*) from user_credentials"));
+        assertEquals(60, count("select count(*) from users where application_id = '" + dataset.application(1).id() + "'"));
+
+        SyntheticDataset.User user = dataset.user(1, 42);
+        assertEquals(user.credentialCount(), count("select count(*) from user_credentials where user_handle = '"
+            + user.userHandle().getBase64() + "'"));
+        assertEquals(user.credentialCount(), count("select count(*) from user_credentials where user_handle = '"
+            + user.userHandle().getBase64() + "' and application_id = '" + dataset.application(1).id() + "'"));
+        assertTrue(count("select next value for user_credentials_seq") > count("select max(id) from user_credentials"));
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection connection = open();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+}
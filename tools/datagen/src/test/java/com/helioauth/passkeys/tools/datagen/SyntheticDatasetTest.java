@@ -0,0 +1,177 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.datagen;
+
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.helioauth.passkeys.tools.authenticator.SoftwareCredential;
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.AssertionResult;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.FinishAssertionOptions;
+import com.yubico.webauthn.RegisteredCredential;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartAssertionOptions;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticDatasetTest {
+
+    private static final Instant REFERENCE_TIME = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final SyntheticDataset dataset = new SyntheticDataset(spec(42));
+
+    private static DatasetSpec spec(long seed) {
+        return new DatasetSpec(seed, 3, 1000, "app-{app}.example.com", REFERENCE_TIME, Duration.ofDays(365));
+    }
+
+    @Test
+    void sameSeedGeneratesSameRows() {
+        SyntheticDataset other = new SyntheticDataset(spec(42));
+
+        assertEquals(dataset.application(1), other.application(1));
+        assertEquals(dataset.user(1, 17), other.user(1, 17));
+
+        SyntheticDataset.Credential credential = dataset.credential(dataset.user(1, 17), 0);
+        SyntheticDataset.Credential again = other.credential(other.user(1, 17), 0);
+        assertEquals(credential.credentialId(), again.credentialId());
+        assertEquals(credential.publicKeyCose(), again.publicKeyCose());
+        assertEquals(credential.attestationObject(), again.attestationObject());
+        assertEquals(credential.lastUsedAt(), again.lastUsedAt());
+    }
+
+    @Test
+    void differentSeedGeneratesDifferentRows() {
+        SyntheticDataset other = new SyntheticDataset(spec(43));
+
+        assertNotEquals(dataset.application(0).id(), other.application(0).id());
+        assertNotEquals(dataset.user(0, 0).userHandle(), other.user(0, 0).userHandle());
+    }
+
+    @Test
+    void distributionsStayWithinBounds() {
+        int singleCredential = 0;
+        for (int index = 0; index < 1000; index++) {
+            SyntheticDataset.User user = dataset.user(0, index);
+            assertTrue(user.credentialCount() >= 1 && user.credentialCount() <= SyntheticDataset.MAX_CREDENTIALS_PER_USER);
+            assertTrue(user.createdAt().isBefore(REFERENCE_TIME));
+            assertTrue(user.createdAt().isAfter(REFERENCE_TIME.minus(Duration.ofDays(366))));
+            if (user.credentialCount() == 1) {
+                singleCredential++;
+            }
+        }
+        assertTrue(singleCredential > 600 && singleCredential < 900, "single-credential users: " + singleCredential);
+
+        SyntheticDataset.User user = dataset.user(2, 5);
+        SyntheticDataset.Credential credential = dataset.credential(user, 0);
+        assertEquals(user.createdAt(), credential.createdAt());
+        assertTrue(credential.lastUsedAt() == null || !credential.lastUsedAt().isBefore(credential.createdAt()));
+        assertEquals("app-2.example.com", dataset.application(2).relyingPartyHostname());
+    }
+
+    @Test
+    void usernamesMapBackToIndexes() {
+        assertEquals(123, dataset.userIndex(2, dataset.username(2, 123)));
+        assertEquals(-1, dataset.userIndex(1, dataset.username(2, 123)));
+        assertEquals(-1, dataset.userIndex(2, dataset.username(2, 5000)));
+        assertEquals(-1, dataset.userIndex(2, "alice"));
+    }
+
+    @Test
+    void rederivedCredentialsSignInAgainstStoredRows() throws Exception {
+        boolean counted = false;
+        boolean synced = false;
+        for (int index = 0; !(counted && synced); index++) {
+            SyntheticDataset.User user = dataset.user(0, index);
+            SyntheticDataset.Credential stored = dataset.credential(user, 0);
+            if (stored.signatureCount() > 0 ? counted : synced) {
+                continue;
+            }
+
+            assertSignsIn(user, stored);
+            counted |= stored.signatureCount() > 0;
+            synced |= stored.signatureCount() == 0;
+        }
+    }
+
+    private void assertSignsIn(SyntheticDataset.User user, SyntheticDataset.Credential stored) throws Exception {
+        RegisteredCredential registered = RegisteredCredential.builder()
+            .credentialId(stored.credentialId())
+            .userHandle(user.userHandle())
+            .publicKeyCose(stored.publicKeyCose())
+            .signatureCount(stored.signatureCount())
+            .build();
+        RelyingParty relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id("app-0.example.com").name("Test").build())
+            .credentialRepository(new SingleCredentialRepository(user.name(), registered))
+            .build();
+
+        SoftwareCredential credential = dataset.softwareCredential(user, 0);
+        assertEquals(stored.credentialId(), credential.getCredentialId());
+        SoftwareAuthenticator authenticator = new SoftwareAuthenticator("https://app-0.example.com");
+        authenticator.addCredential(credential);
+
+        AssertionRequest request = relyingParty.startAssertion(StartAssertionOptions.builder().username(user.name()).build());
+        AssertionResult result = relyingParty.finishAssertion(FinishAssertionOptions.builder()
+            .request(request)
+            .response(authenticator.authenticate(request.getPublicKeyCredentialRequestOptions()))
+            .build());
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.isSignatureCounterValid());
+    }
+
+    private record SingleCredentialRepository(String username, RegisteredCredential credential) implements CredentialRepository {
+
+        @Override
+        public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String name) {
+            return username.equals(name)
+                ? Set.of(PublicKeyCredentialDescriptor.builder().id(credential.getCredentialId()).build())
+                : Set.of();
+        }
+
+        @Override
+        public Optional<ByteArray> getUserHandleForUsername(String name) {
+            return username.equals(name) ? Optional.of(credential.getUserHandle()) : Optional.empty();
+        }
+
+        @Override
+        public Optional<String> getUsernameForUserHandle(ByteArray userHandle) {
+            return credential.getUserHandle().equals(userHandle) ? Optional.of(username) : Optional.empty();
+        }
+
+        @Override
+        public Optional<RegisteredCredential> lookup(ByteArray credentialId, ByteArray userHandle) {
+            return credential.getCredentialId().equals(credentialId) ? Optional.of(credential) : Optional.empty();
+        }
+
+        @Override
+        public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
+            return lookup(credentialId, null).map(Set::of).orElse(Set.of());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.loadtest;
+
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.helioauth.passkeys.tools.datagen.SyntheticDataset;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Users of a generated dataset. Their keys are re-derived from the dataset seed the first time
+ * each user signs in, so only the users a run touches are held in memory.
+ */
+final class DatasetUsers {
+
+    private final SyntheticDataset dataset;
+    private final int application;
+    private final SoftwareAuthenticator authenticator;
+    private final Set<Integer> prepared = ConcurrentHashMap.newKeySet();
+
+    DatasetUsers(SyntheticDataset dataset, int application, SoftwareAuthenticator authenticator) {
+        this.dataset = dataset;
+        this.application = application;
+        this.authenticator = authenticator;
+    }
+
+    void addAll(UserPopulation population) {
+        for (int index = 0; index < dataset.spec().usersPerApplication(); index++) {
+            population.add(dataset.username(application, index));
+        }
+    }
+
+    /**
+     * Gives the authenticator the first credential of a dataset user. Users registered during
+     * the run are left alone.
+     */
+    void prepare(String username) {
+        int index = dataset.userIndex(application, username);
+        if (index >= 0 && prepared.add(index)) {
+            authenticator.addCredential(dataset.softwareCredential(dataset.user(application, index), 0));
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.loadtest;
+
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+import com.helioauth.passkeys.tools.datagen.DatasetManifest;
+import com.helioauth.passkeys.tools.datagen.SyntheticDataset;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load generator for the v1 ceremony endpoints.
+ * <p>
+ * Registers {@code --users} users, or takes the users of a generated dataset, then runs a warm-up
+ * and a measured phase that mixes new sign-ups into sign-ins of the population. With
+ * {@code --rate} the phases follow an open model: flows start on a fixed schedule regardless of
+ * how many are in flight, and flow latency is measured from the scheduled start, so queueing
+ * behind a slow server is reported instead of hidden (coordinated omission). Without it,
+ * {@code --concurrency} workers run flows back to back.
+ */
+public final class LoadTest {
+
+    static final String SIGNUP_FLOW = "sign-up flow";
+    static final String SIGNIN_FLOW = "sign-in flow";
+
+    /**
+     * Flows allowed to wait for a concurrency permit before the open-model scheduler starts dropping them.
+     */
+    private static final int MAX_BACKLOG_PER_PERMIT = 100;
+
+    private final LoadTestOptions options;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final UserPopulation population;
+    private final AtomicLong userSequence = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    private PasskeysClient client;
+    private DatasetUsers datasetUsers;
+
+    LoadTest(LoadTestOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+        this.population = new UserPopulation(options.userDistribution());
+        for (String name : new String[] {
+            PasskeysClient.SIGNUP_START, PasskeysClient.SIGNUP_FINISH,
+            PasskeysClient.SIGNIN_START, PasskeysClient.SIGNIN_FINISH,
+            SIGNUP_FLOW, SIGNIN_FLOW
+        }) {
+            stats.put(name, new EndpointStats(name));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(LoadTestOptions.USAGE);
+            return;
+        }
+
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        new LoadTest(options, System.out).run();
+    }
+
+    void run() throws IOException, InterruptedException {
+        DatasetManifest manifest = options.dataset() == null ? null : DatasetManifest.read(options.dataset());
+        DatasetManifest.ApplicationEntry datasetApplication = manifest == null
+            ? null
+            : manifest.applicationEntries().get(options.datasetApplication());
+
+        String origin = datasetApplication == null
+            ? options.origin()
+            : "https://" + datasetApplication.relyingPartyHostname();
+        SoftwareAuthenticator authenticator = options.seed() == null
+            ? new SoftwareAuthenticator(origin)
+            : new SoftwareAuthenticator(origin, SoftwareAuthenticator.seededRandom(options.seed()));
+
+        String appId = options.appId();
+        String apiKey = options.apiKey();
+        if (datasetApplication != null) {
+            appId = datasetApplication.id().toString();
+            apiKey = datasetApplication.apiKey();
+        } else if (appId == null) {
+            PasskeysClient adminClient = new PasskeysClient(options, null, null, authenticator, stats);
+            String[] application = adminClient.createApplication(options.userPrefix() + "app");
+            appId = application[0];
+            apiKey = application[1];
+            out.printf("Created client application %s for %s%n", appId, options.rpHostname());
+        }
+        client = new PasskeysClient(options, appId, apiKey, authenticator, stats);
+
+        if (manifest != null) {
+            datasetUsers = new DatasetUsers(new SyntheticDataset(manifest.spec()), options.datasetApplication(), authenticator);
+            datasetUsers.addAll(population);
+            out.printf("Using %d users of dataset application %s%n", population.size(), appId);
+        } else {
+            out.printf("Registering %d users with concurrency %d%n", options.users(), options.concurrency());
+            long setupStart = System.nanoTime();
+            runSetup();
+            out.printf("Registered %d users in %.1f s%n", population.size(), (System.nanoTime() - setupStart) / 1e9);
+        }
+        if (population.size() == 0) {
+            throw new IllegalStateException("No users could be registered");
+        }
+        population.seal();
+        resetStats();
+
+        if (!options.warmup().isZero()) {
+            out.printf("Warming up for %s%n", options.warmup());
+            runPhase(options.warmup());
+            resetStats();
+        }
+
+        out.printf("Running for %s (%s)%n", options.duration(), options.rate() > 0
+            ? String.format(Locale.ROOT, "%.1f flows/s", options.rate())
+            : options.concurrency() + " workers, closed loop");
+        long start = System.nanoTime();
+        runPhase(options.duration());
+        report((System.nanoTime() - start) / 1e9);
+    }
+
+    private void runSetup() throws InterruptedException {
+        AtomicLong remaining = new AtomicLong(options.users());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                executor.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        signUpFlow(System.nanoTime());
+                    }
+                });
+            }
+        }
+    }
+
+    private void runPhase(Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        if (options.rate() > 0) {
+            runOpen(deadline);
+        } else {
+            runClosed(deadline);
+        }
+    }
+
+    private void runClosed(long deadline) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        nextFlow(System.nanoTime());
+                    }
+                });
+            }
+        }
+    }
+
+    private void runOpen(long deadline) throws InterruptedException {
+        Semaphore permits = new Semaphore(options.concurrency());
+        AtomicLong backlog = new AtomicLong();
+        long maxBacklog = (long) options.concurrency() * MAX_BACKLOG_PER_PERMIT;
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long intended = System.nanoTime();
+            while (intended < deadline) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                if (backlog.incrementAndGet() > maxBacklog) {
+                    backlog.decrementAndGet();
+                    dropped.increment();
+                } else {
+                    long scheduled = intended;
+                    executor.submit(() -> {
+                        permits.acquireUninterruptibly();
+                        try {
+                            nextFlow(scheduled);
+                        } finally {
+                            permits.release();
+                            backlog.decrementAndGet();
+                        }
+                    });
+                }
+                intended += intervalNanos;
+            }
+        }
+    }
+
+    private void nextFlow(long scheduled) {
+        if (ThreadLocalRandom.current().nextDouble() < options.signupRatio()) {
+            signUpFlow(scheduled);
+        } else {
+            signInFlow(scheduled);
+        }
+    }
+
+    private void signUpFlow(long scheduled) {
+        String username = options.userPrefix() + userSequence.incrementAndGet();
+        EndpointStats flow = stats.get(SIGNUP_FLOW);
+        try {
+            client.signUp(username);
+            flow.recordNanos(System.nanoTime() - scheduled);
+            population.add(username);
+        } catch (Exception e) {
+            flow.recordError();
+            logFailure(e);
+        }
+    }
+
+    private void signInFlow(long scheduled) {
+        EndpointStats flow = stats.get(SIGNIN_FLOW);
+        String username = null;
+        try {
+            username = population.acquire();
+            if (datasetUsers != null) {
+                datasetUsers.prepare(username);
+            }
+            client.signIn(username);
+            flow.recordNanos(System.nanoTime() - scheduled);
+        } catch (Exception e) {
+            flow.recordError();
+            logFailure(e);
+        } finally {
+            if (username != null) {
+                population.release(username);
+            }
+        }
+    }
+
+    private void logFailure(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        long errors = stats.values().stream().mapToLong(EndpointStats::errors).sum();
+        // Only the first few failures are printed, the totals end up in the report
+        if (errors <= 5) {
+            System.err.println("Flow failed: " + e.getMessage());
+        }
+    }
+
+    private void resetStats() {
+        stats.values().forEach(EndpointStats::reset);
+        dropped.reset();
+    }
+
+    void report(double elapsedSeconds) throws IOException {
+        out.println();
+        out.printf("%-24s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+            "", "count", "errors", "per sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (EndpointStats endpoint : stats.values()) {
+            out.printf(Locale.ROOT, "%-24s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                endpoint.name(),
+                endpoint.count(),
+                endpoint.errors(),
+                endpoint.count() / elapsedSeconds,
+                endpoint.percentileMillis(50),
+                endpoint.percentileMillis(90),
+                endpoint.percentileMillis(99),
+                endpoint.percentileMillis(99.9),
+                endpoint.maxMillis());
+        }
+        if (dropped.sum() > 0) {
+            out.printf("%d scheduled flows were dropped because the backlog was full%n", dropped.sum());
+        }
+
+        if (options.histogramDir() != null) {
+            for (EndpointStats endpoint : stats.values()) {
+                endpoint.writePercentiles(options.histogramDir());
+            }
+            out.printf("Histograms written to %s%n", options.histogramDir().toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.loadtest;
+
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line options of the load generator.
+ *
+ * @param rate flows started per second; zero runs a closed loop with {@code concurrency} workers
+ * @param signupRatio share of flows during the run that sign up a new user instead of signing in
+ * @param seed seed of the authenticator's random source, or {@code null} for a non-deterministic one
+ * @param dataset manifest of a generated dataset whose users sign in instead of freshly registered ones
+ */
+public record LoadTestOptions(
+    String baseUrl,
+    String appId,
+    String apiKey,
+    String adminKey,
+    String appIdHeader,
+    String apiKeyHeader,
+    String adminHeader,
+    String rpHostname,
+    String origin,
+    int users,
+    UserDistribution userDistribution,
+    String userPrefix,
+    int concurrency,
+    double rate,
+    Duration warmup,
+    Duration duration,
+    double signupRatio,
+    CoseAlgorithm algorithm,
+    Long seed,
+    Path histogramDir,
+    Path dataset,
+    int datasetApplication
+) {
+
+    public enum UserDistribution {
+        UNIFORM,
+        ZIPF
+    }
+
+    static final String USAGE = """
+        Usage: java -jar loadtest.jar [options]
+
+          --base-url=URL            API base URL (default http://localhost:8080)
+          --app-id=UUID             client application id, sent on the sign-up and sign-in start calls
+          --api-key=KEY             client application API key, sent on /v1/signup/finish
+          --admin-key=KEY           admin API key; creates a client application when --app-id is not given
+          --app-id-header=NAME      (default X-App-Id)
+          --api-key-header=NAME     (default X-Api-Key)
+          --admin-header=NAME       (default X-Api-Key)
+          --rp-hostname=HOST        relying party hostname (default localhost)
+          --origin=URL              client origin (default https://<rp-hostname>)
+          --users=N                 users registered before the run (default 1000)
+          --user-distribution=D     uniform or zipf sign-in popularity (default uniform)
+          --user-prefix=PREFIX      username prefix (default lt-<timestamp>-)
+          --concurrency=N           maximum flows in flight (default 32)
+          --rate=R                  flows started per second, 0 for a closed loop (default 0)
+          --warmup=DURATION         e.g. 10s, 1m (default 10s)
+          --duration=DURATION       measured run length (default 60s)
+          --signup-ratio=X          share of flows that sign up new users (default 0.05)
+          --algorithm=ALG           ES256, EdDSA or RS256 (default ES256)
+          --seed=N                  seed for credential ids and keys; reusing a seed against the same
+                                    database regenerates credential ids that are already registered
+          --histogram-dir=DIR       write HdrHistogram percentile files per endpoint
+          --dataset=FILE            sign in as the users of a dataset manifest written by datagen; the
+                                    application and origin come from the manifest and --users is ignored
+          --dataset-app=N           application of the dataset to use (default 0)
+        """;
+
+    public static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(arg.substring(2), args[++i]);
+            } else {
+                values.put(arg.substring(2), "true");
+            }
+        }
+
+        String rpHostname = values.getOrDefault("rp-hostname", "localhost");
+        LoadTestOptions options = new LoadTestOptions(
+            stripTrailingSlash(values.getOrDefault("base-url", "http://localhost:8080")),
+            values.get("app-id"),
+            values.get("api-key"),
+            values.get("admin-key"),
+            values.getOrDefault("app-id-header", "X-App-Id"),
+            values.getOrDefault("api-key-header", "X-Api-Key"),
+            values.getOrDefault("admin-header", "X-Api-Key"),
+            rpHostname,
+            values.getOrDefault("origin", "https://" + rpHostname),
+            Integer.parseInt(values.getOrDefault("users", "1000")),
+            UserDistribution.valueOf(values.getOrDefault("user-distribution", "uniform").toUpperCase(Locale.ROOT)),
+            values.getOrDefault("user-prefix", "lt-" + System.currentTimeMillis() + "-"),
+            Integer.parseInt(values.getOrDefault("concurrency", "32")),
+            Double.parseDouble(values.getOrDefault("rate", "0")),
+            parseDuration(values.getOrDefault("warmup", "10s")),
+            parseDuration(values.getOrDefault("duration", "60s")),
+            Double.parseDouble(values.getOrDefault("signup-ratio", "0.05")),
+            CoseAlgorithm.valueOf(values.getOrDefault("algorithm", "ES256")),
+            values.containsKey("seed") ? Long.valueOf(values.get("seed")) : null,
+            values.containsKey("histogram-dir") ? Path.of(values.get("histogram-dir")) : null,
+            values.containsKey("dataset") ? Path.of(values.get("dataset")) : null,
+            Integer.parseInt(values.getOrDefault("dataset-app", "0"))
+        );
+
+        if (options.appId() == null && options.adminKey() == null && options.dataset() == null) {
+            throw new IllegalArgumentException("One of --app-id and --api-key, --admin-key or --dataset is required");
+        }
+        if (options.appId() != null && options.apiKey() == null) {
+            throw new IllegalArgumentException("--api-key is required with --app-id");
+        }
+        if (options.concurrency() < 1 || options.users() < 1) {
+            throw new IllegalArgumentException("--concurrency and --users must be positive");
+        }
+        if (options.signupRatio() < 0 || options.signupRatio() > 1) {
+            throw new IllegalArgumentException("--signup-ratio must be between 0 and 1");
+        }
+
+        return options;
+    }
+
+    /**
+     * Parses durations written as {@code 500ms}, {@code 30s}, {@code 5m} or {@code 1h}, or ISO-8601.
+     */
+    static Duration parseDuration(String value) {
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        if (lower.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (lower.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(lower.substring(0, lower.length() - 2)));
+        }
+
+        long amount = Long.parseLong(lower.substring(0, lower.length() - 1));
+        return switch (lower.charAt(lower.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Invalid duration " + value);
+        };
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.helioauth.passkeys.tools.authenticator.AttestationFormat;
+import com.helioauth.passkeys.tools.authenticator.SoftwareAuthenticator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Drives the v1 sign-up and sign-in ceremonies over HTTP, answering the challenges with a
+ * {@link SoftwareAuthenticator}. Each call is timed into the matching {@link EndpointStats}.
+ */
+final class PasskeysClient {
+
+    static final String SIGNUP_START = "POST /v1/signup/start";
+    static final String SIGNUP_FINISH = "POST /v1/signup/finish";
+    static final String SIGNIN_START = "POST /v1/signin/start";
+    static final String SIGNIN_FINISH = "POST /v1/signin/finish";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_ERROR_BODY_LENGTH = 200;
+
+    private final LoadTestOptions options;
+    private final String appId;
+    private final String apiKey;
+    private final SoftwareAuthenticator authenticator;
+    private final Map<String, EndpointStats> stats;
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    PasskeysClient(LoadTestOptions options, String appId, String apiKey,
+                   SoftwareAuthenticator authenticator, Map<String, EndpointStats> stats) {
+        this.options = options;
+        this.appId = appId;
+        this.apiKey = apiKey;
+        this.authenticator = authenticator;
+        this.stats = stats;
+        this.http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    /**
+     * Registers a new user with a freshly generated passkey.
+     */
+    void signUp(String username) throws IOException, InterruptedException {
+        JsonNode start = post(SIGNUP_START, "/v1/signup/start", options.appIdHeader(), appId,
+            mapper.createObjectNode().put("name", username));
+
+        var credential = authenticator.register(
+            SoftwareAuthenticator.parseCreationOptions(start.path("options").asText()),
+            options.algorithm(),
+            AttestationFormat.NONE
+        );
+
+        post(SIGNUP_FINISH, "/v1/signup/finish", options.apiKeyHeader(), apiKey,
+            mapper.createObjectNode()
+                .put("requestId", start.path("requestId").asText())
+                .put("publicKeyCredential", SoftwareAuthenticator.toJson(credential)));
+    }
+
+    /**
+     * Signs in an existing user with the passkey created by {@link #signUp(String)}.
+     */
+    void signIn(String username) throws IOException, InterruptedException {
+        JsonNode start = post(SIGNIN_START, "/v1/signin/start", options.appIdHeader(), appId,
+            mapper.createObjectNode().put("name", username));
+
+        var assertion = authenticator.authenticate(
+            SoftwareAuthenticator.parseRequestOptions(start.path("options").asText())
+        );
+
+        post(SIGNIN_FINISH, "/v1/signin/finish", options.apiKeyHeader(), apiKey,
+            mapper.createObjectNode()
+                .put("requestId", start.path("requestId").asText())
+                .put("publicKeyCredentialWithAssertion", SoftwareAuthenticator.toJson(assertion)));
+    }
+
+    /**
+     * Creates a client application for the relying party hostname and returns its id and API key.
+     */
+    String[] createApplication(String name) throws IOException, InterruptedException {
+        JsonNode application = post(null, "/admin/v1/apps", options.adminHeader(), options.adminKey(),
+            mapper.createObjectNode()
+                .put("name", name)
+                .put("relyingPartyHostname", options.rpHostname())
+                .put("relyingPartyName", name));
+        String id = application.path("id").asText();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + "/admin/v1/apps/" + id + "/api-key"))
+            .timeout(REQUEST_TIMEOUT)
+            .header(options.adminHeader(), options.adminKey())
+            .GET()
+            .build();
+        JsonNode apiKey = send(null, request);
+
+        return new String[] {id, apiKey.path("apiKey").asText()};
+    }
+
+    private JsonNode post(String endpoint, String path, String header, String value, ObjectNode body)
+        throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .header(header, value)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+            .build();
+        return send(endpoint, request);
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        EndpointStats endpointStats = endpoint == null ? null : stats.get(endpoint);
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            if (endpointStats != null) {
+                endpointStats.recordError();
+            }
+            throw e;
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            if (endpointStats != null) {
+                endpointStats.recordError();
+            }
+            String body = new String(response.body(), StandardCharsets.UTF_8);
+            throw new IOException(request.method() + " " + request.uri().getPath() + " returned "
+                + response.statusCode() + ": " + body.substring(0, Math.min(body.length(), MAX_ERROR_BODY_LENGTH)));
+        }
+
+        if (endpointStats != null) {
+            endpointStats.recordNanos(System.nanoTime() - start);
+        }
+        return response.body().length == 0 ? mapper.createObjectNode() : mapper.readTree(response.body());
+    }
+}
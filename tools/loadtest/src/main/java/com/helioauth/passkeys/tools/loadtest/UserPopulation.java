@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Usernames that completed sign-up, with sign-in targets drawn uniformly or by a Zipf
+ * distribution over the initial population so a few users account for most sign-ins.
+ * <p>
+ * A user signs in with one ceremony at a time: concurrent assertions from the same
+ * credential could reach the server out of order and fail its signature counter check.
+ */
+final class UserPopulation {
+
+    private static final int MAX_DRAWS = 16;
+
+    private final List<String> usernames = new ArrayList<>();
+    private final Set<String> signingIn = new HashSet<>();
+    private final LoadTestOptions.UserDistribution distribution;
+    private double[] zipfCumulative;
+
+    UserPopulation(LoadTestOptions.UserDistribution distribution) {
+        this.distribution = distribution;
+    }
+
+    synchronized void add(String username) {
+        usernames.add(username);
+    }
+
+    synchronized int size() {
+        return usernames.size();
+    }
+
+    /**
+     * Freezes the Zipf weights over the users registered so far. Users added later are only
+     * picked by the uniform distribution.
+     */
+    synchronized void seal() {
+        int n = usernames.size();
+        zipfCumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / rank;
+            zipfCumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            zipfCumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Draws a user that is not signing in already, redrawing a few times before waiting
+     * for the drawn user to become free.
+     */
+    synchronized String acquire() throws InterruptedException {
+        String username = draw();
+        for (int i = 1; i < MAX_DRAWS && signingIn.contains(username); i++) {
+            username = draw();
+        }
+        while (signingIn.contains(username)) {
+            wait();
+        }
+        signingIn.add(username);
+        return username;
+    }
+
+    synchronized void release(String username) {
+        signingIn.remove(username);
+        notifyAll();
+    }
+
+    private String draw() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (distribution == LoadTestOptions.UserDistribution.ZIPF && zipfCumulative != null && zipfCumulative.length > 0) {
+            int index = Arrays.binarySearch(zipfCumulative, random.nextDouble());
+            return usernames.get(Math.min(index < 0 ? -index - 1 : index, zipfCumulative.length - 1));
+        }
+        return usernames.get(random.nextInt(usernames.size()));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.loadtest;
+
+import com.helioauth.passkeys.tools.authenticator.CoseAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoadTestOptionsTest {
+
+    @Test
+    void appliesDefaults() {
+        LoadTestOptions options = LoadTestOptions.parse("--app-id", "app", "--api-key", "key");
+
+        assertEquals("http://localhost:8080", options.baseUrl());
+        assertEquals("X-App-Id", options.appIdHeader());
+        assertEquals("https://localhost", options.origin());
+        assertEquals(1000, options.users());
+        assertEquals(32, options.concurrency());
+        assertEquals(0, options.rate());
+        assertEquals(Duration.ofSeconds(60), options.duration());
+        assertEquals(CoseAlgorithm.ES256, options.algorithm());
+        assertEquals(LoadTestOptions.UserDistribution.UNIFORM, options.userDistribution());
+        assertNull(options.histogramDir());
+    }
+
+    @Test
+    void parsesBothArgumentForms() {
+        LoadTestOptions options = LoadTestOptions.parse(
+            "--admin-key=admin", "--base-url", "http://api:8080/", "--rp-hostname=example.com",
+            "--rate=250.5", "--duration", "2m", "--warmup=500ms", "--user-distribution=zipf",
+            "--algorithm=EdDSA", "--histogram-dir", "out"
+        );
+
+        assertEquals("http://api:8080", options.baseUrl());
+        assertEquals("https://example.com", options.origin());
+        assertEquals(250.5, options.rate());
+        assertEquals(Duration.ofMinutes(2), options.duration());
+        assertEquals(Duration.ofMillis(500), options.warmup());
+        assertEquals(LoadTestOptions.UserDistribution.ZIPF, options.userDistribution());
+        assertEquals(CoseAlgorithm.EdDSA, options.algorithm());
+        assertEquals("out", options.histogramDir().toString());
+    }
+
+    @Test
+    void requiresCredentials() {
+        assertThrows(IllegalArgumentException.class, LoadTestOptions::parse);
+        assertThrows(IllegalArgumentException.class, () -> LoadTestOptions.parse("--app-id=app"));
+    }
+
+    @Test
+    void datasetReplacesApplicationCredentials() {
+        LoadTestOptions options = LoadTestOptions.parse("--dataset=dataset.json", "--dataset-app=2");
+
+        assertEquals("dataset.json", options.dataset().toString());
+        assertEquals(2, options.datasetApplication());
+        assertNull(options.appId());
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        assertThrows(IllegalArgumentException.class,
+            () -> LoadTestOptions.parse("--admin-key=admin", "--signup-ratio=1.5"));
+        assertThrows(IllegalArgumentException.class,
+            () -> LoadTestOptions.parse("--admin-key=admin", "--concurrency=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestOptions.parseDuration("10d"));
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.reshard;
+
+import com.helioauth.passkeys.api.datasource.ShardKeys;
+import com.yubico.webauthn.data.ByteArray;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Copies the users of a range of buckets, with their credentials, from one shard to another,
+ * and later removes them from the source.
+ * <p>
+ * Copying is repeatable: users already on the target keep their rows, except that the counters
+ * the API updates on every sign-in are brought forward, and credentials registered since the
+ * last run are added. Run it once while the source still serves the buckets, switch
+ * {@code sharding.buckets} on every node, then run it again to pick up what changed in between.
+ * Rows keep their ids, apart from the credential ids, which are drawn from the target's
+ * sequence. Client applications the users belong to are copied as they are.
+ * <p>
+ * Users are put in buckets with the {@code sharding.bucket-secret} of the API. User handles that
+ * do not carry a bucket are added to the handle directory on shard 0, which must happen before
+ * the switch for the API to find them on the target.
+ */
+public final class BucketMover {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    public record Buckets(int first, int last) {
+
+        public static Buckets parse(String range) {
+            int dash = range.indexOf('-');
+            int first = Integer.parseInt(range.substring(0, dash > 0 ? dash : range.length()).trim());
+            int last = dash > 0 ? Integer.parseInt(range.substring(dash + 1).trim()) : first;
+            if (first < 0 || last >= ShardKeys.BUCKETS || first > last) {
+                throw new IllegalArgumentException(range + " is not a range within 0-" + (ShardKeys.BUCKETS - 1));
+            }
+            return new Buckets(first, last);
+        }
+
+        boolean contain(int bucket) {
+            return bucket >= first && bucket <= last;
+        }
+
+        @Override
+        public String toString() {
+            return first == last ? Integer.toString(first) : first + "-" + last;
+        }
+    }
+
+    public record Result(long users, long credentials, long updatedCredentials, long directoryEntries) {
+    }
+
+    /**
+     * Never moves the target backwards, as sign-ins may already reach it when copying again.
+     */
+    private static final String UPDATE_COUNTERS = "update user_credentials set signature_count = greatest(signature_count, ?), "
+        + "last_used_at = greatest(last_used_at, ?), backup_state = ? where user_handle = ? and credential_id = ?";
+    private static final String LIST_IN_DIRECTORY = "insert into user_handle_directory (user_handle, bucket) "
+        + "select ?, ? where not exists (select 1 from user_handle_directory where user_handle = ?)";
+
+    /**
+     * Hibernate draws ids from {@code user_credentials_seq} in blocks of 50, each value it gets
+     * from the sequence ending the block it may use.
+     */
+    private static final int ID_BLOCK = 50;
+
+    private final ConnectionFactory source;
+    private final ConnectionFactory target;
+    private final ConnectionFactory directory;
+    private final ShardKeys keys;
+    private final Buckets buckets;
+    private final int batchSize;
+
+    public BucketMover(ConnectionFactory source, ConnectionFactory target, ConnectionFactory directory,
+                       ShardKeys keys, Buckets buckets, int batchSize) {
+        this.source = source;
+        this.target = target;
+        this.directory = directory;
+        this.keys = keys;
+        this.buckets = buckets;
+        this.batchSize = batchSize;
+    }
+
+    public Result copy() throws SQLException {
+        long[] counts = new long[4];
+        try (Connection sourceConnection = source.open();
+             Connection targetConnection = target.open();
+             Connection directoryConnection = directory.open()) {
+            targetConnection.setAutoCommit(false);
+            directoryConnection.setAutoCommit(false);
+            CredentialIds ids = new CredentialIds(targetConnection);
+
+            forEachBatch(batch -> {
+                copyBatch(sourceConnection, targetConnection, directoryConnection, ids, batch, counts);
+                // The directory first, so a handle never points at a shard that does not have it yet
+                directoryConnection.commit();
+                targetConnection.commit();
+            });
+        }
+        return new Result(counts[0], counts[1], counts[2], counts[3]);
+    }
+
+    /**
+     * Deletes the users of the buckets, with their credentials, from the source. Users that are
+     * not on the target are left alone.
+     *
+     * @return the number of users deleted
+     */
+    public long purge() throws SQLException {
+        long[] purged = new long[1];
+        try (Connection sourceConnection = source.open();
+             Connection targetConnection = target.open()) {
+            sourceConnection.setAutoCommit(false);
+            forEachBatch(batch -> {
+                List<Object> moved = new ArrayList<>(ids(targetConnection, "select id from users where id in", batch));
+                if (moved.isEmpty()) {
+                    return;
+                }
+                update(sourceConnection, "delete from user_credentials where user_id in", moved);
+                purged[0] += update(sourceConnection, "delete from users where id in", moved);
+                sourceConnection.commit();
+            });
+        }
+        return purged[0];
+    }
+
+    private void copyBatch(Connection sourceConnection, Connection targetConnection, Connection directoryConnection,
+                           CredentialIds ids, List<Object> batch, long[] counts) throws SQLException {
+        Set<Object> onTarget = ids(targetConnection, "select id from users where id in", batch);
+        List<Map<String, Object>> users = rows(sourceConnection, "select * from users where id in", batch);
+        copyApplications(sourceConnection, targetConnection, users);
+        for (Map<String, Object> user : users) {
+            if (!onTarget.contains(user.get("id"))) {
+                insert(targetConnection, "users", user);
+                counts[0]++;
+            }
+        }
+
+        Set<String> credentialsOnTarget = new HashSet<>();
+        try (PreparedStatement statement = prepare(targetConnection,
+            "select user_handle, credential_id from user_credentials where user_id in", batch);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                credentialsOnTarget.add(resultSet.getString(1) + " " + resultSet.getString(2));
+            }
+        }
+
+        Map<Object, String> names = new HashMap<>();
+        users.forEach(user -> names.put(user.get("id"), (String) user.get("name")));
+        Map<String, Integer> legacyHandles = new HashMap<>();
+        try (PreparedStatement updateCounters = targetConnection.prepareStatement(UPDATE_COUNTERS)) {
+            for (Map<String, Object> credential : rows(sourceConnection, "select * from user_credentials where user_id in", batch)) {
+                String userHandle = (String) credential.get("user_handle");
+                if (ShardKeys.bucketOf(ByteArray.fromBase64(userHandle)) < 0) {
+                    legacyHandles.put(userHandle, keys.bucketOf(names.get(credential.get("user_id"))));
+                }
+
+                if (credentialsOnTarget.contains(userHandle + " " + credential.get("credential_id"))) {
+                    updateCounters.setObject(1, credential.get("signature_count"));
+                    updateCounters.setObject(2, credential.get("last_used_at"));
+                    updateCounters.setObject(3, credential.get("backup_state"));
+                    updateCounters.setString(4, userHandle);
+                    updateCounters.setObject(5, credential.get("credential_id"));
+                    updateCounters.addBatch();
+                    counts[2]++;
+                } else {
+                    credential.put("id", ids.next());
+                    insert(targetConnection, "user_credentials", credential);
+                    counts[1]++;
+                }
+            }
+            updateCounters.executeBatch();
+        }
+
+        try (PreparedStatement statement = directoryConnection.prepareStatement(LIST_IN_DIRECTORY)) {
+            for (Map.Entry<String, Integer> legacyHandle : legacyHandles.entrySet()) {
+                statement.setString(1, legacyHandle.getKey());
+                statement.setInt(2, legacyHandle.getValue());
+                statement.setString(3, legacyHandle.getKey());
+                counts[3] += statement.executeUpdate();
+            }
+        }
+    }
+
+    private static void copyApplications(Connection sourceConnection, Connection targetConnection,
+                                         List<Map<String, Object>> users) throws SQLException {
+        List<Object> applicationIds = users.stream()
+            .map(user -> user.get("application_id"))
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+        if (applicationIds.isEmpty()) {
+            return;
+        }
+
+        Set<Object> onTarget = ids(targetConnection, "select id from applications where id in", applicationIds);
+        for (Map<String, Object> application : rows(sourceConnection, "select * from applications where id in", applicationIds)) {
+            if (!onTarget.contains(application.get("id"))) {
+                insert(targetConnection, "applications", application);
+            }
+        }
+    }
+
+    /**
+     * Passes the ids of the users in the buckets to {@code work}, {@code batchSize} at a time.
+     */
+    private void forEachBatch(BatchWork work) throws SQLException {
+        try (Connection scan = source.open()) {
+            scan.setAutoCommit(false);
+            try (PreparedStatement statement = scan.prepareStatement("select id, name from users order by id")) {
+                statement.setFetchSize(batchSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<Object> batch = new ArrayList<>(batchSize);
+                    while (resultSet.next()) {
+                        if (buckets.contain(keys.bucketOf(resultSet.getString(2)))) {
+                            batch.add(resultSet.getObject(1));
+                        }
+                        if (batch.size() == batchSize) {
+                            work.run(batch);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        work.run(batch);
+                    }
+                }
+            }
+            scan.commit();
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sqlEndingInIn, List<Object> values)
+        throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(values.size(), "?"));
+        PreparedStatement statement = connection.prepareStatement(sqlEndingInIn + " (" + placeholders + ")");
+        for (int i = 0; i < values.size(); i++) {
+            statement.setObject(i + 1, values.get(i));
+        }
+        return statement;
+    }
+
+    private static Set<Object> ids(Connection connection, String sqlEndingInIn, List<Object> values) throws SQLException {
+        Set<Object> ids = new HashSet<>();
+        try (PreparedStatement statement = prepare(connection, sqlEndingInIn, values);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getObject(1));
+            }
+        }
+        return ids;
+    }
+
+    private static int update(Connection connection, String sqlEndingInIn, List<Object> values) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, sqlEndingInIn, values)) {
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads whole rows, so columns added to the schema later are copied without changes here.
+     */
+    private static List<Map<String, Object>> rows(Connection connection, String sqlEndingInIn, List<Object> values)
+        throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (PreparedStatement statement = prepare(connection, sqlEndingInIn, values);
+             ResultSet resultSet = statement.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            while (resultSet.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                    row.put(metaData.getColumnLabel(column).toLowerCase(Locale.ROOT), resultSet.getObject(column));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void insert(Connection connection, String table, Map<String, Object> row) throws SQLException {
+        String columns = String.join(", ", row.keySet());
+        String placeholders = String.join(", ", Collections.nCopies(row.size(), "?"));
+        try (PreparedStatement statement = connection.prepareStatement(
+            "insert into " + table + " (" + columns + ") values (" + placeholders + ")")) {
+            int index = 1;
+            for (Object value : row.values()) {
+                statement.setObject(index++, value);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchWork {
+        void run(List<Object> batch) throws SQLException;
+    }
+
+    /**
+     * Reserves blocks of credential ids on the target the way the API's nodes do, so neither
+     * hands out an id the other has used.
+     */
+    private static final class CredentialIds {
+
+        private final Connection connection;
+        private final String nextValue;
+        private long next;
+        private long last = -1;
+
+        private CredentialIds(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.nextValue = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL")
+                ? "select nextval('user_credentials_seq')"
+                : "select next value for user_credentials_seq";
+        }
+
+        long next() throws SQLException {
+            if (next > last) {
+                try (PreparedStatement statement = connection.prepareStatement(nextValue);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    last = resultSet.getLong(1);
+                }
+                next = Math.max(1, last - ID_BLOCK + 1);
+            }
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.reshard;
+
+import com.helioauth.passkeys.api.datasource.ShardKeys;
+
+import java.sql.DriverManager;
+import java.util.Arrays;
+
+/**
+ * Moves a range of user buckets from one shard to another, in two steps around the switch of
+ * {@code sharding.buckets}: copy, switch, copy again to catch up, then purge.
+ */
+public final class Reshard {
+
+    private Reshard() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(ReshardOptions.USAGE);
+            return;
+        }
+
+        ReshardOptions options;
+        try {
+            options = ReshardOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.print(ReshardOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        BucketMover mover = new BucketMover(
+            () -> DriverManager.getConnection(options.sourceUrl(), options.username(), options.password()),
+            () -> DriverManager.getConnection(options.targetUrl(), options.username(), options.password()),
+            () -> DriverManager.getConnection(options.directoryUrl(), options.username(), options.password()),
+            new ShardKeys(options.bucketSecret()),
+            options.buckets(),
+            options.batchSize()
+        );
+
+        long start = System.nanoTime();
+        switch (options.step()) {
+            case COPY -> {
+                BucketMover.Result result = mover.copy();
+                System.out.printf("Buckets %s: copied %,d users and %,d credentials, updated %,d credentials, "
+                        + "listed %,d user handles in the directory%n",
+                    options.buckets(), result.users(), result.credentials(), result.updatedCredentials(),
+                    result.directoryEntries());
+            }
+            case PURGE -> System.out.printf("Buckets %s: purged %,d users from the source%n",
+                options.buckets(), mover.purge());
+        }
+        System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
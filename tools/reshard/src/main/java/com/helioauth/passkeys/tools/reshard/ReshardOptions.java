@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.reshard;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line options of the resharding tool.
+ */
+public record ReshardOptions(
+    Step step,
+    String sourceUrl,
+    String targetUrl,
+    String directoryUrl,
+    String username,
+    String password,
+    String bucketSecret,
+    BucketMover.Buckets buckets,
+    int batchSize
+) {
+
+    public enum Step {
+        COPY,
+        PURGE
+    }
+
+    static final String USAGE = """
+        Usage: java -jar reshard.jar --step=STEP --source-url=URL --target-url=URL --buckets=RANGE
+                            --bucket-secret=SECRET [options]
+
+          --step=STEP               copy users to the target and bring moved ones up to date, or
+                                    purge moved users from the source
+          --source-url=URL          shard the buckets are on now
+          --target-url=URL          shard the buckets move to, with the schema already created
+          --directory-url=URL       shard 0, which keeps the user handle directory
+                                    (default --source-url)
+          --buckets=RANGE           buckets to move, like 512-767 or 7
+          --bucket-secret=SECRET    sharding.bucket-secret of the API
+          --db-username=NAME        (default passkeys)
+          --db-password=PASSWORD
+          --batch-size=N            users per transaction (default 500)
+        """;
+
+    public static ReshardOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(arg.substring(2), args[++i]);
+            } else {
+                values.put(arg.substring(2), "true");
+            }
+        }
+
+        for (String required : new String[]{"step", "source-url", "target-url", "buckets", "bucket-secret"}) {
+            if (!values.containsKey(required)) {
+                throw new IllegalArgumentException("--" + required + " is required");
+            }
+        }
+        if (values.get("source-url").equals(values.get("target-url"))) {
+            throw new IllegalArgumentException("--source-url and --target-url must differ");
+        }
+
+        int batchSize = Integer.parseInt(values.getOrDefault("batch-size", "500"));
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("--batch-size must be positive");
+        }
+
+        return new ReshardOptions(
+            Step.valueOf(values.get("step").toUpperCase(Locale.ROOT)),
+            values.get("source-url"),
+            values.get("target-url"),
+            values.getOrDefault("directory-url", values.get("source-url")),
+            values.getOrDefault("db-username", "passkeys"),
+            values.get("db-password"),
+            values.get("bucket-secret"),
+            BucketMover.Buckets.parse(values.get("buckets")),
+            batchSize
+        );
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.reshard;
+
+import com.helioauth.passkeys.api.datasource.ShardKeys;
+import com.yubico.webauthn.data.ByteArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketMoverTest {
+
+    private static final BucketMover.Buckets UPPER_HALF = new BucketMover.Buckets(512, 1023);
+    private static final ShardKeys KEYS = new ShardKeys("reshard-test");
+
+    private final String source = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private final String target = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private final UUID application = UUID.randomUUID();
+    private final List<String> moving = new ArrayList<>();
+    private final List<String> staying = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        createSchema(source);
+        createSchema(target);
+        execute(source, "insert into applications values ('" + application + "', 'app', 'key', null, null, "
+            + "current_timestamp, current_timestamp)");
+        for (int i = 0; moving.size() < 20 || staying.size() < 20; i++) {
+            String name = "user-" + i;
+            List<String> users = UPPER_HALF.contain(KEYS.bucketOf(name)) ? moving : staying;
+            if (users.size() < 20) {
+                users.add(name);
+            }
+        }
+        for (String name : moving) {
+            user(name, KEYS.newUserHandle(name), 2);
+        }
+        for (String name : staying) {
+            user(name, KEYS.newUserHandle(name), 1);
+        }
+    }
+
+    @Test
+    void copy_copiesTheUsersOfTheBuckets() throws SQLException {
+        BucketMover.Result result = mover().copy();
+
+        assertEquals(20, result.users());
+        assertEquals(40, result.credentials());
+        assertEquals(20, count(target, "select count(*) from users"));
+        assertEquals(40, count(target, "select count(*) from user_credentials"));
+        assertEquals(1, count(target, "select count(*) from applications"));
+        assertEquals(0, count(target, "select count(*) from users where name = '" + staying.getFirst() + "'"));
+        assertEquals(40, count(source, "select count(*) from users"));
+        // Credential ids come from the target's sequence, in whole blocks
+        assertEquals(40, count(target, "select count(distinct id) from user_credentials where id between 1 and 100"));
+        assertTrue(count(target, "select next value for user_credentials_seq") > 40);
+    }
+
+    @Test
+    void copyingAgain_catchesUpWithTheSource() throws SQLException {
+        mover().copy();
+        String name = moving.getFirst();
+        execute(source, "update user_credentials set signature_count = 42 where display_name = '" + name + "'");
+        String latecomer = moving.get(1);
+        execute(source, "insert into user_credentials (id, credential_id, user_handle, display_name, signature_count, "
+            + "public_key_cose, created_at, user_id) select 1000, 'late', user_handle, display_name, 0, 'pQE', "
+            + "current_timestamp, user_id from user_credentials where display_name = '" + latecomer + "' limit 1");
+
+        BucketMover.Result result = mover().copy();
+
+        assertEquals(0, result.users());
+        assertEquals(1, result.credentials());
+        assertEquals(40, result.updatedCredentials());
+        assertEquals(2, count(target, "select count(*) from user_credentials where signature_count = 42"));
+        execute(target, "update user_credentials set signature_count = 50 where display_name = '" + name + "'");
+        mover().copy();
+        assertEquals(2, count(target, "select count(*) from user_credentials where signature_count = 50"));
+        assertEquals(3, count(target, "select count(*) from user_credentials where display_name = '" + latecomer + "'"));
+    }
+
+    @Test
+    void legacyUserHandles_areListedInTheDirectory() throws SQLException {
+        String name = "legacy-" + moving.size();
+        while (!UPPER_HALF.contain(KEYS.bucketOf(name))) {
+            name = name + "x";
+        }
+        ByteArray legacyHandle = new ByteArray(UUID.randomUUID().toString().getBytes());
+        user(name, legacyHandle, 1);
+
+        BucketMover.Result result = mover().copy();
+        mover().copy();
+
+        assertEquals(1, result.directoryEntries());
+        assertEquals(KEYS.bucketOf(name), count(source, "select bucket from user_handle_directory where user_handle = '"
+            + legacyHandle.getBase64() + "'"));
+        assertEquals(1, count(source, "select count(*) from user_handle_directory"));
+    }
+
+    @Test
+    void purge_removesOnlyUsersOnTheTarget() throws SQLException {
+        mover().copy();
+        String notCopied = moving.getLast();
+        execute(target, "delete from user_credentials where display_name = '" + notCopied + "'");
+        execute(target, "delete from users where name = '" + notCopied + "'");
+
+        assertEquals(19, mover().purge());
+
+        assertEquals(21, count(source, "select count(*) from users"));
+        assertEquals(1, count(source, "select count(*) from users where name = '" + notCopied + "'"));
+        assertEquals(staying.size() + 2, count(source, "select count(*) from user_credentials"));
+    }
+
+    @Test
+    void parsesBucketRanges() {
+        assertEquals(new BucketMover.Buckets(512, 767), BucketMover.Buckets.parse("512-767"));
+        assertEquals(new BucketMover.Buckets(7, 7), BucketMover.Buckets.parse("7"));
+        assertThrows(IllegalArgumentException.class, () -> BucketMover.Buckets.parse("512-1024"));
+        assertThrows(IllegalArgumentException.class, () -> ReshardOptions.parse("--step=copy", "--buckets=1",
+            "--bucket-secret=reshard-test", "--source-url=" + source, "--target-url=" + source));
+    }
+
+    private BucketMover mover() {
+        return new BucketMover(() -> open(source), () -> open(target), () -> open(source), KEYS, UPPER_HALF, 7);
+    }
+
+    private void user(String name, ByteArray userHandle, int credentials) throws SQLException {
+        UUID id = UUID.randomUUID();
+        try (Connection connection = open(source)) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                "insert into users values (?, ?, ?, current_timestamp, current_timestamp, ?)")) {
+                statement.setObject(1, id);
+                statement.setString(2, name);
+                statement.setString(3, name);
+                statement.setObject(4, application);
+                statement.executeUpdate();
+            }
+            for (int i = 0; i < credentials; i++) {
+                try (PreparedStatement statement = connection.prepareStatement("insert into user_credentials "
+                    + "(id, credential_id, user_handle, display_name, signature_count, public_key_cose, created_at, user_id) "
+                    + "values (next value for user_credentials_seq, ?, ?, ?, 0, 'pQE', current_timestamp, ?)")) {
+                    statement.setString(1, UUID.randomUUID().toString());
+                    statement.setString(2, userHandle.getBase64());
+                    statement.setString(3, name);
+                    statement.setObject(4, id);
+                    statement.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void createSchema(String url) throws SQLException {
+        execute(url, "create sequence user_credentials_seq start with 1 increment by 50");
+        execute(url, "create table applications (id uuid primary key, name varchar(255) not null, "
+            + "api_key varchar(255) not null, relying_party_name varchar(255), relying_party_hostname varchar(255), "
+            + "created_at timestamp(6) with time zone not null, updated_at timestamp(6) with time zone not null)");
+        execute(url, "create table users (id uuid primary key, name varchar(255), display_name varchar(255), "
+            + "created_at timestamp(6) with time zone, updated_at timestamp(6) with time zone, "
+            + "application_id uuid references applications)");
+        execute(url, "create table user_credentials (id bigint primary key, credential_id varchar(255), "
+            + "user_handle varchar(255), display_name varchar(255), signature_count bigint, public_key_cose text, "
+            + "attestation_object text, client_data_json text, backup_eligible boolean, backup_state boolean, "
+            + "is_discoverable boolean, created_at timestamp(6) with time zone not null, "
+            + "last_used_at timestamp(6) with time zone, user_id uuid not null references users)");
+        execute(url, "create table user_handle_directory (user_handle varchar(255) primary key, bucket integer not null)");
+    }
+
+    private void execute(String url, String sql) throws SQLException {
+        try (Connection connection = open(url); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private long count(String url, String sql) throws SQLException {
+        try (Connection connection = open(url);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private Connection open(String url) throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+/**
+ * Attestation statement formats the {@link SoftwareAuthenticator} can produce.
+ */
+public enum AttestationFormat {
+    /**
+     * No attestation statement.
+     */
+    NONE("none"),
+
+    /**
+     * Packed self attestation, signed with the credential private key.
+     */
+    PACKED("packed");
+
+    private final String value;
+
+    AttestationFormat(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
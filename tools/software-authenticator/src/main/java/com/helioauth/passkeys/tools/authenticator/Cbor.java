@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+/**
+ * CBOR encoding of COSE keys and attestation objects. Maps are written with definite lengths,
+ * as CTAP2 canonical encoding requires.
+ */
+final class Cbor {
+
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private Cbor() {
+    }
+
+    static byte[] encodeCoseKey(CoseAlgorithm algorithm, PublicKey publicKey) {
+        return write(generator -> {
+            generator.writeStartObject(null, algorithm == CoseAlgorithm.ES256 ? 5 : 4);
+            switch (algorithm) {
+                case ES256 -> {
+                    ECPublicKey ecKey = (ECPublicKey) publicKey;
+                    writeIntField(generator, 1, 2);
+                    writeIntField(generator, 3, algorithm.getIdentifier().getId());
+                    writeIntField(generator, -1, 1);
+                    generator.writeFieldId(-2);
+                    generator.writeBinary(unsigned(ecKey.getW().getAffineX(), 32));
+                    generator.writeFieldId(-3);
+                    generator.writeBinary(unsigned(ecKey.getW().getAffineY(), 32));
+                }
+                case EdDSA -> {
+                    byte[] encoded = publicKey.getEncoded();
+                    writeIntField(generator, 1, 1);
+                    writeIntField(generator, 3, algorithm.getIdentifier().getId());
+                    writeIntField(generator, -1, 6);
+                    generator.writeFieldId(-2);
+                    generator.writeBinary(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length));
+                }
+                case RS256 -> {
+                    RSAPublicKey rsaKey = (RSAPublicKey) publicKey;
+                    writeIntField(generator, 1, 3);
+                    writeIntField(generator, 3, algorithm.getIdentifier().getId());
+                    generator.writeFieldId(-1);
+                    generator.writeBinary(unsigned(rsaKey.getModulus(), 0));
+                    generator.writeFieldId(-2);
+                    generator.writeBinary(unsigned(rsaKey.getPublicExponent(), 0));
+                }
+            }
+            generator.writeEndObject();
+        });
+    }
+
+    static byte[] encodeAttestationObject(AttestationFormat format, CoseAlgorithm algorithm,
+                                          byte[] authenticatorData, byte[] signature) {
+        return write(generator -> {
+            generator.writeStartObject(null, 3);
+            generator.writeStringField("fmt", format.getValue());
+            generator.writeFieldName("attStmt");
+            generator.writeStartObject(null, format == AttestationFormat.PACKED ? 2 : 0);
+            if (format == AttestationFormat.PACKED) {
+                generator.writeNumberField("alg", algorithm.getIdentifier().getId());
+                generator.writeFieldName("sig");
+                generator.writeBinary(signature);
+            }
+            generator.writeEndObject();
+            generator.writeFieldName("authData");
+            generator.writeBinary(authenticatorData);
+            generator.writeEndObject();
+        });
+    }
+
+    private static void writeIntField(CBORGenerator generator, int key, long value) throws IOException {
+        generator.writeFieldId(key);
+        generator.writeNumber(value);
+    }
+
+    /**
+     * Big-endian unsigned bytes of {@code value}, left-padded to {@code length} bytes if
+     * {@code length} is positive.
+     */
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (length <= 0 || bytes.length == length) {
+            return bytes;
+        }
+
+        byte[] padded = new byte[length];
+        System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+        return padded;
+    }
+
+    private static byte[] write(CborWriter writer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (CBORGenerator generator = CBOR_FACTORY.createGenerator(out)) {
+            writer.write(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface CborWriter {
+        void write(CBORGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+import com.yubico.webauthn.data.COSEAlgorithmIdentifier;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+
+/**
+ * Signature algorithms supported by the {@link SoftwareAuthenticator}.
+ */
+public enum CoseAlgorithm {
+    ES256(COSEAlgorithmIdentifier.ES256, "SHA256withECDSA"),
+    EdDSA(COSEAlgorithmIdentifier.EdDSA, "Ed25519"),
+    RS256(COSEAlgorithmIdentifier.RS256, "SHA256withRSA");
+
+    private final COSEAlgorithmIdentifier identifier;
+    private final String signatureAlgorithm;
+
+    CoseAlgorithm(COSEAlgorithmIdentifier identifier, String signatureAlgorithm) {
+        this.identifier = identifier;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public COSEAlgorithmIdentifier getIdentifier() {
+        return identifier;
+    }
+
+    String getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public KeyPair generateKeyPair(SecureRandom random) {
+        try {
+            KeyPairGenerator generator;
+            switch (this) {
+                case ES256 -> {
+                    generator = KeyPairGenerator.getInstance("EC");
+                    generator.initialize(new ECGenParameterSpec("secp256r1"), random);
+                }
+                case EdDSA -> {
+                    generator = KeyPairGenerator.getInstance("Ed25519");
+                    generator.initialize(255, random);
+                }
+                case RS256 -> {
+                    generator = KeyPairGenerator.getInstance("RSA");
+                    generator.initialize(new RSAKeyGenParameterSpec(2048, RSAKeyGenParameterSpec.F4), random);
+                }
+                default -> throw new IllegalStateException("Unsupported algorithm " + this);
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate " + this + " key pair", e);
+        }
+    }
+}
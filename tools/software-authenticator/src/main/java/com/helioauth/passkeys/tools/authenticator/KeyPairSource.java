@@ -0,0 +1,34 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+
+/**
+ * Supplies the key pair of each credential a {@link SoftwareAuthenticator} creates.
+ */
+@FunctionalInterface
+public interface KeyPairSource {
+
+    /**
+     * Generates a fresh key pair for every credential.
+     */
+    KeyPairSource GENERATE = CoseAlgorithm::generateKeyPair;
+
+    KeyPair keyPair(CoseAlgorithm algorithm, SecureRandom random);
+}
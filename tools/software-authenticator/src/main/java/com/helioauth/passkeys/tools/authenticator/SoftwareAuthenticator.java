@@ -0,0 +1,320 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.yubico.webauthn.data.AuthenticatorAssertionResponse;
+import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
+import com.yubico.webauthn.data.AuthenticatorTransport;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.ClientAssertionExtensionOutputs;
+import com.yubico.webauthn.data.ClientRegistrationExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+import com.yubico.webauthn.data.PublicKeyCredentialRequestOptions;
+import com.yubico.webauthn.data.exception.Base64UrlException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory WebAuthn authenticator and client for load generation and benchmarks.
+ * <p>
+ * It answers {@code navigator.credentials.create()} and {@code navigator.credentials.get()}
+ * requests with responses that pass full relying-party verification: client data bound to the
+ * configured origin, authenticator data with user presence and verification flags, and
+ * signatures over the real challenge. Credentials are kept in memory and are discoverable.
+ * <p>
+ * Instances are thread-safe. Pass a seeded {@link SecureRandom} (see {@link #seededRandom(long)})
+ * to generate the same credential ids and keys on every run.
+ */
+public class SoftwareAuthenticator {
+
+    private static final byte FLAG_USER_PRESENT = 0x01;
+    private static final byte FLAG_USER_VERIFIED = 0x04;
+    private static final byte FLAG_ATTESTED_CREDENTIAL_DATA = 0x40;
+    private static final byte[] AAGUID = new byte[16];
+    private static final int CREDENTIAL_ID_LENGTH = 32;
+
+    private static final ObjectMapper JSON = JsonMapper.builder()
+        .serializationInclusion(JsonInclude.Include.NON_ABSENT)
+        .defaultBase64Variant(Base64Variants.MODIFIED_FOR_URL)
+        .addModule(new Jdk8Module())
+        .build();
+
+    private final String origin;
+    private final SecureRandom random;
+    private final KeyPairSource keyPairs;
+    private final Map<ByteArray, SoftwareCredential> credentials = new ConcurrentHashMap<>();
+
+    public SoftwareAuthenticator(String origin) {
+        this(origin, new SecureRandom());
+    }
+
+    public SoftwareAuthenticator(String origin, SecureRandom random) {
+        this(origin, random, KeyPairSource.GENERATE);
+    }
+
+    public SoftwareAuthenticator(String origin, SecureRandom random, KeyPairSource keyPairs) {
+        this.origin = origin;
+        this.random = random;
+        this.keyPairs = keyPairs;
+    }
+
+    /**
+     * A deterministic random source for reproducible credentials.
+     */
+    public static SecureRandom seededRandom(long seed) {
+        try {
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            random.setSeed(seed);
+            return random;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Creates a new credential, the equivalent of {@code navigator.credentials.create()}.
+     */
+    public PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> register(
+        PublicKeyCredentialCreationOptions options,
+        CoseAlgorithm algorithm,
+        AttestationFormat format
+    ) {
+        boolean offered = options.getPubKeyCredParams().stream()
+            .anyMatch(parameters -> parameters.getAlg() == algorithm.getIdentifier());
+        if (!offered) {
+            throw new IllegalArgumentException("Relying party does not accept " + algorithm);
+        }
+
+        String rpId = options.getRp().getId();
+        boolean excluded = options.getExcludeCredentials().orElse(Collections.emptySet()).stream()
+            .map(PublicKeyCredentialDescriptor::getId)
+            .map(credentials::get)
+            .anyMatch(credential -> credential != null && credential.getRpId().equals(rpId));
+        if (excluded) {
+            throw new IllegalStateException("Authenticator already holds an excluded credential");
+        }
+
+        SoftwareCredential credential = createCredential(options.getUser().getId(), rpId, algorithm);
+        byte[] clientDataJson = clientDataJson("webauthn.create", options.getChallenge());
+        byte[] authenticatorData = registrationAuthenticatorData(credential);
+        byte[] signature = format == AttestationFormat.PACKED
+            ? sign(credential, authenticatorData, clientDataJson)
+            : null;
+
+        try {
+            return PublicKeyCredential.<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs>builder()
+                .id(credential.getCredentialId())
+                .response(AuthenticatorAttestationResponse.builder()
+                    .attestationObject(new ByteArray(
+                        Cbor.encodeAttestationObject(format, algorithm, authenticatorData, signature)
+                    ))
+                    .clientDataJSON(new ByteArray(clientDataJson))
+                    .transports(Set.of(AuthenticatorTransport.INTERNAL))
+                    .build())
+                .clientExtensionResults(ClientRegistrationExtensionOutputs.builder().build())
+                .build();
+        } catch (IOException | Base64UrlException e) {
+            throw new IllegalStateException("Failed to build attestation response", e);
+        }
+    }
+
+    /**
+     * Signs an assertion with a matching credential, the equivalent of {@code navigator.credentials.get()}.
+     * Uses the first allowed credential this authenticator holds, or any credential for the relying
+     * party when the request allows discoverable credentials.
+     */
+    public PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> authenticate(
+        PublicKeyCredentialRequestOptions options
+    ) {
+        String rpId = options.getRpId();
+        List<PublicKeyCredentialDescriptor> allowCredentials = options.getAllowCredentials().orElse(List.of());
+
+        Optional<SoftwareCredential> match = allowCredentials.isEmpty()
+            ? credentials.values().stream().filter(credential -> credential.getRpId().equals(rpId)).findFirst()
+            : allowCredentials.stream()
+                .map(descriptor -> credentials.get(descriptor.getId()))
+                .filter(credential -> credential != null && credential.getRpId().equals(rpId))
+                .findFirst();
+
+        SoftwareCredential credential = match.orElseThrow(() ->
+            new IllegalStateException("No credential for relying party " + rpId));
+
+        byte[] clientDataJson = clientDataJson("webauthn.get", options.getChallenge());
+        byte[] authenticatorData = ByteBuffer.allocate(37)
+            .put(sha256(rpId.getBytes(StandardCharsets.UTF_8)))
+            .put((byte) (FLAG_USER_PRESENT | FLAG_USER_VERIFIED))
+            .putInt((int) credential.nextSignatureCount())
+            .array();
+
+        try {
+            return PublicKeyCredential.<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs>builder()
+                .id(credential.getCredentialId())
+                .response(AuthenticatorAssertionResponse.builder()
+                    .authenticatorData(new ByteArray(authenticatorData))
+                    .clientDataJSON(new ByteArray(clientDataJson))
+                    .signature(new ByteArray(sign(credential, authenticatorData, clientDataJson)))
+                    .userHandle(credential.getUserHandle())
+                    .build())
+                .clientExtensionResults(ClientAssertionExtensionOutputs.builder().build())
+                .build();
+        } catch (IOException | Base64UrlException e) {
+            throw new IllegalStateException("Failed to build assertion response", e);
+        }
+    }
+
+    /**
+     * Generates and stores a credential without running a ceremony, for seeding data that is
+     * registered with the relying party by other means.
+     */
+    public SoftwareCredential createCredential(ByteArray userHandle, String rpId, CoseAlgorithm algorithm) {
+        byte[] credentialId = new byte[CREDENTIAL_ID_LENGTH];
+        random.nextBytes(credentialId);
+
+        SoftwareCredential credential = new SoftwareCredential(
+            new ByteArray(credentialId),
+            userHandle,
+            rpId,
+            algorithm,
+            keyPairs.keyPair(algorithm, random),
+            0
+        );
+        credentials.put(credential.getCredentialId(), credential);
+        return credential;
+    }
+
+    public void addCredential(SoftwareCredential credential) {
+        credentials.put(credential.getCredentialId(), credential);
+    }
+
+    public Optional<SoftwareCredential> getCredential(ByteArray credentialId) {
+        return Optional.ofNullable(credentials.get(credentialId));
+    }
+
+    public Collection<SoftwareCredential> getCredentials() {
+        return Collections.unmodifiableCollection(credentials.values());
+    }
+
+    /**
+     * Parses the JSON the API returns for {@code navigator.credentials.create()}, with or without
+     * the {@code publicKey} wrapper.
+     */
+    public static PublicKeyCredentialCreationOptions parseCreationOptions(String json) throws JsonProcessingException {
+        return JSON.treeToValue(unwrap(JSON.readTree(json)), PublicKeyCredentialCreationOptions.class);
+    }
+
+    /**
+     * Parses the JSON the API returns for {@code navigator.credentials.get()}, with or without
+     * the {@code publicKey} wrapper.
+     */
+    public static PublicKeyCredentialRequestOptions parseRequestOptions(String json) throws JsonProcessingException {
+        return JSON.treeToValue(unwrap(JSON.readTree(json)), PublicKeyCredentialRequestOptions.class);
+    }
+
+    /**
+     * Serializes a credential the way a browser client would send it with {@code JSON.stringify()}.
+     */
+    public static String toJson(PublicKeyCredential<?, ?> credential) {
+        try {
+            return JSON.writeValueAsString(credential);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonNode unwrap(JsonNode node) {
+        return node.has("publicKey") ? node.get("publicKey") : node;
+    }
+
+    private byte[] clientDataJson(String type, ByteArray challenge) {
+        ObjectNode clientData = JSON.createObjectNode()
+            .put("type", type)
+            .put("challenge", challenge.getBase64Url())
+            .put("origin", origin)
+            .put("crossOrigin", false);
+        try {
+            return JSON.writeValueAsBytes(clientData);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] registrationAuthenticatorData(SoftwareCredential credential) {
+        byte[] credentialId = credential.getCredentialId().getBytes();
+        byte[] publicKeyCose = credential.getPublicKeyCose().getBytes();
+
+        return ByteBuffer.allocate(37 + AAGUID.length + 2 + credentialId.length + publicKeyCose.length)
+            .put(sha256(credential.getRpId().getBytes(StandardCharsets.UTF_8)))
+            .put((byte) (FLAG_USER_PRESENT | FLAG_USER_VERIFIED | FLAG_ATTESTED_CREDENTIAL_DATA))
+            .putInt((int) credential.getSignatureCount())
+            .put(AAGUID)
+            .putShort((short) credentialId.length)
+            .put(credentialId)
+            .put(publicKeyCose)
+            .array();
+    }
+
+    private static byte[] sign(SoftwareCredential credential, byte[] authenticatorData, byte[] clientDataJson) {
+        try {
+            PrivateKey privateKey = credential.getKeyPair().getPrivate();
+            Signature signature = Signature.getInstance(credential.getAlgorithm().getSignatureAlgorithm());
+            signature.initSign(privateKey);
+            signature.update(authenticatorData);
+            signature.update(sha256(clientDataJson));
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign with " + credential.getAlgorithm(), e);
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
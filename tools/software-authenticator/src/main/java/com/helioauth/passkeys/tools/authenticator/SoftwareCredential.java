@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+import com.yubico.webauthn.data.ByteArray;
+
+import java.security.KeyPair;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A credential held by a {@link SoftwareAuthenticator}: the key pair plus the data the
+ * authenticator binds to it at registration time.
+ */
+public final class SoftwareCredential {
+    private final ByteArray credentialId;
+    private final ByteArray userHandle;
+    private final String rpId;
+    private final CoseAlgorithm algorithm;
+    private final KeyPair keyPair;
+    private final AtomicLong signatureCount;
+
+    public SoftwareCredential(ByteArray credentialId, ByteArray userHandle, String rpId,
+                              CoseAlgorithm algorithm, KeyPair keyPair, long signatureCount) {
+        this.credentialId = credentialId;
+        this.userHandle = userHandle;
+        this.rpId = rpId;
+        this.algorithm = algorithm;
+        this.keyPair = keyPair;
+        this.signatureCount = new AtomicLong(signatureCount);
+    }
+
+    public ByteArray getCredentialId() {
+        return credentialId;
+    }
+
+    public ByteArray getUserHandle() {
+        return userHandle;
+    }
+
+    public String getRpId() {
+        return rpId;
+    }
+
+    public CoseAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public KeyPair getKeyPair() {
+        return keyPair;
+    }
+
+    public long getSignatureCount() {
+        return signatureCount.get();
+    }
+
+    /**
+     * The public key in COSE_Key format, as stored by the relying party.
+     */
+    public ByteArray getPublicKeyCose() {
+        return new ByteArray(Cbor.encodeCoseKey(algorithm, keyPair.getPublic()));
+    }
+
+    long nextSignatureCount() {
+        return signatureCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2025 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.helioauth.passkeys.tools.authenticator;
+
+import com.yubico.webauthn.AssertionRequest;
+import com.yubico.webauthn.AssertionResult;
+import com.yubico.webauthn.CredentialRepository;
+import com.yubico.webauthn.FinishAssertionOptions;
+import com.yubico.webauthn.FinishRegistrationOptions;
+import com.yubico.webauthn.RegisteredCredential;
+import com.yubico.webauthn.RegistrationResult;
+import com.yubico.webauthn.RelyingParty;
+import com.yubico.webauthn.StartAssertionOptions;
+import com.yubico.webauthn.StartRegistrationOptions;
+import com.yubico.webauthn.data.AuthenticatorAssertionResponse;
+import com.yubico.webauthn.data.AuthenticatorAttestationResponse;
+import com.yubico.webauthn.data.ByteArray;
+import com.yubico.webauthn.data.ClientAssertionExtensionOutputs;
+import com.yubico.webauthn.data.ClientRegistrationExtensionOutputs;
+import com.yubico.webauthn.data.PublicKeyCredential;
+import com.yubico.webauthn.data.PublicKeyCredentialCreationOptions;
+import com.yubico.webauthn.data.PublicKeyCredentialDescriptor;
+import com.yubico.webauthn.data.RelyingPartyIdentity;
+import com.yubico.webauthn.data.UserIdentity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoftwareAuthenticatorTest {
+
+    private static final String RP_ID = "localhost";
+
+    private final TestCredentialRepository credentialRepository = new TestCredentialRepository();
+    private RelyingParty relyingParty;
+    private SoftwareAuthenticator authenticator;
+
+    @BeforeEach
+    void setUp() {
+        relyingParty = RelyingParty.builder()
+            .identity(RelyingPartyIdentity.builder().id(RP_ID).name("Test").build())
+            .credentialRepository(credentialRepository)
+            .build();
+        authenticator = new SoftwareAuthenticator("https://localhost");
+    }
+
+    static Stream<Arguments> algorithmsAndFormats() {
+        return Arrays.stream(CoseAlgorithm.values())
+            .flatMap(algorithm -> Arrays.stream(AttestationFormat.values())
+                .map(format -> Arguments.of(algorithm, format)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("algorithmsAndFormats")
+    void registrationAndAssertionPassVerification(CoseAlgorithm algorithm, AttestationFormat format) throws Exception {
+        PublicKeyCredentialCreationOptions creationOptions = startRegistration("alice");
+
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> credential =
+            authenticator.register(creationOptions, algorithm, format);
+        RegistrationResult registration = relyingParty.finishRegistration(FinishRegistrationOptions.builder()
+            .request(creationOptions)
+            .response(credential)
+            .build());
+
+        assertEquals(format.getValue(), credential.getResponse().getAttestation().getFormat());
+        assertArrayEquals(
+            authenticator.getCredential(credential.getId()).orElseThrow().getPublicKeyCose().getBytes(),
+            registration.getPublicKeyCose().getBytes()
+        );
+        credentialRepository.add("alice", creationOptions.getUser().getId(), registration);
+
+        AssertionRequest assertionRequest = relyingParty.startAssertion(StartAssertionOptions.builder().username("alice").build());
+        AssertionResult assertion = relyingParty.finishAssertion(FinishAssertionOptions.builder()
+            .request(assertionRequest)
+            .response(authenticator.authenticate(assertionRequest.getPublicKeyCredentialRequestOptions()))
+            .build());
+
+        assertTrue(assertion.isSuccess());
+        assertEquals("alice", assertion.getUsername());
+        assertEquals(1, assertion.getSignatureCount());
+    }
+
+    @Test
+    void jsonRoundTripMatchesBrowserFormat() throws Exception {
+        PublicKeyCredentialCreationOptions creationOptions = SoftwareAuthenticator.parseCreationOptions(
+            startRegistration("bob").toCredentialsCreateJson()
+        );
+
+        PublicKeyCredential<AuthenticatorAttestationResponse, ClientRegistrationExtensionOutputs> credential =
+            PublicKeyCredential.parseRegistrationResponseJson(SoftwareAuthenticator.toJson(
+                authenticator.register(creationOptions, CoseAlgorithm.ES256, AttestationFormat.NONE)
+            ));
+        RegistrationResult registration = relyingParty.finishRegistration(FinishRegistrationOptions.builder()
+            .request(creationOptions)
+            .response(credential)
+            .build());
+        credentialRepository.add("bob", creationOptions.getUser().getId(), registration);
+
+        AssertionRequest assertionRequest = relyingParty.startAssertion(StartAssertionOptions.builder().build());
+        PublicKeyCredential<AuthenticatorAssertionResponse, ClientAssertionExtensionOutputs> assertion =
+            PublicKeyCredential.parseAssertionResponseJson(SoftwareAuthenticator.toJson(authenticator.authenticate(
+                SoftwareAuthenticator.parseRequestOptions(assertionRequest.toCredentialsGetJson())
+            )));
+
+        assertTrue(relyingParty.finishAssertion(FinishAssertionOptions.builder()
+            .request(assertionRequest)
+            .response(assertion)
+            .build()).isSuccess());
+    }
+
+    @Test
+    void seededRandomProducesSameCredentials() {
+        ByteArray userHandle = new ByteArray(new byte[] {1, 2, 3});
+        SoftwareCredential first = new SoftwareAuthenticator("https://localhost", SoftwareAuthenticator.seededRandom(42))
+            .createCredential(userHandle, RP_ID, CoseAlgorithm.ES256);
+        SoftwareCredential second = new SoftwareAuthenticator("https://localhost", SoftwareAuthenticator.seededRandom(42))
+            .createCredential(userHandle, RP_ID, CoseAlgorithm.ES256);
+
+        assertEquals(first.getCredentialId(), second.getCredentialId());
+        assertEquals(first.getPublicKeyCose(), second.getPublicKeyCose());
+    }
+
+    @Test
+    void excludedCredentialIsRejected() {
+        PublicKeyCredentialCreationOptions first = startRegistration("carol");
+        ByteArray credentialId = authenticator.register(first, CoseAlgorithm.ES256, AttestationFormat.NONE).getId();
+
+        PublicKeyCredentialCreationOptions second = first.toBuilder()
+            .excludeCredentials(Set.of(PublicKeyCredentialDescriptor.builder().id(credentialId).build()))
+            .build();
+
+        assertThrows(IllegalStateException.class, () ->
+            authenticator.register(second, CoseAlgorithm.ES256, AttestationFormat.NONE));
+    }
+
+    private PublicKeyCredentialCreationOptions startRegistration(String username) {
+        return relyingParty.startRegistration(StartRegistrationOptions.builder()
+            .user(UserIdentity.builder()
+                .name(username)
+                .displayName(username)
+                .id(new ByteArray(username.getBytes()))
+                .build())
+            .build());
+    }
+
+    private static class TestCredentialRepository implements CredentialRepository {
+        private final Map<String, ByteArray> userHandles = new HashMap<>();
+        private final Map<ByteArray, RegisteredCredential> credentials = new HashMap<>();
+
+        void add(String username, ByteArray userHandle, RegistrationResult registration) {
+            userHandles.put(username, userHandle);
+            credentials.put(registration.getKeyId().getId(), RegisteredCredential.builder()
+                .credentialId(registration.getKeyId().getId())
+                .userHandle(userHandle)
+                .publicKeyCose(registration.getPublicKeyCose())
+                .signatureCount(registration.getSignatureCount())
+                .build());
+        }
+
+        @Override
+        public Set<PublicKeyCredentialDescriptor> getCredentialIdsForUsername(String username) {
+            ByteArray userHandle = userHandles.get(username);
+            return credentials.values().stream()
+                .filter(credential -> credential.getUserHandle().equals(userHandle))
+                .map(credential -> PublicKeyCredentialDescriptor.builder().id(credential.getCredentialId()).build())
+                .collect(Collectors.toSet());
+        }
+
+        @Override
+        public Optional<ByteArray> getUserHandleForUsername(String username) {
+            return Optional.ofNullable(userHandles.get(username));
+        }
+
+        @Override
+        public Optional<String> getUsernameForUserHandle(ByteArray userHandle) {
+            return userHandles.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(userHandle))
+                .map(Map.Entry::getKey)
+                .findFirst();
+        }
+
+        @Override
+        public Optional<RegisteredCredential> lookup(ByteArray credentialId, ByteArray userHandle) {
+            return Optional.ofNullable(credentials.get(credentialId))
+                .filter(credential -> credential.getUserHandle().equals(userHandle));
+        }
+
+        @Override
+        public Set<RegisteredCredential> lookupAll(ByteArray credentialId) {
+            return Optional.ofNullable(credentials.get(credentialId)).map(Set::of).orElse(Set.of());
+        }
+    }
+}